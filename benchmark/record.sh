@@ -0,0 +1,46 @@
+#!/bin/sh
+
+# Run the benchmarks and record the result with the environment of the run
+# usage: ./record.sh <name> [JMH options]
+#   ./record.sh main-baseline
+#   ./record.sh pipeline-reuse ConnectorJobHandler
+
+if [ -z "$1" ]; then
+  echo "usage: $0 <name> [JMH options]"
+  exit 1
+fi
+NAME=$1
+shift
+
+# no partial record: without the benchmarks, nothing is written in results/
+if [ ! -f target/benchmarks.jar ]; then
+  echo "target/benchmarks.jar not found: build the runtime (mvn install) and the benchmarks (mvn package) first"
+  exit 1
+fi
+
+RESULT=results/${NAME}
+
+{
+  echo "date: $(date -u +%Y-%m-%dT%H:%M:%SZ)"
+  echo "commit: $(git rev-parse --short HEAD)"
+  echo "jdk: $(java -version 2>&1 | head -1)"
+  echo "os: $(uname -srm)"
+  if [ -r /proc/cpuinfo ]; then
+    echo "cpu: $(grep -m1 'model name' /proc/cpuinfo | cut -d: -f2 | sed 's/^ //')"
+    echo "cores: $(grep -c ^processor /proc/cpuinfo)"
+    echo "memory: $(grep MemTotal /proc/meminfo | sed -E 's/MemTotal: +//')"
+  else
+    echo "cpu: $(sysctl -n machdep.cpu.brand_string 2>/dev/null)"
+    echo "cores: $(sysctl -n hw.ncpu 2>/dev/null)"
+    echo "memory: $(sysctl -n hw.memsize 2>/dev/null)"
+  fi
+} > "${RESULT}.env"
+
+java -jar target/benchmarks.jar -prof gc -rf json -rff "${RESULT}.json" "$@" > "${RESULT}.txt" 2>&1
+STATUS=$?
+cat "${RESULT}.txt"
+if [ $STATUS -ne 0 ]; then
+  echo "benchmarks failed: ${RESULT}.* removed"
+  rm -f "${RESULT}.env" "${RESULT}.json" "${RESULT}.txt"
+  exit $STATUS
+fi
@@ -0,0 +1,106 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  ConnectorJobHandlerBenchmark                                        */
+/*                                                                      */
+/*  Cost of the connector pipeline per job.                            */
+/*   perJobPipeline: metrics registry, outbound metrics, secret         */
+/*      aggregator and handler are built for each job (previous code)   */
+/*   reusedPipeline: one handler per runner, shared resources           */
+/*   cherryJobHandler: CherryConnectorJobHandler.handle(), the path of  */
+/*      a connector job in the runtime                                  */
+/*  Run with "-prof gc" to compare gc.alloc.rate.norm (bytes per job)   */
+/* ******************************************************************** */
+package io.camunda.cherry.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.camunda.cherry.definition.connector.SdkRunnerConnector;
+import io.camunda.cherry.runner.handler.CherryConnectorJobHandler;
+import io.camunda.cherry.runner.handler.ConnectorExecutionResources;
+import io.camunda.cherry.runner.handler.SuperConnectorJobHandler;
+import io.camunda.cherry.runtime.CherrySecretProvider;
+import io.camunda.client.api.response.ActivatedJob;
+import io.camunda.client.api.worker.JobClient;
+import io.camunda.client.jobhandling.CommandExceptionHandlingStrategy;
+import io.camunda.client.metrics.DefaultNoopMetricsRecorder;
+import io.camunda.connector.api.annotation.OutboundConnector;
+import io.camunda.connector.api.document.DocumentFactory;
+import io.camunda.connector.api.outbound.OutboundConnectorContext;
+import io.camunda.connector.api.outbound.OutboundConnectorFunction;
+import io.camunda.connector.api.secret.SecretProvider;
+import io.camunda.connector.api.validation.ValidationProvider;
+import io.camunda.connector.runtime.core.secret.SecretProviderAggregator;
+import io.camunda.connector.runtime.metrics.ConnectorsOutboundMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectorJobHandlerBenchmark {
+
+    private final OutboundConnectorFunction connectorFunction = context -> Map.of("result", "done");
+    private final SecretProvider secretProvider = FakeCamunda.fluent(SecretProvider.class);
+    private final ValidationProvider validationProvider = FakeCamunda.fluent(ValidationProvider.class);
+    private final CommandExceptionHandlingStrategy commandExceptionHandlingStrategy = FakeCamunda.fluent(
+            CommandExceptionHandlingStrategy.class);
+    private final DocumentFactory documentFactory = FakeCamunda.fluent(DocumentFactory.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private JobClient jobClient;
+    private ActivatedJob activatedJob;
+    private SuperConnectorJobHandler reusedHandler;
+    private CherryConnectorJobHandler cherryJobHandler;
+
+    @Setup
+    public void setup() {
+        jobClient = FakeCamunda.jobClient();
+        activatedJob = FakeCamunda.activatedJob("c-benchmark", "{\"message\":\"hello\",\"counter\":12}",
+                Map.of("message", "hello", "counter", 12), Map.of());
+
+        SimpleMeterRegistry sharedRegistry = new SimpleMeterRegistry();
+        reusedHandler = new SuperConnectorJobHandler(connectorFunction, new ConnectorsOutboundMetrics(sharedRegistry),
+                new DefaultNoopMetricsRecorder(), new SecretProviderAggregator(List.of(secretProvider)),
+                validationProvider, commandExceptionHandlingStrategy, documentFactory, objectMapper);
+
+        cherryJobHandler = new CherryConnectorJobHandler(new SdkRunnerConnector(new BenchmarkConnectorFunction()),
+                new NoopHistoryFactory(), null,
+                new ConnectorExecutionResources(new CherrySecretProvider(), validationProvider,
+                        commandExceptionHandlingStrategy, documentFactory, objectMapper, sharedRegistry));
+    }
+
+    @Benchmark
+    public Object perJobPipeline() {
+        DefaultNoopMetricsRecorder jobWorkerMetrics = new DefaultNoopMetricsRecorder();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ConnectorsOutboundMetrics outboundMetrics = new ConnectorsOutboundMetrics(meterRegistry);
+        SuperConnectorJobHandler handler = new SuperConnectorJobHandler(connectorFunction, outboundMetrics,
+                jobWorkerMetrics, new SecretProviderAggregator(List.of(secretProvider)), validationProvider,
+                commandExceptionHandlingStrategy, documentFactory, objectMapper);
+        return handler.execute(jobClient, activatedJob);
+    }
+
+    @Benchmark
+    public Object reusedPipeline() {
+        return reusedHandler.execute(jobClient, activatedJob);
+    }
+
+    @Benchmark
+    public void cherryJobHandler() {
+        cherryJobHandler.handle(jobClient, activatedJob);
+    }
+
+    @OutboundConnector(name = "BenchmarkConnector", inputVariables = {"message", "counter"}, type = "c-benchmark")
+    public static class BenchmarkConnectorFunction implements OutboundConnectorFunction {
+        @Override
+        public Object execute(OutboundConnectorContext context) {
+            return Map.of("result", "done");
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  FakeCamunda                                                         */
+/*                                                                      */
+/*  In-memory JobClient / ActivatedJob for the benchmarks: no gateway,  */
+/*  every command completes immediately.                                */
+/*  Fakes are dynamic proxies: a builder step returns the next step,    */
+/*  send() returns a completed future.                                  */
+/* ******************************************************************** */
+package io.camunda.cherry.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.camunda.client.api.CamundaFuture;
+import io.camunda.client.api.response.ActivatedJob;
+import io.camunda.client.api.worker.JobClient;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class FakeCamunda {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private FakeCamunda() {
+    }
+
+    /**
+     * A JobClient: complete/fail/throwError commands are accepted and completed immediately
+     *
+     * @return the job client
+     */
+    public static JobClient jobClient() {
+        return fluent(JobClient.class);
+    }
+
+    /**
+     * An activated job
+     *
+     * @param type          job type
+     * @param variablesJson variables, in JSON
+     * @param variables     same variables, as a map
+     * @param headers       custom headers
+     * @return the job
+     */
+    public static ActivatedJob activatedJob(String type,
+                                            String variablesJson,
+                                            Map<String, Object> variables,
+                                            Map<String, String> headers) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("getKey", 2251799813685249L);
+        values.put("getType", type);
+        values.put("getVariables", variablesJson);
+        values.put("getVariablesAsMap", variables);
+        values.put("getCustomHeaders", headers);
+        values.put("getTenantId", "<default>");
+        values.put("getRetries", 3);
+        values.put("getDeadline", System.currentTimeMillis() + 300_000L);
+        values.put("getBpmnProcessId", "benchmark");
+        values.put("getProcessDefinitionKey", 2251799813685250L);
+        values.put("getProcessInstanceKey", 2251799813685251L);
+        values.put("getElementId", "benchmarkTask");
+        values.put("getElementInstanceKey", 2251799813685252L);
+        values.put("getWorker", "benchmark");
+        values.put("getProcessDefinitionVersion", 1);
+
+        return (ActivatedJob) Proxy.newProxyInstance(FakeCamunda.class.getClassLoader(), new Class[]{ActivatedJob.class},
+                (proxy, method, args) -> {
+                    if (isObjectMethod(method))
+                        return objectMethod(proxy, method, args);
+                    if ("getVariable".equals(method.getName()) && args != null && args.length == 1)
+                        return variables.get(String.valueOf(args[0]));
+                    if (values.containsKey(method.getName()))
+                        return values.get(method.getName());
+                    return defaultValue(method.getReturnType());
+                });
+    }
+
+    /**
+     * An activated job decoding its variables at each getVariablesAsMap() / getVariable() call, like the client
+     *
+     * @param type          job type
+     * @param variablesJson variables, in JSON
+     * @param headers       custom headers
+     * @return the job
+     */
+    public static ActivatedJob activatedJobDecoding(String type, String variablesJson, Map<String, String> headers) {
+        ActivatedJob activatedJob = activatedJob(type, variablesJson, Map.of(), headers);
+        return (ActivatedJob) Proxy.newProxyInstance(FakeCamunda.class.getClassLoader(), new Class[]{ActivatedJob.class},
+                (proxy, method, args) -> {
+                    if (isObjectMethod(method))
+                        return objectMethod(proxy, method, args);
+                    if ("getVariablesAsMap".equals(method.getName()))
+                        return decode(variablesJson);
+                    if ("getVariable".equals(method.getName()) && args != null && args.length == 1)
+                        return decode(variablesJson).get(String.valueOf(args[0]));
+                    return method.invoke(activatedJob, args);
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> decode(String json) {
+        try {
+            return objectMapper.readValue(json, Map.class);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Can't decode variables", e);
+        }
+    }
+
+    /**
+     * Any interface of the client API: a method returning an interface return a fake of this interface, send()
+     * return a completed future
+     *
+     * @param type interface
+     * @param <T>  type
+     * @return the fake
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T fluent(Class<T> type) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (isObjectMethod(method))
+                return objectMethod(proxy, method, args);
+            if ("send".equals(method.getName()))
+                return completedFuture();
+            Class<?> returnType = method.getReturnType();
+            if (returnType.isInstance(proxy))
+                return proxy;
+            if (returnType.isInterface())
+                return fluent(returnType);
+            return defaultValue(returnType);
+        };
+        return (T) Proxy.newProxyInstance(FakeCamunda.class.getClassLoader(), new Class[]{type}, handler);
+    }
+
+    private static CamundaFuture<?> completedFuture() {
+        CompletableFuture<Object> completed = CompletableFuture.completedFuture(null);
+        return (CamundaFuture<?>) Proxy.newProxyInstance(FakeCamunda.class.getClassLoader(),
+                new Class[]{CamundaFuture.class}, (proxy, method, args) -> {
+                    if (isObjectMethod(method))
+                        return objectMethod(proxy, method, args);
+                    try {
+                        // join(), get(), whenComplete()... are the CompletableFuture ones
+                        Method futureMethod = CompletableFuture.class.getMethod(method.getName(),
+                                method.getParameterTypes());
+                        return futureMethod.invoke(completed, args);
+                    } catch (NoSuchMethodException e) {
+                        // join(timeout, unit)
+                        return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static boolean isObjectMethod(Method method) {
+        return method.getDeclaringClass() == Object.class;
+    }
+
+    private static Object objectMethod(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> "Fake" + proxy.getClass().getInterfaces()[0].getSimpleName();
+        };
+    }
+
+    private static Object defaultValue(Class<?> returnType) {
+        if (!returnType.isPrimitive())
+            return null;
+        if (returnType == boolean.class)
+            return false;
+        if (returnType == int.class)
+            return 0;
+        if (returnType == long.class)
+            return 0L;
+        if (returnType == double.class)
+            return 0.0;
+        if (returnType == float.class)
+            return 0.0f;
+        if (returnType == short.class)
+            return (short) 0;
+        if (returnType == byte.class)
+            return (byte) 0;
+        if (returnType == char.class)
+            return (char) 0;
+        return null;
+    }
+}
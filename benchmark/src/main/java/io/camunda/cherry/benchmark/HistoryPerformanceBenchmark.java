@@ -0,0 +1,95 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  HistoryPerformanceBenchmark                                         */
+/*                                                                      */
+/*  HistoryPerformance.getPerformance() on an H2 in-memory database,   */
+/*  loaded with one execution per minute during 31 days.               */
+/*  Only the history beans are started: no broker, no web server.      */
+/* ******************************************************************** */
+package io.camunda.cherry.benchmark;
+
+import io.camunda.cherry.definition.AbstractRunner;
+import io.camunda.cherry.runtime.HistoryPerformance;
+import io.camunda.cherry.runtime.HistoryStatisticAggregator;
+import io.camunda.cherry.util.DateOperation;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryPerformanceBenchmark {
+
+    private static final String RUNNER_TYPE = "c-benchmark";
+    private static final int HISTORY_IN_DAYS = 31;
+
+    @Param({"FOURHOUR", "ONEDAY", "ONEWEEK", "ONEMONTH"})
+    public HistoryPerformance.PeriodStatistic periodStatistic;
+
+    private ConfigurableApplicationContext context;
+    private HistoryPerformance historyPerformance;
+    private LocalDateTime dateNow;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(HistoryContext.class).web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                // the application.yaml of the runtime is not loaded
+                .run("--spring.config.name=cherry-benchmark",
+                        "--spring.datasource.url=jdbc:h2:mem:cherrybenchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa", "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--cherry.history.rollup.backfillindays=0");
+        historyPerformance = context.getBean(HistoryPerformance.class);
+        HistoryStatisticAggregator historyStatisticAggregator = context.getBean(HistoryStatisticAggregator.class);
+
+        dateNow = DateOperation.getLocalDateTimeNow();
+        LocalDateTime executionTime = dateNow.minusDays(HISTORY_IN_DAYS);
+        long index = 0;
+        while (executionTime.isBefore(dateNow)) {
+            AbstractRunner.ExecutionStatusEnum status = index % 50 == 0 ?
+                    AbstractRunner.ExecutionStatusEnum.FAIL :
+                    AbstractRunner.ExecutionStatusEnum.SUCCESS;
+            historyStatisticAggregator.record(RUNNER_TYPE, executionTime, status, 20 + index % 200);
+            executionTime = executionTime.plusMinutes(1);
+            index++;
+        }
+        historyStatisticAggregator.flush();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object getPerformance() {
+        return historyPerformance.getPerformance(RUNNER_TYPE, dateNow, periodStatistic);
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class})
+    @EntityScan("io.camunda.cherry.db.entity")
+    @EnableJpaRepositories("io.camunda.cherry.db.repository")
+    @Import({HistoryPerformance.class, HistoryStatisticAggregator.class})
+    public static class HistoryContext {
+    }
+}
@@ -0,0 +1,94 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  JobVariablesBenchmark                                               */
+/*                                                                      */
+/*  Access to the inputs of a worker during one execution: input log, */
+/*  checkInput, then getInputXxxValue for each input.                   */
+/*   perLookupDecoding: getVariablesAsMap() at each lookup (previous)  */
+/*   jobVariables: variables decoded once (JobVariables)                */
+/*   jobVariablesLazy: only the inputs are decoded from the raw JSON   */
+/* ******************************************************************** */
+package io.camunda.cherry.benchmark;
+
+import io.camunda.cherry.definition.JobVariables;
+import io.camunda.client.api.response.ActivatedJob;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobVariablesBenchmark {
+
+    private static final List<String> INPUTS = List.of("var0", "var1", "var2", "var3", "var4");
+
+    /**
+     * Number of variables in the job, each one is a 100 characters string
+     */
+    @Param({"10", "100", "1000"})
+    public int numberOfVariables;
+
+    private ActivatedJob activatedJob;
+
+    @Setup
+    public void setup() {
+        StringBuilder json = new StringBuilder("{");
+        String value = "x".repeat(100);
+        for (int i = 0; i < numberOfVariables; i++) {
+            if (i > 0)
+                json.append(",");
+            json.append("\"var").append(i).append("\":\"").append(value).append("\"");
+        }
+        json.append("}");
+        activatedJob = FakeCamunda.activatedJobDecoding("c-benchmark", json.toString(), Map.of("header", "value"));
+    }
+
+    @Benchmark
+    public void perLookupDecoding(Blackhole blackhole) {
+        // input log, checkInput
+        for (int pass = 0; pass < 2; pass++) {
+            for (String input : INPUTS)
+                blackhole.consume(previousGetValueFromJob(input));
+        }
+        // getInputXxxValue
+        for (String input : INPUTS) {
+            if (activatedJob.getVariablesAsMap().containsKey(input) || activatedJob.getCustomHeaders()
+                    .containsKey(input))
+                blackhole.consume(previousGetValueFromJob(input));
+        }
+    }
+
+    @Benchmark
+    public void jobVariables(Blackhole blackhole) {
+        access(new JobVariables(activatedJob, false), blackhole);
+    }
+
+    @Benchmark
+    public void jobVariablesLazy(Blackhole blackhole) {
+        access(new JobVariables(activatedJob, true), blackhole);
+    }
+
+    private void access(JobVariables jobVariables, Blackhole blackhole) {
+        for (int pass = 0; pass < 2; pass++) {
+            for (String input : INPUTS)
+                blackhole.consume(jobVariables.get(input));
+        }
+        for (String input : INPUTS) {
+            if (jobVariables.containsKey(input))
+                blackhole.consume(jobVariables.get(input));
+        }
+    }
+
+    private Object previousGetValueFromJob(String parameterName) {
+        if (activatedJob.getVariablesAsMap().containsKey(parameterName))
+            return activatedJob.getVariablesAsMap().get(parameterName);
+        return activatedJob.getCustomHeaders().get(parameterName);
+    }
+}
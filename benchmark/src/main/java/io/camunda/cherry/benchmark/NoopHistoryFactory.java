@@ -0,0 +1,62 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  NoopHistoryFactory                                                  */
+/*                                                                      */
+/*  HistoryFactory which does not save executions: the benchmarks of  */
+/*  the job path measure the runner, not the database.                 */
+/* ******************************************************************** */
+package io.camunda.cherry.benchmark;
+
+import io.camunda.cherry.db.entity.RunnerExecutionEntity;
+import io.camunda.cherry.definition.AbstractRunner;
+import io.camunda.cherry.definition.AbstractWorker;
+import io.camunda.cherry.runtime.HistoryFactory;
+import io.camunda.cherry.tracing.ExecutionTiming;
+
+import java.lang.reflect.Field;
+import java.time.Instant;
+
+public class NoopHistoryFactory extends HistoryFactory {
+
+    @Override
+    public void saveExecution(Instant executionTime,
+                              RunnerExecutionEntity.TypeExecutor typeExecutor,
+                              String runnerType,
+                              AbstractRunner.ExecutionStatusEnum status,
+                              String errorCode,
+                              String errorMessage,
+                              long durationInMs) {
+        // nothing to save
+    }
+
+    @Override
+    public void saveExecution(Instant executionTime,
+                              RunnerExecutionEntity.TypeExecutor typeExecutor,
+                              String runnerType,
+                              String tenantId,
+                              Long jobKey,
+                              AbstractRunner.ExecutionStatusEnum status,
+                              String errorCode,
+                              String errorMessage,
+                              long durationInMs,
+                              ExecutionTiming executionTiming) {
+        // nothing to save
+    }
+
+    /**
+     * A worker is a Spring component: set the HistoryFactory Spring would inject
+     *
+     * @param worker worker
+     * @return the worker
+     */
+    public static <T extends AbstractWorker> T injectInto(T worker) {
+        try {
+            Field field = AbstractWorker.class.getDeclaredField("historyFactory");
+            field.setAccessible(true);
+            field.set(worker, new NoopHistoryFactory());
+            return worker;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can't inject the HistoryFactory", e);
+        }
+    }
+}
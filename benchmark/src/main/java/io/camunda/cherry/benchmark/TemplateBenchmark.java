@@ -0,0 +1,50 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  TemplateBenchmark                                                   */
+/*                                                                      */
+/*  Element template generation (RunnerDecorationTemplate), requested  */
+/*  by the administration pages and the template download              */
+/* ******************************************************************** */
+package io.camunda.cherry.benchmark;
+
+import io.camunda.cherry.definition.RunnerDecorationTemplate;
+import io.camunda.cherry.definition.connector.SdkRunnerConnector;
+import io.camunda.cherry.embeddedrunner.operations.SetVariableWorker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateBenchmark {
+
+    private RunnerDecorationTemplate workerTemplate;
+    private RunnerDecorationTemplate connectorTemplate;
+
+    @Setup
+    public void setup() {
+        workerTemplate = new RunnerDecorationTemplate(new SetVariableWorker());
+        connectorTemplate = new RunnerDecorationTemplate(
+                new SdkRunnerConnector(new ConnectorJobHandlerBenchmark.BenchmarkConnectorFunction()));
+    }
+
+    @Benchmark
+    public Object workerTemplate() {
+        return workerTemplate.getTemplate();
+    }
+
+    @Benchmark
+    public Object connectorTemplate() {
+        return connectorTemplate.getTemplate();
+    }
+
+    @Benchmark
+    public String workerTemplateJson() {
+        return RunnerDecorationTemplate.getJsonFromList(List.of(workerTemplate.getTemplate()));
+    }
+}
@@ -0,0 +1,71 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  WorkerBenchmark                                                     */
+/*                                                                      */
+/*  Job path of a worker, with SetVariableWorker:                      */
+/*   handle: AbstractWorker.handle(), input log, contracts, execute,   */
+/*      complete command                                                */
+/*   execute: SetVariableWorker.execute() only                          */
+/* ******************************************************************** */
+package io.camunda.cherry.benchmark;
+
+import io.camunda.cherry.definition.JobVariables;
+import io.camunda.cherry.embeddedrunner.operations.SetVariableWorker;
+import io.camunda.client.api.response.ActivatedJob;
+import io.camunda.client.api.worker.JobClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkerBenchmark {
+
+    private static final String OPERATIONS = "color=\"blue\";age=12;total=amount;ratio=12.5";
+
+    private BenchmarkSetVariableWorker setVariableWorker;
+    private JobClient jobClient;
+    private ActivatedJob activatedJob;
+
+    @Setup
+    public void setup() {
+        setVariableWorker = NoopHistoryFactory.injectInto(new BenchmarkSetVariableWorker());
+        setVariableWorker.setLog(false);
+        jobClient = FakeCamunda.jobClient();
+        activatedJob = FakeCamunda.activatedJobDecoding("c-set-variables",
+                "{\"operations\":\"" + OPERATIONS.replace("\"", "\\\"") + "\",\"amount\":1250,\"customer\":\"Walter\"}",
+                Map.of());
+    }
+
+    @Benchmark
+    public void handle() {
+        setVariableWorker.handle(jobClient, activatedJob);
+    }
+
+    @Benchmark
+    public Object execute() {
+        JobVariables.bind(activatedJob, false);
+        try {
+            return setVariableWorker.executeOnly(jobClient, activatedJob);
+        } finally {
+            JobVariables.unbind();
+        }
+    }
+
+    /**
+     * ContextExecution is protected: a subclass can create it
+     */
+    public static class BenchmarkSetVariableWorker extends SetVariableWorker {
+        Map<String, Object> executeOnly(JobClient jobClient, ActivatedJob activatedJob) {
+            ContextExecution contextExecution = new ContextExecution() {
+            };
+            execute(jobClient, activatedJob, contextExecution);
+            return contextExecution.outVariablesValue;
+        }
+    }
+}
@@ -50,6 +50,14 @@ class Dashboard extends React.Component {
 
     componentDidMount() {
         this.refreshDashboard(this.state.display.period, this.state.display.orderBy);
+        this.openLiveFeed();
+    }
+
+    componentWillUnmount() {
+        if (this.liveFeed) {
+            this.liveFeed.close();
+            this.liveFeed = null;
+        }
     }
 
 
@@ -246,6 +254,61 @@ class Dashboard extends React.Component {
         }
     }
 
+    /**
+     * The dashboard is loaded once, then the server pushes the executions and the operations (Server-Sent Events).
+     * The browser reconnects by itself when the stream is closed.
+     */
+    openLiveFeed() {
+        if (typeof EventSource === "undefined")
+            return;
+        let restCallService = RestCallService.getInstance();
+        this.liveFeed = new EventSource(restCallService.getUrlServer() + "/cherry/api/live/stream");
+        this.liveFeed.addEventListener("runners", (event) => this.applyRunnersDelta(JSON.parse(event.data)));
+        this.liveFeed.addEventListener("operations", (event) => this.applyOperations(JSON.parse(event.data)));
+        this.liveFeed.onerror = () => console.log("Dashboard.liveFeed: stream interrupted");
+    }
+
+    applyRunnersDelta(payload) {
+        let dashboard = this.state.dashboard;
+        if (!dashboard.details)
+            return;
+        for (let delta of payload.runners) {
+            let runner = dashboard.details.find(r => r.type === delta.type);
+            if (!runner || !runner.statistic)
+                continue;
+            runner.statistic.executions += delta.executions;
+            runner.statistic.executionsSucceeded += delta.executionsSucceeded;
+            runner.statistic.executionsFailed += delta.executionsFailed;
+            runner.statistic.executionsBpmnErrors += delta.executionsBpmnErrors;
+            runner.nbexec += delta.executions;
+            runner.nbfail += delta.executionsFailed + delta.executionsBpmnErrors;
+            dashboard.totalExecutions += delta.executions;
+            dashboard.totalExecutionsSucceeded += delta.executionsSucceeded;
+            dashboard.totalExecutionsFailed += delta.executionsFailed;
+            dashboard.totalExecutionsBpmnErrors += delta.executionsBpmnErrors;
+        }
+        // a new timestamp refreshes the children
+        dashboard.timestamp = String(payload.timestamp);
+        this.setState({dashboard: dashboard});
+    }
+
+    applyOperations(operations) {
+        let dashboard = this.state.dashboard;
+        if (!dashboard.details)
+            return;
+        for (let operation of operations) {
+            let runner = dashboard.details.find(r => r.type === operation.runnerType);
+            if (!runner)
+                continue;
+            if (operation.operation === "STARTRUNNER")
+                runner.active = true;
+            if (operation.operation === "STOPRUNNER")
+                runner.active = false;
+        }
+        dashboard.timestamp = String(Date.now());
+        this.setState({dashboard: dashboard});
+    }
+
     /**
      * Set the display property
      * @param propertyName name of the property
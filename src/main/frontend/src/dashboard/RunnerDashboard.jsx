@@ -114,6 +114,7 @@ class RunnerDashboard extends React.Component {
                                     </h1>
                                     <h2 style={{padding: "5px 0px 0px 25px", fontSize: "70%"}}>
                                         <i>Average {this.state.runner.performance.averageTimeInMs} ms
+                                            P99 {this.state.runner.performance.p99TimeInMs} ms
                                             Peak {this.state.runner.performance.peakTimeInMs} ms </i></h2></div>
                             </td>
                         </tr>
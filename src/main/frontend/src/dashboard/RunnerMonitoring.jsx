@@ -115,6 +115,15 @@ class RunnerMonitoring extends React.Component {
                                 <i>Average {this.state.runner.performance.averageTimeInMs} ms,
                                     Pic {this.state.runner.performance.picTimeInMs} ms</i>
                             </div>
+                            {this.state.runner.phaseTiming && this.state.runner.phaseTiming.executions > 0 &&
+                                <div>
+                                    <i>Time per phase: queue wait {this.formatNs(this.state.runner.phaseTiming.queueWaitNs)},
+                                        input {this.formatNs(this.state.runner.phaseTiming.inputNs)},
+                                        execute {this.formatNs(this.state.runner.phaseTiming.executeNs)},
+                                        complete {this.formatNs(this.state.runner.phaseTiming.completeNs)},
+                                        history {this.formatNs(this.state.runner.phaseTiming.historyNs)}</i>
+                                </div>
+                            }
                         </div>
 
 
@@ -371,6 +380,13 @@ class RunnerMonitoring extends React.Component {
      * @param propertyName name of the property
      * @param propertyValue the value
      */
+    /* Phase timings are in nanoseconds, display them in ms */
+    formatNs(valueNs) {
+        if (valueNs === null || valueNs === undefined)
+            return "-";
+        return (valueNs / 1000000).toFixed(2) + " ms";
+    }
+
     setDisplayProperty(propertyName, propertyValue) {
         let displayObject = this.state.display;
         displayObject[propertyName] = propertyValue;
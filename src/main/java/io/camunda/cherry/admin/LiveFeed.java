@@ -0,0 +1,396 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  LiveFeed                                                            */
+/*                                                                      */
+/*  Push the activity of the runtime to the admin pages (Server-Sent   */
+/*  Events). Executions are counted in memory; once per tick, the      */
+/*  deltas per runner and the operations (runner started, stopped,     */
+/*  errors) are serialized once and sent to all subscribers.           */
+/*  The cost of a tick does not depend on the number of viewers, and   */
+/*  there is no database access: the page loads the dashboard once,    */
+/*  then applies the deltas.                                            */
+/*  The tick only queues the events: each subscriber is written by its */
+/*  own task on a virtual thread, a slow browser never blocks the       */
+/*  scheduler.                                                          */
+/* ******************************************************************** */
+package io.camunda.cherry.admin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.camunda.cherry.db.entity.OperationEntity;
+import io.camunda.cherry.db.entity.RunnerStatisticEntity;
+import io.camunda.cherry.definition.AbstractRunner;
+import io.camunda.cherry.runner.LogOperation;
+import io.camunda.cherry.runtime.HistoryFactory;
+import io.camunda.cherry.util.DateOperation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class LiveFeed implements HistoryFactory.ExecutionListener, LogOperation.OperationListener {
+
+    public static final String EVENT_HELLO = "hello";
+    public static final String EVENT_RUNNERS = "runners";
+    public static final String EVENT_OPERATIONS = "operations";
+
+    /**
+     * Operations waiting for the next tick. Over this size, the oldest are dropped
+     */
+    private static final int MAX_PENDING_OPERATIONS = 500;
+
+    /**
+     * Events waiting to be sent to one subscriber. Over this size, the browser does not follow: it is closed, and
+     * reloads the dashboard when it reconnects
+     */
+    private static final int MAX_PENDING_EVENTS = 20;
+
+    Logger logger = LoggerFactory.getLogger(LiveFeed.class.getName());
+
+    @Autowired
+    HistoryFactory historyFactory;
+
+    @Autowired
+    LogOperation logOperation;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${cherry.livefeed.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cherry.livefeed.tickms:2000}")
+    private long tickMs;
+
+    @Value("${cherry.livefeed.maxsubscribers:50}")
+    private int maxSubscribers;
+
+    /**
+     * A subscriber is closed after this delay: the browser reconnects by itself
+     */
+    @Value("${cherry.livefeed.timeoutms:1800000}")
+    private long subscriberTimeoutMs;
+
+    /**
+     * When nothing happens, send a keep-alive every <n> ticks, to detect the subscribers gone
+     */
+    @Value("${cherry.livefeed.keepaliveticks:10}")
+    private int keepAliveTicks;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Sends to the subscribers: SseEmitter.send blocks while the browser does not read
+     */
+    private ExecutorService sendExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("cherry-livefeed-", 0).factory());
+
+    /**
+     * Key is runnerType. Swapped at each tick
+     */
+    private volatile Map<String, RunnerDelta> pendingDeltas = new ConcurrentHashMap<>();
+
+    private final ConcurrentLinkedQueue<OperationEvent> pendingOperations = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingOperationsSize = new AtomicInteger(0);
+
+    private int ticksWithoutEvent = 0;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled)
+            return;
+        historyFactory.addExecutionListener(this);
+        logOperation.addOperationListener(this);
+    }
+
+    @PreDestroy
+    public void end() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+        sendExecutor.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getNumberOfSubscribers() {
+        return subscribers.size();
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Subscribe                                               */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    /**
+     * Register a new subscriber
+     *
+     * @return the emitter, null if the feed is disabled or full
+     */
+    public SseEmitter subscribe() {
+        if (!enabled || subscribers.size() >= maxSubscribers)
+            return null;
+        SseEmitter emitter = createEmitter(subscriberTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        try {
+            Map<String, Object> hello = new HashMap<>();
+            hello.put("tickMs", tickMs);
+            hello.put("timestamp", System.currentTimeMillis());
+            emitter.send(SseEmitter.event().name(EVENT_HELLO).data(objectMapper.writeValueAsString(hello)));
+        } catch (Exception e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        subscribers.add(subscriber);
+        logger.info("LiveFeed: new subscriber, {} subscribers", subscribers.size());
+        return emitter;
+    }
+
+    SseEmitter createEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Collect                                                 */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    @Override
+    public void onExecution(String runnerType, AbstractRunner.ExecutionStatusEnum status, long durationInMs) {
+        // no viewer, nothing to collect
+        if (subscribers.isEmpty())
+            return;
+        pendingDeltas.computeIfAbsent(runnerType, RunnerDelta::new).add(status, durationInMs);
+    }
+
+    @Override
+    public void onOperation(OperationEntity operationEntity) {
+        if (subscribers.isEmpty())
+            return;
+        pendingOperations.add(OperationEvent.fromEntity(operationEntity));
+        if (pendingOperationsSize.incrementAndGet() > MAX_PENDING_OPERATIONS && pendingOperations.poll() != null)
+            pendingOperationsSize.decrementAndGet();
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Broadcast                                               */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    @Scheduled(fixedDelayString = "${cherry.livefeed.tickms:2000}")
+    public void tick() {
+        // an execution which took the previous map just before the swap may be missed: the feed is a live view,
+        // the page reloads the exact values from the rollups on a refresh
+        Map<String, RunnerDelta> deltas = pendingDeltas;
+        pendingDeltas = new ConcurrentHashMap<>();
+        List<OperationEvent> operations = new ArrayList<>();
+        OperationEvent operationEvent;
+        while ((operationEvent = pendingOperations.poll()) != null) {
+            pendingOperationsSize.decrementAndGet();
+            operations.add(operationEvent);
+        }
+        if (subscribers.isEmpty())
+            return;
+
+        try {
+            boolean eventSent = false;
+            if (!deltas.isEmpty()) {
+                Map<String, Object> payload = new HashMap<>();
+                payload.put("timestamp", System.currentTimeMillis());
+                // the 10 minutes interval of the deltas: the page updates its last interval
+                payload.put("slotTime", RunnerStatisticEntity.Granularity.TENMINUTES.getSlotTime(
+                        DateOperation.getLocalDateTimeNow()).toString());
+                payload.put("runners", deltas.values().stream().map(RunnerDelta::snapshot).toList());
+                broadcast(EVENT_RUNNERS, objectMapper.writeValueAsString(payload));
+                eventSent = true;
+            }
+            if (!operations.isEmpty()) {
+                broadcast(EVENT_OPERATIONS, objectMapper.writeValueAsString(operations));
+                eventSent = true;
+            }
+            ticksWithoutEvent = eventSent ? 0 : ticksWithoutEvent + 1;
+            if (ticksWithoutEvent >= keepAliveTicks) {
+                broadcastKeepAlive();
+                ticksWithoutEvent = 0;
+            }
+        } catch (Exception e) {
+            logger.error("LiveFeed: can't build the tick: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * The payload is serialized once for all subscribers
+     */
+    private void broadcast(String eventName, String payload) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueue(SseEmitter.event().name(eventName).data(payload));
+        }
+    }
+
+    private void broadcastKeepAlive() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueue(SseEmitter.event().comment("keep-alive"));
+        }
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Class definitions                                       */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    /**
+     * A browser following the feed. Its events are sent in order, by one task at a time on the send executor
+     */
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final ConcurrentLinkedQueue<SseEmitter.SseEventBuilder> pendingEvents = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingEventsSize = new AtomicInteger(0);
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * Queue an event, never wait
+         */
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            if (pendingEventsSize.incrementAndGet() > MAX_PENDING_EVENTS) {
+                logger.info("LiveFeed: subscriber does not read the events, close it");
+                close(null);
+                return;
+            }
+            pendingEvents.add(event);
+            if (!sending.compareAndSet(false, true))
+                return;
+            try {
+                sendExecutor.execute(this::sendPendingEvents);
+            } catch (RejectedExecutionException e) {
+                // the feed is stopping
+                sending.set(false);
+            }
+        }
+
+        private void sendPendingEvents() {
+            do {
+                SseEmitter.SseEventBuilder event;
+                while ((event = pendingEvents.poll()) != null) {
+                    pendingEventsSize.decrementAndGet();
+                    try {
+                        emitter.send(event);
+                    } catch (Exception e) {
+                        // the browser is gone: nothing more is sent
+                        close(e);
+                        return;
+                    }
+                }
+                sending.set(false);
+                // an event queued after the poll, while this task was still marked as sending
+            } while (!pendingEvents.isEmpty() && sending.compareAndSet(false, true));
+        }
+
+        private void close(Exception error) {
+            subscribers.remove(this);
+            pendingEvents.clear();
+            if (error == null)
+                emitter.complete();
+            else
+                emitter.completeWithError(error);
+        }
+    }
+
+    /**
+     * Executions of a runner since the last tick
+     */
+    private static class RunnerDelta {
+        private final String runnerType;
+        private long executions;
+        private long executionsSucceeded;
+        private long executionsFailed;
+        private long executionsBpmnErrors;
+        private long sumExecutionMs;
+        private long peakExecutionMs;
+
+        RunnerDelta(String runnerType) {
+            this.runnerType = runnerType;
+        }
+
+        synchronized void add(AbstractRunner.ExecutionStatusEnum status, long durationInMs) {
+            executions++;
+            sumExecutionMs += durationInMs;
+            peakExecutionMs = Math.max(peakExecutionMs, durationInMs);
+            if (status == null) {
+                executionsFailed++;
+                return;
+            }
+            switch (status) {
+            case SUCCESS -> executionsSucceeded++;
+            case FAIL -> executionsFailed++;
+            case BPMNERROR -> executionsBpmnErrors++;
+            }
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("type", runnerType);
+            snapshot.put("executions", executions);
+            snapshot.put("executionsSucceeded", executionsSucceeded);
+            snapshot.put("executionsFailed", executionsFailed);
+            snapshot.put("executionsBpmnErrors", executionsBpmnErrors);
+            snapshot.put("sumExecutionMs", sumExecutionMs);
+            snapshot.put("peakExecutionMs", peakExecutionMs);
+            return snapshot;
+        }
+    }
+
+    /**
+     * An operation, as sent to the page. STARTRUNNER / STOPRUNNER change the state of the runner
+     */
+    public static class OperationEvent {
+        public String operation;
+        public String runnerType;
+        public String hostName;
+        public String message;
+        public String executionTime;
+
+        static OperationEvent fromEntity(OperationEntity operationEntity) {
+            OperationEvent operationEvent = new OperationEvent();
+            operationEvent.operation = operationEntity.operation == null ? null : operationEntity.operation.toString();
+            operationEvent.runnerType = operationEntity.runnerType;
+            operationEvent.hostName = operationEntity.hostName;
+            operationEvent.message = operationEntity.message;
+            LocalDateTime executionTime = operationEntity.executionTime;
+            operationEvent.executionTime = executionTime == null ? null : executionTime.toString();
+            return operationEvent;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  LiveFeedRestController                                              */
+/*                                                                      */
+/*  Server-Sent Events stream of the runtime activity                  */
+/* example: http://localhost:8080/cherry/api/live/stream                */
+/*                                                                      */
+/* ******************************************************************** */
+package io.camunda.cherry.admin;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("cherry")
+public class LiveFeedRestController {
+
+    private final LiveFeed liveFeed;
+
+    LiveFeedRestController(LiveFeed liveFeed) {
+        this.liveFeed = liveFeed;
+    }
+
+    /**
+     * Events: hello (on connection), runners (executions per runner since the last tick), operations
+     *
+     * @return the stream
+     */
+    @GetMapping(value = "/api/live/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        if (!liveFeed.isEnabled())
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Live feed is disabled");
+        SseEmitter emitter = liveFeed.subscribe();
+        if (emitter == null)
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many subscribers");
+        return emitter;
+    }
+
+    @GetMapping(value = "/api/live/info", produces = "application/json")
+    public Map<String, Object> info() {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("enabled", liveFeed.isEnabled());
+        parameters.put("subscribers", liveFeed.getNumberOfSubscribers());
+        return parameters;
+    }
+}
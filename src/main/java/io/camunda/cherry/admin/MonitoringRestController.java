@@ -9,6 +9,7 @@
 package io.camunda.cherry.admin;
 
 import io.camunda.cherry.exception.TechnicalException;
+import io.camunda.cherry.runner.JobRunnerFactory;
 import io.camunda.cherry.zeebe.ZeebeContainer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,11 +27,13 @@ public class MonitoringRestController {
 
 
     private final ZeebeContainer zeebeContainer;
+    private final JobRunnerFactory jobRunnerFactory;
 
     Logger logger = LoggerFactory.getLogger(RuntimeRestController.class.getName());
 
-    MonitoringRestController(ZeebeContainer zeebeContainer) {
+    MonitoringRestController(ZeebeContainer zeebeContainer, JobRunnerFactory jobRunnerFactory) {
         this.zeebeContainer = zeebeContainer;
+        this.jobRunnerFactory = jobRunnerFactory;
     }
 
     @GetMapping(value = "/api/monitoring/pingzeebe", produces = "application/json")
@@ -50,4 +53,12 @@ public class MonitoringRestController {
         logger.info("Monitoring.pingZeebe - end {}", parameters);
         return parameters;
     }
+
+    /**
+     * State of the circuit breaker on the broker connection (CLOSED, OPEN, HALF_OPEN) and the paused runners
+     */
+    @GetMapping(value = "/api/monitoring/brokerconnection", produces = "application/json")
+    public Map<String, Object> getBrokerConnection() {
+        return jobRunnerFactory.getBrokerConnectionStatus();
+    }
 }
@@ -34,6 +34,7 @@ public class RunnerInformation {
     private HistoryFactory.Statistic statistic;
 
     private HistoryPerformance.Performance performance;
+    private HistoryFactory.PhaseTiming phaseTiming;
 
     /**
      * Keep the runner in the class. This class is a facade
@@ -139,6 +140,14 @@ public class RunnerInformation {
         this.performance = performance;
     }
 
+    public HistoryFactory.PhaseTiming getPhaseTiming() {
+        return phaseTiming;
+    }
+
+    public void setPhaseTiming(HistoryFactory.PhaseTiming phaseTiming) {
+        this.phaseTiming = phaseTiming;
+    }
+
     public enum TYPE_RUNNER {
         WORKER, CONNECTOR
     }
@@ -17,25 +17,31 @@ import io.camunda.cherry.exception.OperationAlreadyStartedException;
 import io.camunda.cherry.exception.OperationAlreadyStoppedException;
 import io.camunda.cherry.exception.OperationException;
 import io.camunda.cherry.runner.JobRunnerFactory;
+import io.camunda.cherry.runner.RunnerActivationSettings;
 import io.camunda.cherry.runner.RunnerFactory;
 import io.camunda.cherry.runner.StorageRunner;
+import io.camunda.cherry.runtime.HistoryExport;
 import io.camunda.cherry.runtime.HistoryFactory;
 import io.camunda.cherry.runtime.HistoryPerformance;
 import io.camunda.cherry.runtime.OperationFactory;
 import io.camunda.cherry.util.DateOperation;
+import io.camunda.cherry.util.KeysetCursor;
 import io.camunda.cherry.util.ZipOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -61,6 +67,12 @@ public class RunnerRestController {
     @Autowired
     OperationFactory operationFactory;
 
+    @Autowired
+    HistoryExport historyExport;
+
+    @Autowired
+    StorageRunner storageRunner;
+
     /**
      * Get list of worker. Multiple result is possibles
      *
@@ -77,12 +89,25 @@ public class RunnerRestController {
         List<AbstractRunner> listRunners = getListRunners(true);
         HistoryPerformance.PeriodStatistic periodStatistic = getPeriodStatisticFromPeriod(period);
 
+        // statistics of all runners are read in one query
+        Map<String, HistoryPerformance.Performance> mapPerformances =
+                stats != null && stats ? historyFactory.getPerformanceAllRunners(dateNow, periodStatistic) : null;
         return listRunners.stream()
                 .map(RunnerInformation::getRunnerInformation)
                 .map(w -> this.completeRunnerInformation(w, // this
                         logo == null || logo, // logo
-                        stats != null && stats, // stats
+                        false, // stats are set from the map
                         dateNow, periodStatistic))
+                .map(w -> {
+                    if (mapPerformances != null) {
+                        HistoryPerformance.Performance performance = mapPerformances.get(w.getType());
+                        if (performance == null)
+                            performance = historyFactory.getEmptyPerformance(dateNow, periodStatistic);
+                        w.setPerformance(performance);
+                        w.setStatistic(historyFactory.getStatistic(performance));
+                    }
+                    return w;
+                })
                 .toList();
     }
 
@@ -107,12 +132,15 @@ public class RunnerRestController {
         List<Map<String, Object>> listDetails = new ArrayList<>();
         List<AbstractRunner> listRunners = getListRunners(true);
 
+        // one query for all runners
+        Map<String, HistoryPerformance.Performance> mapPerformances = historyFactory.getPerformanceAllRunners(dateNow,
+                periodStatistic);
         for (AbstractRunner runner : listRunners) {
             Map<String, Object> infoRunner = new HashMap<>();
-            HistoryFactory.Statistic statisticRunner = historyFactory.getStatistic(runner.getType(), dateNow,
-                    periodStatistic);
-            HistoryPerformance.Performance performanceRunner = historyFactory.getPerformance(runner.getType(), dateNow,
-                    periodStatistic);
+            HistoryPerformance.Performance performanceRunner = mapPerformances.get(runner.getType());
+            if (performanceRunner == null)
+                performanceRunner = historyFactory.getEmptyPerformance(dateNow, periodStatistic);
+            HistoryFactory.Statistic statisticRunner = historyFactory.getStatistic(performanceRunner);
 
             infoRunner.put("name", (runner.getName() == null ? "" : runner.getName()));
             infoRunner.put("type", runner.getType());
@@ -184,17 +212,20 @@ public class RunnerRestController {
      * @param runnerType        type of the runner we search the operations
      * @param nbHoursMonitoring from now to now-nbHoursMonitoring. Max im 30*7*24, default is 24
      * @param operationType     ERRORS, EXECUTIONS, OPERATIONS are accepted
-     * @param pageNumber        page number, start a 0
+     * @param pageNumber        page number, start a 0. Deprecated, use the cursor
+     * @param cursor            cursor returned by the previous page (nextCursor): the cost of a page does not
+     *                          depend on its depth
      * @param rowsPerPage       number of row per page. Maximum is 10000 (if someone request more than that,
      *                          it will be maximum by this number
      * @param timezoneOffset    time zone offset for the browser, so return a date according this offset
-     * @return operation according the type
+     * @return operation according the type, and the nextCursor (null on the last page)
      */
     @GetMapping(value = "/api/runner/operations", produces = "application/json")
     public Map<String, Object> getOperation(@RequestParam(name = "runnertype") String runnerType,
                                             @RequestParam(name = "nbhoursmonitoring", required = false) Integer nbHoursMonitoring,
                                             @RequestParam(name = "operationtype") String operationType,
                                             @RequestParam(name = "pagenumber", required = false) Integer pageNumber,
+                                            @RequestParam(name = "cursor", required = false) String cursor,
                                             @RequestParam(name = "rowsperpage", required = false) Integer rowsPerPage,
                                             @RequestParam(name = "timezoneoffset") Long timezoneOffset) {
         Map<String, Object> info = new HashMap<>();
@@ -214,11 +245,16 @@ public class RunnerRestController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "rowsPerPage must be between [1..10000]");
 
         LocalDateTime dateThreshold = DateOperation.getLocalDateTimeNow().minusHours(nbHours);
+        KeysetCursor keysetCursor = decodeCursor(cursor);
+        // a page number without cursor is the old offset pagination
+        boolean offsetPagination = keysetCursor == null && pageNumberInt > 0;
 
         // the errors
         if ("ERRORS".equals(operationType)) {
-            List<RunnerExecutionEntity> listExecutions = historyFactory.getExecutionsErrors(runnerType, dateNow,
-                    dateThreshold, pageNumberInt, rowsPerPageInt);
+            List<RunnerExecutionEntity> listExecutions = offsetPagination ?
+                    historyFactory.getExecutionsErrors(runnerType, dateNow, dateThreshold, pageNumberInt,
+                            rowsPerPageInt) :
+                    historyFactory.getExecutionsErrors(runnerType, dateThreshold, keysetCursor, rowsPerPageInt);
             List<Map<String, Object>> listErrors = listExecutions.stream().map(t -> {
                 Map<String, Object> infoExecution = new HashMap<>();
                 infoExecution.put("typeExecutor", t.typeExecutor);
@@ -231,11 +267,13 @@ public class RunnerRestController {
                 return infoExecution;
             }).toList();
             info.put("errors", listErrors);
+            info.put("nextCursor", HistoryFactory.getNextCursor(listExecutions, rowsPerPageInt));
         }
         // operation
         if ("EXECUTIONS".equals(operationType)) {
-            List<RunnerExecutionEntity> listExecutions = historyFactory.getExecutions(runnerType, dateNow, dateThreshold,
-                    pageNumberInt, rowsPerPageInt);
+            List<RunnerExecutionEntity> listExecutions = offsetPagination ?
+                    historyFactory.getExecutions(runnerType, dateNow, dateThreshold, pageNumberInt, rowsPerPageInt) :
+                    historyFactory.getExecutions(runnerType, dateThreshold, keysetCursor, rowsPerPageInt);
 
             info.put("executions", listExecutions.stream() // Stream
                     .map(t -> {
@@ -245,10 +283,12 @@ public class RunnerRestController {
                         item.put("durationms", t.executionMs);
                         return item;
                     }).toList());
+            info.put("nextCursor", HistoryFactory.getNextCursor(listExecutions, rowsPerPageInt));
         }
 
         if ("OPERATIONS".equals(operationType)) {
-            List<OperationEntity> listOperations = operationFactory.getOperations(runnerType, dateNow, dateThreshold);
+            List<OperationEntity> listOperations = operationFactory.getOperations(runnerType, dateNow, dateThreshold,
+                    keysetCursor, rowsPerPageInt);
             List<Map<String, Object>> listOperationsMap = listOperations.stream().map(t -> {
                 Map<String, Object> infoOperation = new HashMap<>();
                 infoOperation.put("hostname", t.hostName);
@@ -258,10 +298,98 @@ public class RunnerRestController {
                 return infoOperation;
             }).toList();
             info.put("operations", listOperationsMap);
+            info.put("nextCursor", OperationFactory.getNextCursor(listOperations, rowsPerPageInt));
         }
         return info;
     }
 
+    /**
+     * Errors of a runner, grouped by fingerprint: the same error repeated on many jobs is one line
+     *
+     * @param runnerType        type of the runner
+     * @param nbHoursMonitoring groups seen in the last hours. Max im 30*7*24, default is 24
+     * @param maxGroups         maximum number of groups, default is 100
+     * @param timezoneOffset    time zone offset for the browser, so return a date according this offset
+     * @return the groups, the last seen first
+     */
+    @GetMapping(value = "/api/runner/errorgroups", produces = "application/json")
+    public Map<String, Object> getErrorGroups(@RequestParam(name = "runnertype") String runnerType,
+                                              @RequestParam(name = "nbhoursmonitoring", required = false) Integer nbHoursMonitoring,
+                                              @RequestParam(name = "maxgroups", required = false) Integer maxGroups,
+                                              @RequestParam(name = "timezoneoffset") Long timezoneOffset) {
+        int nbHours = Math.min(30 * 7 * 24, Math.max(nbHoursMonitoring == null ? 24 : nbHoursMonitoring, 1));
+        int maxGroupsInt = maxGroups == null ? 100 : maxGroups;
+        if (maxGroupsInt < 1 || maxGroupsInt > 1000)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxGroups must be between [1..1000]");
+        LocalDateTime dateThreshold = DateOperation.getLocalDateTimeNow().minusHours(nbHours);
+
+        List<Map<String, Object>> listGroups = historyFactory.getErrorGroups(runnerType, dateThreshold, maxGroupsInt)
+                .stream()
+                .map(group -> {
+                    Map<String, Object> infoGroup = new HashMap<>();
+                    infoGroup.put("fingerprint", group.fingerprint);
+                    infoGroup.put("errorCode", group.errorCode);
+                    infoGroup.put("status", group.status == null ? null : group.status.toString());
+                    infoGroup.put("message", group.normalizedMessage);
+                    infoGroup.put("sampleMessage", group.sampleMessage);
+                    infoGroup.put("occurrences", group.occurrences);
+                    infoGroup.put("firstSeen", DateOperation.dateTimeToHumanString(group.firstSeen, timezoneOffset));
+                    infoGroup.put("lastSeen", DateOperation.dateTimeToHumanString(group.lastSeen, timezoneOffset));
+                    infoGroup.put("sampleJobKeys", group.sampleJobKeys.stream().map(String::valueOf).toList());
+                    return infoGroup;
+                })
+                .toList();
+        Map<String, Object> info = new HashMap<>();
+        info.put("errorGroups", listGroups);
+        return info;
+    }
+
+    /**
+     * Export the executions of a runner, streamed: the memory does not depend on the number of executions
+     *
+     * @param runnerType        type of the runner
+     * @param nbHoursMonitoring from now to now-nbHoursMonitoring. Max im 30*7*24, default is 24
+     * @param operationType     EXECUTIONS (default) or ERRORS
+     * @param format            ndjson (default) or csv
+     * @return the stream
+     */
+    @GetMapping(value = "/api/runner/export")
+    public ResponseEntity<StreamingResponseBody> exportExecutions(@RequestParam(name = "runnertype") String runnerType,
+                                                                  @RequestParam(name = "nbhoursmonitoring", required = false) Integer nbHoursMonitoring,
+                                                                  @RequestParam(name = "operationtype", required = false) String operationType,
+                                                                  @RequestParam(name = "format", required = false) String format) {
+        HistoryExport.ExportFormat exportFormat = HistoryExport.ExportFormat.fromString(format);
+        if (exportFormat == null)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be ndjson or csv");
+        int nbHours = Math.min(30 * 7 * 24, Math.max(nbHoursMonitoring == null ? 24 : nbHoursMonitoring, 1));
+        LocalDateTime dateThreshold = DateOperation.getLocalDateTimeNow().minusHours(nbHours);
+        List<AbstractRunner.ExecutionStatusEnum> listStates = "ERRORS".equals(operationType) ?
+                List.of(AbstractRunner.ExecutionStatusEnum.FAIL, AbstractRunner.ExecutionStatusEnum.BPMNERROR) :
+                List.of(AbstractRunner.ExecutionStatusEnum.values());
+
+        StreamingResponseBody body = outputStream -> {
+            long nbRecords = historyExport.exportExecutions(runnerType, dateThreshold, listStates, exportFormat,
+                    outputStream);
+            logger.info("RunnerRestController.export runnerType[{}] {} records", runnerType, nbRecords);
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        // the runner type comes from the client: the filename is encoded, never copied as is
+                        .filename("executions-" + runnerType + "." + exportFormat.extension, StandardCharsets.UTF_8)
+                        .build()
+                        .toString())
+                .contentType(MediaType.parseMediaType(exportFormat.contentType))
+                .body(body);
+    }
+
+    private KeysetCursor decodeCursor(String cursor) {
+        try {
+            return KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     /**
      * Ask to stop a specific worker
      *
@@ -317,6 +445,64 @@ public class RunnerRestController {
         }
     }
 
+    /**
+     * Return the activation settings of a runner (maxJobsActive, timeout, poll interval, backoff, streaming)
+     *
+     * @param runnerType runner type
+     * @return settings. A null value means the client default
+     */
+    @GetMapping(value = "/api/runner/activation", produces = "application/json")
+    public Map<String, Object> getActivationSettings(@RequestParam(name = "runnertype") String runnerType) {
+        if (!storageRunner.existRunnerByType(runnerType))
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "WorkerName [" + runnerType + "] not found");
+        Map<String, Object> result = new HashMap<>();
+        result.put("runnerType", runnerType);
+        result.put("settings", cherryJobRunnerFactory.getActivationSettings(runnerType).toMap());
+        result.put("defaultMaxJobsActive", cherryJobRunnerFactory.getMaxJobActive());
+        return result;
+    }
+
+    /**
+     * Change the activation settings of a runner. A missing parameter resets the setting to the client default.
+     * If the runner is running, its JobWorker is replaced: other runners are not impacted.
+     *
+     * @param runnerType runner type
+     * @return the settings and if the JobWorker has been replaced
+     */
+    @PutMapping(value = "/api/runner/activation", produces = "application/json")
+    public Map<String, Object> setActivationSettings(@RequestParam(name = "runnertype") String runnerType,
+                                                     @RequestParam(name = "maxjobsactive", required = false) Integer maxJobsActive,
+                                                     @RequestParam(name = "jobtimeoutms", required = false) Long jobTimeoutMs,
+                                                     @RequestParam(name = "requesttimeoutms", required = false) Long requestTimeoutMs,
+                                                     @RequestParam(name = "pollintervalms", required = false) Long pollIntervalMs,
+                                                     @RequestParam(name = "backoffmindelayms", required = false) Long backoffMinDelayMs,
+                                                     @RequestParam(name = "backoffmaxdelayms", required = false) Long backoffMaxDelayMs,
+                                                     @RequestParam(name = "streamenabled", required = false) Boolean streamEnabled) {
+        logger.info("PUT[/api/runner/activation] for runnerType[{}]", runnerType);
+        RunnerActivationSettings activationSettings = new RunnerActivationSettings();
+        activationSettings.maxJobsActive = maxJobsActive;
+        activationSettings.jobTimeoutMs = jobTimeoutMs;
+        activationSettings.requestTimeoutMs = requestTimeoutMs;
+        activationSettings.pollIntervalMs = pollIntervalMs;
+        activationSettings.backoffMinDelayMs = backoffMinDelayMs;
+        activationSettings.backoffMaxDelayMs = backoffMaxDelayMs;
+        activationSettings.streamEnabled = streamEnabled;
+        try {
+            boolean jobWorkerReplaced = cherryJobRunnerFactory.updateActivationSettings(runnerType, activationSettings);
+            Map<String, Object> result = new HashMap<>();
+            result.put("runnerType", runnerType);
+            result.put("settings", activationSettings.toMap());
+            result.put("jobWorkerReplaced", jobWorkerReplaced);
+            return result;
+        } catch (OperationException e) {
+            if (JobRunnerFactory.RUNNER_NOT_FOUND.equals(e.getExceptionCode()))
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "WorkerName [" + runnerType + "] not found");
+            if (JobRunnerFactory.RUNNER_INVALID_SETTINGS.equals(e.getExceptionCode()))
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getExplanation());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "WorkerName [" + runnerType + "] error " + e);
+        }
+    }
+
     /**
      * Download the Template for a runner
      *
@@ -467,6 +653,8 @@ public class RunnerRestController {
                     historyFactory.getStatistic(runnerInformation.getType(), dateNow, periodStatistic));
             runnerInformation.setPerformance(
                     historyFactory.getPerformance(runnerInformation.getType(), dateNow, periodStatistic));
+            runnerInformation.setPhaseTiming(
+                    historyFactory.getPhaseTiming(runnerInformation.getType(), dateNow, periodStatistic));
         }
 
         return runnerInformation;
@@ -9,6 +9,13 @@
 package io.camunda.cherry.admin;
 
 import io.camunda.cherry.runner.JobRunnerFactory;
+import io.camunda.cherry.runner.VirtualThreadExecution;
+import io.camunda.cherry.runner.LogOperation;
+import io.camunda.cherry.runner.RunnerDrain;
+import io.camunda.cherry.runner.AdaptiveConcurrencyController;
+import io.camunda.cherry.runtime.HistoryRetention;
+import io.camunda.cherry.runtime.HistoryWriteBehind;
+import io.camunda.cherry.runtime.StartupProfile;
 import io.camunda.cherry.tenants.TenantsManager;
 import io.camunda.client.spring.properties.CamundaClientProperties;
 import org.apache.maven.model.Model;
@@ -34,15 +41,36 @@ public class RuntimeRestController {
     private final CamundaClientProperties camundaClientProperties;
     private final DataSource dataSource;
     private final TenantsManager tenantsManager;
+    private final HistoryWriteBehind historyWriteBehind;
+    private final VirtualThreadExecution virtualThreadExecution;
+    private final AdaptiveConcurrencyController adaptiveConcurrencyController;
+    private final HistoryRetention historyRetention;
+    private final LogOperation logOperation;
+    private final StartupProfile startupProfile;
+    private final RunnerDrain runnerDrain;
     Logger logger = LoggerFactory.getLogger(RuntimeRestController.class.getName());
 
     RuntimeRestController(JobRunnerFactory jobRunnerFactory,
                           CamundaClientProperties camundaClientProperties,
-                          DataSource dataSource, TenantsManager tenantsManager) {
+                          DataSource dataSource, TenantsManager tenantsManager,
+                          HistoryWriteBehind historyWriteBehind,
+                          VirtualThreadExecution virtualThreadExecution,
+                          AdaptiveConcurrencyController adaptiveConcurrencyController,
+                          HistoryRetention historyRetention,
+                          LogOperation logOperation,
+                          StartupProfile startupProfile,
+                          RunnerDrain runnerDrain) {
         this.jobRunnerFactory = jobRunnerFactory;
         this.camundaClientProperties = camundaClientProperties;
         this.dataSource = dataSource;
         this.tenantsManager = tenantsManager;
+        this.historyWriteBehind = historyWriteBehind;
+        this.virtualThreadExecution = virtualThreadExecution;
+        this.adaptiveConcurrencyController = adaptiveConcurrencyController;
+        this.historyRetention = historyRetention;
+        this.logOperation = logOperation;
+        this.startupProfile = startupProfile;
+        this.runnerDrain = runnerDrain;
     }
 
     @GetMapping(value = "/api/ping", produces = "application/json")
@@ -91,6 +119,14 @@ public class RuntimeRestController {
         // we don't want the configuration here, but the running information
         parameters.put("maxJobsActive", jobRunnerFactory.getMaxJobActive());
         parameters.put("nbThreads", jobRunnerFactory.getNumberOfThreads());
+        parameters.put("historyWriter", historyWriteBehind.getStatistics());
+        parameters.put("operationLogWriter", logOperation.getStatistics());
+        parameters.put("startupProfile", startupProfile.toMap());
+        parameters.put("jobsInProgress", jobRunnerFactory.getJobsInProgress());
+        parameters.put("drain", runnerDrain.getStatistics());
+        parameters.put("threadUsage", virtualThreadExecution.getThreadUsage());
+        parameters.put("adaptiveConcurrency", adaptiveConcurrencyController.getLimits());
+        parameters.put("historyRetention", historyRetention.getStatistics());
 
         try (Connection con = dataSource.getConnection()) {
             parameters.put("datasourceProductName", con.getMetaData().getDatabaseProductName());
@@ -111,6 +147,16 @@ public class RuntimeRestController {
         return jobRunnerFactory.getNumberOfThreads();
     }
 
+    /**
+     * Live usage of threads: platform threads, carrier threads, virtual threads in flight per runner
+     *
+     * @return usage
+     */
+    @GetMapping(value = "/api/runtime/threadusage", produces = "application/json")
+    public Map<String, Object> getThreadUsage() {
+        return virtualThreadExecution.getThreadUsage();
+    }
+
     @PutMapping(value = "/api/runtime/setthreads", produces = "application/json")
     public void setNumberOfThread(@RequestParam(name = "threads") Integer numberOfThreads) {
         jobRunnerFactory.setNumberOfThreads(numberOfThreads);
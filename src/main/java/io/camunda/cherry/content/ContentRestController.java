@@ -7,10 +7,13 @@ import io.camunda.cherry.db.repository.RunnerDefinitionRepository;
 import io.camunda.cherry.exception.OperationException;
 import io.camunda.cherry.runner.JobRunnerFactory;
 import io.camunda.cherry.runner.RunnerAdminOperation;
+import io.camunda.cherry.runner.RunnerClassLoaderFactory;
 import io.camunda.cherry.runner.RunnerFactory;
+import io.camunda.cherry.runner.RunnerJarSwap;
 import io.camunda.cherry.runner.RunnerLightDefinition;
 import io.camunda.cherry.util.DateOperation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
@@ -29,19 +32,32 @@ public class ContentRestController {
     RunnerAdminOperation runnerAdminOperation;
     RunnerFactory runnerFactory;
     JobRunnerFactory jobRunnerFactory;
+    RunnerJarSwap runnerJarSwap;
+    RunnerClassLoaderFactory runnerClassLoaderFactory;
     @Autowired
     JobRunnerFactory cherryJobRunnerFactory;
 
+    /**
+     * A JAR uploaded again replaces the current version without stopping its runners. Opt-in, a request can ask for
+     * it with the hotswap parameter
+     */
+    @Value("${cherry.connectorslib.hotswap:false}")
+    private boolean hotSwap = false;
+
     public ContentRestController(JarStorageEntityRepository jarStorageEntityRepository,
                                  RunnerDefinitionRepository runnerDefinitionRepository,
                                  RunnerAdminOperation runnerAdminOperation,
                                  RunnerFactory runnerFactory,
-                                 JobRunnerFactory jobRunnerFactory) {
+                                 JobRunnerFactory jobRunnerFactory,
+                                 RunnerJarSwap runnerJarSwap,
+                                 RunnerClassLoaderFactory runnerClassLoaderFactory) {
         this.jarStorageEntityRepository = jarStorageEntityRepository;
         this.runnerDefinitionRepository = runnerDefinitionRepository;
         this.runnerAdminOperation = runnerAdminOperation;
         this.runnerFactory = runnerFactory;
         this.jobRunnerFactory = jobRunnerFactory;
+        this.runnerJarSwap = runnerJarSwap;
+        this.runnerClassLoaderFactory = runnerClassLoaderFactory;
     }
 
     @GetMapping(value = "/api/content/list", produces = "application/json")
@@ -65,6 +81,8 @@ public class ContentRestController {
                 return recordRunner;
             }).toList();
             recordStorage.put("usedby", listUsedBy);
+            // one class loader per version still used by a runner
+            recordStorage.put("classloaders", runnerClassLoaderFactory.getClassLoaders(storageEntity.name));
             recordStorage.put("loadedtime", DateOperation.dateTimeToHumanString(storageEntity.loadedTime, timezoneOffset));
             listContent.add(recordStorage);
         }
@@ -74,6 +92,15 @@ public class ContentRestController {
         return sortedList;
     }
 
+    /**
+     * Class loaders of the JARs: runners, classes loaded and estimated metaspace per version, and the metaspace
+     * of the JVM
+     */
+    @GetMapping(value = "/api/content/classloaders", produces = "application/json")
+    public Map<String, Object> getClassLoaders() {
+        return runnerClassLoaderFactory.getStatistics();
+    }
+
     @PutMapping(value = "/api/content/delete", produces = "application/json")
     public Map<String, Object> listContent(@RequestParam(name = "timezoneoffset") Long timezoneOffset,
                                            @RequestParam(name = "storageentityid") String storageEntityId) {
@@ -95,16 +122,28 @@ public class ContentRestController {
 
     @PostMapping(value = "/api/content/add", consumes = {
             MediaType.MULTIPART_FORM_DATA_VALUE}, produces = MediaType.APPLICATION_JSON_VALUE)
-    public Map<String, Object> upload(@RequestPart("File") List<MultipartFile> uploadedfiles) {
+    public Map<String, Object> upload(@RequestPart("File") List<MultipartFile> uploadedfiles,
+                                      @RequestParam(name = "hotswap", required = false) Boolean hotSwapRequested) {
         Map<String, Object> status = new HashMap<>();
 
         List<String> resultLoad = new ArrayList<>();
         Map<String, String> analysisPerRunner = new HashMap<>();
+        boolean useHotSwap = hotSwapRequested == null ? hotSwap : hotSwapRequested;
         for (MultipartFile file : uploadedfiles) {
             String resultFile = "Load [" + file.getName() + "]";
 
             // is this worker is running?
             String jarFileName = file.getOriginalFilename();
+            if (useHotSwap) {
+                // the runners keep running: the new version is validated, then replaces the current one
+                RunnerJarSwap.SwapResult swapResult = runnerJarSwap.swapJar(file, jarFileName);
+                resultFile += " " + swapResult.status() + " " + String.join(",",
+                        swapResult.analysisPerRunner().values());
+                if (swapResult.error() != null)
+                    resultFile += " " + swapResult.error();
+                resultLoad.add(resultFile);
+                continue;
+            }
             List<RunnerLightDefinition> listRunnerLightDefinitions = runnerFactory.saveFromMultiPartFile(file, jarFileName);
 
             // Now, stop all the runners containing in the jar
@@ -130,6 +169,11 @@ public class ContentRestController {
             }
             // Now, copy the JarFile in the ClassLoader factory
             runnerFactory.jarFileToClassLoader(jarFileName);
+            // stopped runners are instantiated again from the new version: the previous class loader is closed
+            runnerFactory.evictCachedRunners(listRunnerLightDefinitions.stream()
+                    .map(RunnerLightDefinition::getType)
+                    .filter(runnerType -> !jobRunnerFactory.isActiveRunner(runnerType))
+                    .toList());
 
             // Now, start all runners
             for (RunnerLightDefinition runner : listRunnerLightDefinitions) {
@@ -34,7 +34,11 @@ public class OperationEntity {
     @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
+    public Long getId() {
+        return id;
+    }
+
     public enum Operation {
-        HOSTNAME, STARTRUNNER, STOPRUNNER, SETTHRESHOLD, STOPRUNTIME, STARTRUNTIME, SERVERINFO, ERROR, REMOVE, LOADJAR, TENANTUPDATE
+        HOSTNAME, STARTRUNNER, STOPRUNNER, SETTHRESHOLD, STOPRUNTIME, STARTRUNTIME, SERVERINFO, ERROR, REMOVE, LOADJAR, TENANTUPDATE, BROKERCONNECTION
     }
 }
@@ -49,6 +49,29 @@ public class RunnerDefinitionEntity {
     @Enumerated(EnumType.STRING)
     public Status status;
 
+    /* Activation settings. A null value means the default value of the client */
+
+    @Column(name = "max_jobs_active")
+    public Integer maxJobsActive;
+
+    @Column(name = "job_timeout_ms")
+    public Long jobTimeoutMs;
+
+    @Column(name = "request_timeout_ms")
+    public Long requestTimeoutMs;
+
+    @Column(name = "poll_interval_ms")
+    public Long pollIntervalMs;
+
+    @Column(name = "backoff_min_delay_ms")
+    public Long backoffMinDelayMs;
+
+    @Column(name = "backoff_max_delay_ms")
+    public Long backoffMaxDelayMs;
+
+    @Column(name = "stream_enabled")
+    public Boolean streamEnabled;
+
     @Id
     @SequenceGenerator(name = "seqconnectors", sequenceName = "seqconnectors", allocationSize = 1)
     @GeneratedValue(strategy = GenerationType.SEQUENCE)
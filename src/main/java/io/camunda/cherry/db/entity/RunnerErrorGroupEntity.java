@@ -0,0 +1,69 @@
+package io.camunda.cherry.db.entity;
+
+import io.camunda.cherry.definition.AbstractRunner;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Errors of a runner grouped by fingerprint (see ErrorFingerprint). One record per runner and fingerprint, whatever
+ * the number of occurrences. Dates are in UTC, like RunnerExecutionEntity.executionTime
+ */
+@Entity
+@Table(name = "ChRunnererrorgroup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_runnererrorgroup_fingerprint", columnNames = {"runner_type", "fingerprint"})},
+        indexes = {@Index(name = "idx_runnererrorgroup_lastseen", columnList = "last_seen")})
+public class RunnerErrorGroupEntity {
+
+    @Column(name = "runner_type", length = 255)
+    public String runnerType;
+
+    @Column(name = "fingerprint", length = 32)
+    public String fingerprint;
+
+    @Column(name = "error_code", length = 100)
+    public String errorCode;
+
+    /**
+     * Status of the last occurrence: FAIL or BPMNERROR
+     */
+    @Column(name = "status", length = 100)
+    @Enumerated(EnumType.STRING)
+    public AbstractRunner.ExecutionStatusEnum status;
+
+    /**
+     * Message, normalized
+     */
+    @Column(name = "normalized_message", length = 500)
+    public String normalizedMessage;
+
+    /**
+     * First message received, as is
+     */
+    @Column(name = "sample_message", length = 500)
+    public String sampleMessage;
+
+    @Column(name = "occurrences")
+    public long occurrences;
+
+    @Column(name = "first_seen")
+    public LocalDateTime firstSeen;
+
+    @Column(name = "last_seen")
+    public LocalDateTime lastSeen;
+
+    /**
+     * Last job keys in error, separated by a comma
+     */
+    @Column(name = "sample_job_keys", length = 200)
+    public String sampleJobKeys;
+
+    @Id
+    @SequenceGenerator(name = "seqerrorgroup", sequenceName = "seqerrorgroup", allocationSize = 1)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    private Long id;
+
+    public Long getId() {
+        return id;
+    }
+}
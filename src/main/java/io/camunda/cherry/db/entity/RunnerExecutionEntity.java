@@ -6,7 +6,9 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "ChRunnerexecution")
+@Table(name = "ChRunnerexecution", indexes = {
+        @Index(name = "idx_runnerexecution_time", columnList = "execution_time"),
+        @Index(name = "idx_runnerexecution_type_time_status", columnList = "runner_type, execution_time, status")})
 public class RunnerExecutionEntity {
 
     @Column(name = "type_executor", length = 10)
@@ -37,11 +39,52 @@ public class RunnerExecutionEntity {
     @Column(name = "error_explanation", length = 500)
     public String errorExplanation;
 
+    /**
+     * Errors only: group of the error, see RunnerErrorGroupEntity
+     */
+    @Column(name = "error_fingerprint", length = 32)
+    public String errorFingerprint;
+
+    /**
+     * Time per phase, in nanoseconds. Null when the phase did not run or can't be measured (see ExecutionTiming)
+     * queue wait: from the activation of the job to the start of the handler
+     */
+    @Column(name = "queue_wait_ns")
+    public Long queueWaitNs;
+
+    /**
+     * read and check the input
+     */
+    @Column(name = "input_ns")
+    public Long inputNs;
+
+    /**
+     * body of the runner
+     */
+    @Column(name = "execute_ns")
+    public Long executeNs;
+
+    /**
+     * complete/fail/throw error command, until the answer of the gateway
+     */
+    @Column(name = "complete_ns")
+    public Long completeNs;
+
+    /**
+     * record the execution on the job thread (statistics, write-behind queue)
+     */
+    @Column(name = "history_ns")
+    public Long historyNs;
+
     @Id
     @SequenceGenerator(name = "seqexecution", sequenceName = "seqexecution", allocationSize = 1)
     @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
+    public Long getId() {
+        return id;
+    }
+
     public enum TypeExecutor {
         CONNECTOR, WORKER, WATCHER
     }
@@ -0,0 +1,85 @@
+package io.camunda.cherry.db.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Rollup of the executions of a runner in a time slot. One record per runner, granularity and slot.
+ * The slot time is in UTC, like RunnerExecutionEntity.executionTime
+ */
+@Entity
+@Table(name = "ChRunnerstatistic", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_runnerstatistic_slot", columnNames = {"runner_type", "granularity", "slot_time"})},
+        indexes = {@Index(name = "idx_runnerstatistic_granularity_slot", columnList = "granularity, slot_time")})
+public class RunnerStatisticEntity {
+
+    /**
+     * runnerType of the row claiming the backfill of the rollups. Only one runtime inserts it (unique slot)
+     */
+    public static final String BACKFILL_MARKER = "cherry.rollup.backfill";
+
+    @Column(name = "runner_type", length = 255)
+    public String runnerType;
+
+    @Column(name = "granularity", length = 20)
+    @Enumerated(EnumType.STRING)
+    public Granularity granularity;
+
+    @Column(name = "slot_time")
+    public LocalDateTime slotTime;
+
+    @Column(name = "executions")
+    public long executions;
+
+    @Column(name = "executions_succeeded")
+    public long executionsSucceeded;
+
+    @Column(name = "executions_failed")
+    public long executionsFailed;
+
+    @Column(name = "executions_bpmnerrors")
+    public long executionsBpmnErrors;
+
+    @Column(name = "sum_execution_ms")
+    public long sumExecutionMs;
+
+    @Column(name = "peak_execution_ms")
+    public long peakExecutionMs;
+
+    /**
+     * see LatencyHistogram.toCompactString(). Only the non-empty buckets are saved
+     */
+    @Column(name = "latency_histogram", length = 4000)
+    public String latencyHistogram;
+
+    @Id
+    @SequenceGenerator(name = "seqstatistic", sequenceName = "seqstatistic", allocationSize = 1)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    private Long id;
+
+    public enum Granularity {
+        TENMINUTES(10), HOUR(60), DAY(24 * 60);
+
+        public final int minutes;
+
+        Granularity(int minutes) {
+            this.minutes = minutes;
+        }
+
+        /**
+         * Return the beginning of the slot containing the date
+         *
+         * @param dateTime date to round
+         * @return beginning of the slot
+         */
+        public LocalDateTime getSlotTime(LocalDateTime dateTime) {
+            LocalDateTime result = dateTime.withSecond(0).withNano(0);
+            return switch (this) {
+                case TENMINUTES -> result.minusMinutes(result.getMinute() % 10);
+                case HOUR -> result.withMinute(0);
+                case DAY -> result.withMinute(0).withHour(0);
+            };
+        }
+    }
+}
@@ -1,23 +1,73 @@
 package io.camunda.cherry.db.repository;
 
 import io.camunda.cherry.db.entity.OperationEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface OperationRepository extends JpaRepository<OperationEntity, Long> {
 
     @Query("select operationEntity from OperationEntity operationEntity"
             + " where operationEntity.executionTime >= :dateAfter" + " and operationEntity.runnerType = :runnerType "
-            + " order by operationEntity.executionTime desc")
+            + " order by operationEntity.executionTime desc, operationEntity.id desc")
     List<OperationEntity> selectByRunnerType(@Param("runnerType") String runnerType,
-                                             @Param("dateAfter") LocalDateTime dateAfter);
+                                             @Param("dateAfter") LocalDateTime dateAfter,
+                                             Pageable pageable);
 
     @Query("select operationEntity from OperationEntity operationEntity"
-            + " where operationEntity.executionTime >= :dateAfter" + " order by operationEntity.executionTime desc")
-    List<OperationEntity> selectAll(@Param("dateAfter") LocalDateTime dateAfter);
+            + " where operationEntity.executionTime >= :dateAfter" + " and operationEntity.runnerType = :runnerType "
+            + " and (operationEntity.executionTime < :cursorTime"
+            + " or (operationEntity.executionTime = :cursorTime and operationEntity.id < :cursorId))"
+            + " order by operationEntity.executionTime desc, operationEntity.id desc")
+    List<OperationEntity> selectByRunnerTypeAfter(@Param("runnerType") String runnerType,
+                                                  @Param("dateAfter") LocalDateTime dateAfter,
+                                                  @Param("cursorTime") LocalDateTime cursorTime,
+                                                  @Param("cursorId") Long cursorId,
+                                                  Pageable pageable);
+
+    @Query("select operationEntity from OperationEntity operationEntity"
+            + " where operationEntity.executionTime >= :dateAfter"
+            + " order by operationEntity.executionTime desc, operationEntity.id desc")
+    List<OperationEntity> selectAll(@Param("dateAfter") LocalDateTime dateAfter, Pageable pageable);
+
+    @Query("select operationEntity from OperationEntity operationEntity"
+            + " where operationEntity.executionTime >= :dateAfter" + " and (operationEntity.executionTime < :cursorTime"
+            + " or (operationEntity.executionTime = :cursorTime and operationEntity.id < :cursorId))"
+            + " order by operationEntity.executionTime desc, operationEntity.id desc")
+    List<OperationEntity> selectAllAfter(@Param("dateAfter") LocalDateTime dateAfter,
+                                         @Param("cursorTime") LocalDateTime cursorTime,
+                                         @Param("cursorId") Long cursorId,
+                                         Pageable pageable);
+
+    /**
+     * Export: read one by one from the cursor of the database. Must be called in a transaction, and the stream closed
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select operationEntity from OperationEntity operationEntity"
+            + " where operationEntity.executionTime >= :dateAfter"
+            + " order by operationEntity.executionTime desc, operationEntity.id desc")
+    Stream<OperationEntity> streamAll(@Param("dateAfter") LocalDateTime dateAfter);
+
+    /**
+     * Retention: select a chunk of records to delete
+     */
+    @Query("select operationEntity.id from OperationEntity operationEntity"
+            + " where operationEntity.executionTime < :dateThreshold")
+    List<Long> selectIdsBefore(@Param("dateThreshold") LocalDateTime dateThreshold, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("delete from OperationEntity operationEntity" + " where operationEntity.id in (:listIds)")
+    int deleteByIds(@Param("listIds") List<Long> listIds);
 
 }
@@ -0,0 +1,42 @@
+package io.camunda.cherry.db.repository;
+
+import io.camunda.cherry.db.entity.RunnerErrorGroupEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Transactional
+public interface RunnerErrorGroupRepository extends JpaRepository<RunnerErrorGroupEntity, Long> {
+
+    @Query("select errorgroup from RunnerErrorGroupEntity errorgroup" + " where errorgroup.runnerType = :runnerType"
+            + " and errorgroup.lastSeen >= :dateToSearch"
+            + " order by errorgroup.lastSeen desc, errorgroup.id desc")
+    List<RunnerErrorGroupEntity> selectByRunnerType(@Param("runnerType") String runnerType,
+                                                    @Param("dateToSearch") LocalDateTime dateToSearch,
+                                                    Pageable pageable);
+
+    /**
+     * Lock the group: multiple Cherry runtimes can update the same group
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select errorgroup from RunnerErrorGroupEntity errorgroup" + " where errorgroup.runnerType = :runnerType"
+            + " and errorgroup.fingerprint = :fingerprint")
+    RunnerErrorGroupEntity selectGroupForUpdate(@Param("runnerType") String runnerType,
+                                                @Param("fingerprint") String fingerprint);
+
+    @Modifying
+    @Query("delete from RunnerErrorGroupEntity errorgroup" + " where errorgroup.lastSeen < :dateThreshold")
+    int deleteBefore(@Param("dateThreshold") LocalDateTime dateThreshold);
+
+    @Modifying
+    @Query("delete from RunnerErrorGroupEntity errorgroup" + " where errorgroup.runnerType = :runnerType")
+    void deleteFromEntityType(@Param("runnerType") String runnerType);
+}
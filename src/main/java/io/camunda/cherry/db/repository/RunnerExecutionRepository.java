@@ -2,10 +2,13 @@ package io.camunda.cherry.db.repository;
 
 import io.camunda.cherry.db.entity.RunnerExecutionEntity;
 import io.camunda.cherry.definition.AbstractRunner;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,6 +16,7 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 @Transactional
 public interface RunnerExecutionRepository extends JpaRepository<RunnerExecutionEntity, Long> {
@@ -28,24 +32,99 @@ public interface RunnerExecutionRepository extends JpaRepository<RunnerExecution
     List<Map<String, Object>> selectStatusStats(@Param("runnerType") String runnerType,
                                                 @Param("dateToSearch") LocalDateTime dateToSearch);
 
+    /**
+     * Average time per phase. Records saved before the phases were measured have null values: avg() ignores them
+     */
+    @Query("select count(runnerexecution.executeNs) as executions,"
+            + " avg(runnerexecution.queueWaitNs) as queueWaitNs," + " avg(runnerexecution.inputNs) as inputNs,"
+            + " avg(runnerexecution.executeNs) as executeNs," + " avg(runnerexecution.completeNs) as completeNs,"
+            + " avg(runnerexecution.historyNs) as historyNs" + " from RunnerExecutionEntity runnerexecution"
+            + " where runnerexecution.executionTime >= :dateToSearch " + " and runnerexecution.runnerType = :runnerType")
+    Map<String, Object> selectPhaseTiming(@Param("runnerType") String runnerType,
+                                          @Param("dateToSearch") LocalDateTime dateToSearch);
+
     @Query(value = "select runnerexecution from RunnerExecutionEntity runnerexecution"
             + " where runnerexecution.executionTime >= :dateToSearch " + " and runnerexecution.runnerType = :runnerType"
-            + " order by runnerexecution.executionTime desc")
+            + " order by runnerexecution.executionTime desc, runnerexecution.id desc")
     List<RunnerExecutionEntity> selectRunnerRecords(@Param("runnerType") String runnerType,
                                                     @Param("dateToSearch") LocalDateTime dateToSearch,
                                                     Pageable pageable);
 
     @Query(value = "select runnerexecution from RunnerExecutionEntity runnerexecution"
             + " where runnerexecution.executionTime >= :dateToSearch " + " and runnerexecution.runnerType = :runnerType"
-            + " and runnerexecution.status in (:listStates)" + " order by runnerexecution.executionTime desc")
+            + " and runnerexecution.status in (:listStates)"
+            + " order by runnerexecution.executionTime desc, runnerexecution.id desc")
     List<RunnerExecutionEntity> selectRunnerRecordsByStates(@Param("runnerType") String runnerType,
                                                             @Param("dateToSearch") LocalDateTime dateToSearch,
                                                             @Param("listStates") List<AbstractRunner.ExecutionStatusEnum> listStates,
                                                             Pageable pageable);
 
+    /**
+     * Keyset pagination: the page after the cursor (executionTime, id)
+     */
+    @Query(value = "select runnerexecution from RunnerExecutionEntity runnerexecution"
+            + " where runnerexecution.executionTime >= :dateToSearch " + " and runnerexecution.runnerType = :runnerType"
+            + " and (runnerexecution.executionTime < :cursorTime"
+            + " or (runnerexecution.executionTime = :cursorTime and runnerexecution.id < :cursorId))"
+            + " order by runnerexecution.executionTime desc, runnerexecution.id desc")
+    List<RunnerExecutionEntity> selectRunnerRecordsAfter(@Param("runnerType") String runnerType,
+                                                         @Param("dateToSearch") LocalDateTime dateToSearch,
+                                                         @Param("cursorTime") LocalDateTime cursorTime,
+                                                         @Param("cursorId") Long cursorId,
+                                                         Pageable pageable);
+
+    @Query(value = "select runnerexecution from RunnerExecutionEntity runnerexecution"
+            + " where runnerexecution.executionTime >= :dateToSearch " + " and runnerexecution.runnerType = :runnerType"
+            + " and runnerexecution.status in (:listStates)" + " and (runnerexecution.executionTime < :cursorTime"
+            + " or (runnerexecution.executionTime = :cursorTime and runnerexecution.id < :cursorId))"
+            + " order by runnerexecution.executionTime desc, runnerexecution.id desc")
+    List<RunnerExecutionEntity> selectRunnerRecordsByStatesAfter(@Param("runnerType") String runnerType,
+                                                                 @Param("dateToSearch") LocalDateTime dateToSearch,
+                                                                 @Param("listStates") List<AbstractRunner.ExecutionStatusEnum> listStates,
+                                                                 @Param("cursorTime") LocalDateTime cursorTime,
+                                                                 @Param("cursorId") Long cursorId,
+                                                                 Pageable pageable);
+
+    /**
+     * Export: the records are read one by one from the cursor of the database. Must be called in a transaction,
+     * and the stream closed
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(value = "select runnerexecution from RunnerExecutionEntity runnerexecution"
+            + " where runnerexecution.executionTime >= :dateToSearch " + " and runnerexecution.runnerType = :runnerType"
+            + " and runnerexecution.status in (:listStates)"
+            + " order by runnerexecution.executionTime desc, runnerexecution.id desc")
+    Stream<RunnerExecutionEntity> streamRunnerRecords(@Param("runnerType") String runnerType,
+                                                      @Param("dateToSearch") LocalDateTime dateToSearch,
+                                                      @Param("listStates") List<AbstractRunner.ExecutionStatusEnum> listStates);
+
+    /**
+     * Read the history by id, to rebuild the statistics
+     */
+    @Query(value = "select runnerexecution from RunnerExecutionEntity runnerexecution"
+            + " where runnerexecution.id > :lastId" + " and runnerexecution.executionTime >= :dateFrom"
+            + " and runnerexecution.executionTime < :dateTo" + " order by runnerexecution.id")
+    List<RunnerExecutionEntity> selectRecordsAfterId(@Param("lastId") Long lastId,
+                                                     @Param("dateFrom") LocalDateTime dateFrom,
+                                                     @Param("dateTo") LocalDateTime dateTo,
+                                                     Pageable pageable);
+
     @Modifying
     @Query(value = "delete from RunnerExecutionEntity runnerexecution"
             + " where runnerexecution.runnerType = :runnerType")
     void deleteFromEntityType(@Param("runnerType") String runnerType);
 
+    /**
+     * Retention: select a chunk of records to delete
+     */
+    @Query(value = "select runnerexecution.id from RunnerExecutionEntity runnerexecution"
+            + " where runnerexecution.status = :status" + " and runnerexecution.executionTime < :dateThreshold")
+    List<Long> selectIdsBefore(@Param("status") AbstractRunner.ExecutionStatusEnum status,
+                               @Param("dateThreshold") LocalDateTime dateThreshold,
+                               Pageable pageable);
+
+    @Modifying
+    @Query(value = "delete from RunnerExecutionEntity runnerexecution" + " where runnerexecution.id in (:listIds)")
+    int deleteByIds(@Param("listIds") List<Long> listIds);
+
 }
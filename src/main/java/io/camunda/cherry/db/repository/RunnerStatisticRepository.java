@@ -0,0 +1,89 @@
+package io.camunda.cherry.db.repository;
+
+import io.camunda.cherry.db.entity.RunnerStatisticEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Transactional
+public interface RunnerStatisticRepository extends JpaRepository<RunnerStatisticEntity, Long> {
+
+    @Query("select runnerstatistic from RunnerStatisticEntity runnerstatistic"
+            + " where runnerstatistic.runnerType = :runnerType" + " and runnerstatistic.granularity = :granularity"
+            + " and runnerstatistic.slotTime >= :dateToSearch" + " order by runnerstatistic.slotTime")
+    List<RunnerStatisticEntity> selectRunnerStatistics(@Param("runnerType") String runnerType,
+                                                       @Param("granularity") RunnerStatisticEntity.Granularity granularity,
+                                                       @Param("dateToSearch") LocalDateTime dateToSearch);
+
+    /**
+     * Rollups of all runners in one query, for the dashboard. Read as a projection: no entity is hydrated
+     */
+    @Query("select runnerstatistic.runnerType as runnerType, runnerstatistic.slotTime as slotTime,"
+            + " runnerstatistic.executions as executions,"
+            + " runnerstatistic.executionsSucceeded as executionsSucceeded,"
+            + " runnerstatistic.executionsFailed as executionsFailed,"
+            + " runnerstatistic.executionsBpmnErrors as executionsBpmnErrors,"
+            + " runnerstatistic.sumExecutionMs as sumExecutionMs,"
+            + " runnerstatistic.peakExecutionMs as peakExecutionMs,"
+            + " runnerstatistic.latencyHistogram as latencyHistogram" + " from RunnerStatisticEntity runnerstatistic"
+            + " where runnerstatistic.granularity = :granularity" + " and runnerstatistic.slotTime >= :dateToSearch"
+            + " order by runnerstatistic.runnerType, runnerstatistic.slotTime")
+    List<RollupView> selectAllRunnersStatistics(@Param("granularity") RunnerStatisticEntity.Granularity granularity,
+                                                @Param("dateToSearch") LocalDateTime dateToSearch);
+
+    /**
+     * Lock the slot: multiple Cherry runtimes can update the same slot
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select runnerstatistic from RunnerStatisticEntity runnerstatistic"
+            + " where runnerstatistic.runnerType = :runnerType" + " and runnerstatistic.granularity = :granularity"
+            + " and runnerstatistic.slotTime = :slotTime")
+    RunnerStatisticEntity selectSlotForUpdate(@Param("runnerType") String runnerType,
+                                              @Param("granularity") RunnerStatisticEntity.Granularity granularity,
+                                              @Param("slotTime") LocalDateTime slotTime);
+
+    /**
+     * The backfill marker is never purged: the rollups are not rebuilt a second time
+     */
+    @Modifying
+    @Query("delete from RunnerStatisticEntity runnerstatistic" + " where runnerstatistic.granularity = :granularity"
+            + " and runnerstatistic.slotTime < :dateThreshold"
+            + " and runnerstatistic.runnerType <> '" + RunnerStatisticEntity.BACKFILL_MARKER + "'")
+    int deleteBefore(@Param("granularity") RunnerStatisticEntity.Granularity granularity,
+                     @Param("dateThreshold") LocalDateTime dateThreshold);
+
+    @Modifying
+    @Query("delete from RunnerStatisticEntity runnerstatistic" + " where runnerstatistic.runnerType = :runnerType")
+    void deleteFromEntityType(@Param("runnerType") String runnerType);
+
+    /**
+     * Projection of a rollup
+     */
+    interface RollupView {
+        String getRunnerType();
+
+        LocalDateTime getSlotTime();
+
+        long getExecutions();
+
+        long getExecutionsSucceeded();
+
+        long getExecutionsFailed();
+
+        long getExecutionsBpmnErrors();
+
+        long getSumExecutionMs();
+
+        long getPeakExecutionMs();
+
+        String getLatencyHistogram();
+    }
+
+}
@@ -40,22 +40,8 @@ public abstract class AbstractRunner {
     static Map<Class<?>, Predicate<String>> canParsePredicates = new HashMap<>();
 
     static {
-        canParsePredicates.put(java.lang.Integer.class, s -> {
-            try {
-                Integer.parseInt(s);
-                return true;
-            } catch (Exception e) {
-                return false;
-            }
-        });
-        canParsePredicates.put(java.lang.Long.class, s -> {
-            try {
-                Long.parseLong(s);
-                return true;
-            } catch (Exception e) {
-                return false;
-            }
-        });
+        canParsePredicates.put(java.lang.Integer.class, RunnerContract::isInteger);
+        canParsePredicates.put(java.lang.Long.class, RunnerContract::isLong);
     }
 
     private final List<BpmnError> listBpmnErrors;
@@ -92,6 +78,16 @@ public abstract class AbstractRunner {
      * Give log please
      */
     private boolean isLogWorker = true;
+    /**
+     * Contract compiled from listInput/listOutput, see getRunnerContract()
+     */
+    private volatile RunnerContract runnerContract = null;
+
+    /**
+     * Timeout used to activate the jobs, set when the JobWorker is opened. The queue wait of a job is calculated
+     * from its deadline and this timeout
+     */
+    private volatile Long jobTimeoutMs = null;
 
     /**
      * Constructor
@@ -137,15 +133,12 @@ public abstract class AbstractRunner {
      * @return a Double value
      */
     public Double getInputDoubleValue(String parameterName, Double defaultValue, final ActivatedJob activatedJob) {
-        if (!containsKeyInJob(parameterName, activatedJob))
+        JobVariables jobVariables = JobVariables.of(activatedJob);
+        if (!jobVariables.containsKey(parameterName))
             return (Double) getDefaultValue(parameterName, defaultValue);
-        Object value = getValueFromJob(parameterName, activatedJob);
-        if (value == null)
-            return null;
-        if (value instanceof Double valueDouble)
-            return valueDouble;
         try {
-            return Double.parseDouble(value.toString());
+            return jobVariables.getConverted(parameterName, Double.class,
+                    value -> value instanceof Double valueDouble ? valueDouble : Double.parseDouble(value.toString()));
         } catch (Exception e) {
             return defaultValue;
         }
@@ -183,16 +176,12 @@ public abstract class AbstractRunner {
      * @return a Double value
      */
     public Long getInputLongValue(String parameterName, Long defaultValue, final ActivatedJob activatedJob) {
-        if (!containsKeyInJob(parameterName, activatedJob))
+        JobVariables jobVariables = JobVariables.of(activatedJob);
+        if (!jobVariables.containsKey(parameterName))
             return (Long) getDefaultValue(parameterName, defaultValue);
-        Object value = getValueFromJob(parameterName, activatedJob);
-
-        if (value == null)
-            return null;
-        if (value instanceof Long valueLong)
-            return valueLong;
         try {
-            return Long.parseLong(value.toString());
+            return jobVariables.getConverted(parameterName, Long.class,
+                    value -> value instanceof Long valueLong ? valueLong : Long.parseLong(value.toString()));
         } catch (Exception e) {
             return defaultValue;
         }
@@ -211,17 +200,17 @@ public abstract class AbstractRunner {
      * @return a Double value
      */
     public Duration getInputDurationValue(String parameterName, Duration defaultValue, final ActivatedJob activatedJob) {
-        if (!containsKeyInJob(parameterName, activatedJob))
+        JobVariables jobVariables = JobVariables.of(activatedJob);
+        if (!jobVariables.containsKey(parameterName))
             return (Duration) getDefaultValue(parameterName, defaultValue);
-        Object value = getValueFromJob(parameterName, activatedJob);
-        if (value == null)
-            return null;
-        if (value instanceof Duration valueDuration)
-            return valueDuration;
-        if (value instanceof Long valueLong)
-            return Duration.ofMillis(valueLong);
         try {
-            return Duration.parse(value.toString());
+            return jobVariables.getConverted(parameterName, Duration.class, value -> {
+                if (value instanceof Duration valueDuration)
+                    return valueDuration;
+                if (value instanceof Long valueLong)
+                    return Duration.ofMillis(valueLong);
+                return Duration.parse(value.toString());
+            });
         } catch (Exception e) {
             return defaultValue;
         }
@@ -447,28 +436,7 @@ public abstract class AbstractRunner {
      * @throws RuntimeException if the input is incorrect, contract not respected
      */
     protected void checkInput(final ActivatedJob job) throws RuntimeException {
-        List<String> listErrors = new ArrayList<>();
-        for (RunnerParameter parameter : getListInput()) {
-            // if a parameter is a star, then this is not really a name
-            if (parameter.isAccessAllVariables())
-                continue;
-
-            // value is in Variables if the designer map Input and Output manually
-            // or may be in the custom headers if the designer use a template
-            Object value = getValueFromJob(parameter.name, job);
-
-            // check type
-            if (value != null && !isCorrectClassParameter(value, parameter.clazz)) {
-                listErrors.add(
-                        "Param[" + parameter.name + "] expect class[" + parameter.clazz.getName() + "] received[" + value.getClass()
-                                + "];");
-            }
-
-            // check REQUIRED parameters
-            if ((value == null || value.toString().trim().isEmpty()) && parameter.level == RunnerParameter.Level.REQUIRED) {
-                listErrors.add("Param[" + parameter.name + "] is missing");
-            }
-        }
+        List<String> listErrors = getRunnerContract().checkInput(JobVariables.of(job));
         if (!listErrors.isEmpty()) {
             logError("CherryConnector[" + getType() + "] Errors:" + String.join(",", listErrors));
             throw new ConnectorException("INPUT_CONTRACT_ERROR",
@@ -496,41 +464,7 @@ public abstract class AbstractRunner {
      * @throws RuntimeException when the contract is not respected
      */
     protected void checkOutput(AbstractWorker.ContextExecution contextExecution) throws RuntimeException {
-        List<String> listErrors = new ArrayList<>();
-
-        for (RunnerParameter parameter : getListOutput()) {
-
-            // no check on the * parameter
-            if (parameter.isAccessAllVariables())
-                continue;
-
-            if (parameter.level == RunnerParameter.Level.REQUIRED && !contextExecution.outVariablesValue.containsKey(
-                    parameter.name)) {
-                listErrors.add("Param[" + parameter.name + "] is missing");
-            }
-            // if the value is given, it must be the correct value
-            if (contextExecution.outVariablesValue.containsKey(parameter.name)) {
-                Object value = contextExecution.outVariablesValue.get(parameter.name);
-
-                if (!isCorrectClassParameter(value, parameter.clazz))
-                    listErrors.add("Param[" + parameter.name + "] expect class[" + parameter.clazz.getName() + "] received["
-                            + contextExecution.outVariablesValue.get(parameter.name).getClass() + "];");
-            }
-        }
-        Set<String> outputName = getListOutput().stream().map(t -> t.name).collect(Collectors.toSet());
-        // second pass: verify that the connector does not provide an unexpected value
-        // if a outputParameter is the accessAllVariable then the connector allows itself to produce
-        // anything
-        long containsStar = getListOutput().stream().filter(RunnerParameter::isAccessAllVariables).count();
-        if (containsStar == 0) {
-            List<String> listExtraVariables = contextExecution.outVariablesValue.keySet()
-                    .stream()
-                    .filter(variable -> !outputName.contains(variable))
-                    .toList();
-            if (!listExtraVariables.isEmpty())
-                listErrors.add("Output not defined in the contract[" + String.join(",", listExtraVariables) + "]");
-        }
-
+        List<String> listErrors = getRunnerContract().checkOutput(contextExecution.outVariablesValue);
         if (!listErrors.isEmpty()) {
             logError("Errors:" + String.join(",", listErrors));
             throw new ConnectorException("OUTPUT_CONTRACT_ERROR",
@@ -539,55 +473,41 @@ public abstract class AbstractRunner {
     }
 
     /**
-     * Check the object versus the expected parameter
+     * Return the contract, compiled at the first call (registration of the runner)
      *
-     * @param value        object value to check
-     * @param isInstanceOf expected class
-     * @return true if the value is correct, false else
+     * @return the contract
      */
-    private boolean isCorrectClassParameter(Object value, Class<?> isInstanceOf) {
-        if (value == null)
-            return true; // by default, a null value respect any class
-        try {
-            if (Boolean.class.getName().equals(isInstanceOf.getName())) {
-                if (value instanceof Boolean) {
-                    return true;
-                }
-                // Accept this kind of value for a boolean
-                if (BOOLEAN_V_TRUE.equalsIgnoreCase(value.toString()) || BOOLEAN_V_YES.equalsIgnoreCase(value.toString())
-                        || BOOLEAN_V_FALSE.equalsIgnoreCase(value.toString()) || BOOLEAN_V_NO.equalsIgnoreCase(value.toString())) {
-                    return true;
-                }
-            }
-
-            if (isInstanceOf.isInstance(value))
-                return true;
+    public RunnerContract getRunnerContract() {
+        RunnerContract contract = runnerContract;
+        if (contract == null) {
+            contract = RunnerContract.compile(getListInput(), getListOutput());
+            runnerContract = contract;
+        }
+        return contract;
+    }
 
-            return canParse(isInstanceOf, value.toString());
+    public Long getJobTimeoutMs() {
+        return jobTimeoutMs;
+    }
 
-        } catch (Exception e) {
-            // do nothing, we return true
-        }
-        return false;
+    public void setJobTimeoutMs(Long jobTimeoutMs) {
+        this.jobTimeoutMs = jobTimeoutMs;
     }
 
     private boolean containsKeyInJob(String parameterName, final ActivatedJob activatedJob) {
-        return (activatedJob.getVariablesAsMap().containsKey(parameterName) || activatedJob.getCustomHeaders()
-                .containsKey(parameterName));
+        return JobVariables.of(activatedJob).containsKey(parameterName);
     }
 
     /**
      * Value is in Variables if the designer map Input and Output manually, or may be in the custom
-     * headers if the designer use a template
+     * headers if the designer use a template. During an execution, the variables are parsed once (see JobVariables)
      *
      * @param parameterName parameter to get the value
      * @param activatedJob  activated job
      * @return an object
      */
     protected Object getValueFromJob(String parameterName, final ActivatedJob activatedJob) {
-        if (activatedJob.getVariablesAsMap().containsKey(parameterName))
-            return activatedJob.getVariablesAsMap().get(parameterName);
-        return activatedJob.getCustomHeaders().get(parameterName);
+        return JobVariables.of(activatedJob).get(parameterName);
     }
 
     /* -------------------------------------------------------- */
@@ -624,6 +544,7 @@ public abstract class AbstractRunner {
 
     public void setListInput(List<RunnerParameter> listInput) {
         this.listInput = listInput;
+        this.runnerContract = null;
     }
 
     public List<RunnerParameter> getListOutput() {
@@ -632,6 +553,7 @@ public abstract class AbstractRunner {
 
     public void setListOutput(List<RunnerParameter> listOutput) {
         this.listOutput = listOutput;
+        this.runnerContract = null;
     }
 
     public List<BpmnError> getListBpmnErrors() {
@@ -9,17 +9,31 @@ package io.camunda.cherry.definition;
 
 import io.camunda.cherry.db.entity.RunnerExecutionEntity;
 import io.camunda.cherry.runtime.HistoryFactory;
+import io.camunda.cherry.tracing.JobPhase;
+import io.camunda.cherry.tracing.JobTrace;
+import io.camunda.cherry.tracing.JobTracing;
+import io.camunda.cherry.zeebe.BrokerCircuitBreaker;
+import io.camunda.client.api.command.FinalCommandStep;
 import io.camunda.client.api.response.ActivatedJob;
 import io.camunda.client.api.worker.JobClient;
 import io.camunda.client.api.worker.JobHandler;
+import io.camunda.client.jobhandling.CommandExceptionHandlingStrategy;
+import io.camunda.client.jobhandling.CommandWrapper;
+import io.camunda.client.metrics.DefaultNoopMetricsRecorder;
 import io.camunda.connector.api.error.ConnectorException;
 import io.camunda.connector.cherrytemplate.RunnerParameter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.stream.Collectors;
 
 public abstract class AbstractWorker extends AbstractRunner implements JobHandler {
@@ -28,6 +42,32 @@ public abstract class AbstractWorker extends AbstractRunner implements JobHandle
     @Autowired
     HistoryFactory historyFactory;
 
+    @Autowired(required = false)
+    CommandExceptionHandlingStrategy commandExceptionHandlingStrategy;
+
+    @Autowired(required = false)
+    JobTracing jobTracing;
+
+    @Autowired(required = false)
+    BrokerCircuitBreaker brokerCircuitBreaker;
+
+    /**
+     * Asynchronous completion: the executor thread does not wait for the gateway answer
+     */
+    @Value("${cherry.runners.asynchronouscompletion:false}")
+    private boolean asynchronousCompletion = false;
+
+    @Value("${cherry.runners.completionmaxretries:3}")
+    private int completionMaxRetries = 3;
+
+    /**
+     * Decode only the variables used by the worker, from the raw JSON
+     */
+    @Value("${cherry.runners.lazyvariables:false}")
+    private boolean lazyVariables = false;
+
+    private final DefaultNoopMetricsRecorder noopMetricsRecorder = new DefaultNoopMetricsRecorder();
+
     /* -------------------------------------------------------- */
     /*                                                          */
     /*  Administration                                          */
@@ -57,30 +97,51 @@ public abstract class AbstractWorker extends AbstractRunner implements JobHandle
      * @param activatedJob information on job to execute
      */
     public void handle(final JobClient jobClient, final ActivatedJob activatedJob) {
+        // variables are parsed once for the execution
+        JobVariables.bind(activatedJob, lazyVariables);
+        JobTrace jobTrace = JobTracing.start(jobTracing, getType(), activatedJob);
+        jobTrace.getExecutionTiming().recordQueueWait(activatedJob, getJobTimeoutMs());
+        jobTrace.bind();
+        try {
+            handleJob(jobClient, activatedJob, jobTrace);
+        } catch (RuntimeException e) {
+            jobTrace.end(e);
+            throw e;
+        } finally {
+            JobTrace.unbind();
+            JobVariables.unbind();
+        }
+    }
+
+    private void handleJob(final JobClient jobClient, final ActivatedJob activatedJob, final JobTrace jobTrace) {
         Instant executionInstant = Instant.now();
 
         ContextExecution contextExecution = new ContextExecution();
         contextExecution.beginExecution = System.currentTimeMillis();
 
-        // log input
-        String logInput = getListInput().stream().map(t -> {
-            Object value = getValueFromJob(t.name, activatedJob);
-            if (value != null && value.toString().length() > 15)
-                value = value.toString().substring(0, 15) + "...";
-            return t.name + "=[" + value + "]";
-        }).collect(Collectors.joining(","));
-        if (isLog())
-            logInfo("Start " + logInput);
-        // first, see if the process respect the contract for this connector
-        checkInput(activatedJob);
+        try (JobTrace.Phase inputPhase = jobTrace.phase(JobPhase.INPUT)) {
+            // log input
+            String logInput = getListInput().stream().map(t -> {
+                Object value = getValueFromJob(t.name, activatedJob);
+                if (value != null && value.toString().length() > 15)
+                    value = value.toString().substring(0, 15) + "...";
+                return t.name + "=[" + value + "]";
+            }).collect(Collectors.joining(","));
+            if (isLog())
+                logInfo("Start " + logInput);
+            // first, see if the process respect the contract for this connector
+            checkInput(activatedJob);
 
-        validateInput();
+            validateInput();
+        }
 
         // ok, this is correct, execute it now
         ExecutionStatusEnum status;
         String errorCode = null;
         String errorMessage = null;
         ConnectorException connectorException = null;
+        // the code of the worker continues the trace (HTTP calls...)
+        JobTrace.Phase executePhase = jobTrace.phaseInScope(JobPhase.EXECUTE);
         try {
             execute(jobClient, activatedJob, contextExecution);
 
@@ -101,17 +162,78 @@ public abstract class AbstractWorker extends AbstractRunner implements JobHandle
             status = ExecutionStatusEnum.FAIL;
             errorCode = "Exception";
             errorMessage = e.getMessage();
+            executePhase.error(e);
+        } finally {
+            executePhase.close();
         }
+        FinalCommandStep<?> command;
         if (ExecutionStatusEnum.FAIL.equals(status) || ExecutionStatusEnum.BPMNERROR.equals(status))
-            jobClient.newThrowErrorCommand(activatedJob.getKey())
+            command = jobClient.newThrowErrorCommand(activatedJob.getKey())
                     .errorCode(errorCode)
-                    .errorMessage(errorMessage)
-                    .send()
-                    .join();
+                    .errorMessage(errorMessage);
         else
             // save the output in the process instance
-            jobClient.newCompleteCommand(activatedJob.getKey()).variables(contextExecution.outVariablesValue).send().join();
+            command = jobClient.newCompleteCommand(activatedJob.getKey()).variables(contextExecution.outVariablesValue);
 
+        JobTrace.Phase completePhase = jobTrace.phase(JobPhase.COMPLETE);
+        if (asynchronousCompletion) {
+            // the executor thread is released now: the end of the execution is chained on the answer
+            final ExecutionStatusEnum finalStatus = status;
+            final String finalErrorCode = errorCode;
+            final String finalErrorMessage = errorMessage;
+            // the job stays in progress for the drain until the answer
+            Runnable endJobInFlight = JobInFlight.defer();
+            try {
+                command.send().whenComplete((response, throwable) -> {
+                    completePhase.close();
+                    CompletableFuture<Throwable> commandOutcome = throwable == null ?
+                            CompletableFuture.completedFuture(null) :
+                            handleCommandError(command, activatedJob, throwable);
+                    // the execution is saved once the command has its outcome, after the retries
+                    commandOutcome.whenComplete((commandError, e) -> {
+                        try {
+                            if (commandError == null)
+                                endExecution(executionInstant, contextExecution, activatedJob.getTenantId(),
+                                        activatedJob.getKey(), jobTrace, finalStatus, finalErrorCode,
+                                        finalErrorMessage);
+                            else
+                                endExecution(executionInstant, contextExecution, activatedJob.getTenantId(),
+                                        activatedJob.getKey(), jobTrace, ExecutionStatusEnum.FAIL, "CommandFailed",
+                                        commandError.getMessage());
+                        } finally {
+                            endJobInFlight.run();
+                        }
+                    });
+                });
+            } catch (RuntimeException e) {
+                endJobInFlight.run();
+                throw e;
+            }
+        } else {
+            try {
+                command.send().join();
+            } catch (RuntimeException e) {
+                reportCommandFailure(e);
+                throw e;
+            } finally {
+                completePhase.close();
+            }
+            endExecution(executionInstant, contextExecution, activatedJob.getTenantId(), activatedJob.getKey(), jobTrace,
+                    status, errorCode, errorMessage);
+        }
+    }
+
+    /**
+     * The job is completed: log and save the execution
+     */
+    private void endExecution(Instant executionInstant,
+                              ContextExecution contextExecution,
+                              String tenantId,
+                              long jobKey,
+                              JobTrace jobTrace,
+                              ExecutionStatusEnum status,
+                              String errorCode,
+                              String errorMessage) {
         contextExecution.endExecution = System.currentTimeMillis();
         if (isLog())
             logInfo("End in " + (contextExecution.endExecution - contextExecution.beginExecution) + " ms");
@@ -119,12 +241,107 @@ public abstract class AbstractWorker extends AbstractRunner implements JobHandle
             logInfo("End in " + (contextExecution.endExecution - contextExecution.beginExecution) + " ms (long)");
 
         // save execution
-        historyFactory.saveExecution(executionInstant, // save this instant
-                RunnerExecutionEntity.TypeExecutor.WORKER, // this is a worker
-                getType(), // type of worker
-                status, // status of execution
-                errorCode, errorMessage, // if an error is detected
-                contextExecution.endExecution - contextExecution.beginExecution);
+        try (JobTrace.Phase historyPhase = jobTrace.phase(JobPhase.HISTORY)) {
+            historyFactory.saveExecution(executionInstant, // save this instant
+                    RunnerExecutionEntity.TypeExecutor.WORKER, // this is a worker
+                    getType(), // type of worker
+                    tenantId, // tenant of the job
+                    jobKey, // key of the job
+                    status, // status of execution
+                    errorCode, errorMessage, // if an error is detected
+                    contextExecution.endExecution - contextExecution.beginExecution, jobTrace.getExecutionTiming());
+        }
+        jobTrace.end(status == null ? null : status.toString(), errorCode);
+    }
+
+    /**
+     * The complete (or throw error) command failed. The CommandExceptionHandlingStrategy decides: retry with a
+     * backoff (gateway busy, unavailable), up to <completionMaxRetries>, or give up (job not found...)
+     *
+     * @return the outcome of the command: null when a retry succeeded, else the last error
+     */
+    private CompletableFuture<Throwable> handleCommandError(FinalCommandStep<?> command,
+                                                            ActivatedJob activatedJob,
+                                                            Throwable throwable) {
+        reportCommandFailure(throwable);
+        if (commandExceptionHandlingStrategy == null) {
+            loggerAbstractWorker.error("CherryWorker[{}]: can't complete job[{}]: {}", getIdentification(),
+                    activatedJob.getKey(), throwable.getMessage());
+            return CompletableFuture.completedFuture(throwable);
+        }
+        loggerAbstractWorker.warn("CherryWorker[{}]: complete job[{}] failed, ask strategy: {}", getIdentification(),
+                activatedJob.getKey(), throwable.getMessage());
+        return new RetriedCommand(command, activatedJob).retry(throwable);
+    }
+
+    /**
+     * A failed command, given to the CommandExceptionHandlingStrategy. The outcome is known when a new send
+     * succeeds, or when the strategy gives up: it does not schedule a new execution
+     */
+    private class RetriedCommand {
+        private final CompletableFuture<Throwable> outcome = new CompletableFuture<>();
+        private final CommandWrapper commandWrapper;
+        private volatile boolean retryScheduled = false;
+
+        RetriedCommand(FinalCommandStep<?> command, ActivatedJob activatedJob) {
+            commandWrapper = new CommandWrapper(observeSend(command), activatedJob, this::handleCommandError,
+                    noopMetricsRecorder, completionMaxRetries) {
+                @Override
+                public void scheduleExecutionUsing(ScheduledExecutorService scheduledExecutorService) {
+                    retryScheduled = true;
+                    super.scheduleExecutionUsing(scheduledExecutorService);
+                }
+            };
+        }
+
+        CompletableFuture<Throwable> retry(Throwable throwable) {
+            handleCommandError(commandWrapper, throwable);
+            return outcome;
+        }
+
+        /**
+         * Called for the first failure, then by the CommandWrapper for each failed retry
+         */
+        private void handleCommandError(CommandWrapper wrapper, Throwable throwable) {
+            retryScheduled = false;
+            try {
+                commandExceptionHandlingStrategy.handleCommandError(wrapper, throwable);
+            } catch (RuntimeException e) {
+                loggerAbstractWorker.error("CherryWorker[{}]: command not retried: {}", getIdentification(),
+                        e.getMessage());
+            }
+            if (!retryScheduled)
+                outcome.complete(throwable);
+        }
+
+        /**
+         * The CommandWrapper does not report a successful retry: the answer of each send is observed
+         */
+        private FinalCommandStep<?> observeSend(FinalCommandStep<?> command) {
+            return (FinalCommandStep<?>) Proxy.newProxyInstance(FinalCommandStep.class.getClassLoader(),
+                    new Class<?>[]{FinalCommandStep.class}, (proxy, method, args) -> {
+                        Object result;
+                        try {
+                            result = method.invoke(command, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        if ("send".equals(method.getName()) && result instanceof CompletionStage<?> answer)
+                            answer.whenComplete((response, throwable) -> {
+                                if (throwable == null)
+                                    outcome.complete(null);
+                            });
+                        return result;
+                    });
+        }
+    }
+
+    /**
+     * A gateway which can't be reached is reported to the circuit breaker, which pings the broker
+     */
+    private void reportCommandFailure(Throwable throwable) {
+        if (brokerCircuitBreaker != null)
+            brokerCircuitBreaker.recordCommandFailure(throwable, System.currentTimeMillis());
     }
 
     /* -------------------------------------------------------- */
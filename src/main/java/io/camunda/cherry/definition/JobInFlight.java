@@ -0,0 +1,101 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  JobInFlight                                                         */
+/*                                                                      */
+/*  A job counted in the jobs in progress of its JobWorker, from the   */
+/*  activation to the answer of the complete (or throw error) command. */
+/*  Bound on the thread running the handler: a handler completing the  */
+/*  job asynchronously defers the end, and ends the job in the          */
+/*  callback of the command. The drain then waits for the answer.      */
+/*  A handler running the job on another thread (virtual thread) hands */
+/*  it off: the job is bound again on that thread.                     */
+/* ******************************************************************** */
+package io.camunda.cherry.definition;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JobInFlight {
+
+    /**
+     * The job in progress on this thread
+     */
+    private static final ThreadLocal<JobInFlight> currentJobInFlight = new ThreadLocal<>();
+
+    private static final Runnable NOTHING_TO_END = () -> {
+    };
+
+    private final AtomicInteger inFlight;
+    /**
+     * Shared with the job handed off to another thread: the job is ended once
+     */
+    private final AtomicBoolean ended;
+    private boolean deferred = false;
+
+    private JobInFlight(AtomicInteger inFlight, AtomicBoolean ended) {
+        this.inFlight = inFlight;
+        this.ended = ended;
+    }
+
+    /**
+     * Count a job and bind it on the current thread. Must be followed by an unbind()
+     *
+     * @param inFlight jobs in progress of the JobWorker
+     * @return the job
+     */
+    public static JobInFlight bind(AtomicInteger inFlight) {
+        JobInFlight jobInFlight = new JobInFlight(inFlight, new AtomicBoolean(false));
+        inFlight.incrementAndGet();
+        currentJobInFlight.set(jobInFlight);
+        return jobInFlight;
+    }
+
+    /**
+     * The handler returns before the end of the job: the job is ended by the returned action, which must be called
+     * exactly once, when the command is answered or failed
+     *
+     * @return the action ending the job. Does nothing if no job is counted on this thread
+     */
+    public static Runnable defer() {
+        JobInFlight jobInFlight = currentJobInFlight.get();
+        if (jobInFlight == null)
+            return NOTHING_TO_END;
+        jobInFlight.deferred = true;
+        return jobInFlight::end;
+    }
+
+    /**
+     * The handler continues the job on another thread: the job is still in progress when the handler returns. The
+     * other thread binds the returned job, then unbinds it when its handler returns
+     *
+     * @return the job to bind on the other thread. null if no job is counted on this thread
+     */
+    public static JobInFlight handOff() {
+        JobInFlight jobInFlight = currentJobInFlight.get();
+        if (jobInFlight == null)
+            return null;
+        jobInFlight.deferred = true;
+        return new JobInFlight(jobInFlight.inFlight, jobInFlight.ended);
+    }
+
+    /**
+     * Bind a job handed off by another thread on the current thread. Must be followed by an unbind()
+     */
+    public void rebind() {
+        currentJobInFlight.set(this);
+    }
+
+    /**
+     * The handler returned. The job is ended now, except if it was deferred
+     */
+    public void unbind() {
+        currentJobInFlight.remove();
+        if (!deferred)
+            end();
+    }
+
+    private void end() {
+        if (ended.compareAndSet(false, true))
+            inFlight.decrementAndGet();
+    }
+}
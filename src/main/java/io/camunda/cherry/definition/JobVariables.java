@@ -0,0 +1,188 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  JobVariables                                                        */
+/*                                                                      */
+/*  View on the variables and the custom headers of one execution.     */
+/*  ActivatedJob.getVariablesAsMap() deserializes the JSON at each      */
+/*  call: the view parses it once, then all accessors (input log,      */
+/*  checkInput, getInputXxxValue) use the same lookup.                  */
+/*  A variable has the priority on a custom header with the same name. */
+/*  Lazy mode: only the requested variables are decoded from the raw  */
+/*  JSON, the other ones are skipped.                                   */
+/* ******************************************************************** */
+package io.camunda.cherry.definition;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.camunda.client.api.response.ActivatedJob;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+public class JobVariables {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * The view of the execution in progress on this thread
+     */
+    private static final ThreadLocal<JobVariables> currentJobVariables = new ThreadLocal<>();
+
+    private static final Object NOT_FOUND = new Object();
+
+    private final ActivatedJob activatedJob;
+    private final boolean lazy;
+    /**
+     * Variables, when they are all decoded
+     */
+    private Map<String, Object> variables = null;
+    /**
+     * Lazy mode: variables already searched in the raw JSON. NOT_FOUND if the variable does not exist
+     */
+    private final Map<String, Object> lazyVariables = new HashMap<>();
+    private Map<String, String> customHeaders = null;
+    /**
+     * Key is class:name
+     */
+    private final Map<String, Object> convertedValues = new HashMap<>();
+
+    public JobVariables(ActivatedJob activatedJob, boolean lazy) {
+        this.activatedJob = activatedJob;
+        this.lazy = lazy;
+    }
+
+    /**
+     * Bind a view on the current thread. Must be followed by an unbind()
+     *
+     * @param activatedJob job in progress
+     * @param lazy         decode only the requested variables
+     * @return the view
+     */
+    public static JobVariables bind(ActivatedJob activatedJob, boolean lazy) {
+        JobVariables jobVariables = new JobVariables(activatedJob, lazy);
+        currentJobVariables.set(jobVariables);
+        return jobVariables;
+    }
+
+    public static void unbind() {
+        currentJobVariables.remove();
+    }
+
+    /**
+     * Return the view bound on this thread for this job, else a new view (the job is then parsed once per call)
+     *
+     * @param activatedJob job
+     * @return the view
+     */
+    public static JobVariables of(ActivatedJob activatedJob) {
+        JobVariables jobVariables = currentJobVariables.get();
+        if (jobVariables != null && jobVariables.activatedJob == activatedJob)
+            return jobVariables;
+        return new JobVariables(activatedJob, false);
+    }
+
+    public ActivatedJob getActivatedJob() {
+        return activatedJob;
+    }
+
+    /**
+     * @param name name of the variable or the custom header
+     * @return true if a variable or a custom header exists with this name (even if its value is null)
+     */
+    public boolean containsKey(String name) {
+        return getVariable(name) != NOT_FOUND || getCustomHeaders().containsKey(name);
+    }
+
+    /**
+     * @param name name of the variable or the custom header
+     * @return the variable value, else the custom header value, else null
+     */
+    public Object get(String name) {
+        Object value = getVariable(name);
+        if (value != NOT_FOUND)
+            return value;
+        return getCustomHeaders().get(name);
+    }
+
+    /**
+     * Return the value converted. The conversion is done once per execution, then cached. If the converter
+     * throws an exception, nothing is cached and the exception is thrown to the caller.
+     *
+     * @param name      name of the variable or the custom header
+     * @param clazz     expected class, part of the cache key
+     * @param converter conversion of the raw value (not called when the raw value is null)
+     * @param <T>       expected class
+     * @return the converted value, null if the value is null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getConverted(String name, Class<T> clazz, Function<Object, T> converter) {
+        String key = clazz.getName() + ":" + name;
+        if (convertedValues.containsKey(key))
+            return (T) convertedValues.get(key);
+        Object value = get(name);
+        T converted = value == null ? null : converter.apply(value);
+        convertedValues.put(key, converted);
+        return converted;
+    }
+
+    /**
+     * @return all variables, decoded
+     */
+    public Map<String, Object> getVariables() {
+        if (variables == null) {
+            Map<String, Object> decoded = activatedJob.getVariablesAsMap();
+            variables = decoded == null ? Collections.emptyMap() : decoded;
+        }
+        return variables;
+    }
+
+    public Map<String, String> getCustomHeaders() {
+        if (customHeaders == null) {
+            Map<String, String> headers = activatedJob.getCustomHeaders();
+            customHeaders = headers == null ? Collections.emptyMap() : headers;
+        }
+        return customHeaders;
+    }
+
+    private Object getVariable(String name) {
+        if (variables != null || !lazy) {
+            Map<String, Object> allVariables = getVariables();
+            if (allVariables.containsKey(name))
+                return allVariables.get(name);
+            return NOT_FOUND;
+        }
+        return lazyVariables.computeIfAbsent(name, this::searchInJson);
+    }
+
+    /**
+     * Search a variable in the raw JSON. Only the root level is read: values of other variables are skipped
+     * without being decoded.
+     *
+     * @param name name of the variable
+     * @return the value, NOT_FOUND if the variable does not exist
+     */
+    private Object searchInJson(String name) {
+        String json = activatedJob.getVariables();
+        if (json == null || json.isEmpty())
+            return NOT_FOUND;
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                return NOT_FOUND;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+                if (name.equals(fieldName))
+                    return valueToken == JsonToken.VALUE_NULL ? null : objectMapper.readValue(parser, Object.class);
+                parser.skipChildren();
+            }
+            return NOT_FOUND;
+        } catch (Exception e) {
+            // the JSON can't be read in streaming: decode all variables
+            Map<String, Object> allVariables = getVariables();
+            return allVariables.containsKey(name) ? allVariables.get(name) : NOT_FOUND;
+        }
+    }
+}
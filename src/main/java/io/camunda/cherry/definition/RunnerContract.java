@@ -0,0 +1,223 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  RunnerContract                                                      */
+/*                                                                      */
+/*  Input/Output contract of a runner, compiled once from the list of  */
+/*  RunnerParameter. Each parameter is a slot with its name, the       */
+/*  required flag and the type check to apply: the validation of a job */
+/*  does not stream the lists, and does not parse with exceptions.     */
+/* ******************************************************************** */
+package io.camunda.cherry.definition;
+
+import io.camunda.connector.cherrytemplate.RunnerParameter;
+
+import java.util.*;
+
+public final class RunnerContract {
+
+    private final Slot[] inputSlots;
+    private final Slot[] outputSlots;
+    private final Set<String> outputNames;
+    /**
+     * A "*" output parameter: the runner can produce any variable
+     */
+    private final boolean acceptAnyOutput;
+
+    private RunnerContract(Slot[] inputSlots, Slot[] outputSlots, Set<String> outputNames, boolean acceptAnyOutput) {
+        this.inputSlots = inputSlots;
+        this.outputSlots = outputSlots;
+        this.outputNames = outputNames;
+        this.acceptAnyOutput = acceptAnyOutput;
+    }
+
+    /**
+     * Compile the contract
+     *
+     * @param listInput  input parameters
+     * @param listOutput output parameters
+     * @return the contract
+     */
+    public static RunnerContract compile(List<RunnerParameter> listInput, List<RunnerParameter> listOutput) {
+        Set<String> outputNames = new HashSet<>();
+        boolean acceptAnyOutput = false;
+        for (RunnerParameter parameter : listOutput == null ? List.<RunnerParameter>of() : listOutput) {
+            outputNames.add(parameter.name);
+            if (parameter.isAccessAllVariables())
+                acceptAnyOutput = true;
+        }
+        return new RunnerContract(toSlots(listInput), toSlots(listOutput), Set.copyOf(outputNames), acceptAnyOutput);
+    }
+
+    private static Slot[] toSlots(List<RunnerParameter> listParameters) {
+        if (listParameters == null)
+            return new Slot[0];
+        // the "*" parameter is not a name: no check on it
+        return listParameters.stream()
+                .filter(parameter -> !parameter.isAccessAllVariables())
+                .map(parameter -> new Slot(parameter.name, parameter.clazz,
+                        parameter.level == RunnerParameter.Level.REQUIRED, TypeCheck.of(parameter.clazz)))
+                .toArray(Slot[]::new);
+    }
+
+    /**
+     * Check the input values
+     *
+     * @param jobVariables variables of the job
+     * @return list of errors, empty if the contract is respected
+     */
+    public List<String> checkInput(JobVariables jobVariables) {
+        List<String> listErrors = null;
+        for (Slot slot : inputSlots) {
+            // value is in Variables if the designer map Input and Output manually
+            // or may be in the custom headers if the designer use a template
+            Object value = jobVariables.get(slot.name);
+
+            if (value != null && !slot.typeCheck.accept(value, slot.clazz)) {
+                listErrors = addError(listErrors,
+                        "Param[" + slot.name + "] expect class[" + slot.clazz.getName() + "] received[" + value.getClass()
+                                + "];");
+            }
+            if (slot.required && (value == null || value.toString().trim().isEmpty())) {
+                listErrors = addError(listErrors, "Param[" + slot.name + "] is missing");
+            }
+        }
+        return listErrors == null ? Collections.emptyList() : listErrors;
+    }
+
+    /**
+     * Check the output values
+     *
+     * @param outVariablesValue variables produced by the runner
+     * @return list of errors, empty if the contract is respected
+     */
+    public List<String> checkOutput(Map<String, Object> outVariablesValue) {
+        List<String> listErrors = null;
+        for (Slot slot : outputSlots) {
+            boolean isPresent = outVariablesValue.containsKey(slot.name);
+            if (slot.required && !isPresent) {
+                listErrors = addError(listErrors, "Param[" + slot.name + "] is missing");
+            }
+            // if the value is given, it must be the correct value
+            if (isPresent) {
+                Object value = outVariablesValue.get(slot.name);
+                if (value != null && !slot.typeCheck.accept(value, slot.clazz))
+                    listErrors = addError(listErrors,
+                            "Param[" + slot.name + "] expect class[" + slot.clazz.getName() + "] received["
+                                    + value.getClass() + "];");
+            }
+        }
+        // the runner must not provide an unexpected value, except if it declares a "*" output
+        if (!acceptAnyOutput) {
+            List<String> listExtraVariables = null;
+            for (String variable : outVariablesValue.keySet()) {
+                if (!outputNames.contains(variable))
+                    listExtraVariables = addError(listExtraVariables, variable);
+            }
+            if (listExtraVariables != null)
+                listErrors = addError(listErrors,
+                        "Output not defined in the contract[" + String.join(",", listExtraVariables) + "]");
+        }
+        return listErrors == null ? Collections.emptyList() : listErrors;
+    }
+
+    private static List<String> addError(List<String> listErrors, String error) {
+        List<String> result = listErrors == null ? new ArrayList<>() : listErrors;
+        result.add(error);
+        return result;
+    }
+
+    /**
+     * Same result as Integer.parseInt() without an exception
+     *
+     * @param value value to check
+     * @return true if the value can be parsed as an Integer
+     */
+    public static boolean isInteger(String value) {
+        return isNumber(value, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same result as Long.parseLong() without an exception
+     *
+     * @param value value to check
+     * @return true if the value can be parsed as a Long
+     */
+    public static boolean isLong(String value) {
+        return isNumber(value, Long.MAX_VALUE);
+    }
+
+    /**
+     * Algorithm of Long.parseLong(): the value is accumulated negatively, to detect the overflow
+     */
+    private static boolean isNumber(String value, long maxValue) {
+        if (value == null || value.isEmpty())
+            return false;
+        int index = 0;
+        long limit = -maxValue;
+        char firstChar = value.charAt(0);
+        if (firstChar == '-' || firstChar == '+') {
+            if (value.length() == 1)
+                return false;
+            if (firstChar == '-')
+                limit = -maxValue - 1;
+            index++;
+        }
+        long multiplyMin = limit / 10;
+        long result = 0;
+        for (; index < value.length(); index++) {
+            int digit = Character.digit(value.charAt(index), 10);
+            if (digit < 0 || result < multiplyMin)
+                return false;
+            result *= 10;
+            if (result < limit + digit)
+                return false;
+            result -= digit;
+        }
+        return true;
+    }
+
+    /**
+     * How a value is checked against the class of the parameter
+     */
+    enum TypeCheck {
+        /**
+         * No class: any value is accepted
+         */
+        ANY, BOOLEAN, INTEGER, LONG,
+        /**
+         * the value must be an instance of the class
+         */
+        INSTANCE;
+
+        static TypeCheck of(Class<?> clazz) {
+            if (clazz == null || clazz == Object.class)
+                return ANY;
+            if (clazz == Boolean.class)
+                return BOOLEAN;
+            if (clazz == Integer.class)
+                return INTEGER;
+            if (clazz == Long.class)
+                return LONG;
+            return INSTANCE;
+        }
+
+        boolean accept(Object value, Class<?> clazz) {
+            return switch (this) {
+                case ANY -> true;
+                case BOOLEAN -> value instanceof Boolean || isBooleanString(value.toString());
+                case INTEGER -> value instanceof Integer || isInteger(value.toString());
+                case LONG -> value instanceof Long || isLong(value.toString());
+                case INSTANCE -> clazz.isInstance(value);
+            };
+        }
+
+        private static boolean isBooleanString(String value) {
+            return AbstractRunner.BOOLEAN_V_TRUE.equalsIgnoreCase(value) || AbstractRunner.BOOLEAN_V_YES.equalsIgnoreCase(
+                    value) || AbstractRunner.BOOLEAN_V_FALSE.equalsIgnoreCase(value)
+                    || AbstractRunner.BOOLEAN_V_NO.equalsIgnoreCase(value);
+        }
+    }
+
+    private record Slot(String name, Class<?> clazz, boolean required, TypeCheck typeCheck) {
+    }
+}
@@ -35,6 +35,12 @@ public class SdkRunnerCherryConnector extends SdkRunnerConnector {
 
     Logger logger = LoggerFactory.getLogger(SdkRunnerCherryConnector.class.getName());
 
+    /**
+     * The input/output classes are instantiated by reflection: the lists are calculated once
+     */
+    private volatile List<RunnerParameter> cacheListInput = null;
+    private volatile List<RunnerParameter> cacheListOutput = null;
+
     public SdkRunnerCherryConnector(OutboundConnectorFunction outboundConnectorFunction) {
 
         super(outboundConnectorFunction);
@@ -119,6 +125,25 @@ public class SdkRunnerCherryConnector extends SdkRunnerConnector {
 
     @Override
     public List<RunnerParameter> getListInput() {
+        List<RunnerParameter> listInput = cacheListInput;
+        if (listInput == null) {
+            listInput = calculateListInput();
+            cacheListInput = listInput;
+        }
+        return listInput;
+    }
+
+    @Override
+    public List<RunnerParameter> getListOutput() {
+        List<RunnerParameter> listOutput = cacheListOutput;
+        if (listOutput == null) {
+            listOutput = calculateListOutput();
+            cacheListOutput = listOutput;
+        }
+        return listOutput;
+    }
+
+    private List<RunnerParameter> calculateListInput() {
         Class<?> classInput = getInputParameterClass();
         if (classInput == null)
             return super.getListInput();
@@ -141,8 +166,7 @@ public class SdkRunnerCherryConnector extends SdkRunnerConnector {
         }
     }
 
-    @Override
-    public List<RunnerParameter> getListOutput() {
+    private List<RunnerParameter> calculateListOutput() {
         Class<?> classOutput = getOutputParameterClass();
         if (classOutput == null)
             return Collections.emptyList();
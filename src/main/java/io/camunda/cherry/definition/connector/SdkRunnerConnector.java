@@ -11,7 +11,12 @@ import java.util.List;
 public class SdkRunnerConnector extends AbstractRunner {
 
     private final OutboundConnectorFunction outboundConnectorFunction;
+    /**
+     * Annotation read once: type, name and input variables are requested for each job
+     */
+    private final OutboundConnector connectorAnnotation;
     private String nameInCache;
+    private volatile List<RunnerParameter> cacheListInput = null;
 
     public SdkRunnerConnector(OutboundConnectorFunction outboundConnectorFunction) {
 
@@ -20,6 +25,7 @@ public class SdkRunnerConnector extends AbstractRunner {
                 Collections.emptyList(), //  listOutput
                 Collections.emptyList()); // listBpmnErrors
         this.outboundConnectorFunction = outboundConnectorFunction;
+        this.connectorAnnotation = outboundConnectorFunction.getClass().getAnnotation(OutboundConnector.class);
         this.setType(getType());
     }
 
@@ -32,7 +38,6 @@ public class SdkRunnerConnector extends AbstractRunner {
      */
     @Override
     public String getType() {
-        OutboundConnector connectorAnnotation = outboundConnectorFunction.getClass().getAnnotation(OutboundConnector.class);
         return connectorAnnotation.type();
     }
 
@@ -43,21 +48,23 @@ public class SdkRunnerConnector extends AbstractRunner {
      */
     @Override
     public String getName() {
-        OutboundConnector connectorAnnotation = outboundConnectorFunction.getClass().getAnnotation(OutboundConnector.class);
         return connectorAnnotation.name();
     }
 
     @Override
     public List<RunnerParameter> getListInput() {
-        OutboundConnector connectorAnnotation = outboundConnectorFunction.getClass().getAnnotation(OutboundConnector.class);
-        List<String> listInputString = List.of(connectorAnnotation.inputVariables());
-        return listInputString.stream().map(t -> {
-            return RunnerParameter.getInstance(t, // name
-                    t, // label
-                    String.class, null, // default Value
-                    RunnerParameter.Level.OPTIONAL, "");
-        }).toList();
-
+        List<RunnerParameter> listInput = cacheListInput;
+        if (listInput == null) {
+            List<String> listInputString = List.of(connectorAnnotation.inputVariables());
+            listInput = listInputString.stream().map(t -> {
+                return RunnerParameter.getInstance(t, // name
+                        t, // label
+                        String.class, null, // default Value
+                        RunnerParameter.Level.OPTIONAL, "");
+            }).toList();
+            cacheListInput = listInput;
+        }
+        return listInput;
     }
 
     /**
@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 import io.camunda.cherry.definition.AbstractWorker;
 import io.camunda.cherry.definition.BpmnError;
 import io.camunda.cherry.definition.IntFrameworkRunner;
+import io.camunda.cherry.definition.JobVariables;
 import io.camunda.client.api.response.ActivatedJob;
 import io.camunda.client.api.worker.JobClient;
 import io.camunda.connector.api.error.ConnectorException;
@@ -247,7 +248,7 @@ public class SetVariableWorker extends AbstractWorker implements IntFrameworkRun
             // do nothing, we try a different format
         }
 
-        return activatedJob.getVariablesAsMap().get(valueSt);
+        return JobVariables.of(activatedJob).getVariables().get(valueSt);
     }
 
     /* ******************************************************************** */
@@ -0,0 +1,244 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  CherryMetrics                                                       */
+/*                                                                      */
+/*  Publish the runner executions in the Spring MeterRegistry, exposed */
+/*  by the actuator (/actuator/prometheus).                             */
+/*   cherry.runner.execution   timer, per runner/status/tenant          */
+/*   cherry.runner.errors      counter, per runner/status/tenant/code   */
+/*   cherry.runner.inflight    gauge, jobs in progress per runner       */
+/*   cherry.runners.running    gauge, JobWorkers opened                 */
+/*   cherry.threads.virtual.inflight  gauge, jobs on virtual threads    */
+/*   cherry.threads.platform.*  gauges, job executor of the client      */
+/*                    (active, queued, pool): jobs in PLATFORM mode     */
+/*  The cardinality of the tags is bounded: after <maxtenants> tenants  */
+/*  or <maxerrorcodes> error codes per runner, values become "other".  */
+/* ******************************************************************** */
+package io.camunda.cherry.metrics;
+
+import io.camunda.cherry.definition.AbstractRunner;
+import io.camunda.cherry.runner.VirtualThreadExecution;
+import io.camunda.cherry.runtime.HistoryFactory;
+import io.camunda.client.api.worker.JobHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+@Service
+public class CherryMetrics implements HistoryFactory.ExecutionListener {
+
+    public static final String TAG_RUNNER = "runner";
+    public static final String TAG_STATUS = "status";
+    public static final String TAG_TENANT = "tenant";
+    public static final String TAG_ERRORCODE = "errorcode";
+    public static final String OTHER_VALUE = "other";
+    public static final String NONE_VALUE = "none";
+
+    Logger logger = LoggerFactory.getLogger(CherryMetrics.class.getName());
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    HistoryFactory historyFactory;
+
+    @Autowired
+    VirtualThreadExecution virtualThreadExecution;
+
+    @Value("${cherry.metrics.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Distinct tenant values published, the next ones are "other"
+     */
+    @Value("${cherry.metrics.maxtenants:20}")
+    private int maxTenants;
+
+    /**
+     * Distinct error codes published per runner, the next ones are "other"
+     */
+    @Value("${cherry.metrics.maxerrorcodes:20}")
+    private int maxErrorCodes;
+
+    /**
+     * Publish the histogram buckets of the timer, so Prometheus can compute percentiles across nodes
+     */
+    @Value("${cherry.metrics.percentileshistogram:false}")
+    private boolean percentilesHistogram;
+
+    private final Set<String> knownTenants = ConcurrentHashMap.newKeySet();
+    /**
+     * Key is the runner type
+     */
+    private final Map<String, Set<String>> knownErrorCodes = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    /**
+     * Meters are resolved once per tag combination, not at each execution
+     */
+    private final Map<MeterKey, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<MeterKey, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (!isActive())
+            return;
+        historyFactory.addExecutionListener(this);
+        Gauge.builder("cherry.threads.virtual.inflight", virtualThreadExecution,
+                        VirtualThreadExecution::getVirtualThreadsInFlight)
+                .description("Jobs in progress on virtual threads")
+                .register(meterRegistry);
+        logger.info("CherryMetrics: publish runner metrics maxTenants[{}] maxErrorCodes[{}] percentilesHistogram[{}]",
+                maxTenants, maxErrorCodes, percentilesHistogram);
+    }
+
+    public boolean isActive() {
+        return enabled && meterRegistry != null;
+    }
+
+    /**
+     * Publish the number of JobWorkers opened
+     *
+     * @param runningWorkers number of running workers
+     */
+    public void registerRunningWorkers(Supplier<Number> runningWorkers) {
+        if (!isActive())
+            return;
+        Gauge.builder("cherry.runners.running", runningWorkers)
+                .description("JobWorkers opened by the runtime")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publish the job executor of the client. In PLATFORM mode the jobs run on its threads; in VIRTUAL mode its
+     * threads only dispatch the jobs. The polls of the JobWorkers are scheduled on it too: they are part of the
+     * active and queued tasks.
+     *
+     * @param jobWorkerExecutor executor of the client. Only a thread pool exposes its activity
+     */
+    public void registerPlatformExecutor(ScheduledExecutorService jobWorkerExecutor) {
+        if (!isActive())
+            return;
+        if (!(jobWorkerExecutor instanceof ThreadPoolExecutor threadPool)) {
+            logger.info("CherryMetrics: job worker executor [{}] is not a thread pool, platform threads not published",
+                    jobWorkerExecutor == null ? null : jobWorkerExecutor.getClass().getName());
+            return;
+        }
+        Gauge.builder("cherry.threads.platform.active", threadPool, ThreadPoolExecutor::getActiveCount)
+                .description("Threads of the client job executor running a task")
+                .register(meterRegistry);
+        Gauge.builder("cherry.threads.platform.queued", threadPool, pool -> pool.getQueue().size())
+                .description("Tasks waiting in the client job executor, scheduled polls included")
+                .register(meterRegistry);
+        Gauge.builder("cherry.threads.platform.pool", threadPool, ThreadPoolExecutor::getPoolSize)
+                .description("Threads in the client job executor")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Wrap the handler of a runner to follow the jobs in progress. Must be applied before the execution mode, so
+     * the job is counted while it runs, not while it is dispatched.
+     *
+     * @param runnerType type of runner
+     * @param jobHandler handler of the runner
+     * @return the handler to use
+     */
+    public JobHandler instrument(String runnerType, JobHandler jobHandler) {
+        if (!isActive())
+            return jobHandler;
+        AtomicInteger runnerInFlight = inFlight.computeIfAbsent(runnerType, type -> {
+            AtomicInteger counter = new AtomicInteger();
+            Gauge.builder("cherry.runner.inflight", counter, AtomicInteger::get)
+                    .description("Jobs in progress")
+                    .tag(TAG_RUNNER, type)
+                    .register(meterRegistry);
+            return counter;
+        });
+        return (client, job) -> {
+            runnerInFlight.incrementAndGet();
+            try {
+                jobHandler.handle(client, job);
+            } finally {
+                runnerInFlight.decrementAndGet();
+            }
+        };
+    }
+
+    @Override
+    public void onExecution(String runnerType, AbstractRunner.ExecutionStatusEnum status, long durationInMs) {
+        onExecution(runnerType, null, status, null, durationInMs);
+    }
+
+    @Override
+    public void onExecution(String runnerType,
+                            String tenantId,
+                            AbstractRunner.ExecutionStatusEnum status,
+                            String errorCode,
+                            long durationInMs) {
+        if (!isActive())
+            return;
+        String statusValue = status == null ? AbstractRunner.ExecutionStatusEnum.FAIL.toString() : status.toString();
+        String tenantValue = boundValue(knownTenants, tenantId, maxTenants);
+        timers.computeIfAbsent(new MeterKey(runnerType, statusValue, tenantValue, null),
+                        key -> Timer.builder("cherry.runner.execution")
+                                .description("Execution of a job by a runner")
+                                .tag(TAG_RUNNER, key.runnerType)
+                                .tag(TAG_STATUS, key.status)
+                                .tag(TAG_TENANT, key.tenant)
+                                .publishPercentileHistogram(percentilesHistogram)
+                                .register(meterRegistry))
+                .record(durationInMs, TimeUnit.MILLISECONDS);
+
+        if (status == AbstractRunner.ExecutionStatusEnum.SUCCESS)
+            return;
+        String errorCodeValue = boundValue(
+                knownErrorCodes.computeIfAbsent(runnerType, type -> ConcurrentHashMap.newKeySet()), errorCode,
+                maxErrorCodes);
+        errorCounters.computeIfAbsent(new MeterKey(runnerType, statusValue, tenantValue, errorCodeValue),
+                key -> Counter.builder("cherry.runner.errors")
+                        .description("Jobs failed or ended with a BPMN error")
+                        .tag(TAG_RUNNER, key.runnerType)
+                        .tag(TAG_STATUS, key.status)
+                        .tag(TAG_TENANT, key.tenant)
+                        .tag(TAG_ERRORCODE, key.errorCode)
+                        .register(meterRegistry)).increment();
+    }
+
+    /**
+     * Keep the value if it is known, or if the limit is not reached
+     *
+     * @param knownValues values already published
+     * @param value       value to publish
+     * @param maxValues   maximum number of values
+     * @return the value to use as a tag
+     */
+    static String boundValue(Set<String> knownValues, String value, int maxValues) {
+        if (value == null || value.isEmpty())
+            return NONE_VALUE;
+        if (knownValues.contains(value))
+            return value;
+        // a race may accept one or two values over the limit: not a problem
+        if (knownValues.size() >= maxValues)
+            return OTHER_VALUE;
+        knownValues.add(value);
+        return value;
+    }
+
+    private record MeterKey(String runnerType, String status, String tenant, String errorCode) {
+    }
+}
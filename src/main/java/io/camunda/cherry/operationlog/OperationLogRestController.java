@@ -1,18 +1,26 @@
 package io.camunda.cherry.operationlog;
 
 import io.camunda.cherry.db.entity.OperationEntity;
+import io.camunda.cherry.runtime.HistoryExport;
 import io.camunda.cherry.runtime.OperationFactory;
 import io.camunda.cherry.util.DateOperation;
+import io.camunda.cherry.util.KeysetCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -27,9 +35,13 @@ public class OperationLogRestController {
     @Autowired
     OperationFactory operationFactory;
 
+    @Autowired
+    HistoryExport historyExport;
+
     @GetMapping(value = "/api/operationlog/list", produces = "application/json")
     public Map<String, Object> listOperations(@RequestParam(name = "nbhoursmonitoring", required = false) Integer nbHoursMonitoring,
                                               @RequestParam(name = "pagenumber", required = false) Integer pageNumber,
+                                              @RequestParam(name = "cursor", required = false) String cursor,
                                               @RequestParam(name = "rowsperpage", required = false) Integer rowsPerPage,
                                               @RequestParam(name = "timezoneoffset") Long timezoneOffset) {
         Map<String, Object> info = new HashMap<>();
@@ -43,14 +55,22 @@ public class OperationLogRestController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "value not acceptable [" + nbHoursMonitoring + "]");
         }
 
-        int pageNumberInt = pageNumber == null ? 0 : pageNumber;
-        int rowsPerPageInt = rowsPerPage == null ? 20 : rowsPerPage;
+        // the page is given by the cursor (keyset pagination); without a page size, the page is the maximum
+        int rowsPerPageInt = rowsPerPage == null ? 10000 : rowsPerPage;
         if (rowsPerPageInt < 1 || rowsPerPageInt > 10000)
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "rowsPerPage must be between [1..10000]");
 
         LocalDateTime dateThreshold = DateOperation.getLocalDateTimeNow().minusHours(nbHours);
 
-        List<OperationEntity> listOperations = operationFactory.getAllOperations(dateNow, dateThreshold);
+        KeysetCursor keysetCursor;
+        try {
+            keysetCursor = KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        List<OperationEntity> listOperations = operationFactory.getAllOperations(dateNow, dateThreshold, keysetCursor,
+                rowsPerPageInt);
         List<Map<String, Object>> listOperationsMap = listOperations.stream().map(t -> {
             Map<String, Object> infoOperation = new HashMap<>();
             infoOperation.put("hostname", t.hostName);
@@ -61,8 +81,38 @@ public class OperationLogRestController {
             return infoOperation;
         }).toList();
         info.put("operations", listOperationsMap);
+        info.put("nextCursor", OperationFactory.getNextCursor(listOperations, rowsPerPageInt));
 
         return info;
     }
 
+    /**
+     * Export the operations, streamed: the memory does not depend on the number of operations
+     *
+     * @param nbHoursMonitoring from now to now-nbHoursMonitoring. Max im 30*7*24, default is 24
+     * @param format            ndjson (default) or csv
+     * @return the stream
+     */
+    @GetMapping(value = "/api/operationlog/export")
+    public ResponseEntity<StreamingResponseBody> exportOperations(@RequestParam(name = "nbhoursmonitoring", required = false) Integer nbHoursMonitoring,
+                                                                  @RequestParam(name = "format", required = false) String format) {
+        HistoryExport.ExportFormat exportFormat = HistoryExport.ExportFormat.fromString(format);
+        if (exportFormat == null)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be ndjson or csv");
+        int nbHours = Math.min(30 * 7 * 24, Math.max(nbHoursMonitoring == null ? 24 : nbHoursMonitoring, 1));
+        LocalDateTime dateThreshold = DateOperation.getLocalDateTimeNow().minusHours(nbHours);
+
+        StreamingResponseBody body = outputStream -> {
+            long nbRecords = historyExport.exportOperations(dateThreshold, exportFormat, outputStream);
+            logger.info("OperationLogRestController.export {} records", nbRecords);
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("operations." + exportFormat.extension, StandardCharsets.UTF_8)
+                        .build()
+                        .toString())
+                .contentType(MediaType.parseMediaType(exportFormat.contentType))
+                .body(body);
+    }
+
 }
@@ -0,0 +1,187 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  AdaptiveConcurrencyController                                       */
+/*                                                                      */
+/*  Auto-tune the maxJobsActive of each runner from the executions:    */
+/*  latency (executionMs) and error rate (FAIL/BPMNERROR). The JobWorker */
+/*  is replaced only on a significant change (hysteresis).             */
+/*  Each change is logged as a SETTHRESHOLD operation.                  */
+/* ******************************************************************** */
+package io.camunda.cherry.runner;
+
+import io.camunda.cherry.db.entity.OperationEntity;
+import io.camunda.cherry.definition.AbstractRunner;
+import io.camunda.cherry.exception.OperationException;
+import io.camunda.cherry.runtime.HistoryFactory;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+public class AdaptiveConcurrencyController implements HistoryFactory.ExecutionListener {
+
+    Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyController.class.getName());
+
+    @Autowired
+    HistoryFactory historyFactory;
+
+    @Autowired
+    JobRunnerFactory jobRunnerFactory;
+
+    @Autowired
+    LogOperation logOperation;
+
+    @Autowired
+    Environment environment;
+
+    @Value("${cherry.runners.adaptive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cherry.runners.adaptive.minjobsactive:1}")
+    private int minJobsActive;
+
+    @Value("${cherry.runners.adaptive.maxjobsactive:500}")
+    private int maxJobsActive;
+
+    @Value("${cherry.runners.adaptive.minsamples:20}")
+    private long minSamples;
+
+    @Value("${cherry.runners.adaptive.errorratethreshold:0.1}")
+    private double errorRateThreshold;
+
+    @Value("${cherry.runners.adaptive.latencytolerance:1.5}")
+    private double latencyTolerance;
+
+    @Value("${cherry.runners.adaptive.decreasefactor:0.7}")
+    private double decreaseFactor;
+
+    @Value("${cherry.runners.adaptive.increasestep:2}")
+    private int increaseStep;
+
+    @Value("${cherry.runners.adaptive.minchangeratio:0.2}")
+    private double minChangeRatio;
+
+    @Value("${cherry.runners.adaptive.minapplyintervalms:120000}")
+    private long minApplyIntervalMs;
+
+    /**
+     * Key is runnerType
+     */
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private long windowStart = System.currentTimeMillis();
+
+    @PostConstruct
+    public void init() {
+        historyFactory.addExecutionListener(this);
+    }
+
+    @Override
+    public void onExecution(String runnerType, AbstractRunner.ExecutionStatusEnum status, long durationInMs) {
+        if (!enabled)
+            return;
+        Window window = windows.computeIfAbsent(runnerType, k -> new Window());
+        window.executions.increment();
+        window.sumLatencyMs.add(durationInMs);
+        if (status == AbstractRunner.ExecutionStatusEnum.FAIL || status == AbstractRunner.ExecutionStatusEnum.BPMNERROR)
+            window.errors.increment();
+    }
+
+    /**
+     * Close the current window, and let each limiter decide
+     */
+    @Scheduled(fixedDelayString = "${cherry.runners.adaptive.intervalms:30000}")
+    public void adjust() {
+        if (!enabled)
+            return;
+        long now = System.currentTimeMillis();
+        long windowMs = now - windowStart;
+        windowStart = now;
+
+        for (Map.Entry<String, Window> entry : windows.entrySet()) {
+            String runnerType = entry.getKey();
+            Window window = entry.getValue();
+            long executions = window.executions.sumThenReset();
+            long errors = window.errors.sumThenReset();
+            long sumLatencyMs = window.sumLatencyMs.sumThenReset();
+
+            AbstractRunner runner = jobRunnerFactory.getRunningRunner(runnerType);
+            if (runner == null || !isEnabled(runnerType)) {
+                limiters.remove(runnerType);
+                continue;
+            }
+            AdaptiveConcurrencyLimiter limiter = limiters.computeIfAbsent(runnerType,
+                    k -> new AdaptiveConcurrencyLimiter(jobRunnerFactory.getEffectiveMaxJobsActive(runnerType),
+                            getParameters()));
+            limiter.onWindow(executions, errors, sumLatencyMs, windowMs);
+            AdaptiveConcurrencyLimiter.Decision decision = limiter.toApply(now);
+            if (decision == null)
+                continue;
+            try {
+                jobRunnerFactory.setAdaptiveMaxJobsActive(runnerType, decision.newLimit());
+                logOperation.log(OperationEntity.Operation.SETTHRESHOLD, runner,
+                        "Adaptive maxJobsActive " + decision.previousLimit() + " -> " + decision.newLimit() + ": "
+                                + decision.reason());
+            } catch (OperationException e) {
+                logger.error("AdaptiveConcurrencyController: can't apply maxJobsActive[{}] on runner[{}]: {}",
+                        decision.newLimit(), runnerType, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Return the current limits, for the monitoring
+     *
+     * @return key is runnerType
+     */
+    public Map<String, Object> getLimits() {
+        Map<String, Object> result = new HashMap<>();
+        for (Map.Entry<String, AdaptiveConcurrencyLimiter> entry : limiters.entrySet()) {
+            result.put(entry.getKey(), Map.of("maxJobsActive", entry.getValue().getAppliedLimit(), // on the JobWorker
+                    "targetMaxJobsActive", entry.getValue().getLimit(), // computed, applied on a significant change
+                    "baselineLatencyMs", Math.round(entry.getValue().getBaselineLatencyMs())));
+        }
+        return result;
+    }
+
+    /**
+     * The controller can be disabled on a runner: cherry.runners.adaptive.runner.[runnerType].enabled=false
+     *
+     * @param runnerType type of runner
+     * @return true if the limit of this runner is adapted
+     */
+    private boolean isEnabled(String runnerType) {
+        return environment.getProperty("cherry.runners.adaptive.runner." + runnerType + ".enabled", Boolean.class,
+                Boolean.TRUE);
+    }
+
+    private AdaptiveConcurrencyLimiter.Parameters getParameters() {
+        AdaptiveConcurrencyLimiter.Parameters parameters = new AdaptiveConcurrencyLimiter.Parameters();
+        parameters.minLimit = minJobsActive;
+        parameters.maxLimit = maxJobsActive;
+        parameters.minSamples = minSamples;
+        parameters.errorRateThreshold = errorRateThreshold;
+        parameters.latencyTolerance = latencyTolerance;
+        parameters.decreaseFactor = decreaseFactor;
+        parameters.increaseStep = increaseStep;
+        parameters.minChangeRatio = minChangeRatio;
+        parameters.minApplyIntervalMs = minApplyIntervalMs;
+        return parameters;
+    }
+
+    private static class Window {
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder sumLatencyMs = new LongAdder();
+    }
+}
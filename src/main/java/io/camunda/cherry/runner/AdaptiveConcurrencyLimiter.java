@@ -0,0 +1,131 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  AdaptiveConcurrencyLimiter                                          */
+/*                                                                      */
+/*  Compute the maxJobsActive of one runner from the executions of the */
+/*  last window (AIMD, latency gradient):                               */
+/*   - error rate or latency rises: multiplicative decrease             */
+/*   - latency stays flat and the runner uses its limit: additive       */
+/*     increase                                                         */
+/*  The limit applied on the JobWorker follows with hysteresis: only a */
+/*  significant change is applied, and an increase waits a minimum     */
+/*  delay after the previous change.                                    */
+/* ******************************************************************** */
+package io.camunda.cherry.runner;
+
+public class AdaptiveConcurrencyLimiter {
+
+    private final Parameters parameters;
+    private int limit;
+    /**
+     * Latency when the runner is not under pressure. Follow the lowest latency, and drift slowly up to follow a
+     * change in the workload
+     */
+    private double baselineLatencyMs = 0;
+    /**
+     * Limit used by the JobWorker, and when it was applied
+     */
+    private int appliedLimit;
+    private long appliedAt = Long.MIN_VALUE / 2;
+    private String lastReason;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, Parameters parameters) {
+        this.parameters = parameters;
+        this.limit = Math.max(parameters.minLimit, Math.min(parameters.maxLimit, initialLimit));
+        this.appliedLimit = limit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public double getBaselineLatencyMs() {
+        return baselineLatencyMs;
+    }
+
+    public int getAppliedLimit() {
+        return appliedLimit;
+    }
+
+    /**
+     * Register the executions of a window, and return the decision
+     *
+     * @param executions     number of executions in the window
+     * @param errors         number of FAIL / BPMNERROR in the window
+     * @param sumLatencyMs   sum of execution time in the window
+     * @param windowMs       duration of the window
+     * @return the decision, null if the limit does not change
+     */
+    public Decision onWindow(long executions, long errors, long sumLatencyMs, long windowMs) {
+        if (executions < parameters.minSamples || windowMs <= 0)
+            return null;
+        double latencyMs = (double) sumLatencyMs / executions;
+        double errorRate = (double) errors / executions;
+
+        if (baselineLatencyMs <= 0 || latencyMs < baselineLatencyMs)
+            baselineLatencyMs = latencyMs;
+        else
+            baselineLatencyMs = baselineLatencyMs * (1 - parameters.baselineDrift) + latencyMs * parameters.baselineDrift;
+
+        int newLimit;
+        String reason;
+        if (errorRate > parameters.errorRateThreshold) {
+            newLimit = (int) Math.floor(limit * parameters.decreaseFactor);
+            reason = String.format("error rate %.1f%%", errorRate * 100);
+        } else if (latencyMs > baselineLatencyMs * parameters.latencyTolerance) {
+            newLimit = (int) Math.floor(limit * parameters.decreaseFactor);
+            reason = String.format("latency %.0f ms, baseline %.0f ms", latencyMs, baselineLatencyMs);
+        } else {
+            // Little's law: average number of jobs in progress in the window
+            double concurrency = executions * latencyMs / windowMs;
+            if (concurrency < limit * parameters.saturationRatio)
+                return null;
+            newLimit = limit + parameters.increaseStep;
+            reason = String.format("latency flat %.0f ms, in progress %.1f", latencyMs, concurrency);
+        }
+        newLimit = Math.max(parameters.minLimit, Math.min(parameters.maxLimit, newLimit));
+        if (newLimit == limit)
+            return null;
+        Decision decision = new Decision(limit, newLimit, reason);
+        limit = newLimit;
+        lastReason = reason;
+        return decision;
+    }
+
+    /**
+     * Each change of the JobWorker opens a new one and drains the previous one: the limit is applied only when it
+     * moved by minChangeRatio from the applied one. An increase waits minApplyIntervalMs after the previous change,
+     * a decrease is applied immediately.
+     *
+     * @param now current time
+     * @return the change to apply on the JobWorker, null to keep the current one
+     */
+    public Decision toApply(long now) {
+        int change = Math.abs(limit - appliedLimit);
+        if (change == 0 || change < Math.max(1, Math.ceil(appliedLimit * parameters.minChangeRatio)))
+            return null;
+        if (limit > appliedLimit && now - appliedAt < parameters.minApplyIntervalMs)
+            return null;
+        Decision decision = new Decision(appliedLimit, limit, lastReason);
+        appliedLimit = limit;
+        appliedAt = now;
+        return decision;
+    }
+
+    public record Decision(int previousLimit, int newLimit, String reason) {
+    }
+
+    public static class Parameters {
+        public int minLimit = 1;
+        public int maxLimit = 500;
+        public long minSamples = 20;
+        public double errorRateThreshold = 0.1;
+        public double latencyTolerance = 1.5;
+        public double decreaseFactor = 0.7;
+        public int increaseStep = 2;
+        public double saturationRatio = 0.8;
+        public double baselineDrift = 0.05;
+        public double minChangeRatio = 0.2;
+        public long minApplyIntervalMs = 120_000;
+    }
+}
@@ -0,0 +1,162 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  JarClassLoader                                                      */
+/*                                                                      */
+/*  Class loader of one version of a JAR, shared by all its runners.   */
+/*  Delegation is parent-first (the JVM default) or child-first: the   */
+/*  classes of the JAR win against the libraries of the runtime, except */
+/*  the packages shared with the runtime (AbstractRunner, connector    */
+/*  SDK...), which must be the same classes on both sides.             */
+/*  The classes defined by this loader are counted, with their size.   */
+/* ******************************************************************** */
+package io.camunda.cherry.runner;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+public class JarClassLoader extends URLClassLoader {
+
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    private final String jarFileName;
+    private final String contentHash;
+    private final File jarFile;
+    private final boolean childFirst;
+    private final List<String> parentFirstPackages;
+    private final long createdAt = System.currentTimeMillis();
+
+    /**
+     * Runners instantiated from this loader, and still referenced by the runtime
+     */
+    private final AtomicInteger references = new AtomicInteger(0);
+    private final AtomicInteger loadedClasses = new AtomicInteger(0);
+    private final AtomicLong loadedClassBytes = new AtomicLong(0);
+    private volatile boolean closed = false;
+    /**
+     * The JAR opened to read the size of the classes. Not shared with the JAR cache of the JVM, so it is really
+     * closed with the class loader
+     */
+    private final JarFile jarIndex;
+
+    JarClassLoader(String jarFileName,
+                   String contentHash,
+                   File jarFile,
+                   ClassLoader parent,
+                   boolean childFirst,
+                   List<String> parentFirstPackages) throws IOException {
+        super("jar-" + jarFileName, new URL[]{jarFile.toURI().toURL()}, parent);
+        this.jarFileName = jarFileName;
+        this.contentHash = contentHash;
+        this.jarFile = jarFile;
+        this.childFirst = childFirst;
+        this.parentFirstPackages = parentFirstPackages;
+        this.jarIndex = new JarFile(jarFile);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!childFirst || isParentFirst(name))
+            return super.loadClass(name, resolve);
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> clazz = findLoadedClass(name);
+            if (clazz == null) {
+                try {
+                    clazz = findClass(name);
+                } catch (ClassNotFoundException e) {
+                    // not in the JAR: the runtime provides it
+                    return super.loadClass(name, resolve);
+                }
+            }
+            if (resolve)
+                resolveClass(clazz);
+            return clazz;
+        }
+    }
+
+    @Override
+    public URL getResource(String name) {
+        if (!childFirst || isParentFirst(name.replace('/', '.')))
+            return super.getResource(name);
+        URL url = findResource(name);
+        return url != null ? url : super.getResource(name);
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        Class<?> clazz = super.findClass(name);
+        loadedClasses.incrementAndGet();
+        JarEntry classEntry = jarIndex.getJarEntry(name.replace('.', '/') + ".class");
+        if (classEntry != null)
+            loadedClassBytes.addAndGet(Math.max(0, classEntry.getSize()));
+        return clazz;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            super.close();
+        } finally {
+            jarIndex.close();
+        }
+    }
+
+    private boolean isParentFirst(String name) {
+        for (String prefix : parentFirstPackages) {
+            if (name.startsWith(prefix))
+                return true;
+        }
+        return false;
+    }
+
+    public String getJarFileName() {
+        return jarFileName;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public File getJarFile() {
+        return jarFile;
+    }
+
+    public boolean isChildFirst() {
+        return childFirst;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    AtomicInteger getReferences() {
+        return references;
+    }
+
+    public int getLoadedClasses() {
+        return loadedClasses.get();
+    }
+
+    /**
+     * Size of the class files defined by this loader: an estimation of the metaspace used, the JVM does not give
+     * it per class loader
+     *
+     * @return size in bytes
+     */
+    public long getLoadedClassBytes() {
+        return loadedClassBytes.get();
+    }
+}
@@ -14,6 +14,7 @@ package io.camunda.cherry.runner;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.camunda.cherry.db.entity.OperationEntity;
+import io.camunda.cherry.db.entity.RunnerDefinitionEntity;
 import io.camunda.cherry.definition.AbstractConnector;
 import io.camunda.cherry.definition.AbstractRunner;
 import io.camunda.cherry.definition.AbstractWorker;
@@ -23,10 +24,15 @@ import io.camunda.cherry.definition.connector.SdkRunnerConnector;
 import io.camunda.cherry.definition.connector.SdkRunnerWorker;
 import io.camunda.cherry.embeddedrunner.ping.PingIntRunner;
 import io.camunda.cherry.exception.*;
+import io.camunda.cherry.metrics.CherryMetrics;
 import io.camunda.cherry.runner.handler.CherryConnectorJobHandler;
 import io.camunda.cherry.runner.handler.CherryWorkerJobHandler;
+import io.camunda.cherry.runner.handler.ConnectorExecutionResources;
 import io.camunda.cherry.runtime.CherrySecretProvider;
 import io.camunda.cherry.runtime.HistoryFactory;
+import io.camunda.cherry.runtime.StartupProfile;
+import io.camunda.cherry.tracing.JobTracing;
+import io.camunda.cherry.zeebe.BrokerCircuitBreaker;
 import io.camunda.cherry.zeebe.OrchestrationAPI;
 import io.camunda.cherry.zeebe.ZeebeContainer;
 import io.camunda.client.CamundaClient;
@@ -35,6 +41,9 @@ import io.camunda.client.api.worker.JobWorker;
 import io.camunda.client.api.worker.JobWorkerBuilderStep1;
 import io.camunda.client.jobhandling.CommandExceptionHandlingStrategy;
 import io.camunda.connector.api.validation.ValidationProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -44,6 +53,12 @@ import org.springframework.stereotype.Service;
 
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // https://docs.camunda.io/docs/components/best-practices/development/writing-good-workers/
 
@@ -54,6 +69,8 @@ public class JobRunnerFactory {
 
     public static final String UNKNOWN_RUNNER_CLASS = "UnknownRunnerClass";
     public static final String RUNNER_INVALID_DEFINITION = "RUNNER_INVALID_DEFINITION";
+    public static final String RUNNER_INVALID_SETTINGS = "RUNNER_INVALID_SETTINGS";
+    public static final String RUNNER_SWAP_FAILED = "RUNNER_SWAP_FAILED";
 
     private static final ObjectMapper objectMapper = new ObjectMapper();
     private final ValidationProvider validationProvider;
@@ -70,23 +87,75 @@ public class JobRunnerFactory {
     CherrySecretProvider cherrySecretProvider;
     @Autowired
     CommandExceptionHandlingStrategy commandExceptionHandlingStrategy;
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+    @Autowired
+    VirtualThreadExecution virtualThreadExecution;
+    @Autowired
+    CherryMetrics cherryMetrics;
+    @Autowired
+    JobTracing jobTracing;
+    @Autowired
+    StorageRunner storageRunner;
+    @Autowired
+    StartupProfile startupProfile;
+    @Autowired
+    RunnerDrain runnerDrain;
+    @Autowired
+    BrokerCircuitBreaker brokerCircuitBreaker;
 
     CamundaClient camundaClient;
     /**
-     * Key is runnerType
+     * Key is runnerType. Runners are started in parallel
      */
-    Map<String, Running> mapRunning = new HashMap<>();
+    Map<String, Running> mapRunning = new ConcurrentHashMap<>();
     List<OrchestrationAPI.TenantInformation> listTenants = null;
     @Value("${cherry.runners.embeddedrunner:true}")
     private Boolean executeEmbeddedRunner = Boolean.TRUE;
     @Value("${cherry.runners.pingrunner:true}")
     private Boolean executePingRunner = Boolean.FALSE;
+    /**
+     * Number of runners started in parallel. 0: the number of processors, 1: one after the other
+     */
+    @Value("${cherry.startup.parallelism:0}")
+    private int startupParallelism;
+    /**
+     * At shutdown, maximum time to drain all runners. Must be lower than the termination grace period of the pod
+     */
+    @Value("${cherry.runners.drain.shutdowntimeoutms:25000}")
+    private long shutdownDrainTimeoutMs;
+    /**
+     * When the broker is down, maximum time to drain the runners. Jobs in progress can't be completed anyway
+     */
+    @Value("${cherry.zeebe.circuitbreaker.pausedrainms:5000}")
+    private long pauseDrainTimeoutMs;
+    /**
+     * Runners paused by the circuit breaker: they stay in mapRunning, without JobWorker, until they are resumed
+     */
+    private final Set<String> pausedRunners = ConcurrentHashMap.newKeySet();
     private boolean isStarted = false;
+    /**
+     * Shared by all connector runners: built once, not per job, and never reset. Its providers are singletons, and
+     * the document factory is attached to the CamundaClient injected by Spring, which is never replaced
+     * (ZeebeContainer.startZeebeClient does not create a client)
+     */
+    private ConnectorExecutionResources connectorExecutionResources = null;
+    /**
+     * maxJobsActive computed by the AdaptiveConcurrencyController. Key is runnerType. Overrides the activation
+     * settings
+     */
+    private final Map<String, Integer> adaptiveMaxJobsActive = new ConcurrentHashMap<>();
 
     public JobRunnerFactory(ValidationProvider validationProvider) {
         this.validationProvider = validationProvider;
     }
 
+    @PostConstruct
+    public void init() {
+        cherryMetrics.registerRunningWorkers(() -> mapRunning.size());
+        cherryMetrics.registerPlatformExecutor(zeebeContainer.getZeebeClientConfiguration().jobWorkerExecutor());
+    }
+
     public void startAll() {
 
         // now start the Zeebe Client
@@ -118,7 +187,8 @@ public class JobRunnerFactory {
     public void stopAll() {
         logOperation.log(OperationEntity.Operation.STOPRUNTIME, "");
 
-        suspendAllRunners();
+        // the jobs in progress finish before the client is closed
+        suspendAllRunners(shutdownDrainTimeoutMs);
         zeebeContainer.stopZeebeClient();
     }
 
@@ -187,15 +257,7 @@ public class JobRunnerFactory {
         }
 
         List<AbstractRunner> listRunners = runnerFactory.getAllRunners(new StorageRunner.Filter().isActive(true)).stream().filter(t -> mapRunning.containsKey(t.getType())).toList();
-        for (Running running : mapRunning.values()) {
-            if (running.runner != null) {
-                try {
-                    stopRunner(running.runner.getType());
-                } catch (Exception e) {
-                    logger.error("ControllerPage on runner [{}] : ", running.runner.getIdentification(), e);
-                }
-            }
-        }
+        stopListRunning(new ArrayList<>(mapRunning.values()), runnerDrain.getRunnerTimeoutMs());
         startListRunners(listRunners);
     }
 
@@ -203,26 +265,25 @@ public class JobRunnerFactory {
      * stop all runners
      */
     public void suspendAllRunners() {
+        suspendAllRunners(runnerDrain.getRunnerTimeoutMs());
+    }
+
+    /**
+     * stop all runners. They are drained at the same time
+     *
+     * @param deadlineMs maximum time to wait for the jobs in progress
+     */
+    public void suspendAllRunners(long deadlineMs) {
         if (!isStarted) {
             logger.info("JobRunnerFactor is not ready, ignore suspendAllRunners");
             return;
         }
-
-        for (Running running : mapRunning.values()) {
-            if (running.runner != null) {
-                try {
-                    stopRunner(running.runner.getType());
-
-                } catch (Exception e) {
-                    logger.error("ControllerPage on runner [{}] : ", running.runner.getIdentification(), e);
-                }
-            }
-        }
-
+        stopListRunning(new ArrayList<>(mapRunning.values()), deadlineMs);
     }
 
     /**
-     * Stop a runner
+     * Stop a runner. A runner not drained at the timeout is stopped too: its JobWorker is closed, the jobs still in
+     * progress are logged in the operation
      *
      * @param runnerType name of the runner (connector/worker)
      * @return true if the runner is stopped
@@ -237,10 +298,10 @@ public class JobRunnerFactory {
         if (running == null) {
             throw new OperationAlreadyStoppedException();
         }
-        closeJobWorker(running.containerJobWorker.getJobWorker());
-        running.containerJobWorker.setJobWorker(null);
+        RunnerDrain.DrainResult drainResult = closeJobWorker(runnerType, running.containerJobWorker);
+        running.containerJobWorker.setJobWorker(null, null);
         mapRunning.remove(runnerType);
-        logOperation.log(OperationEntity.Operation.STOPRUNNER, running.runner, "");
+        logOperation.log(OperationEntity.Operation.STOPRUNNER, running.runner, getDrainMessage(drainResult));
 
         return true;
     }
@@ -274,17 +335,211 @@ public class JobRunnerFactory {
             throw new OperationException(RUNNER_INVALID_DEFINITION,
                     "Worker has error in the definition : " + String.join(";", listOfErrors));
 
-        JobWorker jobWorker = createJobWorker(runner);
-        mapRunning.put(runner.getType(), new Running(runner, new ContainerJobWorker(jobWorker)));
+        AtomicInteger inFlight = new AtomicInteger(0);
+        JobWorker jobWorker = createJobWorker(runner, inFlight);
+        mapRunning.put(runner.getType(), new Running(runner, new ContainerJobWorker(jobWorker, inFlight)));
         logOperation.log(OperationEntity.Operation.STARTRUNNER, runner, "");
 
         return true;
     }
 
+    /**
+     * Return the activation settings of a runner
+     *
+     * @param runnerType type of runner
+     * @return settings. A null value means the client default
+     */
+    public RunnerActivationSettings getActivationSettings(String runnerType) {
+        return RunnerActivationSettings.fromEntity(storageRunner.getRunnerDefinitionByType(runnerType));
+    }
+
+    /**
+     * Save the activation settings of a runner. If the runner is running, its JobWorker is replaced: the new one
+     * is opened with the settings, then the previous one is closed. Other runners are not impacted.
+     *
+     * @param runnerType         type of runner
+     * @param activationSettings new settings
+     * @return true if a JobWorker has been replaced
+     * @throws OperationException runner not found or settings are invalid
+     */
+    public boolean updateActivationSettings(String runnerType, RunnerActivationSettings activationSettings)
+            throws OperationException {
+        String error = activationSettings.validate();
+        if (error != null)
+            throw new OperationException(RUNNER_INVALID_SETTINGS, error);
+
+        RunnerDefinitionEntity runnerDefinition = storageRunner.getRunnerDefinitionByType(runnerType);
+        if (runnerDefinition == null)
+            throw new OperationException(RUNNER_NOT_FOUND, "Runner not found");
+        activationSettings.toEntity(runnerDefinition);
+        storageRunner.saveRunnerDefinition(runnerDefinition);
+
+        if (!isActiveRunner(runnerType))
+            return false;
+        AbstractRunner runner;
+        try {
+            runner = hotSwapJobWorker(runnerType);
+        } catch (OperationAlreadyStoppedException e) {
+            // stopped in the meantime: the settings are used at the next start
+            return false;
+        }
+        logOperation.log(OperationEntity.Operation.SETTHRESHOLD, runner,
+                "Activation settings " + activationSettings.toMap());
+        return true;
+    }
+
+    /**
+     * Replace the JobWorker of a running runner. The new one is opened first, so the runner never stops to
+     * activate jobs. The previous one is drained in the background: its jobs in progress are finished.
+     *
+     * @param runnerType type of runner
+     * @return the runner whose JobWorker is replaced
+     * @throws OperationException the new JobWorker can't be created, or the runner is not running
+     */
+    public synchronized AbstractRunner hotSwapJobWorker(String runnerType) throws OperationException {
+        Running running = mapRunning.get(runnerType);
+        if (running == null)
+            throw new OperationAlreadyStoppedException();
+        JobWorker previousJobWorker = running.containerJobWorker.getJobWorker();
+        AtomicInteger previousInFlight = running.containerJobWorker.getInFlight();
+        AtomicInteger inFlight = new AtomicInteger(0);
+        JobWorker newJobWorker = createJobWorker(running.runner, inFlight);
+        running.containerJobWorker.setJobWorker(newJobWorker, inFlight);
+        runnerDrain.drain(runnerType, previousJobWorker, previousInFlight).thenAccept(drainResult -> {
+            if (!drainResult.isDrained())
+                logger.error("Previous JobWorker of runner [{}] not drained after {} ms, {} jobs in progress",
+                        runnerType, drainResult.drainMs(), drainResult.jobsInProgress());
+        });
+        return running.runner;
+    }
+
+    /**
+     * Blue/green swap, step 1: open a JobWorker on the new version of each running runner, next to the current
+     * JobWorker. Both activate jobs until the swap is committed or aborted.
+     *
+     * @param listNewRunners new version of the runners
+     * @return the JobWorkers opened
+     * @throws OperationException a JobWorker can't be opened: the ones already opened are closed
+     */
+    public List<PreparedWorker> prepareSwap(List<AbstractRunner> listNewRunners) throws OperationException {
+        List<PreparedWorker> listPrepared = new ArrayList<>();
+        for (AbstractRunner runner : listNewRunners) {
+            if (!isActiveRunner(runner.getType()))
+                continue;
+            AtomicInteger inFlight = new AtomicInteger(0);
+            try {
+                listPrepared.add(new PreparedWorker(runner, createJobWorker(runner, inFlight), inFlight));
+            } catch (Exception e) {
+                abortSwap(listPrepared);
+                throw new OperationException(RUNNER_SWAP_FAILED,
+                        "Can't open the new version of [" + runner.getType() + "] : " + e.getMessage());
+            }
+        }
+        return listPrepared;
+    }
+
+    /**
+     * Blue/green swap, rollback: the new JobWorkers are drained and closed, the current ones continue
+     *
+     * @param listPrepared JobWorkers opened by prepareSwap
+     * @return completed when the new JobWorkers are drained or the drain timeout is reached: result per runner
+     */
+    public CompletableFuture<List<RunnerDrain.DrainResult>> abortSwap(List<PreparedWorker> listPrepared) {
+        return allDrains(listPrepared.stream()
+                .map(prepared -> runnerDrain.drain(prepared.runner().getType(), prepared.jobWorker(),
+                        prepared.inFlight()))
+                .toList());
+    }
+
+    /**
+     * Blue/green swap, step 2: the new JobWorkers replace the current ones, which are drained in the background
+     *
+     * @param listPrepared JobWorkers opened by prepareSwap
+     * @return completed when the previous JobWorkers are drained or the drain timeout is reached: result per runner
+     */
+    public synchronized CompletableFuture<List<RunnerDrain.DrainResult>> commitSwap(
+            List<PreparedWorker> listPrepared) {
+        List<CompletableFuture<RunnerDrain.DrainResult>> listDrains = new ArrayList<>();
+        for (PreparedWorker prepared : listPrepared) {
+            String runnerType = prepared.runner().getType();
+            Running previous = mapRunning.put(runnerType, new Running(prepared.runner(),
+                    new ContainerJobWorker(prepared.jobWorker(), prepared.inFlight())));
+            logOperation.log(OperationEntity.Operation.STARTRUNNER, prepared.runner(), "Swapped to the new version");
+            if (previous == null)
+                continue;
+            listDrains.add(runnerDrain.drain(runnerType, previous.containerJobWorker.getJobWorker(),
+                    previous.containerJobWorker.getInFlight()).whenComplete((drainResult, throwable) -> {
+                if (drainResult != null && !drainResult.isDrained())
+                    logger.error("Previous version of runner [{}] not drained after {} ms, {} jobs in progress",
+                            runnerType, drainResult.drainMs(), drainResult.jobsInProgress());
+            }));
+        }
+        return allDrains(listDrains);
+    }
+
+    private CompletableFuture<List<RunnerDrain.DrainResult>> allDrains(
+            List<CompletableFuture<RunnerDrain.DrainResult>> listDrains) {
+        return CompletableFuture.allOf(listDrains.toArray(new CompletableFuture[0]))
+                .thenApply(v -> listDrains.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * Set the maxJobsActive computed for a runner, and replace its JobWorker so the new value is used
+     *
+     * @param runnerType    type of runner
+     * @param maxJobsActive new value, null to come back to the activation settings
+     * @throws OperationException the new JobWorker can't be created
+     */
+    public void setAdaptiveMaxJobsActive(String runnerType, Integer maxJobsActive) throws OperationException {
+        Integer previous = maxJobsActive == null ?
+                adaptiveMaxJobsActive.remove(runnerType) :
+                adaptiveMaxJobsActive.put(runnerType, maxJobsActive);
+        if (Objects.equals(previous, maxJobsActive) || !isActiveRunner(runnerType))
+            return;
+        hotSwapJobWorker(runnerType);
+    }
+
+    /**
+     * Return the maxJobsActive used by the JobWorker of a runner
+     *
+     * @param runnerType type of runner
+     * @return the adaptive value, else the activation setting, else the client default
+     */
+    public int getEffectiveMaxJobsActive(String runnerType) {
+        Integer adaptive = adaptiveMaxJobsActive.get(runnerType);
+        if (adaptive != null)
+            return adaptive;
+        RunnerActivationSettings activationSettings = getActivationSettings(runnerType);
+        return activationSettings.maxJobsActive != null ?
+                activationSettings.maxJobsActive :
+                zeebeContainer.getMaxJobsActive();
+    }
+
+    /**
+     * @param runnerType type of runner
+     * @return the runner if it is running, else null
+     */
+    AbstractRunner getRunningRunner(String runnerType) {
+        Running running = mapRunning.get(runnerType);
+        return running == null ? null : running.runner;
+    }
+
     public boolean isRunnerExist(String runnerType) {
         return mapRunning.containsKey(runnerType);
     }
 
+    /**
+     * @return number of jobs in progress per running runner
+     */
+    public Map<String, Integer> getJobsInProgress() {
+        Map<String, Integer> jobsInProgress = new HashMap<>();
+        for (Running running : mapRunning.values()) {
+            AtomicInteger inFlight = running.containerJobWorker.getInFlight();
+            jobsInProgress.put(running.runner.getType(), inFlight == null ? 0 : inFlight.get());
+        }
+        return jobsInProgress;
+    }
+
     public boolean isActiveRunner(String runnerType) {
         if (!mapRunning.containsKey(runnerType))
             return false;
@@ -292,6 +547,13 @@ public class JobRunnerFactory {
         return running.containerJobWorker.getJobWorker() != null;
     }
 
+    /**
+     * @return the number of runners started in parallel
+     */
+    public int getStartupParallelism() {
+        return startupParallelism > 0 ? startupParallelism : Runtime.getRuntime().availableProcessors();
+    }
+
     /**
      * We ask the container what is the number of job active configured
      *
@@ -305,25 +567,14 @@ public class JobRunnerFactory {
         return zeebeContainer.getNumberOfThreads();
     }
 
+    /**
+     * The executor shared by the JobWorkers is resized in place: runners are not stopped
+     *
+     * @param numberOfThreadsRequired new number of threads
+     * @throws TechnicalException the executor can't be resized
+     */
     public void setNumberOfThreads(int numberOfThreadsRequired) throws TechnicalException {
-
         zeebeContainer.setNumberOfThreads(numberOfThreadsRequired);
-
-        zeebeContainer.stopZeebeClient();
-        zeebeContainer.startZeebeClient();
-
-        // stop all running and restart them
-        for (Running running : mapRunning.values()) {
-            JobWorker jobWorker = null;
-            try {
-                closeJobWorker(running.containerJobWorker.getJobWorker());
-
-                jobWorker = createJobWorker(running.runner);
-            } catch (OperationException e) {
-                logger.error("Can't restart [{}] : {} ", running.runner.getName(), e.getMessage());
-            }
-            running.containerJobWorker.setJobWorker(jobWorker);
-        }
     }
 
     public List<OrchestrationAPI.TenantInformation> getListTenants() {
@@ -340,33 +591,64 @@ public class JobRunnerFactory {
     /*                                                          */
     /* -------------------------------------------------------- */
 
-    private void closeJobWorker(JobWorker jobWorker) throws OperationCantStopRunnerException {
-        if (jobWorker == null)
-            return;
-        if (jobWorker.isClosed())
-            return;
-        jobWorker.close();
-        // protection: wait one minutes, and then we consider the worker as stopped
-        long beginTimeOperation = System.currentTimeMillis();
-        while (!jobWorker.isClosed() && System.currentTimeMillis() - beginTimeOperation < 1000 * 60) {
-            try {
-                Thread.sleep(100);
-            } catch (Exception e) {
-                // do nothing
-            }
+    /**
+     * Close the JobWorker of one runner, and wait for its jobs in progress (up to the drain timeout)
+     *
+     * @return the result of the drain: the JobWorker is closed, even when the jobs are not all finished
+     */
+    private RunnerDrain.DrainResult closeJobWorker(String runnerType, ContainerJobWorker containerJobWorker) {
+        return runnerDrain.drain(runnerType, containerJobWorker.getJobWorker(), containerJobWorker.getInFlight())
+                .join();
+    }
+
+    private String getDrainMessage(RunnerDrain.DrainResult drainResult) {
+        return drainResult.isDrained() ?
+                "Drained in " + drainResult.drainMs() + " ms" :
+                "Not drained after " + drainResult.drainMs() + " ms, " + drainResult.jobsInProgress()
+                        + " jobs in progress";
+    }
+
+    /**
+     * Drain runners at the same time, then remove them from the running list
+     *
+     * @param listRunning runners to stop
+     * @param deadlineMs  maximum time to wait for all runners
+     */
+    private void stopListRunning(List<Running> listRunning, long deadlineMs) {
+        List<RunnerDrain.DrainResult> listResults = drainListRunning(listRunning, deadlineMs);
+        for (int i = 0; i < listRunning.size(); i++) {
+            Running running = listRunning.get(i);
+            RunnerDrain.DrainResult drainResult = listResults.get(i);
+            running.containerJobWorker.setJobWorker(null, null);
+            mapRunning.remove(running.runner.getType());
+            logOperation.log(OperationEntity.Operation.STOPRUNNER, running.runner, getDrainMessage(drainResult));
         }
-        if (!jobWorker.isClosed())
-            throw new OperationCantStopRunnerException();
+    }
+
+    /**
+     * Close the JobWorkers of the runners and wait for their jobs in progress, all at the same time
+     *
+     * @param listRunning runners to drain
+     * @param deadlineMs  maximum time to wait for all runners
+     * @return the result per runner, in the same order
+     */
+    private List<RunnerDrain.DrainResult> drainListRunning(List<Running> listRunning, long deadlineMs) {
+        List<RunnerDrain.DrainRequest> listRequests = listRunning.stream()
+                .map(running -> new RunnerDrain.DrainRequest(running.runner.getType(),
+                        running.containerJobWorker.getJobWorker(), running.containerJobWorker.getInFlight()))
+                .toList();
+        return runnerDrain.drainAll(listRequests, deadlineMs);
     }
 
     /**
      * Create the jobWorker from the Runner
      *
-     * @param runner runner to start
+     * @param runner   runner to start
+     * @param inFlight counter of the jobs in progress of this JobWorker, used to drain it
      * @return the JobWorker
      * @throws OperationException in case of error
      */
-    private JobWorker createJobWorker(AbstractRunner runner) throws OperationException {
+    private JobWorker createJobWorker(AbstractRunner runner, AtomicInteger inFlight) throws OperationException {
 
         JobHandler jobHandler;
 
@@ -376,25 +658,26 @@ public class JobRunnerFactory {
             jobHandler = new CherryConnectorJobHandler(
                     abstractConnector,
                     historyFactory,
-                    cherrySecretProvider,
-                    validationProvider,
-                    commandExceptionHandlingStrategy,
-                    camundaClient,
-                    zeebeContainer.getDocumentFactory(),
-                    objectMapper);
+                    jobTracing,
+                    getConnectorExecutionResources());
         } else if (runner instanceof SdkRunnerConnector sdkRunnerConnector) {
             jobHandler = new CherryConnectorJobHandler(sdkRunnerConnector,
                     historyFactory,
-                    cherrySecretProvider,
-                    validationProvider,
-                    commandExceptionHandlingStrategy,
-                    zeebeContainer.getDocumentFactory(),
-                    objectMapper);
+                    jobTracing,
+                    getConnectorExecutionResources());
         } else if (runner instanceof SdkRunnerWorker sdkRunnerWorker) {
-            jobHandler = new CherryWorkerJobHandler(sdkRunnerWorker, historyFactory, cherrySecretProvider);
+            jobHandler = new CherryWorkerJobHandler(sdkRunnerWorker, historyFactory, jobTracing,
+                    cherrySecretProvider);
         } else {
             throw new OperationException(UNKNOWN_RUNNER_CLASS, "Unknown AbstractRunner class");
         }
+        // PLATFORM or VIRTUAL threads, then jobs in progress: a job waiting for its virtual thread is in progress
+        jobHandler = cherryMetrics.instrument(runner.getType(), jobHandler);
+        jobHandler = virtualThreadExecution.getJobHandler(runner.getType(), jobHandler);
+        jobHandler = runnerDrain.track(jobHandler, inFlight);
+        // the input/output contract is compiled now, not at the first job
+        runner.getRunnerContract();
+
         JobWorkerBuilderStep1.JobWorkerBuilderStep3 jobWorkerBuild3 = zeebeContainer.getZeebeClient()
                 .newWorker()
                 .jobType(runner.getType())
@@ -403,7 +686,21 @@ public class JobRunnerFactory {
         if (listTenants != null && !listTenants.isEmpty()) {
             jobWorkerBuild3 = jobWorkerBuild3.tenantIds(listTenants.stream().map(t -> t.tenantId).toList());
         }
-        // jobWorkerBuild3.maxJobsActive()
+        // maxJobsActive, timeout, pollInterval... defined for this runner
+        RunnerActivationSettings activationSettings = getActivationSettings(runner.getType());
+        Integer adaptive = adaptiveMaxJobsActive.get(runner.getType());
+        if (adaptive != null)
+            activationSettings.maxJobsActive = adaptive;
+        // VIRTUAL mode: no more jobs than free slots
+        int maxJobsActive = activationSettings.maxJobsActive != null ?
+                activationSettings.maxJobsActive :
+                zeebeContainer.getMaxJobsActive();
+        int cappedMaxJobsActive = virtualThreadExecution.capMaxJobsActive(runner.getType(), maxJobsActive);
+        if (cappedMaxJobsActive != maxJobsActive)
+            activationSettings.maxJobsActive = cappedMaxJobsActive;
+        jobWorkerBuild3 = activationSettings.apply(jobWorkerBuild3);
+        runner.setJobTimeoutMs(
+                activationSettings.jobTimeoutMs != null ? activationSettings.jobTimeoutMs : zeebeContainer.getJobTimeoutMs());
 
         List<String> listVariablesInput = runner.getListFetchVariables();
         if (listVariablesInput != null && !listVariablesInput.isEmpty()) {
@@ -413,13 +710,121 @@ public class JobRunnerFactory {
 
     }
 
-    @Scheduled(fixedDelay = 30000)
+    /**
+     * Resources used by the connector runners. The metrics are registered in the application registry, so they
+     * accumulate across jobs.
+     *
+     * @return the resources
+     */
+    private synchronized ConnectorExecutionResources getConnectorExecutionResources() {
+        if (connectorExecutionResources == null) {
+            connectorExecutionResources = new ConnectorExecutionResources(cherrySecretProvider,
+                    validationProvider,
+                    brokerCircuitBreaker.observe(commandExceptionHandlingStrategy),
+                    zeebeContainer.getDocumentFactory(),
+                    objectMapper,
+                    meterRegistry == null ? Metrics.globalRegistry : meterRegistry);
+        }
+        return connectorExecutionResources;
+    }
+
+    /**
+     * Drive the circuit breaker: ping the broker when a probe is due. If the connection is lost, pause all runners.
+     * When it comes back, resume the paused runners by batches
+     */
+    @Scheduled(fixedDelayString = "${cherry.zeebe.circuitbreaker.tickms:1000}")
     public void checkZeebeConnection() {
-        boolean checkConnection = zeebeContainer.checkConnection();
-        // if the connection is false, pause all runners
+        if (!isStarted || !brokerCircuitBreaker.isEnabled())
+            return;
+        if (!brokerCircuitBreaker.isProbeDue(System.currentTimeMillis()))
+            return;
+        boolean checkConnection;
+        String error = null;
+        try {
+            checkConnection = zeebeContainer.checkConnection();
+        } catch (Exception e) {
+            checkConnection = false;
+            error = e.getMessage();
+        }
+        BrokerCircuitBreaker.State previousState = brokerCircuitBreaker.getState();
+        BrokerCircuitBreaker.State state = brokerCircuitBreaker.onProbe(checkConnection, error,
+                System.currentTimeMillis());
+        if (state != previousState)
+            logOperation.log(OperationEntity.Operation.BROKERCONNECTION,
+                    previousState + " -> " + state + (error == null ? "" : " : " + error));
+
+        if (state == BrokerCircuitBreaker.State.OPEN && previousState != BrokerCircuitBreaker.State.OPEN)
+            pauseAllRunners();
+        else if (state == BrokerCircuitBreaker.State.HALF_OPEN) {
+            resumePausedRunners(brokerCircuitBreaker.getResumeBatchSize());
+            if (pausedRunners.isEmpty()) {
+                brokerCircuitBreaker.onResumeComplete(System.currentTimeMillis());
+                logOperation.log(OperationEntity.Operation.BROKERCONNECTION,
+                        BrokerCircuitBreaker.State.HALF_OPEN + " -> " + BrokerCircuitBreaker.State.CLOSED
+                                + " : all runners resumed");
+            }
+        }
+    }
 
-        // if the connection is true, resume all runners which need to be resume
+    /**
+     * @return status of the circuit breaker, for the monitoring
+     */
+    public Map<String, Object> getBrokerConnectionStatus() {
+        Map<String, Object> status = brokerCircuitBreaker.getStatus(pausedRunners.size());
+        status.put("pausedRunnerTypes", new ArrayList<>(pausedRunners));
+        return status;
+    }
+
+    /**
+     * The broker is down: close the JobWorkers of all running runners, so they stop polling. Runners stay in the
+     * running list. The scheduler thread does not wait for the jobs in progress: the drain is followed on the
+     * RunnerDrain scheduler, and its result is logged after pauseDrainTimeoutMs at most
+     */
+    private synchronized void pauseAllRunners() {
+        List<Running> listRunning = mapRunning.values()
+                .stream()
+                .filter(running -> running.containerJobWorker.getJobWorker() != null)
+                .toList();
+        List<CompletableFuture<RunnerDrain.DrainResult>> listDrains = new ArrayList<>();
+        for (Running running : listRunning) {
+            pausedRunners.add(running.runner.getType());
+            listDrains.add(runnerDrain.drain(running.runner.getType(), running.containerJobWorker.getJobWorker(),
+                    running.containerJobWorker.getInFlight()));
+            running.containerJobWorker.setJobWorker(null, null);
+        }
+        logger.info("Broker connection lost: {} runners paused", listRunning.size());
+        CompletableFuture.allOf(listDrains.toArray(new CompletableFuture[0]))
+                .completeOnTimeout(null, pauseDrainTimeoutMs, TimeUnit.MILLISECONDS)
+                .thenRun(() -> logger.info("Broker connection lost: {} paused runners drained, {} not drained",
+                        listDrains.stream().filter(drain -> drain.isDone() && drain.join().isDrained()).count(),
+                        listDrains.stream().filter(drain -> !drain.isDone() || !drain.join().isDrained()).count()));
+    }
 
+    /**
+     * Open a JobWorker again for some paused runners
+     *
+     * @param batchSize maximum number of runners to resume
+     */
+    private synchronized void resumePausedRunners(int batchSize) {
+        int nbResumed = 0;
+        for (String runnerType : new ArrayList<>(pausedRunners)) {
+            if (nbResumed >= batchSize)
+                break;
+            pausedRunners.remove(runnerType);
+            Running running = mapRunning.get(runnerType);
+            // stopped by an administrator in the meantime, or already restarted
+            if (running == null || running.containerJobWorker.getJobWorker() != null)
+                continue;
+            AtomicInteger inFlight = new AtomicInteger(0);
+            try {
+                running.containerJobWorker.setJobWorker(createJobWorker(running.runner, inFlight), inFlight);
+                nbResumed++;
+            } catch (Exception e) {
+                logOperation.log(OperationEntity.Operation.ERROR, running.runner,
+                        "Can't resume runner after the broker connection is back: " + e.getMessage());
+            }
+        }
+        logger.info("Broker connection back: {} runners resumed, {} still paused", nbResumed, pausedRunners.size());
     }
 
     private boolean isEmbeddedWorker(AbstractRunner runner) {
@@ -433,24 +838,66 @@ public class JobRunnerFactory {
     }
 
     /**
-     * Start a list of runners
+     * Start a list of runners. Only this phase is parallel: each runner is validated and opened on a pool of
+     * getStartupParallelism() threads. There is no ordering between runners, they don't depend on each other. The
+     * resources shared by the connectors are built before.
      *
      * @param listRunners list of runners to start
      */
     private void startListRunners(List<AbstractRunner> listRunners) {
-        for (AbstractRunner runner : listRunners) {
+        if (listRunners.isEmpty())
+            return;
+        if (listRunners.stream().anyMatch(t -> !(t instanceof AbstractWorker) && !(t instanceof SdkRunnerWorker)))
+            getConnectorExecutionResources();
 
-            try {
-                JobWorker jobWorker = createJobWorker(runner);
-                if (jobWorker != null) {
-                    logOperation.log(OperationEntity.Operation.STARTRUNNER, runner, "Started[" + runner.getType() + "] tenants[" + (listTenants == null ? "no-filter" : listTenants.stream().map(t -> t.tenantId).toList()) + "]");
+        int parallelism = Math.min(getStartupParallelism(), listRunners.size());
+        if (parallelism <= 1) {
+            listRunners.forEach(this::startOneRunner);
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        // close() waits until all runners are started
+        try (ExecutorService startupExecutor = Executors.newFixedThreadPool(parallelism,
+                task -> new Thread(task, "cherry-startup-" + threadNumber.incrementAndGet()))) {
+            for (AbstractRunner runner : listRunners) {
+                startupExecutor.execute(() -> startOneRunner(runner));
+            }
+        }
+    }
 
-                    mapRunning.put(runner.getType(), new Running(runner, new ContainerJobWorker(jobWorker)));
-                }
+    /**
+     * Validate and start a runner. A runner with errors in its definition is started anyway, the errors are logged.
+     * Never throw: the other runners are started
+     *
+     * @param runner runner to start
+     */
+    private void startOneRunner(AbstractRunner runner) {
+        long beginValidate = System.nanoTime();
+        long validateMs = 0;
+        try {
+            List<String> listOfErrors = runner.checkValidDefinition().listOfErrors();
+            validateMs = (System.nanoTime() - beginValidate) / 1_000_000;
+            String errors = null;
+            if (!listOfErrors.isEmpty()) {
+                errors = String.join(";", listOfErrors);
+                logOperation.log(OperationEntity.Operation.ERROR, runner,
+                        "Worker has error in the definition : " + errors);
+            }
 
-            } catch (Exception e) {
-                logger.error("Can't start runner [{}] : {} ", runner.getIdentification(), e);
+            long beginOpen = System.nanoTime();
+            AtomicInteger inFlight = new AtomicInteger(0);
+            JobWorker jobWorker = createJobWorker(runner, inFlight);
+            if (jobWorker != null) {
+                logOperation.log(OperationEntity.Operation.STARTRUNNER, runner, "Started[" + runner.getType() + "] tenants[" + (listTenants == null ? "no-filter" : listTenants.stream().map(t -> t.tenantId).toList()) + "]");
+
+                mapRunning.put(runner.getType(), new Running(runner, new ContainerJobWorker(jobWorker, inFlight)));
             }
+            startupProfile.recordRunner(runner.getType(), validateMs, (System.nanoTime() - beginOpen) / 1_000_000,
+                    StartupProfile.STATUS_STARTED, errors);
+
+        } catch (Exception e) {
+            logger.error("Can't start runner [{}] : {} ", runner.getIdentification(), e);
+            startupProfile.recordRunner(runner.getType(), validateMs, 0, StartupProfile.STATUS_ERROR, e.getMessage());
         }
     }
 
@@ -458,21 +905,37 @@ public class JobRunnerFactory {
      * Not possible to restart a jobWorker: must be created again !
      */
     private static class ContainerJobWorker {
-        private JobWorker jobWorker;
+        private volatile JobWorker jobWorker;
+        /**
+         * jobs in progress on this JobWorker
+         */
+        private volatile AtomicInteger inFlight;
 
-        public ContainerJobWorker(JobWorker jobWorker) {
+        public ContainerJobWorker(JobWorker jobWorker, AtomicInteger inFlight) {
             this.jobWorker = jobWorker;
+            this.inFlight = inFlight;
         }
 
         public JobWorker getJobWorker() {
             return jobWorker;
         }
 
-        public void setJobWorker(JobWorker jobWorker) {
+        public AtomicInteger getInFlight() {
+            return inFlight;
+        }
+
+        public void setJobWorker(JobWorker jobWorker, AtomicInteger inFlight) {
             this.jobWorker = jobWorker;
+            this.inFlight = inFlight;
         }
     }
 
     record Running(AbstractRunner runner, ContainerJobWorker containerJobWorker) {
     }
+
+    /**
+     * A JobWorker opened on the new version of a runner, not yet in the running list
+     */
+    public record PreparedWorker(AbstractRunner runner, JobWorker jobWorker, AtomicInteger inFlight) {
+    }
 }
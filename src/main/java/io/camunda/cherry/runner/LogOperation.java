@@ -3,30 +3,124 @@
 /*  LogOperation                                                          */
 /*                                                                      */
 /*  Every operation is logged here.                                     */
+/*  Operations are written asynchronously, by batch (WriteBehindQueue)  */
+/*  : the caller (runner start, jar load) does not wait for the        */
+/*  database. The same error repeated in a short window is written     */
+/*  once, with the number of repetitions. Other operations (runner     */
+/*  start/stop, broker connection...) are always written.              */
 /* ******************************************************************** */
 package io.camunda.cherry.runner;
 
 import io.camunda.cherry.db.entity.OperationEntity;
 import io.camunda.cherry.db.repository.OperationRepository;
 import io.camunda.cherry.definition.AbstractRunner;
+import io.camunda.cherry.util.WriteBehindQueue;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.net.InetAddress;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Service
 public class LogOperation {
 
     Logger logger = LoggerFactory.getLogger(LogOperation.class.getName());
 
+    /**
+     * Size of the message column
+     */
+    private static final int MAX_MESSAGE_LENGTH = 3000;
+
     @Autowired
     OperationRepository operationRepository;
 
+    @Value("${cherry.operationlog.writebehind.enabled:true}")
+    private boolean writeBehindEnabled;
+
+    @Value("${cherry.operationlog.writebehind.capacity:5000}")
+    private int capacity;
+
+    @Value("${cherry.operationlog.writebehind.batchsize:100}")
+    private int batchSize;
+
+    @Value("${cherry.operationlog.writebehind.flushintervalms:500}")
+    private long flushIntervalMs;
+
+    /**
+     * The buffer is full: the caller waits up to this delay, then the operation is dropped
+     */
+    @Value("${cherry.operationlog.writebehind.blocktimeoutms:200}")
+    private long blockTimeoutMs;
+
+    @Value("${cherry.operationlog.writebehind.shutdowntimeoutms:10000}")
+    private long shutdownTimeoutMs;
+
+    /**
+     * The same error (runner, message) in this window is written once. 0 to disable
+     */
+    @Value("${cherry.operationlog.dedupwindowms:10000}")
+    private long dedupWindowMs;
+
+    /**
+     * Host name written in each operation. Empty: resolved once from the local host
+     */
+    @Value("${cherry.operationlog.hostname:}")
+    private String configuredHostName;
+
+    private final List<OperationListener> operationListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Key is operation, runner and message. An entry lives for the deduplication window
+     */
+    private final Map<String, RepeatedOperation> recentOperations = new ConcurrentHashMap<>();
+
+    private WriteBehindQueue<OperationEntity> queue;
+
+    private String hostName;
+
+    @PostConstruct
+    public void init() {
+        hostName = resolveHostName();
+        // operations are rare and important: the caller waits a little when the buffer is full, no sampling
+        queue = new WriteBehindQueue<>("operationlog", capacity, batchSize, flushIntervalMs,
+                WriteBehindQueue.OverflowPolicy.BLOCK, blockTimeoutMs, 1, this::flush);
+        if (writeBehindEnabled)
+            queue.start();
+    }
+
+    @PreDestroy
+    public void end() {
+        // the repeated operations not yet written, then all the pending operations
+        writeRepeatedOperations(true);
+        if (queue != null && queue.isRunning()) {
+            logger.info("LogOperation: flush {} pending operations", queue.getQueueDepth());
+            queue.stop(shutdownTimeoutMs);
+        }
+    }
+
+    /**
+     * Register a listener, called after each operation is registered
+     *
+     * @param operationListener listener
+     */
+    public void addOperationListener(OperationListener operationListener) {
+        operationListeners.add(operationListener);
+    }
+
     /**
      * log an operation
      *
@@ -132,11 +226,36 @@ public class LogOperation {
         saveOperationEntity(operationEntity);
     }
 
-    private String rootgetServerIdentification() {
-        return getHostName();
+    /**
+     * Return statistics on the operation writer, for the administration page
+     *
+     * @return statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("hostName", hostName);
+        statistics.put("enabled", queue != null && queue.isRunning());
+        statistics.put("repeatedOperations", recentOperations.size());
+        if (queue == null)
+            return statistics;
+        statistics.put("queueDepth", queue.getQueueDepth());
+        statistics.put("enqueued", queue.getEnqueued());
+        statistics.put("flushed", queue.getFlushed());
+        statistics.put("dropped", queue.getDropped());
+        statistics.put("flushErrors", queue.getFlushErrors());
+        return statistics;
     }
 
+    /**
+     * Resolving the local host may be a DNS request: done once
+     */
     private String getHostName() {
+        return hostName == null ? resolveHostName() : hostName;
+    }
+
+    private String resolveHostName() {
+        if (configuredHostName != null && !configuredHostName.isBlank())
+            return configuredHostName;
         try {
             InetAddress ipAddress = InetAddress.getLocalHost();
 
@@ -147,10 +266,130 @@ public class LogOperation {
     }
 
     private void saveOperationEntity(OperationEntity operationEntity) {
-        try {
-            operationRepository.save(operationEntity);
-        } catch (Exception e) {
-            logger.error("Can't save OperationEntity [{}]", operationEntity);
+        if (operationEntity.message != null && operationEntity.message.length() > MAX_MESSAGE_LENGTH)
+            operationEntity.message = operationEntity.message.substring(0, MAX_MESSAGE_LENGTH);
+        if (isRepeated(operationEntity))
+            return;
+        writeOperationEntity(operationEntity);
+    }
+
+    /**
+     * The same error was written in the window: it is counted, not written. A state transition (runner started
+     * then stopped, broker connection closed then open) is never a repetition
+     *
+     * @param operationEntity operation
+     * @return true if the operation is a repeated error
+     */
+    private boolean isRepeated(OperationEntity operationEntity) {
+        if (dedupWindowMs <= 0 || operationEntity.operation != OperationEntity.Operation.ERROR)
+            return false;
+        String key = operationEntity.operation + "|" + operationEntity.runnerType + "|" + operationEntity.message;
+        long now = System.currentTimeMillis();
+        boolean[] repeated = {false};
+        RepeatedOperation[] expired = {null};
+        recentOperations.compute(key, (k, previous) -> {
+            if (previous != null && now - previous.windowStart < dedupWindowMs) {
+                previous.repetitions++;
+                previous.lastExecutionTime = operationEntity.executionTime;
+                repeated[0] = true;
+                return previous;
+            }
+            expired[0] = previous;
+            return new RepeatedOperation(operationEntity, now);
+        });
+        if (expired[0] != null)
+            writeRepetitions(expired[0]);
+        return repeated[0];
+    }
+
+    /**
+     * Close the windows: the repetitions are written as one operation
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void writeRepeatedOperations() {
+        writeRepeatedOperations(false);
+    }
+
+    private void writeRepeatedOperations(boolean all) {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, RepeatedOperation> entry : recentOperations.entrySet()) {
+            RepeatedOperation repeatedOperation = entry.getValue();
+            if ((all || now - repeatedOperation.windowStart >= dedupWindowMs) && recentOperations.remove(entry.getKey(),
+                    repeatedOperation))
+                writeRepetitions(repeatedOperation);
+        }
+    }
+
+    private void writeRepetitions(RepeatedOperation repeatedOperation) {
+        if (repeatedOperation.repetitions == 0)
+            return;
+        OperationEntity operationEntity = new OperationEntity();
+        operationEntity.operation = repeatedOperation.operation;
+        operationEntity.runnerType = repeatedOperation.runnerType;
+        operationEntity.hostName = getHostName();
+        operationEntity.executionTime = repeatedOperation.lastExecutionTime;
+        String suffix = " (repeated " + repeatedOperation.repetitions + " times)";
+        String message = Objects.toString(repeatedOperation.message, "");
+        operationEntity.message =
+                message.length() + suffix.length() > MAX_MESSAGE_LENGTH ? message.substring(0,
+                        MAX_MESSAGE_LENGTH - suffix.length()) + suffix : message + suffix;
+        writeOperationEntity(operationEntity);
+    }
+
+    private void writeOperationEntity(OperationEntity operationEntity) {
+        if (queue == null || !queue.isRunning()) {
+            // write behind disabled, or the runtime is stopping
+            try {
+                operationRepository.save(operationEntity);
+            } catch (Exception e) {
+                logger.error("Can't save OperationEntity [{}]", operationEntity);
+            }
+        } else if (!queue.offer(operationEntity)) {
+            logger.error("LogOperation: queue is full, operation {} runner[{}] dropped", operationEntity.operation,
+                    operationEntity.runnerType);
+        }
+        for (OperationListener operationListener : operationListeners) {
+            try {
+                operationListener.onOperation(operationEntity);
+            } catch (Exception e) {
+                logger.error("OperationListener failed on [{}]: {}", operationEntity.operation, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Executed by the flusher thread: one transaction per batch
+     *
+     * @param batch list of operations
+     */
+    private void flush(List<OperationEntity> batch) {
+        operationRepository.saveAll(batch);
+    }
+
+    /**
+     * Called after each operation (runner started, stopped, error...)
+     */
+    public interface OperationListener {
+        void onOperation(OperationEntity operationEntity);
+    }
+
+    /**
+     * An operation written, and the number of times it was repeated since
+     */
+    private static class RepeatedOperation {
+        private final OperationEntity.Operation operation;
+        private final String runnerType;
+        private final String message;
+        private final long windowStart;
+        private int repetitions = 0;
+        private LocalDateTime lastExecutionTime;
+
+        RepeatedOperation(OperationEntity operationEntity, long windowStart) {
+            this.operation = operationEntity.operation;
+            this.runnerType = operationEntity.runnerType;
+            this.message = operationEntity.message;
+            this.lastExecutionTime = operationEntity.executionTime;
+            this.windowStart = windowStart;
         }
     }
 }
@@ -0,0 +1,111 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  RunnerActivationSettings                                            */
+/*                                                                      */
+/*  How the JobWorker of a runner activates jobs. Saved in the runner  */
+/*  definition. A null value means the default value of the client.    */
+/* ******************************************************************** */
+package io.camunda.cherry.runner;
+
+import io.camunda.cherry.db.entity.RunnerDefinitionEntity;
+import io.camunda.client.api.worker.BackoffSupplier;
+import io.camunda.client.api.worker.JobWorkerBuilderStep1;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+public class RunnerActivationSettings {
+
+    public Integer maxJobsActive;
+    public Long jobTimeoutMs;
+    public Long requestTimeoutMs;
+    public Long pollIntervalMs;
+    public Long backoffMinDelayMs;
+    public Long backoffMaxDelayMs;
+    public Boolean streamEnabled;
+
+    public static RunnerActivationSettings fromEntity(RunnerDefinitionEntity runnerDefinition) {
+        RunnerActivationSettings settings = new RunnerActivationSettings();
+        if (runnerDefinition == null)
+            return settings;
+        settings.maxJobsActive = runnerDefinition.maxJobsActive;
+        settings.jobTimeoutMs = runnerDefinition.jobTimeoutMs;
+        settings.requestTimeoutMs = runnerDefinition.requestTimeoutMs;
+        settings.pollIntervalMs = runnerDefinition.pollIntervalMs;
+        settings.backoffMinDelayMs = runnerDefinition.backoffMinDelayMs;
+        settings.backoffMaxDelayMs = runnerDefinition.backoffMaxDelayMs;
+        settings.streamEnabled = runnerDefinition.streamEnabled;
+        return settings;
+    }
+
+    public void toEntity(RunnerDefinitionEntity runnerDefinition) {
+        runnerDefinition.maxJobsActive = maxJobsActive;
+        runnerDefinition.jobTimeoutMs = jobTimeoutMs;
+        runnerDefinition.requestTimeoutMs = requestTimeoutMs;
+        runnerDefinition.pollIntervalMs = pollIntervalMs;
+        runnerDefinition.backoffMinDelayMs = backoffMinDelayMs;
+        runnerDefinition.backoffMaxDelayMs = backoffMaxDelayMs;
+        runnerDefinition.streamEnabled = streamEnabled;
+    }
+
+    /**
+     * Check the values
+     *
+     * @return null if the settings are correct, else the error
+     */
+    public String validate() {
+        if (maxJobsActive != null && maxJobsActive < 1)
+            return "maxJobsActive must be greater than 0";
+        if (isNegative(jobTimeoutMs) || isNegative(requestTimeoutMs) || isNegative(pollIntervalMs) || isNegative(
+                backoffMinDelayMs) || isNegative(backoffMaxDelayMs))
+            return "delays must be positive";
+        if (backoffMinDelayMs != null && backoffMaxDelayMs != null && backoffMinDelayMs > backoffMaxDelayMs)
+            return "backoffMinDelayMs must be lower than backoffMaxDelayMs";
+        return null;
+    }
+
+    private boolean isNegative(Long value) {
+        return value != null && value < 0;
+    }
+
+    /**
+     * Apply the settings on the builder. Only settings with a value are applied
+     *
+     * @param jobWorkerBuilder builder
+     * @return the builder
+     */
+    public JobWorkerBuilderStep1.JobWorkerBuilderStep3 apply(JobWorkerBuilderStep1.JobWorkerBuilderStep3 jobWorkerBuilder) {
+        if (maxJobsActive != null)
+            jobWorkerBuilder = jobWorkerBuilder.maxJobsActive(maxJobsActive);
+        if (jobTimeoutMs != null)
+            jobWorkerBuilder = jobWorkerBuilder.timeout(Duration.ofMillis(jobTimeoutMs));
+        if (requestTimeoutMs != null)
+            jobWorkerBuilder = jobWorkerBuilder.requestTimeout(Duration.ofMillis(requestTimeoutMs));
+        if (pollIntervalMs != null)
+            jobWorkerBuilder = jobWorkerBuilder.pollInterval(Duration.ofMillis(pollIntervalMs));
+        if (backoffMinDelayMs != null || backoffMaxDelayMs != null) {
+            var backoffBuilder = BackoffSupplier.newBackoffBuilder();
+            if (backoffMinDelayMs != null)
+                backoffBuilder = backoffBuilder.minDelay(backoffMinDelayMs);
+            if (backoffMaxDelayMs != null)
+                backoffBuilder = backoffBuilder.maxDelay(backoffMaxDelayMs);
+            jobWorkerBuilder = jobWorkerBuilder.backoffSupplier(backoffBuilder.build());
+        }
+        if (streamEnabled != null)
+            jobWorkerBuilder = jobWorkerBuilder.streamEnabled(streamEnabled);
+        return jobWorkerBuilder;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("maxJobsActive", maxJobsActive);
+        map.put("jobTimeoutMs", jobTimeoutMs);
+        map.put("requestTimeoutMs", requestTimeoutMs);
+        map.put("pollIntervalMs", pollIntervalMs);
+        map.put("backoffMinDelayMs", backoffMinDelayMs);
+        map.put("backoffMaxDelayMs", backoffMaxDelayMs);
+        map.put("streamEnabled", streamEnabled);
+        return map;
+    }
+}
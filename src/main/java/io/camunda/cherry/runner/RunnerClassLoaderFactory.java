@@ -7,7 +7,13 @@
 /*  and then accessible to the Java Machine                             */
 /*                                                                      */
 /*  NB: to replace a jar file, all runners must be stopped before,      */
-/* and this is not the responsability of this factory                   */
+/* and this is not the responsability of this factory. A new version   */
+/* can be staged in its own class loader (see RunnerJarSwap)           */
+/*                                                                      */
+/*  One class loader per version of a JAR, identified by the hash of   */
+/*  its content, shared by all runners of the JAR. A new version makes */
+/*  the previous loader retired: it is closed when the last runner     */
+/*  instantiated from it is released.                                  */
 /* ******************************************************************** */
 package io.camunda.cherry.runner;
 
@@ -20,8 +26,26 @@ import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.FileOutputStream;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Service
 public class RunnerClassLoaderFactory {
@@ -35,12 +59,55 @@ public class RunnerClassLoaderFactory {
     @Value("${cherry.connectorslib.classloaderpath:@null}")
     private String classLoaderPath;
 
+    public static final String DELEGATION_PARENT_FIRST = "parent-first";
+    public static final String DELEGATION_CHILD_FIRST = "child-first";
+    private static final String STAGED_PREFIX = "swap-";
+
+    /**
+     * parent-first: the runtime libraries win. child-first: the libraries embedded in the JAR win
+     */
+    @Value("${cherry.connectorslib.classloader.delegation:" + DELEGATION_PARENT_FIRST + "}")
+    private String delegation;
+
+    /**
+     * In child-first, these packages are always loaded by the runtime: the runner and the runtime must share them
+     */
+    @Value("${cherry.connectorslib.classloader.parentfirstpackages:java.,javax.,jakarta.,io.camunda.,org.slf4j.,org.springframework.,com.fasterxml.jackson.}")
+    private List<String> parentFirstPackages;
+
+    /**
+     * Class loaders opened. Key is the hash of the content of the JAR
+     */
+    private final Map<String, JarClassLoader> loadersByHash = new HashMap<>();
+    /**
+     * Current version of each JAR. Key is the jar file name
+     */
+    private final Map<String, JarClassLoader> currentLoaders = new HashMap<>();
+    /**
+     * Hash of the files copied by this factory, computed during the copy. Key is the path of the file
+     */
+    private final Map<String, String> hashByFile = new HashMap<>();
+    private final List<ClassLoaderListener> classLoaderListeners = new CopyOnWriteArrayList<>();
+    private long nbClosedLoaders = 0;
+
     public RunnerClassLoaderFactory(StorageRunner storageRunner, LogOperation logOperation) {
         this.storageRunner = storageRunner;
         this.logOperation = logOperation;
     }
 
+    /**
+     * Register a listener, called after a class loader is closed
+     *
+     * @param classLoaderListener listener
+     */
+    public void addClassLoaderListener(ClassLoaderListener classLoaderListener) {
+        classLoaderListeners.add(classLoaderListener);
+    }
+
     public boolean clearClassLoaderFolder() {
+        synchronized (this) {
+            hashByFile.clear();
+        }
         return clearFolder(new File(classLoaderPath), false);
     }
 
@@ -54,14 +121,24 @@ public class RunnerClassLoaderFactory {
 
         String jarFileName = classLoaderPath + File.separator + jarStorageEntity.name;
         File saveJarFile = new File(jarFileName);
+        // written aside, then moved: a class loader still open on the previous version keeps reading its file
+        File tempJarFile = new File(jarFileName + ".tmp");
 
-        try (FileOutputStream outputStream = new FileOutputStream(saveJarFile)) {
-            if (jarStorageEntity.jarfileByte != null) {
-                outputStream.write(jarStorageEntity.jarfileByte);
-            } else {
-                storageRunner.readJarBlob(jarStorageEntity, outputStream);
+        try {
+            MessageDigest digest = newContentDigest();
+            try (OutputStream outputStream = new DigestOutputStream(new FileOutputStream(tempJarFile), digest)) {
+                if (jarStorageEntity.jarfileByte != null) {
+                    outputStream.write(jarStorageEntity.jarfileByte);
+                } else {
+                    storageRunner.readJarBlob(jarStorageEntity, outputStream);
+                }
+                outputStream.flush();
+            }
+            synchronized (this) {
+                Files.move(tempJarFile.toPath(), saveJarFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                hashByFile.put(saveJarFile.getAbsolutePath(), HexFormat.of().formatHex(digest.digest()));
             }
-            outputStream.flush();
             return saveJarFile.getName();
         } catch (Exception e) {
             logOperation.log(OperationEntity.Operation.ERROR,
@@ -79,9 +156,140 @@ public class RunnerClassLoaderFactory {
      * @throws ClassNotFoundException
      */
     public Class<?> loadClassInJavaMachine(String jarFileName, String className) throws Exception {
-        String pathFileName = getClassLoaderPath() + File.separator + jarFileName;
-        ClassLoader loader = new URLClassLoader(new URL[]{new File(pathFileName).toURI().toURL()});
-        return loader.loadClass(className);
+        return getClassLoader(jarFileName).loadClass(className);
+    }
+
+    /**
+     * Return the class loader of the JAR copied in the class loader path. All classes of the same version of a
+     * JAR are loaded by the same class loader. If the content changed, a new class loader is opened, and the
+     * previous one is retired.
+     *
+     * @param jarFileName jar file, assuming it was already copied in the ClassLoader
+     * @return the class loader
+     * @throws IOException the JAR can't be read
+     */
+    public synchronized JarClassLoader getClassLoader(String jarFileName) throws IOException {
+        File jarFile = new File(getClassLoaderPath(), jarFileName);
+        JarClassLoader loader = openClassLoader(jarFileName, jarFile);
+        setCurrent(jarFileName, loader);
+        return loader;
+    }
+
+    /**
+     * Copy a new version of a JAR in the class loader path, under a unique name, and open an isolated class loader
+     * on it. The current version is not touched: its runners keep running.
+     *
+     * @param jarFile     new version of the JAR
+     * @param jarFileName name of the JAR
+     * @return the staged JAR
+     * @throws IOException the JAR can't be copied
+     */
+    public synchronized StagedJar stageJar(File jarFile, String jarFileName) throws IOException {
+        File stagedFile = new File(getClassLoaderPath(), STAGED_PREFIX + System.currentTimeMillis() + "-" + jarFileName);
+        MessageDigest digest = newContentDigest();
+        try (InputStream inputStream = Files.newInputStream(jarFile.toPath());
+             OutputStream outputStream = new DigestOutputStream(Files.newOutputStream(stagedFile.toPath()), digest)) {
+            inputStream.transferTo(outputStream);
+        }
+        hashByFile.put(stagedFile.getAbsolutePath(), HexFormat.of().formatHex(digest.digest()));
+        JarClassLoader loader = openClassLoader(jarFileName, stagedFile);
+        if (!loader.getJarFile().equals(stagedFile)) {
+            // same content as a version already loaded: its class loader is used
+            hashByFile.remove(stagedFile.getAbsolutePath());
+            Files.deleteIfExists(stagedFile.toPath());
+        }
+        return new StagedJar(loader.getJarFile(), loader);
+    }
+
+    /**
+     * The staged JAR is now the current version of the JAR. The previous class loader is retired
+     *
+     * @param stagedJar staged JAR
+     */
+    public synchronized void promote(StagedJar stagedJar) {
+        setCurrent(stagedJar.classLoader().getJarFileName(), stagedJar.classLoader());
+    }
+
+    /**
+     * The staged JAR is not used: its class loader is closed and the file removed, except if it is the class
+     * loader of the current version (same content)
+     *
+     * @param stagedJar staged JAR
+     */
+    public synchronized void discard(StagedJar stagedJar) {
+        closeIfUnused(stagedJar.classLoader());
+    }
+
+    /**
+     * A runner was instantiated from this class loader: it stays open while the runner is referenced
+     *
+     * @param classLoader class loader of the runner. Ignored if it is not a JAR class loader
+     */
+    public synchronized void acquire(ClassLoader classLoader) {
+        if (classLoader instanceof JarClassLoader jarClassLoader)
+            jarClassLoader.getReferences().incrementAndGet();
+    }
+
+    /**
+     * Runners are not referenced anymore. A retired class loader without runners is closed
+     *
+     * @param listClassLoaders class loader of each runner released
+     */
+    public synchronized void release(Collection<ClassLoader> listClassLoaders) {
+        for (ClassLoader classLoader : listClassLoaders) {
+            if (classLoader instanceof JarClassLoader jarClassLoader) {
+                if (jarClassLoader.getReferences().decrementAndGet() < 0)
+                    jarClassLoader.getReferences().set(0);
+                closeIfUnused(jarClassLoader);
+            }
+        }
+    }
+
+    /**
+     * Class loaders, with the number of runners, of classes loaded, and the estimated metaspace
+     *
+     * @param jarFileName only the class loaders of this JAR, null for all
+     * @return list of class loaders, the current version first
+     */
+    public synchronized List<Map<String, Object>> getClassLoaders(String jarFileName) {
+        List<Map<String, Object>> listLoaders = new ArrayList<>();
+        for (JarClassLoader loader : loadersByHash.values()
+                .stream()
+                .filter(t -> jarFileName == null || t.getJarFileName().equals(jarFileName))
+                .sorted(Comparator.comparingLong(JarClassLoader::getCreatedAt).reversed())
+                .toList()) {
+            Map<String, Object> infoLoader = new HashMap<>();
+            infoLoader.put("jarName", loader.getJarFileName());
+            infoLoader.put("contentHash", loader.getContentHash());
+            infoLoader.put("file", loader.getJarFile().getName());
+            infoLoader.put("current", currentLoaders.get(loader.getJarFileName()) == loader);
+            infoLoader.put("delegation", loader.isChildFirst() ? DELEGATION_CHILD_FIRST : DELEGATION_PARENT_FIRST);
+            infoLoader.put("runners", loader.getReferences().get());
+            infoLoader.put("loadedClasses", loader.getLoadedClasses());
+            infoLoader.put("metaspaceEstimatedBytes", loader.getLoadedClassBytes());
+            infoLoader.put("createdAt", Instant.ofEpochMilli(loader.getCreatedAt()).toString());
+            listLoaders.add(infoLoader);
+        }
+        return listLoaders;
+    }
+
+    /**
+     * @return the class loaders, and the metaspace of the JVM
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("classLoaders", getClassLoaders(null));
+        synchronized (this) {
+            statistics.put("closedClassLoaders", nbClosedLoaders);
+        }
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        statistics.put("jvmLoadedClasses", classLoading.getLoadedClassCount());
+        statistics.put("jvmUnloadedClasses", classLoading.getUnloadedClassCount());
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if ("Metaspace".equals(pool.getName()))
+                statistics.put("jvmMetaspaceUsedBytes", pool.getUsage().getUsed());
+        }
+        return statistics;
     }
 
     /**
@@ -93,6 +301,86 @@ public class RunnerClassLoaderFactory {
         return new File(classLoaderPath);
     }
 
+    /**
+     * Return the class loader of this content. A class loader is opened if this content was never loaded
+     */
+    private JarClassLoader openClassLoader(String jarFileName, File jarFile) throws IOException {
+        String contentHash = getContentHash(jarFile);
+        JarClassLoader loader = loadersByHash.get(contentHash);
+        if (loader != null && !loader.isClosed())
+            return loader;
+        loader = new JarClassLoader(jarFileName, contentHash, jarFile, this.getClass().getClassLoader(),
+                DELEGATION_CHILD_FIRST.equalsIgnoreCase(delegation), parentFirstPackages);
+        loadersByHash.put(contentHash, loader);
+        logger.info("ClassLoader opened on JAR[{}] hash[{}] delegation[{}]", jarFileName, contentHash, delegation);
+        return loader;
+    }
+
+    private void setCurrent(String jarFileName, JarClassLoader loader) {
+        JarClassLoader previous = currentLoaders.put(jarFileName, loader);
+        if (previous != null && previous != loader) {
+            logger.info("ClassLoader on JAR[{}] hash[{}] retired, {} runners", jarFileName, previous.getContentHash(),
+                    previous.getReferences().get());
+            closeIfUnused(previous);
+        }
+    }
+
+    /**
+     * Close a class loader which is not the current version of its JAR, and without runners
+     */
+    private void closeIfUnused(JarClassLoader loader) {
+        if (loader.isClosed() || loader.getReferences().get() > 0
+                || currentLoaders.get(loader.getJarFileName()) == loader)
+            return;
+        loadersByHash.remove(loader.getContentHash(), loader);
+        // the file may already hold a new copy, with its own hash
+        hashByFile.remove(loader.getJarFile().getAbsolutePath(), loader.getContentHash());
+        try {
+            loader.close();
+            nbClosedLoaders++;
+            if (loader.getJarFile().getName().startsWith(STAGED_PREFIX))
+                Files.deleteIfExists(loader.getJarFile().toPath());
+            logger.info("ClassLoader on JAR[{}] hash[{}] closed, {} classes loaded", loader.getJarFileName(),
+                    loader.getContentHash(), loader.getLoadedClasses());
+        } catch (IOException e) {
+            logger.error("Can't close ClassLoader on JAR[{}] : {}", loader.getJarFileName(), e.getMessage());
+        }
+        for (ClassLoaderListener classLoaderListener : classLoaderListeners) {
+            try {
+                classLoaderListener.onClose(loader);
+            } catch (Exception e) {
+                logger.error("ClassLoaderListener failed on JAR[{}] : {}", loader.getJarFileName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * SHA-256 of the content. A file copied by this factory has the hash computed during the copy; any other file
+     * is hashed on each call: its size and its date do not tell if its content changed
+     */
+    private String getContentHash(File jarFile) throws IOException {
+        String hash = hashByFile.get(jarFile.getAbsolutePath());
+        if (hash != null)
+            return hash;
+        MessageDigest digest = newContentDigest();
+        try (InputStream inputStream = Files.newInputStream(jarFile.toPath())) {
+            byte[] buffer = new byte[1024 * 100];
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, bytesRead);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newContentDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+    }
+
     /**
      * Clear a folder
      *
@@ -124,4 +412,18 @@ public class RunnerClassLoaderFactory {
         }
         return finalStatus;
     }
+
+    /**
+     * A JAR loaded in its own class loader. The file is kept while the runners of the class loader run; the
+     * class loader path is cleared at the next start.
+     */
+    public record StagedJar(File file, JarClassLoader classLoader) {
+    }
+
+    /**
+     * Called when a class loader is closed: nothing must reference its classes anymore
+     */
+    public interface ClassLoaderListener {
+        void onClose(JarClassLoader classLoader);
+    }
 }
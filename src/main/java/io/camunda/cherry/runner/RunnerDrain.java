@@ -0,0 +1,212 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  RunnerDrain                                                         */
+/*                                                                      */
+/*  Stop JobWorkers without losing the jobs in progress. A JobWorker   */
+/*  is closed (no new activation), then the drain waits until the jobs */
+/*  it activated are finished. The JobWorker does not see the jobs     */
+/*  running on virtual threads: each handler counts its jobs in        */
+/*  progress, until the answer of the command when the completion is  */
+/*  asynchronous. All workers are drained at the same time, the checks run */
+/*  on one scheduler thread, and the caller waits up to a deadline.    */
+/* ******************************************************************** */
+package io.camunda.cherry.runner;
+
+import io.camunda.cherry.definition.JobInFlight;
+import io.camunda.client.api.worker.JobHandler;
+import io.camunda.client.api.worker.JobWorker;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+public class RunnerDrain {
+
+    public static final String STATUS_DRAINED = "DRAINED";
+    public static final String STATUS_TIMEOUT = "TIMEOUT";
+
+    Logger logger = LoggerFactory.getLogger(RunnerDrain.class.getName());
+
+    /**
+     * Maximum time to drain one runner
+     */
+    @Value("${cherry.runners.drain.timeoutms:60000}")
+    private long runnerTimeoutMs;
+
+    @Value("${cherry.runners.drain.pollms:100}")
+    private long pollMs;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "cherry-drain");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Last drain of each runner. Key is runnerType
+     */
+    private final Map<String, DrainResult> lastDrains = new ConcurrentHashMap<>();
+
+    @PreDestroy
+    public void end() {
+        scheduler.shutdownNow();
+    }
+
+    public long getRunnerTimeoutMs() {
+        return runnerTimeoutMs;
+    }
+
+    /**
+     * Count the jobs in progress of a handler. A handler completing the job asynchronously defers the end of the
+     * job (JobInFlight.defer()): it is still in progress when the handler returns
+     *
+     * @param jobHandler handler executing the job
+     * @param inFlight   counter of the JobWorker, given to the drain
+     * @return the handler
+     */
+    public JobHandler track(JobHandler jobHandler, AtomicInteger inFlight) {
+        return (client, job) -> {
+            JobInFlight jobInFlight = JobInFlight.bind(inFlight);
+            try {
+                jobHandler.handle(client, job);
+            } finally {
+                jobInFlight.unbind();
+            }
+        };
+    }
+
+    /**
+     * Close a JobWorker, and wait for its jobs in progress. The calling thread does not wait
+     *
+     * @param runnerType type of runner
+     * @param jobWorker  worker to close. null is accepted (nothing to drain)
+     * @param inFlight   jobs in progress of this worker
+     * @return completed when the worker is drained or the runner timeout is reached
+     */
+    public CompletableFuture<DrainResult> drain(String runnerType, JobWorker jobWorker, AtomicInteger inFlight) {
+        long begin = System.currentTimeMillis();
+        CompletableFuture<DrainResult> future = new CompletableFuture<>();
+        if (jobWorker == null) {
+            future.complete(register(new DrainResult(runnerType, STATUS_DRAINED, 0, 0)));
+            return future;
+        }
+        try {
+            if (!jobWorker.isClosed())
+                jobWorker.close();
+        } catch (Exception e) {
+            logger.error("RunnerDrain: can't close worker of runner[{}]: {}", runnerType, e.getMessage());
+        }
+        AtomicReference<ScheduledFuture<?>> check = new AtomicReference<>();
+        check.set(scheduler.scheduleWithFixedDelay(() -> {
+            int jobsInProgress = inFlight == null ? 0 : inFlight.get();
+            long drainMs = System.currentTimeMillis() - begin;
+            boolean drained = jobWorker.isClosed() && jobsInProgress == 0;
+            if (drained || drainMs >= runnerTimeoutMs) {
+                future.complete(
+                        register(new DrainResult(runnerType, drained ? STATUS_DRAINED : STATUS_TIMEOUT, drainMs,
+                                jobsInProgress)));
+                ScheduledFuture<?> scheduledCheck = check.get();
+                if (scheduledCheck != null)
+                    scheduledCheck.cancel(false);
+            }
+        }, 0, Math.max(10, pollMs), TimeUnit.MILLISECONDS));
+        // the check completed before the reference was set
+        if (future.isDone())
+            check.get().cancel(false);
+        return future;
+    }
+
+    /**
+     * Drain a list of workers at the same time
+     *
+     * @param listRequests workers to drain
+     * @param deadlineMs   maximum time to wait for all workers
+     * @return result per runner, in the order of the requests. A runner not drained at the deadline is TIMEOUT
+     */
+    public List<DrainResult> drainAll(List<DrainRequest> listRequests, long deadlineMs) {
+        long begin = System.currentTimeMillis();
+        Map<DrainRequest, CompletableFuture<DrainResult>> futures = new LinkedHashMap<>();
+        for (DrainRequest request : listRequests) {
+            futures.put(request, drain(request.runnerType(), request.jobWorker(), request.inFlight()));
+        }
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                    .get(deadlineMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // deadline reached: the results are collected as they are
+        }
+        List<DrainResult> listResults = new ArrayList<>();
+        for (Map.Entry<DrainRequest, CompletableFuture<DrainResult>> entry : futures.entrySet()) {
+            DrainResult result = entry.getValue().getNow(null);
+            if (result == null) {
+                AtomicInteger inFlight = entry.getKey().inFlight();
+                result = register(new DrainResult(entry.getKey().runnerType(), STATUS_TIMEOUT,
+                        System.currentTimeMillis() - begin, inFlight == null ? 0 : inFlight.get()));
+            }
+            listResults.add(result);
+        }
+        long nbTimeout = listResults.stream().filter(r -> STATUS_TIMEOUT.equals(r.status())).count();
+        logger.info("RunnerDrain: {} runners drained in {} ms, {} not drained", listResults.size() - nbTimeout,
+                System.currentTimeMillis() - begin, nbTimeout);
+        return listResults;
+    }
+
+    /**
+     * Return the last drain of each runner, for the administration page
+     *
+     * @return statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("runnerTimeoutMs", runnerTimeoutMs);
+        List<Map<String, Object>> listDrains = new ArrayList<>();
+        for (DrainResult result : lastDrains.values()) {
+            Map<String, Object> infoDrain = new HashMap<>();
+            infoDrain.put("type", result.runnerType());
+            infoDrain.put("status", result.status());
+            infoDrain.put("drainMs", result.drainMs());
+            infoDrain.put("jobsInProgress", result.jobsInProgress());
+            listDrains.add(infoDrain);
+        }
+        statistics.put("lastDrains", listDrains);
+        return statistics;
+    }
+
+    private DrainResult register(DrainResult result) {
+        lastDrains.put(result.runnerType(), result);
+        return result;
+    }
+
+    /**
+     * A worker to drain
+     */
+    public record DrainRequest(String runnerType, JobWorker jobWorker, AtomicInteger inFlight) {
+    }
+
+    /**
+     * @param jobsInProgress jobs still in progress when the drain ended (0 when DRAINED)
+     */
+    public record DrainResult(String runnerType, String status, long drainMs, int jobsInProgress) {
+        public boolean isDrained() {
+            return STATUS_DRAINED.equals(status);
+        }
+    }
+}
@@ -26,6 +26,8 @@ import io.camunda.cherry.definition.connector.SdkRunnerCherryConnector;
 import io.camunda.cherry.definition.connector.SdkRunnerConnector;
 import io.camunda.cherry.definition.connector.SdkRunnerWorker;
 import io.camunda.cherry.exception.OperationException;
+import io.camunda.cherry.runtime.ErrorAggregator;
+import io.camunda.cherry.runtime.HistoryStatisticAggregator;
 import io.camunda.connector.api.outbound.OutboundConnectorFunction;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
@@ -39,6 +41,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.context.support.GenericWebApplicationContext;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -47,6 +50,7 @@ import java.lang.reflect.Method;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -65,13 +69,28 @@ public class RunnerFactory {
      * A runner (worker, connector) is instantiate only one time. it maybe a object to create, or a component.
      * When it's create/find, keep it in the cache.
      */
-    private final Map<String, AbstractRunner> cacheRunner = new HashMap<>();
+    private final Map<String, AbstractRunner> cacheRunner = new ConcurrentHashMap<>();
+    /**
+     * Class loader of the runners loaded from a JAR. Key is runnerType. The class loader stays open while the
+     * runner is in the cache
+     */
+    private final Map<String, ClassLoader> runnerClassLoaders = new ConcurrentHashMap<>();
     /**
      * There is only one object per runner, so it's possible to cache them
      */
     private final Map<String, Object> runnerCache = new HashMap<>();
+    /**
+     * Beans registered for the runners, per class loader: they are removed when the class loader is closed, else
+     * the context keeps the classes of the previous versions
+     */
+    private final Map<ClassLoader, Set<String>> runnerBeans = new ConcurrentHashMap<>();
     @Autowired
-    private ApplicationContext context;
+    ApplicationContext context;
+    @Autowired
+    private HistoryStatisticAggregator historyStatisticAggregator;
+
+    @Autowired
+    private ErrorAggregator errorAggregator;
 
     RunnerFactory(RunnerEmbeddedFactory runnerEmbeddedFactory,
                   RunnerUploadFactory runnerUploadFactory,
@@ -87,6 +106,8 @@ public class RunnerFactory {
         this.runnerExecutionRepository = runnerExecutionRepository;
         this.logOperation = logOperation;
         this.sessionFactory = sessionFactory;
+        if (runnerClassLoaderFactory != null)
+            runnerClassLoaderFactory.addClassLoaderListener(this::removeRunnerBeans);
     }
 
 
@@ -225,6 +246,85 @@ public class RunnerFactory {
         return listRunnersDetected;
     }
 
+    /**
+     * Save a Jar file already on the disk in the storage. This method does not stop/restart runners.
+     *
+     * @param jarFile     file to save
+     * @param jarFileName name of the jar
+     * @return list of runners detected in the jar file, empty if the jar can't be saved
+     */
+    public List<RunnerLightDefinition> saveFromFile(File jarFile, String jarFileName) {
+        List<RunnerLightDefinition> listRunnersDetected = runnerUploadFactory.saveJarFileToStorage(jarFile,
+                jarFileName, true);
+        logOperation.log(OperationEntity.Operation.LOADJAR, "UploadJar[" + jarFileName + "]");
+        return listRunnersDetected;
+    }
+
+    /**
+     * Instantiate the runners of a new version of a JAR, without saving anything. Runners are created like the
+     * ones loaded from the storage: as a bean when possible, so their dependencies are injected
+     *
+     * @param jarFile    JAR file to explore
+     * @param loader     class loader on the JAR file
+     * @param listErrors errors: a runner class which can't be instantiated
+     * @return the runners detected in the jar
+     */
+    public List<AbstractRunner> instantiateRunners(File jarFile, ClassLoader loader, List<String> listErrors) {
+        List<AbstractRunner> listRunners = new ArrayList<>();
+        for (Class<?> clazz : runnerUploadFactory.getRunnerClasses(jarFile, loader, listErrors)) {
+            try {
+                listRunners.addAll(detectRunnersInObject(getRunnerObjectFromClass(clazz)));
+            } catch (Exception | Error e) {
+                listErrors.add("Class[" + clazz.getName() + "] can't be instantiated: " + e.getMessage());
+            }
+        }
+        return listRunners;
+    }
+
+    /**
+     * The runners are a new version (a JAR was swapped): next starts use them
+     *
+     * @param listRunners runners
+     * @param classLoader class loader of the new version
+     * @return class loader of the previous version of each runner (key is runnerType), to release when the runner
+     * is drained
+     */
+    public Map<String, ClassLoader> replaceCachedRunners(List<AbstractRunner> listRunners, ClassLoader classLoader) {
+        Map<String, ClassLoader> previousLoaders = new HashMap<>();
+        for (AbstractRunner runner : listRunners) {
+            ClassLoader previousLoader = putCacheRunner(runner, classLoader);
+            if (previousLoader != null)
+                previousLoaders.put(runner.getType(), previousLoader);
+        }
+        return previousLoaders;
+    }
+
+    /**
+     * Remove runners from the cache: the next start instantiates them again, from the JAR in the class loader
+     * path. Runners must be stopped.
+     *
+     * @param listRunnerTypes runners to remove
+     */
+    public void evictCachedRunners(List<String> listRunnerTypes) {
+        List<ClassLoader> listLoaders = new ArrayList<>();
+        for (String runnerType : listRunnerTypes) {
+            cacheRunner.remove(runnerType);
+            ClassLoader classLoader = runnerClassLoaders.remove(runnerType);
+            if (classLoader != null)
+                listLoaders.add(classLoader);
+        }
+        runnerClassLoaderFactory.release(listLoaders);
+    }
+
+    /**
+     * Runners of previous versions are not used anymore: their class loaders can be closed
+     *
+     * @param listClassLoaders class loaders returned by replaceCachedRunners
+     */
+    public void releaseClassLoaders(Collection<ClassLoader> listClassLoaders) {
+        runnerClassLoaderFactory.release(listClassLoaders);
+    }
+
     /**
      * Copy a Jar File from Storage to the ClassLoader path
      *
@@ -276,6 +376,8 @@ public class RunnerFactory {
             try (Session session = sessionFactory.openSession()) {
                 Transaction txn = session.beginTransaction();
                 runnerExecutionRepository.deleteFromEntityType(entityToRemove.type);
+                historyStatisticAggregator.deleteFromEntityType(entityToRemove.type);
+                errorAggregator.deleteFromEntityType(entityToRemove.type);
 
                 storageRunner.removeRunner(entityToRemove);
                 txn.commit();
@@ -356,9 +458,13 @@ public class RunnerFactory {
                 return Collections.emptyList();
             }
 
+            List<ClassLoader> listPreviousLoaders = new ArrayList<>();
             for (AbstractRunner runnerIterator : listRunners) {
-                cacheRunner.put(runnerIterator.getType(), runnerIterator);
+                ClassLoader previousLoader = putCacheRunner(runnerIterator, clazz.getClassLoader());
+                if (previousLoader != null)
+                    listPreviousLoaders.add(previousLoader);
             }
+            runnerClassLoaderFactory.release(listPreviousLoaders);
             return listRunners;
 
         } catch (Error er) {
@@ -372,6 +478,19 @@ public class RunnerFactory {
         }
     }
 
+    /**
+     * Cache a runner, and keep its class loader open
+     *
+     * @return the class loader of the runner replaced in the cache, null if there is none
+     */
+    private ClassLoader putCacheRunner(AbstractRunner runner, ClassLoader classLoader) {
+        cacheRunner.put(runner.getType(), runner);
+        runnerClassLoaderFactory.acquire(classLoader);
+        return classLoader == null ?
+                runnerClassLoaders.remove(runner.getType()) :
+                runnerClassLoaders.put(runner.getType(), classLoader);
+    }
+
     public boolean deleteJarFile(Long jarEntity) throws OperationException {
         return true;
     }
@@ -382,22 +501,65 @@ public class RunnerFactory {
         // 1. the object is complex, and need injection. Then, it may be a @Bean
 
         // 2. the class is very straightforward, and then we just need to create a new instance
+        // One bean per version of the class: two versions of a JAR are loaded by two class loaders
+        String beanName = clazz.getName() + "#" + Integer.toHexString(System.identityHashCode(clazz.getClassLoader()));
+        GenericWebApplicationContext genericContext = context instanceof GenericWebApplicationContext webContext ?
+                webContext :
+                null;
         try {
             // First, ask Spring to load the class.
-            GenericWebApplicationContext genericContext = (GenericWebApplicationContext) context;
-            BeanDefinitionBuilder builder = BeanDefinitionBuilder.genericBeanDefinition(clazz);
-            genericContext.registerBeanDefinition(clazz.getSimpleName(), builder.getBeanDefinition());
-
-            Object beanObject = context.getBean(clazz);
+            if (!genericContext.containsBeanDefinition(beanName)) {
+                BeanDefinitionBuilder builder = BeanDefinitionBuilder.genericBeanDefinition(clazz);
+                genericContext.registerBeanDefinition(beanName, builder.getBeanDefinition());
+                runnerBeans.computeIfAbsent(clazz.getClassLoader(), k -> ConcurrentHashMap.newKeySet()).add(beanName);
+            }
+            Object beanObject = context.getBean(beanName);
             logOperation.log(OperationEntity.Operation.STARTRUNNER, "Runner is a bean [" + clazz.getName() + "]");
             return beanObject;
         } catch (Exception e) {
             // Don't need to log, this is not a bean
             logger.info("Error " + e);
+            removeRunnerBean(genericContext, clazz.getClassLoader(), beanName);
         }
 
-        return clazz.getDeclaredConstructor().newInstance();
+        Object runnerObject = clazz.getDeclaredConstructor().newInstance();
+        // not a bean, but its @Autowired fields are still injected
+        if (context != null)
+            context.getAutowireCapableBeanFactory().autowireBean(runnerObject);
+        return runnerObject;
+
+    }
+
+    /**
+     * The class loader is closed: remove the beans of its runners from the context
+     *
+     * @param classLoader class loader closed
+     */
+    private void removeRunnerBeans(ClassLoader classLoader) {
+        Set<String> beanNames = runnerBeans.remove(classLoader);
+        if (beanNames == null)
+            return;
+        GenericWebApplicationContext genericContext = context instanceof GenericWebApplicationContext webContext ?
+                webContext :
+                null;
+        for (String beanName : beanNames) {
+            removeRunnerBean(genericContext, classLoader, beanName);
+        }
+    }
 
+    private void removeRunnerBean(GenericWebApplicationContext genericContext, ClassLoader classLoader,
+                                  String beanName) {
+        Set<String> beanNames = runnerBeans.get(classLoader);
+        if (beanNames != null)
+            beanNames.remove(beanName);
+        if (genericContext == null || !genericContext.containsBeanDefinition(beanName))
+            return;
+        try {
+            // the singleton is destroyed with its definition
+            genericContext.removeBeanDefinition(beanName);
+        } catch (Exception e) {
+            logger.error("Can't remove bean [{}] : {}", beanName, e.getMessage());
+        }
     }
 
 }
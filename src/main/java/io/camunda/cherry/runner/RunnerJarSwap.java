@@ -0,0 +1,231 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  RunnerJarSwap                                                       */
+/*                                                                      */
+/*  Replace a JAR without stopping its runners (blue/green).            */
+/*  The new version is loaded in its own class loader, its runners are  */
+/*  instantiated and validated, and a JobWorker is opened for each      */
+/*  running runner next to the current one. Then the JAR is saved and  */
+/*  the new JobWorkers replace the current ones, which are drained.    */
+/*  Jobs are activated all along. Saving the JAR is the last step which */
+/*  can fail: on any error before, the new JobWorkers are closed and    */
+/*  nothing was saved, the current version stays.                       */
+/*  Two swaps of the same JAR are run one after the other.              */
+/* ******************************************************************** */
+package io.camunda.cherry.runner;
+
+import io.camunda.cherry.db.entity.OperationEntity;
+import io.camunda.cherry.definition.AbstractRunner;
+import io.camunda.cherry.exception.OperationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class RunnerJarSwap {
+
+    public static final String STATUS_SWAPPED = "SWAPPED";
+    public static final String STATUS_ROLLEDBACK = "ROLLEDBACK";
+
+    private final RunnerFactory runnerFactory;
+    private final RunnerClassLoaderFactory runnerClassLoaderFactory;
+    private final JobRunnerFactory jobRunnerFactory;
+    private final LogOperation logOperation;
+    /**
+     * One swap at a time per JAR: two uploads of the same JAR would prepare and commit JobWorkers for the same
+     * runners. Key is the JAR name
+     */
+    private final Map<String, ReentrantLock> jarLocks = new ConcurrentHashMap<>();
+    Logger logger = LoggerFactory.getLogger(RunnerJarSwap.class.getName());
+
+    public RunnerJarSwap(RunnerFactory runnerFactory,
+                         RunnerClassLoaderFactory runnerClassLoaderFactory,
+                         JobRunnerFactory jobRunnerFactory,
+                         LogOperation logOperation) {
+        this.runnerFactory = runnerFactory;
+        this.runnerClassLoaderFactory = runnerClassLoaderFactory;
+        this.jobRunnerFactory = jobRunnerFactory;
+        this.logOperation = logOperation;
+    }
+
+    /**
+     * Swap a JAR. A swap of the same JAR in progress is waited for
+     *
+     * @param file        new version of the JAR
+     * @param jarFileName name of the JAR
+     * @return the result of the swap
+     */
+    public SwapResult swapJar(MultipartFile file, String jarFileName) {
+        ReentrantLock jarLock = jarLocks.computeIfAbsent(jarFileName, name -> new ReentrantLock());
+        jarLock.lock();
+        try {
+            return swapJarLocked(file, jarFileName);
+        } finally {
+            jarLock.unlock();
+        }
+    }
+
+    private SwapResult swapJarLocked(MultipartFile file, String jarFileName) {
+        long beginOperation = System.currentTimeMillis();
+        Map<String, String> analysisPerRunner = new LinkedHashMap<>();
+        Path jarTemp = null;
+        RunnerClassLoaderFactory.StagedJar stagedJar = null;
+        List<JobRunnerFactory.PreparedWorker> listPrepared = Collections.emptyList();
+        List<AbstractRunner> listRunners;
+        List<AbstractRunner> listNotRunning = new ArrayList<>();
+        try {
+            jarTemp = Files.createTempFile(jarFileName, ".jar");
+            try (InputStream inputStream = file.getInputStream()) {
+                Files.copy(inputStream, jarTemp, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            // 1. the new version, in its own class loader
+            stagedJar = runnerClassLoaderFactory.stageJar(jarTemp.toFile(), jarFileName);
+
+            // 2. instantiate (as a bean, dependencies injected) and validate the runners
+            List<String> listErrors = new ArrayList<>();
+            listRunners = runnerFactory.instantiateRunners(stagedJar.file(), stagedJar.classLoader(), listErrors);
+            if (listRunners.isEmpty() && listErrors.isEmpty())
+                listErrors.add("No runner detected in the JAR");
+            for (AbstractRunner runner : listRunners) {
+                listErrors.addAll(runner.checkValidDefinition().listOfErrors());
+                try {
+                    // the input/output contract is compiled now, not at the first job
+                    runner.getRunnerContract();
+                } catch (Exception e) {
+                    listErrors.add("Runner [" + runner.getType() + "] invalid contract: " + e.getMessage());
+                }
+            }
+            if (!listErrors.isEmpty())
+                return rollback(jarFileName, stagedJar, listPrepared, analysisPerRunner,
+                        "Validation failed: " + String.join("; ", listErrors));
+
+            // 3. open the new JobWorkers next to the current ones
+            for (AbstractRunner runner : listRunners) {
+                boolean active = jobRunnerFactory.isActiveRunner(runner.getType());
+                analysisPerRunner.put(runner.getType(), "runner [" + runner.getType() + "]: " + (active ?
+                        "ACTIVE, " :
+                        "New runner, "));
+                if (!active)
+                    listNotRunning.add(runner);
+            }
+            listPrepared = jobRunnerFactory.prepareSwap(listRunners);
+
+            // 4. save the JAR: it is the version for the next starts. Last step which can fail
+            if (runnerFactory.saveFromFile(jarTemp.toFile(), jarFileName).isEmpty())
+                return rollback(jarFileName, stagedJar, listPrepared, analysisPerRunner, "Can't save the JAR");
+
+        } catch (OperationException e) {
+            return rollback(jarFileName, stagedJar, listPrepared, analysisPerRunner, e.getHumanInformation());
+        } catch (Exception e) {
+            return rollback(jarFileName, stagedJar, listPrepared, analysisPerRunner, e.getMessage());
+        } finally {
+            if (jarTemp != null) {
+                try {
+                    Files.deleteIfExists(jarTemp);
+                } catch (Exception e) {
+                    // temporary file, removed by the system
+                }
+            }
+        }
+
+        // 5. the JAR is saved: the swap is not rolled back anymore
+        commit(jarFileName, stagedJar, listRunners, listPrepared, listNotRunning, analysisPerRunner);
+        logOperation.log(OperationEntity.Operation.LOADJAR,
+                "Swap Jar[" + jarFileName + "] runners " + analysisPerRunner.keySet() + " in " + (
+                        System.currentTimeMillis() - beginOperation) + " ms");
+        return new SwapResult(STATUS_SWAPPED, analysisPerRunner, null);
+    }
+
+    /**
+     * The new version is saved: the new JobWorkers replace the current ones. The previous class loader is released
+     * by each runner once it is drained: a runner still executing jobs at the timeout keeps it open. Nothing here
+     * rolls back the swap.
+     */
+    private void commit(String jarFileName,
+                        RunnerClassLoaderFactory.StagedJar stagedJar,
+                        List<AbstractRunner> listRunners,
+                        List<JobRunnerFactory.PreparedWorker> listPrepared,
+                        List<AbstractRunner> listNotRunning,
+                        Map<String, String> analysisPerRunner) {
+        if (!runnerFactory.jarFileToClassLoader(jarFileName))
+            logOperation.log(OperationEntity.Operation.ERROR, "Swap Jar[" + jarFileName
+                    + "] can't copy the JAR in the class loader path, the new version runs from its staged file");
+        Map<String, ClassLoader> previousLoaders = runnerFactory.replaceCachedRunners(listRunners,
+                stagedJar.classLoader());
+        runnerClassLoaderFactory.promote(stagedJar);
+
+        jobRunnerFactory.commitSwap(listPrepared).thenAccept(listResults -> {
+            Map<String, ClassLoader> drainedLoaders = new LinkedHashMap<>(previousLoaders);
+            for (RunnerDrain.DrainResult drainResult : listResults) {
+                if (drainResult.isDrained())
+                    continue;
+                // a job may still run a class of the previous version
+                drainedLoaders.remove(drainResult.runnerType());
+                logOperation.log(OperationEntity.Operation.ERROR,
+                        "Swap Jar[" + jarFileName + "] runner[" + drainResult.runnerType() + "] not drained, "
+                                + drainResult.jobsInProgress() + " jobs in progress: previous class loader stays open");
+            }
+            runnerFactory.releaseClassLoaders(drainedLoaders.values());
+        });
+        for (JobRunnerFactory.PreparedWorker prepared : listPrepared) {
+            analysisPerRunner.merge(prepared.runner().getType(), "Swapped", String::concat);
+        }
+        // a runner which was not running is started, as a new runner
+        for (AbstractRunner runner : listNotRunning) {
+            try {
+                jobRunnerFactory.startRunner(runner.getType());
+                analysisPerRunner.merge(runner.getType(), "Start", String::concat);
+            } catch (OperationException e) {
+                analysisPerRunner.merge(runner.getType(), "Can't Start it " + e.getHumanInformation(),
+                        String::concat);
+            }
+        }
+    }
+
+    /**
+     * The current version stays: new JobWorkers are drained and closed, the staged JAR is removed
+     */
+    private SwapResult rollback(String jarFileName,
+                                RunnerClassLoaderFactory.StagedJar stagedJar,
+                                List<JobRunnerFactory.PreparedWorker> listPrepared,
+                                Map<String, String> analysisPerRunner,
+                                String reason) {
+        // the class loader is closed once the jobs in progress on the new JobWorkers are finished
+        jobRunnerFactory.abortSwap(listPrepared).thenAccept(listResults -> {
+            if (stagedJar == null)
+                return;
+            List<String> listNotDrained = listResults.stream()
+                    .filter(drainResult -> !drainResult.isDrained())
+                    .map(RunnerDrain.DrainResult::runnerType)
+                    .toList();
+            if (listNotDrained.isEmpty())
+                runnerClassLoaderFactory.discard(stagedJar);
+            else
+                logOperation.log(OperationEntity.Operation.ERROR,
+                        "Swap Jar[" + jarFileName + "] runners " + listNotDrained
+                                + " not drained: staged class loader stays open");
+        });
+        logOperation.log(OperationEntity.Operation.ERROR, "Swap Jar[" + jarFileName + "] rolled back: " + reason);
+        return new SwapResult(STATUS_ROLLEDBACK, analysisPerRunner, reason);
+    }
+
+    /**
+     * @param error reason of the rollback, null if the JAR is swapped
+     */
+    public record SwapResult(String status, Map<String, String> analysisPerRunner, String error) {
+    }
+}
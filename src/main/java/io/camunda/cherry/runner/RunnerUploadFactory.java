@@ -21,6 +21,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.time.Instant;
@@ -220,6 +221,60 @@ public class RunnerUploadFactory {
         return listRunnersLoaded;
     }
 
+    /**
+     * Detect the runner classes of a JAR file (AbstractRunner or OutboundConnector), without saving anything. Used
+     * to validate a new version of a JAR before it replaces the current one: the RunnerFactory instantiates them.
+     *
+     * @param jarFile    JAR file to explore
+     * @param loader     class loader on the JAR file
+     * @param listErrors errors: the JAR can't be explored
+     * @return the runner classes detected in the jar
+     */
+    public List<Class<?>> getRunnerClasses(File jarFile, ClassLoader loader, List<String> listErrors) {
+        List<Class<?>> listRunnerClasses = new ArrayList<>();
+        try (ZipFile zipJarFile = new ZipFile(jarFile)) {
+            Enumeration<? extends ZipEntry> entries = zipJarFile.entries();
+            while (entries.hasMoreElements()) {
+                String entryName = entries.nextElement().getName();
+                if (!entryName.endsWith(".class"))
+                    continue;
+                String className = entryName.replace(".class", "").replace('/', '.');
+                if (!isCandidateClass(className))
+                    continue;
+                Class<?> clazz;
+                try {
+                    clazz = loader.loadClass(className);
+                } catch (Exception | Error e) {
+                    // the class may extend some class which are not present: same as the load of the JAR
+                    continue;
+                }
+                if (Modifier.isAbstract(clazz.getModifiers()))
+                    continue;
+                if (AbstractRunner.class.isAssignableFrom(clazz) || clazz.getAnnotation(OutboundConnector.class) != null)
+                    listRunnerClasses.add(clazz);
+            }
+        } catch (Exception e) {
+            listErrors.add("Can't explore JAR [" + jarFile.getName() + "] " + e.getMessage());
+        }
+        return listRunnerClasses;
+    }
+
+    /**
+     * Classes which can't be a runner are not loaded: save time
+     *
+     * @param className class name
+     * @return true if the class may be a runner
+     */
+    private static boolean isCandidateClass(String className) {
+        if (className.startsWith("org.apache")
+                || className.startsWith("com.google")
+                || className.startsWith("scala")
+                || className.startsWith("com.fasterxml"))
+            return false;
+        // Connector onboard the CamundaStarter function
+        return !className.startsWith("io.camunda.connector.runtime") && !className.startsWith("io.camunda.zeebe");
+    }
+
     /**
      * get All runners
      *
@@ -281,14 +336,7 @@ public class RunnerUploadFactory {
                     continue;
                 }
                 String className = entryName.replace(".class", "").replace('/', '.');
-                // save time
-                if (className.startsWith("org.apache")
-                        || className.startsWith("com.google")
-                        || className.startsWith("scala")
-                        || className.startsWith("com.fasterxml"))
-                    continue;
-                // Connector onboard the CamundaStarter function
-                if (className.startsWith("io.camunda.connector.runtime") || className.startsWith("io.camunda.zeebe"))
+                if (!isCandidateClass(className))
                     continue;
                 try {
                     Class<?> clazz = loader.loadClass(className);
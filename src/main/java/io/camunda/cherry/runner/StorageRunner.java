@@ -288,6 +288,20 @@ public class StorageRunner {
     /*                                                                      */
     /* ******************************************************************** */
 
+    /**
+     * Return the definition of a runner
+     *
+     * @param runnerType type of runner
+     * @return the definition, null if the runner does not exist
+     */
+    public RunnerDefinitionEntity getRunnerDefinitionByType(String runnerType) {
+        return runnerDefinitionRepository.selectByType(runnerType);
+    }
+
+    public RunnerDefinitionEntity saveRunnerDefinition(RunnerDefinitionEntity runnerDefinition) {
+        return runnerDefinitionRepository.save(runnerDefinition);
+    }
+
     public List<RunnerDefinitionEntity> getRunnersFromJarName(String jarName) {
         return getRunners(new StorageRunner.Filter().jarFileName(jarName));
     }
@@ -0,0 +1,235 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  VirtualThreadExecution                                              */
+/*                                                                      */
+/*  Execution mode of the runners. In VIRTUAL mode, each job runs on    */
+/*  its own virtual thread, the client executor thread is released     */
+/*  immediately. A semaphore per runner type limits the number of jobs */
+/*  in progress: the client thread never waits for it, a job over the  */
+/*  limit is failed with a backoff (retries are not consumed). The     */
+/*  activation of a runner is capped to its concurrency.                */
+/* ******************************************************************** */
+package io.camunda.cherry.runner;
+
+import io.camunda.cherry.runner.handler.VirtualThreadJobHandler;
+import io.camunda.client.api.worker.JobHandler;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class VirtualThreadExecution {
+
+    Logger logger = LoggerFactory.getLogger(VirtualThreadExecution.class.getName());
+
+    @Autowired
+    Environment environment;
+
+    /**
+     * Default mode for all runners. A runner can override it with cherry.runners.execution.runner.<type>.mode
+     */
+    @Value("${cherry.runners.execution.mode:PLATFORM}")
+    private ExecutionMode defaultExecutionMode;
+
+    /**
+     * Default limit of jobs in progress per runner in VIRTUAL mode. A runner can override it with
+     * cherry.runners.execution.runner.<type>.maxconcurrency
+     */
+    @Value("${cherry.runners.execution.maxconcurrency:1000}")
+    private int defaultMaxConcurrency;
+
+    /**
+     * A job activated while its runner has no free slot is given back to the broker, available again after this delay
+     */
+    @Value("${cherry.runners.execution.saturationbackoffms:1000}")
+    private long saturationBackoffMs;
+
+    private final ExecutorService virtualExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("cherry-job-", 0).factory());
+
+    /**
+     * Key is the runner type
+     */
+    private final Map<String, RunnerSlot> runnerSlots = new ConcurrentHashMap<>();
+
+    @PreDestroy
+    public void end() {
+        virtualExecutor.shutdown();
+    }
+
+    /**
+     * Execution mode for a runner
+     *
+     * @param runnerType type of runner
+     * @return the execution mode
+     */
+    public ExecutionMode getExecutionMode(String runnerType) {
+        String runnerMode = environment.getProperty("cherry.runners.execution.runner." + runnerType + ".mode");
+        if (runnerMode == null)
+            return defaultExecutionMode;
+        try {
+            return ExecutionMode.valueOf(runnerMode.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.error("VirtualThreadExecution: unknown mode [{}] for runner[{}], use [{}]", runnerMode, runnerType,
+                    defaultExecutionMode);
+            return defaultExecutionMode;
+        }
+    }
+
+    /**
+     * Return the handler to register in the JobWorker. In VIRTUAL mode, the handler is wrapped to run on a
+     * virtual thread.
+     *
+     * @param runnerType type of runner
+     * @param jobHandler handler of the runner
+     * @return the handler to register
+     */
+    public JobHandler getJobHandler(String runnerType, JobHandler jobHandler) {
+        if (getExecutionMode(runnerType) != ExecutionMode.VIRTUAL)
+            return jobHandler;
+        int maxConcurrency = getMaxConcurrency(runnerType);
+        RunnerSlot runnerSlot = runnerSlots.compute(runnerType, (type, slot) ->
+                slot != null && slot.maxConcurrency == maxConcurrency ? slot : new RunnerSlot(maxConcurrency));
+        logger.info("VirtualThreadExecution: runner[{}] runs on virtual threads, maxConcurrency[{}]", runnerType,
+                maxConcurrency);
+        return new VirtualThreadJobHandler(jobHandler, virtualExecutor, runnerSlot, saturationBackoffMs);
+    }
+
+    /**
+     * In VIRTUAL mode, the handler returns immediately: a JobWorker activating more jobs than the concurrency of
+     * its runner would give them back to the broker. The activation is capped to the concurrency.
+     *
+     * @param runnerType    type of runner
+     * @param maxJobsActive maxJobsActive of the JobWorker
+     * @return the maxJobsActive to use
+     */
+    public int capMaxJobsActive(String runnerType, int maxJobsActive) {
+        if (getExecutionMode(runnerType) != ExecutionMode.VIRTUAL)
+            return maxJobsActive;
+        return Math.min(maxJobsActive, Math.max(1, getMaxConcurrency(runnerType)));
+    }
+
+    private int getMaxConcurrency(String runnerType) {
+        return environment.getProperty("cherry.runners.execution.runner." + runnerType + ".maxconcurrency",
+                Integer.class, defaultMaxConcurrency);
+    }
+
+    /**
+     * @return number of jobs in progress on virtual threads, all runners
+     */
+    public int getVirtualThreadsInFlight() {
+        int virtualInFlight = 0;
+        for (RunnerSlot slot : runnerSlots.values())
+            virtualInFlight += slot.getInFlight();
+        return virtualInFlight;
+    }
+
+    /**
+     * Live usage of threads, for the administration
+     *
+     * @return usage
+     */
+    public Map<String, Object> getThreadUsage() {
+        Map<String, Object> usage = new HashMap<>();
+        usage.put("defaultExecutionMode", defaultExecutionMode.toString());
+        usage.put("defaultMaxConcurrency", defaultMaxConcurrency);
+        usage.put("saturationBackoffMs", saturationBackoffMs);
+        usage.put("platformThreads", ManagementFactory.getThreadMXBean().getThreadCount());
+        usage.put("carrierParallelism", Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                Runtime.getRuntime().availableProcessors()));
+        // carrier threads are platform threads: they are visible in the list of threads
+        usage.put("carrierThreads", Thread.getAllStackTraces()
+                .keySet()
+                .stream()
+                .filter(t -> "jdk.internal.misc.CarrierThread".equals(t.getClass().getName()))
+                .count());
+
+        long virtualInFlight = 0;
+        Map<String, Object> runners = new TreeMap<>();
+        for (Map.Entry<String, RunnerSlot> entry : runnerSlots.entrySet()) {
+            RunnerSlot slot = entry.getValue();
+            virtualInFlight += slot.getInFlight();
+            runners.put(entry.getKey(), Map.of("inFlight", slot.getInFlight(), // jobs in progress
+                    "maxConcurrency", slot.maxConcurrency, // limit
+                    "saturated", slot.getSaturated(), // jobs given back to the broker, no free slot
+                    "executed", slot.getExecuted()));
+        }
+        usage.put("virtualThreadsInFlight", virtualInFlight);
+        usage.put("runners", runners);
+        return usage;
+    }
+
+    public enum ExecutionMode {
+        /**
+         * the job runs on the executor thread of the client
+         */
+        PLATFORM,
+        /**
+         * the job runs on a virtual thread
+         */
+        VIRTUAL
+    }
+
+    /**
+     * Concurrency limit and counters of one runner
+     */
+    public static class RunnerSlot {
+        private final int maxConcurrency;
+        private final Semaphore semaphore;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong executed = new AtomicLong();
+        private final AtomicLong saturated = new AtomicLong();
+
+        public RunnerSlot(int maxConcurrency) {
+            this.maxConcurrency = Math.max(1, maxConcurrency);
+            this.semaphore = new Semaphore(this.maxConcurrency);
+        }
+
+        /**
+         * Take a slot without waiting
+         *
+         * @return false if all slots are used: the job must not run now
+         */
+        public boolean tryAcquire() {
+            if (!semaphore.tryAcquire()) {
+                saturated.incrementAndGet();
+                return false;
+            }
+            inFlight.incrementAndGet();
+            return true;
+        }
+
+        public void release() {
+            inFlight.decrementAndGet();
+            executed.incrementAndGet();
+            semaphore.release();
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        public long getSaturated() {
+            return saturated.get();
+        }
+
+        public long getExecuted() {
+            return executed.get();
+        }
+    }
+}
@@ -14,88 +14,72 @@
 /* ******************************************************************** */
 package io.camunda.cherry.runner.handler;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.camunda.cherry.db.entity.RunnerExecutionEntity;
 import io.camunda.cherry.definition.AbstractConnector;
 import io.camunda.cherry.definition.AbstractRunner;
 import io.camunda.cherry.definition.BpmnError;
 import io.camunda.cherry.definition.connector.SdkRunnerConnector;
-import io.camunda.cherry.runtime.CherrySecretProvider;
 import io.camunda.cherry.runtime.HistoryFactory;
-import io.camunda.client.CamundaClient;
+import io.camunda.cherry.tracing.JobPhase;
+import io.camunda.cherry.tracing.JobTrace;
+import io.camunda.cherry.tracing.JobTracing;
 import io.camunda.client.api.response.ActivatedJob;
 import io.camunda.client.api.worker.JobClient;
 import io.camunda.client.api.worker.JobHandler;
-import io.camunda.client.jobhandling.CommandExceptionHandlingStrategy;
-import io.camunda.client.metrics.DefaultNoopMetricsRecorder;
-import io.camunda.connector.api.document.DocumentFactory;
 import io.camunda.connector.api.error.ConnectorException;
 import io.camunda.connector.api.outbound.OutboundConnectorFunction;
-import io.camunda.connector.api.validation.ValidationProvider;
-import io.camunda.connector.runtime.core.document.DocumentFactoryImpl;
-import io.camunda.connector.runtime.core.document.store.CamundaDocumentStore;
-import io.camunda.connector.runtime.core.document.store.CamundaDocumentStoreImpl;
-import io.camunda.connector.runtime.metrics.ConnectorsOutboundMetrics;
-import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Instant;
 
 /**
- * This job handler intercept the execution to the result
+ * This job handler intercept the execution to the result. One instance per runner: the connector pipeline is
+ * built once, and reused by all jobs.
  */
 public class CherryConnectorJobHandler implements JobHandler {
-    final CherrySecretProvider cherrySecretProvider;
-    final ValidationProvider validationProvider;
-    final CommandExceptionHandlingStrategy commandExceptionHandlingStrategy;
-    final ObjectMapper objectMapper;
     private final AbstractConnector abstractConnector;
     private final SdkRunnerConnector sdkRunnerConnector;
-    CamundaClient camundaClient;
-    CamundaDocumentStore documentStore;
-    DocumentFactory documentFactory;
+    private final SuperConnectorJobHandler connectorJobHandler;
     Logger logger = LoggerFactory.getLogger(CherryConnectorJobHandler.class.getName());
     HistoryFactory historyFactory;
+    JobTracing jobTracing;
 
     public CherryConnectorJobHandler(AbstractConnector abstractConnector,
                                      HistoryFactory historyFactory,
-                                     CherrySecretProvider cherrySecretProvider,
-                                     ValidationProvider validationProvider,
-                                     CommandExceptionHandlingStrategy commandExceptionHandlingStrategy,
-                                     CamundaClient camundaClient,
-                                     DocumentFactory documentFactory,
-                                     ObjectMapper objectMapper) {
+                                     JobTracing jobTracing,
+                                     ConnectorExecutionResources executionResources) {
         this.abstractConnector = abstractConnector;
         this.sdkRunnerConnector = null;
         this.historyFactory = historyFactory;
-        this.cherrySecretProvider = cherrySecretProvider;
-        this.validationProvider = validationProvider;
-        this.commandExceptionHandlingStrategy = commandExceptionHandlingStrategy;
-        this.camundaClient = camundaClient;
-        this.documentFactory = documentFactory;
-        this.objectMapper = objectMapper;
-        documentStore = new CamundaDocumentStoreImpl(camundaClient);
-        documentFactory = new DocumentFactoryImpl(documentStore);
-
+        this.jobTracing = jobTracing;
+        this.connectorJobHandler = buildConnectorJobHandler(abstractConnector, executionResources);
     }
 
     public CherryConnectorJobHandler(SdkRunnerConnector sdkRunnerConnector,
                                      HistoryFactory historyFactory,
-                                     CherrySecretProvider cherrySecretProvider,
-                                     ValidationProvider validationProvider,
-                                     CommandExceptionHandlingStrategy commandExceptionHandlingStrategy,
-                                     DocumentFactory documentFactory,
-                                     ObjectMapper objectMapper) {
+                                     JobTracing jobTracing,
+                                     ConnectorExecutionResources executionResources) {
         this.sdkRunnerConnector = sdkRunnerConnector;
         this.abstractConnector = null;
         this.historyFactory = historyFactory;
-        this.cherrySecretProvider = cherrySecretProvider;
-        this.validationProvider = validationProvider;
-        this.commandExceptionHandlingStrategy = commandExceptionHandlingStrategy;
-        this.documentFactory = documentFactory;
-        this.objectMapper = objectMapper;
+        this.jobTracing = jobTracing;
+        this.connectorJobHandler = buildConnectorJobHandler(sdkRunnerConnector.getTransportedConnector(),
+                executionResources);
+    }
 
+    private static SuperConnectorJobHandler buildConnectorJobHandler(OutboundConnectorFunction connectorFunction,
+                                                                     ConnectorExecutionResources executionResources) {
+        if (connectorFunction == null)
+            return null;
+        return new SuperConnectorJobHandler(connectorFunction,
+                executionResources.outboundMetrics,
+                executionResources.metricsRecorder,
+                executionResources.secretProviderAggregator,
+                executionResources.validationProvider,
+                executionResources.commandExceptionHandlingStrategy,
+                executionResources.documentFactory,
+                executionResources.objectMapper);
     }
 
     @Override
@@ -105,44 +89,44 @@ public class CherryConnectorJobHandler implements JobHandler {
         String type = abstractConnector != null ? abstractConnector.getType() : sdkRunnerConnector.getType();
         logger.info("ConnectorJobHandler: Handle JobId[{}] TenantId[{}] of type[{}]", job.getKey(), job.getTenantId(),
                 type);
+        JobTrace jobTrace = JobTracing.start(jobTracing, type, job);
+        jobTrace.getExecutionTiming()
+                .recordQueueWait(job,
+                        abstractConnector != null ? abstractConnector.getJobTimeoutMs() : sdkRunnerConnector.getJobTimeoutMs());
+        // the secret provider and the complete command find the trace on the thread
+        jobTrace.bind();
+        try {
+            handleJob(client, job, type, executionInstant, jobTrace);
+        } finally {
+            JobTrace.unbind();
+        }
+    }
+
+    private void handleJob(JobClient client, ActivatedJob job, String type, Instant executionInstant, JobTrace jobTrace) {
         long beginExecution = System.currentTimeMillis();
         StatusContainer status;
-        ConnectorException connectorException = null;
 
+        // the connector continues the trace (HTTP calls...)
+        JobTrace.Phase executePhase = jobTrace.phaseInScope(JobPhase.EXECUTE);
         try {
-            // JobHandlerContext context = new JobHandlerContext(job, secretProvider, validationProvider, objectMapper);
             // Execute the connector now
-            OutboundConnectorFunction connectorFunction = null;
-            if (abstractConnector != null)
-                connectorFunction = abstractConnector;
-            else if (sdkRunnerConnector != null) {
-                connectorFunction = sdkRunnerConnector.getTransportedConnector();
-            } else
-                throw new ConnectorException("Can't execute Connector : abstractConnector and sdkRunnerConnector are null");
-
-            DefaultNoopMetricsRecorder jobWorkerMetrics = new DefaultNoopMetricsRecorder();
-            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
-
-            ConnectorsOutboundMetrics outboundMetrics = new ConnectorsOutboundMetrics(meterRegistry);
-
-            SuperConnectorJobHandler connectorJobHandler = new SuperConnectorJobHandler(connectorFunction,
-                    outboundMetrics,
-                    jobWorkerMetrics,
-                    cherrySecretProvider,
-                    validationProvider,
-                    commandExceptionHandlingStrategy,
-                    documentFactory,
-                    objectMapper);
-            connectorJobHandler.handle(client, job);
-            status = new StatusContainer(connectorJobHandler.getExecutionStatus());
-            status.exception = connectorJobHandler.getLogException();
+            if (connectorJobHandler == null)
+                throw new ConnectorException("Can't execute Connector : no connector function for [" + type + "]");
+
+            SuperConnectorJobHandler.ConnectorExecution execution = connectorJobHandler.execute(client, job);
+            status = new StatusContainer(execution.getExecutionStatus());
+            status.exception = execution.getLogException();
 
         } catch (ConnectorException ce) {
             status = new StatusContainer(AbstractRunner.ExecutionStatusEnum.BPMNERROR, ce);
-            connectorException = ce;
         } catch (Exception e) {
             status = new StatusContainer(AbstractRunner.ExecutionStatusEnum.FAIL, e);
+            executePhase.error(e);
+        } finally {
+            executePhase.close();
         }
+        // the connector runtime sends the complete command inside the execution
+        jobTrace.getExecutionTiming().exclude(JobPhase.EXECUTE, JobPhase.COMPLETE);
         long endExecution = System.currentTimeMillis();
 
         logger.info("Connector[" + (abstractConnector != null ? abstractConnector.getName() : sdkRunnerConnector.getName())
@@ -157,12 +141,17 @@ public class CherryConnectorJobHandler implements JobHandler {
             errorCode = "Exception";
             errorMessage = status.exception.getMessage();
         }
-        historyFactory.saveExecution(executionInstant, // this instance
-                RunnerExecutionEntity.TypeExecutor.CONNECTOR, // this is a connector
-                type, // type of connector
-                status.status, // status of execution
-                errorCode, errorMessage, // error
-                endExecution - beginExecution);
+        try (JobTrace.Phase historyPhase = jobTrace.phase(JobPhase.HISTORY)) {
+            historyFactory.saveExecution(executionInstant, // this instance
+                    RunnerExecutionEntity.TypeExecutor.CONNECTOR, // this is a connector
+                    type, // type of connector
+                    job.getTenantId(), // tenant
+                    job.getKey(), // job
+                    status.status, // status of execution
+                    errorCode, errorMessage, // error
+                    endExecution - beginExecution, jobTrace.getExecutionTiming());
+        }
+        jobTrace.end(status.status == null ? null : status.status.toString(), errorCode);
     }
 
     private class StatusContainer {
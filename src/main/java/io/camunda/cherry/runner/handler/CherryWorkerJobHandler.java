@@ -18,6 +18,9 @@ import io.camunda.cherry.definition.AbstractRunner;
 import io.camunda.cherry.definition.connector.SdkRunnerWorker;
 import io.camunda.cherry.runtime.CherrySecretProvider;
 import io.camunda.cherry.runtime.HistoryFactory;
+import io.camunda.cherry.tracing.JobPhase;
+import io.camunda.cherry.tracing.JobTrace;
+import io.camunda.cherry.tracing.JobTracing;
 import io.camunda.client.api.response.ActivatedJob;
 import io.camunda.client.api.worker.JobClient;
 import io.camunda.client.api.worker.JobHandler;
@@ -31,13 +34,16 @@ public class CherryWorkerJobHandler implements JobHandler {
 
     SdkRunnerWorker sdkRunnerWorker;
     HistoryFactory historyFactory;
+    JobTracing jobTracing;
     Logger logger = LoggerFactory.getLogger(CherryWorkerJobHandler.class.getName());
 
     public CherryWorkerJobHandler(SdkRunnerWorker sdkRunnerWorker,
                                   HistoryFactory historyFactory,
+                                  JobTracing jobTracing,
                                   CherrySecretProvider cherrySecretProvider) {
         this.sdkRunnerWorker = sdkRunnerWorker;
         this.historyFactory = historyFactory;
+        this.jobTracing = jobTracing;
     }
 
     @Override
@@ -46,8 +52,12 @@ public class CherryWorkerJobHandler implements JobHandler {
         logger.info("WorkerJobHandler: Handle JobId[{}] TenantId[{}] type[{}]", job.getKey(), job.getTenantId(),
                 sdkRunnerWorker.getType());
         long beginExecution = System.currentTimeMillis();
+        JobTrace jobTrace = JobTracing.start(jobTracing, sdkRunnerWorker.getType(), job);
+        jobTrace.getExecutionTiming().recordQueueWait(job, sdkRunnerWorker.getJobTimeoutMs());
 
         ConnectorException connectorException = null;
+        // the worker completes the job itself: the complete command is part of this phase
+        JobTrace.Phase executePhase = jobTrace.phaseInScope(JobPhase.EXECUTE);
         try {
             Class sdkRunnerClass = sdkRunnerWorker.getTransportedObject().getClass();
             sdkRunnerWorker.getHandleMethod().invoke(sdkRunnerWorker.getTransportedObject(), client, job);
@@ -55,18 +65,26 @@ public class CherryWorkerJobHandler implements JobHandler {
             // the worker complete fail or throw a BPMN error: there is no way to knows what's happenned
         } catch (Exception e) {
             logger.error("Worker[{}] failed {}" + sdkRunnerWorker.getName(), e.toString());
+            executePhase.error(e);
+        } finally {
+            executePhase.close();
         }
 
         long endExecution = System.currentTimeMillis();
 
         logger.info("Worker[{}] executed in {} ms", sdkRunnerWorker.getName(), endExecution - beginExecution);
         String type = sdkRunnerWorker.getType();
-        historyFactory.saveExecution(executionInstant, // this instance
-                RunnerExecutionEntity.TypeExecutor.CONNECTOR, // this is a connector
-                type, // type of connector
-                AbstractRunner.ExecutionStatusEnum.SUCCESS, // status of execution
-                null, null, // error
-                endExecution - beginExecution);
+        try (JobTrace.Phase historyPhase = jobTrace.phase(JobPhase.HISTORY)) {
+            historyFactory.saveExecution(executionInstant, // this instance
+                    RunnerExecutionEntity.TypeExecutor.CONNECTOR, // this is a connector
+                    type, // type of connector
+                    job.getTenantId(), // tenant
+                    job.getKey(), // job
+                    AbstractRunner.ExecutionStatusEnum.SUCCESS, // status of execution
+                    null, null, // error
+                    endExecution - beginExecution, jobTrace.getExecutionTiming());
+        }
+        jobTrace.end(AbstractRunner.ExecutionStatusEnum.SUCCESS.toString(), null);
     }
 
 }
@@ -0,0 +1,49 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  ConnectorExecutionResources                                         */
+/*                                                                      */
+/*  Objects needed to execute a connector. They are thread safe and     */
+/*  shared by all connector runners, so nothing is built per job.       */
+/* ******************************************************************** */
+package io.camunda.cherry.runner.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.camunda.cherry.runtime.CherrySecretProvider;
+import io.camunda.client.jobhandling.CommandExceptionHandlingStrategy;
+import io.camunda.client.metrics.DefaultNoopMetricsRecorder;
+import io.camunda.connector.api.document.DocumentFactory;
+import io.camunda.connector.api.validation.ValidationProvider;
+import io.camunda.connector.runtime.core.secret.SecretProviderAggregator;
+import io.camunda.connector.runtime.metrics.ConnectorsOutboundMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.List;
+
+public class ConnectorExecutionResources {
+
+    public final SecretProviderAggregator secretProviderAggregator;
+    public final ValidationProvider validationProvider;
+    public final CommandExceptionHandlingStrategy commandExceptionHandlingStrategy;
+    public final DocumentFactory documentFactory;
+    public final ObjectMapper objectMapper;
+    /**
+     * Metrics are registered in the application registry: they accumulate across jobs
+     */
+    public final ConnectorsOutboundMetrics outboundMetrics;
+    public final DefaultNoopMetricsRecorder metricsRecorder;
+
+    public ConnectorExecutionResources(CherrySecretProvider cherrySecretProvider,
+                                       ValidationProvider validationProvider,
+                                       CommandExceptionHandlingStrategy commandExceptionHandlingStrategy,
+                                       DocumentFactory documentFactory,
+                                       ObjectMapper objectMapper,
+                                       MeterRegistry meterRegistry) {
+        this.secretProviderAggregator = new SecretProviderAggregator(List.of(cherrySecretProvider));
+        this.validationProvider = validationProvider;
+        this.commandExceptionHandlingStrategy = commandExceptionHandlingStrategy;
+        this.documentFactory = documentFactory;
+        this.objectMapper = objectMapper;
+        this.outboundMetrics = new ConnectorsOutboundMetrics(meterRegistry);
+        this.metricsRecorder = new DefaultNoopMetricsRecorder();
+    }
+}
@@ -10,12 +10,14 @@ package io.camunda.cherry.runner.handler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.camunda.cherry.definition.AbstractRunner;
+import io.camunda.cherry.tracing.JobPhase;
+import io.camunda.cherry.tracing.JobTrace;
 import io.camunda.client.api.response.ActivatedJob;
 import io.camunda.client.api.worker.JobClient;
 import io.camunda.client.jobhandling.CommandExceptionHandlingStrategy;
+import io.camunda.client.metrics.DefaultNoopMetricsRecorder;
 import io.camunda.connector.api.document.DocumentFactory;
 import io.camunda.connector.api.outbound.OutboundConnectorFunction;
-import io.camunda.connector.api.secret.SecretProvider;
 import io.camunda.connector.api.validation.ValidationProvider;
 import io.camunda.connector.runtime.core.error.BpmnError;
 import io.camunda.connector.runtime.core.outbound.ConnectorResult;
@@ -25,20 +27,23 @@ import io.camunda.connector.runtime.outbound.job.SpringConnectorJobHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
-
+/**
+ * One instance per runner, shared by all job executor threads. The status of an execution is not kept in the
+ * handler: it is collected in a per-thread holder during handle(), and returned by execute()
+ */
 public class SuperConnectorJobHandler extends SpringConnectorJobHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(SuperConnectorJobHandler.class);
 
-    private AbstractRunner.ExecutionStatusEnum executionStatus;
-    private Exception logException;
-
+    /**
+     * completeJob/failJob/throwBpmnError/logError are called by handle(), on the thread which executes the job
+     */
+    private final ThreadLocal<ConnectorExecution> currentExecution = new ThreadLocal<>();
 
     public SuperConnectorJobHandler(
             OutboundConnectorFunction connectorFunction,
             ConnectorsOutboundMetrics outboundMetrics,
-            io.camunda.client.metrics.DefaultNoopMetricsRecorder noopMetricsRecorder,
-            SecretProvider secretProvider,
+            DefaultNoopMetricsRecorder noopMetricsRecorder,
+            SecretProviderAggregator secretProviderAggregator,
             ValidationProvider validationProvider,
             CommandExceptionHandlingStrategy commandExceptionHandlingStrategy,
             DocumentFactory documentFactory,
@@ -46,7 +51,7 @@ public class SuperConnectorJobHandler extends SpringConnectorJobHandler {
 
         super(outboundMetrics,
                 commandExceptionHandlingStrategy,
-                new SecretProviderAggregator(List.of(secretProvider)),
+                secretProviderAggregator,
                 validationProvider,
                 documentFactory,
                 objectMapper,
@@ -54,30 +59,72 @@ public class SuperConnectorJobHandler extends SpringConnectorJobHandler {
                 noopMetricsRecorder);
     }
 
+    /**
+     * Execute the job and return the result of this execution
+     *
+     * @param client client to complete the job
+     * @param job    job to execute
+     * @return status of the execution
+     */
+    public ConnectorExecution execute(JobClient client, ActivatedJob job) {
+        ConnectorExecution execution = new ConnectorExecution();
+        currentExecution.set(execution);
+        try {
+            handle(client, job);
+        } finally {
+            currentExecution.remove();
+        }
+        return execution;
+    }
+
     protected void completeJob(JobClient client, ActivatedJob job, ConnectorResult.SuccessResult result) {
-        executionStatus = AbstractRunner.ExecutionStatusEnum.SUCCESS;
-        super.completeJob(client, job, result);
+        setStatus(AbstractRunner.ExecutionStatusEnum.SUCCESS);
+        try (JobTrace.Phase completePhase = JobTrace.current().phase(JobPhase.COMPLETE)) {
+            super.completeJob(client, job, result);
+        }
     }
 
     protected void failJob(JobClient client, ActivatedJob job, ConnectorResult.ErrorResult result) {
-        executionStatus = AbstractRunner.ExecutionStatusEnum.FAIL;
-        super.failJob(client, job, result);
+        setStatus(AbstractRunner.ExecutionStatusEnum.FAIL);
+        try (JobTrace.Phase completePhase = JobTrace.current().phase(JobPhase.COMPLETE)) {
+            super.failJob(client, job, result);
+        }
     }
 
     protected void throwBpmnError(JobClient client, ActivatedJob job, BpmnError value) {
-        executionStatus = AbstractRunner.ExecutionStatusEnum.BPMNERROR;
-        super.throwBpmnError(client, job, value);
+        setStatus(AbstractRunner.ExecutionStatusEnum.BPMNERROR);
+        try (JobTrace.Phase completePhase = JobTrace.current().phase(JobPhase.COMPLETE)) {
+            super.throwBpmnError(client, job, value);
+        }
     }
 
     protected void logError(ActivatedJob job, Exception ex) {
-        logException = ex;
+        ConnectorExecution execution = currentExecution.get();
+        if (execution != null)
+            execution.logException = ex;
+        else
+            LOGGER.error("Connector error on job[{}]: {}", job.getKey(), ex.getMessage());
     }
 
-    public AbstractRunner.ExecutionStatusEnum getExecutionStatus() {
-        return executionStatus;
+    private void setStatus(AbstractRunner.ExecutionStatusEnum status) {
+        ConnectorExecution execution = currentExecution.get();
+        if (execution != null)
+            execution.executionStatus = status;
     }
 
-    public Exception getLogException() {
-        return logException;
+    /**
+     * Result of one execution
+     */
+    public static class ConnectorExecution {
+        private AbstractRunner.ExecutionStatusEnum executionStatus;
+        private Exception logException;
+
+        public AbstractRunner.ExecutionStatusEnum getExecutionStatus() {
+            return executionStatus;
+        }
+
+        public Exception getLogException() {
+            return logException;
+        }
     }
 }
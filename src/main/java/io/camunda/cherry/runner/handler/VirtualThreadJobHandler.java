@@ -0,0 +1,86 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  VirtualThreadJobHandler                                             */
+/*                                                                      */
+/*  Run the handler of a runner on a virtual thread. The client thread */
+/*  never waits: when the runner has no free slot, the job is failed   */
+/*  with a retry backoff and the same retries, so the broker gives it  */
+/*  again later, before its timeout can expire in a queue.             */
+/*  The job stays in the jobs in progress of its JobWorker until the   */
+/*  virtual thread ends it.                                            */
+/* ******************************************************************** */
+package io.camunda.cherry.runner.handler;
+
+import io.camunda.cherry.definition.JobInFlight;
+import io.camunda.cherry.runner.VirtualThreadExecution;
+import io.camunda.client.api.response.ActivatedJob;
+import io.camunda.client.api.worker.JobClient;
+import io.camunda.client.api.worker.JobHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+public class VirtualThreadJobHandler implements JobHandler {
+
+    private final JobHandler jobHandler;
+    private final ExecutorService virtualExecutor;
+    private final VirtualThreadExecution.RunnerSlot runnerSlot;
+    private final Duration saturationBackoff;
+    Logger logger = LoggerFactory.getLogger(VirtualThreadJobHandler.class.getName());
+
+    public VirtualThreadJobHandler(JobHandler jobHandler,
+                                   ExecutorService virtualExecutor,
+                                   VirtualThreadExecution.RunnerSlot runnerSlot,
+                                   long saturationBackoffMs) {
+        this.jobHandler = jobHandler;
+        this.virtualExecutor = virtualExecutor;
+        this.runnerSlot = runnerSlot;
+        this.saturationBackoff = Duration.ofMillis(Math.max(0, saturationBackoffMs));
+    }
+
+    @Override
+    public void handle(JobClient client, ActivatedJob job) throws Exception {
+        if (!runnerSlot.tryAcquire()) {
+            // the retry is not consumed: the job is not executed
+            logger.debug("VirtualThreadJobHandler: runner[{}] saturated, job[{}] given back", job.getType(),
+                    job.getKey());
+            client.newFailCommand(job.getKey())
+                    .retries(job.getRetries())
+                    .retryBackoff(saturationBackoff)
+                    .errorMessage("Runner saturated, job given back to the broker")
+                    .send();
+            return;
+        }
+        JobInFlight jobInFlight = JobInFlight.handOff();
+        try {
+            virtualExecutor.execute(() -> {
+                if (jobInFlight != null)
+                    jobInFlight.rebind();
+                try {
+                    jobHandler.handle(client, job);
+                } catch (Exception e) {
+                    // on a platform thread, the client fails the job: do the same
+                    logger.error("VirtualThreadJobHandler: job[{}] type[{}] failed: {}", job.getKey(), job.getType(),
+                            e.getMessage());
+                    client.newFailCommand(job.getKey())
+                            .retries(Math.max(0, job.getRetries() - 1))
+                            .errorMessage(e.getMessage() == null ? e.getClass().getName() : e.getMessage())
+                            .send();
+                } finally {
+                    runnerSlot.release();
+                    if (jobInFlight != null)
+                        jobInFlight.unbind();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the runtime is stopping: the job never runs
+            runnerSlot.release();
+            if (jobInFlight != null)
+                jobInFlight.unbind();
+            throw e;
+        }
+    }
+}
@@ -4,8 +4,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.camunda.connector.feel.FeelEngineWrapper;
 import io.camunda.connector.runtime.annotation.OutboundConnectorObjectMapper;
 import io.camunda.connector.runtime.core.secret.SecretProviderAggregator;
-import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -25,11 +23,6 @@ public class CherryEngineWrapper {
         return new FeelEngineWrapper();
     }
 
-    @Bean
-    public MeterRegistry cherryMeterRegistry() {
-        return new SimpleMeterRegistry();
-    }
-
     @Bean
     public SecretProviderAggregator cherryProviderAggregator() {
         return new SecretProviderAggregator(List.of(secretProvider));
@@ -26,25 +26,32 @@ public class CherryMain {
     @Autowired
     JobRunnerFactory jobRunnerFactory;
 
+    @Autowired
+    StartupProfile startupProfile;
+
     @PostConstruct
     public void init() {
+        startupProfile.begin(jobRunnerFactory.getStartupParallelism());
+
         // first, check all internal runner
         logger.info("----- CherryMain.1 Load all embedded runners");
-        runnerFactory.init();
+        startupProfile.phase("loadRunners", runnerFactory::init);
 
         logger.info("----- CherryMain.2 purge non existing anymore runners");
-        runnerFactory.synchronize();
+        startupProfile.phase("synchronize", runnerFactory::synchronize);
 
         // at this point, the table is up-to-date, class loader is correct : let's start all runners
-        logger.info("----- CherryMain.3 Start all runners");
-        jobRunnerFactory.startAll();
-        logger.info("----- CherryMain.4 Up and running!");
+        logger.info("----- CherryMain.3 Start all runners (parallelism {})", jobRunnerFactory.getStartupParallelism());
+        startupProfile.phase("startRunners", jobRunnerFactory::startAll);
+        startupProfile.end();
+        logger.info("----- CherryMain.4 Up and running! in {} ms", startupProfile.toMap().get("totalMs"));
     }
 
     @PreDestroy
     public void end() {
-        logger.info("----- End is called");
+        logger.info("----- End is called: drain all runners");
 
+        // the JobWorkers are closed, then the jobs in progress are finished before the client is closed
         jobRunnerFactory.stopAll();
 
     }
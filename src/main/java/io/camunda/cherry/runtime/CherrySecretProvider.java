@@ -12,6 +12,8 @@ package io.camunda.cherry.runtime;
 
 import io.camunda.cherry.db.entity.KeyValueEntity;
 import io.camunda.cherry.secretenv.SecretEnvService;
+import io.camunda.cherry.tracing.JobPhase;
+import io.camunda.cherry.tracing.JobTrace;
 import io.camunda.connector.api.secret.SecretContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
@@ -28,11 +30,13 @@ public class CherrySecretProvider implements io.camunda.connector.api.secret.Sec
 
     @Override
     public String getSecret(String name, SecretContext context) {
-
-        Optional<KeyValueEntity> keyValue = secretEnvService.getKeyValue(KeyValueEntity.KeyValueType.SECRET, name);
-        if (keyValue.isPresent()) {
-            return keyValue.get().valueKey;
+        // the connector runtime resolves the secrets during the execution of the job
+        try (JobTrace.Phase secretPhase = JobTrace.current().phase(JobPhase.SECRETS)) {
+            Optional<KeyValueEntity> keyValue = secretEnvService.getKeyValue(KeyValueEntity.KeyValueType.SECRET, name);
+            if (keyValue.isPresent()) {
+                return keyValue.get().valueKey;
+            }
+            return null;
         }
-        return null;
     }
 }
@@ -0,0 +1,385 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  ErrorAggregator                                                     */
+/*                                                                      */
+/*  Group the errors of the runners by fingerprint (ChRunnererrorgroup) */
+/*  Each error updates in memory the group of its fingerprint (counter, */
+/*  first/last seen, a few job keys). A scheduler merges the pending   */
+/*  groups in the database, like the rollup statistics.                */
+/*  When the same error repeats, the execution record can be saved     */
+/*  without its explanation: the group keeps the message.              */
+/* ******************************************************************** */
+package io.camunda.cherry.runtime;
+
+import io.camunda.cherry.db.entity.RunnerErrorGroupEntity;
+import io.camunda.cherry.db.repository.RunnerErrorGroupRepository;
+import io.camunda.cherry.definition.AbstractRunner;
+import io.camunda.cherry.util.DateOperation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class ErrorAggregator {
+
+    /**
+     * Number of job keys kept per group
+     */
+    public static final int MAX_SAMPLE_JOB_KEYS = 5;
+
+    Logger logger = LoggerFactory.getLogger(ErrorAggregator.class.getName());
+
+    @Autowired
+    RunnerErrorGroupRepository runnerErrorGroupRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Value("${cherry.history.errors.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Per group and window, the first <n> executions are saved with their explanation. After, the execution
+     * is saved without it. 0 means always save the explanation
+     */
+    @Value("${cherry.history.errors.fullrecordsperwindow:0}")
+    private int fullRecordsPerWindow;
+
+    @Value("${cherry.history.errors.retentionindays:30}")
+    private int retentionInDays;
+
+    /**
+     * Groups not yet saved in the database
+     */
+    private final Map<GroupKey, PendingGroup> pendingGroups = new ConcurrentHashMap<>();
+
+    /**
+     * Executions saved with their explanation in the current window
+     */
+    private final Map<GroupKey, AtomicLong> fullRecords = new ConcurrentHashMap<>();
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void end() {
+        flush();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Record                                                  */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    /**
+     * Register an error. Called on the job thread: only memory operations
+     *
+     * @param runnerType    type of runner
+     * @param jobKey        key of the job, may be null
+     * @param status        FAIL or BPMNERROR
+     * @param errorCode     error code
+     * @param errorMessage  error message
+     * @param executionTime execution time, in UTC
+     * @return the occurrence: fingerprint, and if the explanation has to be saved with the execution
+     */
+    public Occurrence record(String runnerType,
+                             Long jobKey,
+                             AbstractRunner.ExecutionStatusEnum status,
+                             String errorCode,
+                             String errorMessage,
+                             LocalDateTime executionTime) {
+        String normalizedMessage = ErrorFingerprint.normalize(errorMessage);
+        String fingerprint = ErrorFingerprint.fingerprint(errorCode, normalizedMessage);
+        GroupKey groupKey = new GroupKey(runnerType, fingerprint);
+        // the group may be closed by the flush between the get and the add: then take the new one
+        while (!pendingGroups.computeIfAbsent(groupKey,
+                        k -> new PendingGroup(errorCode, normalizedMessage, errorMessage))
+                .add(status, jobKey, executionTime)) {
+            Thread.onSpinWait();
+        }
+        boolean storeExplanation = fullRecordsPerWindow <= 0
+                || fullRecords.computeIfAbsent(groupKey, k -> new AtomicLong()).incrementAndGet()
+                <= fullRecordsPerWindow;
+        return new Occurrence(fingerprint, storeExplanation);
+    }
+
+    /**
+     * A new window starts: the next errors are saved with their explanation again
+     */
+    @Scheduled(fixedDelayString = "${cherry.history.errors.fullrecordswindowms:3600000}")
+    public void resetWindow() {
+        fullRecords.clear();
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Read                                                    */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    /**
+     * Return the error groups of a runner seen from a date, including the values not yet saved in the database
+     *
+     * @param runnerType  type of runner
+     * @param dateFrom    date (UTC)
+     * @param maxGroups   maximum number of groups
+     * @return groups, the last seen first
+     */
+    public List<ErrorGroup> getErrorGroups(String runnerType, LocalDateTime dateFrom, int maxGroups) {
+        Map<String, ErrorGroup> mapGroups = new LinkedHashMap<>();
+        for (RunnerErrorGroupEntity entity : runnerErrorGroupRepository.selectByRunnerType(runnerType, dateFrom,
+                PageRequest.of(0, maxGroups))) {
+            mapGroups.put(entity.fingerprint, ErrorGroup.fromEntity(entity));
+        }
+        for (Map.Entry<GroupKey, PendingGroup> entry : pendingGroups.entrySet()) {
+            if (!entry.getKey().runnerType.equals(runnerType))
+                continue;
+            ErrorGroup pending = entry.getValue().snapshot(entry.getKey().fingerprint);
+            if (pending.lastSeen == null || pending.lastSeen.isBefore(dateFrom))
+                continue;
+            mapGroups.merge(pending.fingerprint, pending, ErrorGroup::merge);
+        }
+        return mapGroups.values()
+                .stream()
+                .sorted(Comparator.comparing((ErrorGroup g) -> g.lastSeen).reversed())
+                .limit(maxGroups)
+                .toList();
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Flush                                                   */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    /**
+     * Merge pending groups in the database.
+     */
+    @Scheduled(fixedDelayString = "${cherry.history.errors.flushintervalms:30000}")
+    public void flush() {
+        for (GroupKey groupKey : new ArrayList<>(pendingGroups.keySet())) {
+            PendingGroup pendingGroup = pendingGroups.remove(groupKey);
+            if (pendingGroup == null)
+                continue;
+            ErrorGroup delta = pendingGroup.close(groupKey.fingerprint);
+            try {
+                transactionTemplate.executeWithoutResult(status -> saveDelta(groupKey, delta));
+            } catch (Exception e) {
+                logger.error("ErrorAggregator: can't save group runner[{}] fingerprint[{}]: {}", groupKey.runnerType,
+                        groupKey.fingerprint, e.getMessage());
+                // keep it for the next flush
+                pendingGroups.computeIfAbsent(groupKey,
+                        k -> new PendingGroup(delta.errorCode, delta.normalizedMessage, delta.sampleMessage))
+                        .addValue(delta);
+            }
+        }
+    }
+
+    private void saveDelta(GroupKey groupKey, ErrorGroup delta) {
+        RunnerErrorGroupEntity entity = runnerErrorGroupRepository.selectGroupForUpdate(groupKey.runnerType,
+                groupKey.fingerprint);
+        if (entity == null) {
+            entity = new RunnerErrorGroupEntity();
+            entity.runnerType = groupKey.runnerType;
+            entity.fingerprint = groupKey.fingerprint;
+            entity.errorCode = truncate(delta.errorCode, 100);
+            entity.normalizedMessage = truncate(delta.normalizedMessage, 500);
+            entity.sampleMessage = truncate(delta.sampleMessage, 500);
+            entity.firstSeen = delta.firstSeen;
+        }
+        entity.occurrences += delta.occurrences;
+        if (entity.firstSeen == null || (delta.firstSeen != null && delta.firstSeen.isBefore(entity.firstSeen)))
+            entity.firstSeen = delta.firstSeen;
+        if (entity.lastSeen == null || (delta.lastSeen != null && delta.lastSeen.isAfter(entity.lastSeen))) {
+            entity.lastSeen = delta.lastSeen;
+            entity.status = delta.status;
+        }
+        entity.sampleJobKeys = mergeJobKeys(entity.sampleJobKeys, delta.sampleJobKeys);
+        runnerErrorGroupRepository.save(entity);
+    }
+
+    /**
+     * Remove the groups not seen for a while
+     */
+    @Scheduled(fixedDelayString = "${cherry.history.errors.purgeintervalms:3600000}", initialDelay = 90000)
+    public void purge() {
+        try {
+            int nbDeleted = runnerErrorGroupRepository.deleteBefore(
+                    DateOperation.getLocalDateTimeNow().minusDays(retentionInDays));
+            logger.debug("ErrorAggregator: purge {} groups", nbDeleted);
+        } catch (Exception e) {
+            logger.error("ErrorAggregator: purge failed {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Remove the groups of a runner (the runner is removed)
+     *
+     * @param runnerType type of runner
+     */
+    public void deleteFromEntityType(String runnerType) {
+        pendingGroups.keySet().removeIf(groupKey -> groupKey.runnerType.equals(runnerType));
+        fullRecords.keySet().removeIf(groupKey -> groupKey.runnerType.equals(runnerType));
+        runnerErrorGroupRepository.deleteFromEntityType(runnerType);
+    }
+
+    /**
+     * The most recent keys are kept
+     */
+    static String mergeJobKeys(String savedJobKeys, List<Long> newJobKeys) {
+        LinkedList<String> listKeys = new LinkedList<>();
+        if (savedJobKeys != null && !savedJobKeys.isEmpty())
+            listKeys.addAll(Arrays.asList(savedJobKeys.split(",")));
+        for (Long jobKey : newJobKeys) {
+            listKeys.remove(String.valueOf(jobKey));
+            listKeys.add(String.valueOf(jobKey));
+        }
+        while (listKeys.size() > MAX_SAMPLE_JOB_KEYS)
+            listKeys.removeFirst();
+        return String.join(",", listKeys);
+    }
+
+    private static String truncate(String value, int length) {
+        return value == null || value.length() <= length ? value : value.substring(0, length);
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Class definitions                                       */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    /**
+     * @param fingerprint      group of the error
+     * @param storeExplanation false if the execution can be saved without its explanation
+     */
+    public record Occurrence(String fingerprint, boolean storeExplanation) {
+    }
+
+    private record GroupKey(String runnerType, String fingerprint) {
+    }
+
+    /**
+     * In memory group. Synchronized: the flush must see a consistent value
+     */
+    private static class PendingGroup {
+        private final ErrorGroup value = new ErrorGroup();
+        private boolean closed = false;
+
+        PendingGroup(String errorCode, String normalizedMessage, String sampleMessage) {
+            value.errorCode = errorCode;
+            value.normalizedMessage = normalizedMessage;
+            value.sampleMessage = sampleMessage;
+        }
+
+        synchronized boolean add(AbstractRunner.ExecutionStatusEnum status, Long jobKey, LocalDateTime executionTime) {
+            if (closed)
+                return false;
+            value.occurrences++;
+            value.status = status;
+            if (value.firstSeen == null || executionTime.isBefore(value.firstSeen))
+                value.firstSeen = executionTime;
+            if (value.lastSeen == null || executionTime.isAfter(value.lastSeen))
+                value.lastSeen = executionTime;
+            if (jobKey != null) {
+                value.sampleJobKeys.add(jobKey);
+                if (value.sampleJobKeys.size() > MAX_SAMPLE_JOB_KEYS)
+                    value.sampleJobKeys.remove(0);
+            }
+            return true;
+        }
+
+        synchronized void addValue(ErrorGroup delta) {
+            value.merge(delta);
+        }
+
+        synchronized ErrorGroup snapshot(String fingerprint) {
+            ErrorGroup snapshot = new ErrorGroup();
+            snapshot.fingerprint = fingerprint;
+            snapshot.errorCode = value.errorCode;
+            snapshot.normalizedMessage = value.normalizedMessage;
+            snapshot.sampleMessage = value.sampleMessage;
+            snapshot.merge(value);
+            return snapshot;
+        }
+
+        synchronized ErrorGroup close(String fingerprint) {
+            closed = true;
+            value.fingerprint = fingerprint;
+            return value;
+        }
+    }
+
+    public static class ErrorGroup {
+        public String fingerprint;
+        public String errorCode;
+        public AbstractRunner.ExecutionStatusEnum status;
+        public String normalizedMessage;
+        public String sampleMessage;
+        public long occurrences;
+        public LocalDateTime firstSeen;
+        public LocalDateTime lastSeen;
+        public List<Long> sampleJobKeys = new ArrayList<>();
+
+        public static ErrorGroup fromEntity(RunnerErrorGroupEntity entity) {
+            ErrorGroup errorGroup = new ErrorGroup();
+            errorGroup.fingerprint = entity.fingerprint;
+            errorGroup.errorCode = entity.errorCode;
+            errorGroup.status = entity.status;
+            errorGroup.normalizedMessage = entity.normalizedMessage;
+            errorGroup.sampleMessage = entity.sampleMessage;
+            errorGroup.occurrences = entity.occurrences;
+            errorGroup.firstSeen = entity.firstSeen;
+            errorGroup.lastSeen = entity.lastSeen;
+            if (entity.sampleJobKeys != null && !entity.sampleJobKeys.isEmpty())
+                errorGroup.sampleJobKeys = new ArrayList<>(
+                        Arrays.stream(entity.sampleJobKeys.split(",")).map(Long::valueOf).toList());
+            return errorGroup;
+        }
+
+        public ErrorGroup merge(ErrorGroup other) {
+            occurrences += other.occurrences;
+            if (firstSeen == null || (other.firstSeen != null && other.firstSeen.isBefore(firstSeen)))
+                firstSeen = other.firstSeen;
+            if (lastSeen == null || (other.lastSeen != null && other.lastSeen.isAfter(lastSeen))) {
+                lastSeen = other.lastSeen;
+                status = other.status;
+            }
+            for (Long jobKey : other.sampleJobKeys) {
+                sampleJobKeys.remove(jobKey);
+                sampleJobKeys.add(jobKey);
+            }
+            while (sampleJobKeys.size() > MAX_SAMPLE_JOB_KEYS)
+                sampleJobKeys.remove(0);
+            return this;
+        }
+    }
+}
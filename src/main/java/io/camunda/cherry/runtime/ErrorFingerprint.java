@@ -0,0 +1,67 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  ErrorFingerprint                                                    */
+/*                                                                      */
+/*  Identify the errors which are the same: the message is normalized  */
+/*  (identifiers, numbers, timestamps are replaced by a placeholder)   */
+/*  and hashed with the error code.                                     */
+/*  "Connection refused to 10.0.0.12:8080 (job 2251799813685249)"      */
+/*  and the same error on another job give the same fingerprint.       */
+/* ******************************************************************** */
+package io.camunda.cherry.runtime;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+public class ErrorFingerprint {
+
+    public static final int MAX_MESSAGE_LENGTH = 500;
+
+    private static final Pattern UUID_PATTERN = Pattern.compile(
+            "\\b[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\b");
+    private static final Pattern TIMESTAMP_PATTERN = Pattern.compile(
+            "\\d{4}-\\d{2}-\\d{2}([T ]\\d{2}:\\d{2}(:\\d{2}([.,]\\d+)?)?(Z|[+-]\\d{2}:?\\d{2})?)?");
+    private static final Pattern HEX_PATTERN = Pattern.compile("\\b0x[0-9a-fA-F]+\\b|\\b(?=[0-9a-fA-F]*\\d)[0-9a-fA-F]{8,}\\b");
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("\\d+");
+    private static final Pattern SPACES_PATTERN = Pattern.compile("\\s+");
+
+    private ErrorFingerprint() {
+    }
+
+    /**
+     * @param message error message
+     * @return the message without the values which change on each occurrence
+     */
+    public static String normalize(String message) {
+        if (message == null)
+            return "";
+        String normalized = UUID_PATTERN.matcher(message).replaceAll("<uuid>");
+        normalized = TIMESTAMP_PATTERN.matcher(normalized).replaceAll("<ts>");
+        normalized = HEX_PATTERN.matcher(normalized).replaceAll("<hex>");
+        normalized = NUMBER_PATTERN.matcher(normalized).replaceAll("<n>");
+        normalized = SPACES_PATTERN.matcher(normalized).replaceAll(" ").trim();
+        return normalized.length() > MAX_MESSAGE_LENGTH ? normalized.substring(0, MAX_MESSAGE_LENGTH) : normalized;
+    }
+
+    /**
+     * @param errorCode         error code, may be null
+     * @param normalizedMessage normalized message
+     * @return the fingerprint, 32 hexadecimal characters
+     */
+    public static String fingerprint(String errorCode, String normalizedMessage) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((errorCode == null ? "" : errorCode).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(normalizedMessage.getBytes(StandardCharsets.UTF_8));
+            byte[] hash = digest.digest();
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is mandatory in every JVM
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  HistoryExport                                                       */
+/*                                                                      */
+/*  Export the executions and the operations, in NDJSON or CSV.        */
+/*  The records are read through a database cursor (JPA Stream, fetch  */
+/*  size) and written one by one to the output, then detached: the     */
+/*  memory does not depend on the number of records exported.          */
+/* ******************************************************************** */
+package io.camunda.cherry.runtime;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.camunda.cherry.db.entity.OperationEntity;
+import io.camunda.cherry.db.entity.RunnerExecutionEntity;
+import io.camunda.cherry.db.repository.OperationRepository;
+import io.camunda.cherry.db.repository.RunnerExecutionRepository;
+import io.camunda.cherry.definition.AbstractRunner;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+@Service
+public class HistoryExport {
+
+    Logger logger = LoggerFactory.getLogger(HistoryExport.class.getName());
+
+    @Autowired
+    RunnerExecutionRepository runnerExecutionRepository;
+
+    @Autowired
+    OperationRepository operationRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // a database cursor needs a transaction (Postgres), read only
+        transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Export the executions of a runner
+     *
+     * @param runnerType    type of runner
+     * @param dateThreshold date from
+     * @param listStates    status to export
+     * @param format        format of the export
+     * @param outputStream  output, not closed
+     * @return number of records exported
+     */
+    public long exportExecutions(String runnerType,
+                                 LocalDateTime dateThreshold,
+                                 List<AbstractRunner.ExecutionStatusEnum> listStates,
+                                 ExportFormat format,
+                                 OutputStream outputStream) {
+        return transactionTemplate.execute(status -> {
+            try (Stream<RunnerExecutionEntity> stream = runnerExecutionRepository.streamRunnerRecords(runnerType,
+                    dateThreshold, listStates)) {
+                return export(stream.map(this::toMap), format, outputStream);
+            }
+        });
+    }
+
+    /**
+     * Export the operations of all runners
+     *
+     * @param dateThreshold date from
+     * @param format        format of the export
+     * @param outputStream  output, not closed
+     * @return number of records exported
+     */
+    public long exportOperations(LocalDateTime dateThreshold, ExportFormat format, OutputStream outputStream) {
+        return transactionTemplate.execute(status -> {
+            try (Stream<OperationEntity> stream = operationRepository.streamAll(dateThreshold)) {
+                return export(stream.map(this::toMap), format, outputStream);
+            }
+        });
+    }
+
+    private long export(Stream<Map<String, Object>> stream, ExportFormat format, OutputStream outputStream) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        long[] nbRecords = {0};
+        try {
+            stream.forEach(record -> {
+                try {
+                    if (format == ExportFormat.CSV && nbRecords[0] == 0)
+                        writer.write(String.join(",", record.keySet()) + "\n");
+                    writer.write(format == ExportFormat.CSV ?
+                            toCsvLine(record) :
+                            objectMapper.writeValueAsString(record) + "\n");
+                } catch (IOException e) {
+                    // the client is gone
+                    throw new UncheckedIOException(e);
+                }
+                nbRecords[0]++;
+            });
+            writer.flush();
+        } catch (IOException | UncheckedIOException e) {
+            logger.info("HistoryExport: export stopped after {} records: {}", nbRecords[0], e.getMessage());
+        }
+        return nbRecords[0];
+    }
+
+    /**
+     * Build the record, and detach the entity: the persistence context does not grow with the export
+     */
+    private Map<String, Object> toMap(RunnerExecutionEntity execution) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("id", execution.getId());
+        record.put("executionTime", execution.executionTime == null ? null : execution.executionTime.toString());
+        record.put("runnerType", execution.runnerType);
+        record.put("typeExecutor", execution.typeExecutor);
+        record.put("status", execution.status);
+        record.put("executionMs", execution.executionMs);
+        record.put("errorCode", execution.errorCode);
+        record.put("errorExplanation", execution.errorExplanation);
+        record.put("errorFingerprint", execution.errorFingerprint);
+        record.put("queueWaitNs", execution.queueWaitNs);
+        record.put("inputNs", execution.inputNs);
+        record.put("executeNs", execution.executeNs);
+        record.put("completeNs", execution.completeNs);
+        record.put("historyNs", execution.historyNs);
+        entityManager.detach(execution);
+        return record;
+    }
+
+    private Map<String, Object> toMap(OperationEntity operation) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("id", operation.getId());
+        record.put("executionTime", operation.executionTime == null ? null : operation.executionTime.toString());
+        record.put("runnerType", operation.runnerType);
+        record.put("hostname", operation.hostName);
+        record.put("operation", operation.operation);
+        record.put("message", operation.message);
+        entityManager.detach(operation);
+        return record;
+    }
+
+    private static String toCsvLine(Map<String, Object> record) {
+        return String.join(",",
+                record.values().stream().map(value -> toCsvValue(value == null ? "" : value.toString())).toList())
+                + "\n";
+    }
+
+    static String toCsvValue(String value) {
+        if (value.chars().noneMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r'))
+            return value;
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    public enum ExportFormat {
+        NDJSON("application/x-ndjson", "ndjson"), CSV("text/csv", "csv");
+
+        public final String contentType;
+        public final String extension;
+
+        ExportFormat(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        /**
+         * @param format format asked by the client
+         * @return the format, null if it is unknown
+         */
+        public static ExportFormat fromString(String format) {
+            if (format == null)
+                return NDJSON;
+            return Arrays.stream(values()).filter(f -> f.extension.equalsIgnoreCase(format)).findFirst().orElse(null);
+        }
+    }
+}
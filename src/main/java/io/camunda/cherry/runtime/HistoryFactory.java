@@ -9,6 +9,10 @@ package io.camunda.cherry.runtime;
 import io.camunda.cherry.db.entity.RunnerExecutionEntity;
 import io.camunda.cherry.db.repository.RunnerExecutionRepository;
 import io.camunda.cherry.definition.AbstractRunner;
+import io.camunda.cherry.tracing.ExecutionTiming;
+import io.camunda.cherry.tracing.JobPhase;
+import io.camunda.cherry.util.DateOperation;
+import io.camunda.cherry.util.KeysetCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +24,7 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static io.camunda.cherry.definition.AbstractRunner.ExecutionStatusEnum;
 
@@ -34,8 +39,26 @@ public class HistoryFactory {
     @Autowired
     HistoryPerformance historyPerformance;
 
+    @Autowired
+    HistoryWriteBehind historyWriteBehind;
+
+    @Autowired
+    HistoryStatisticAggregator historyStatisticAggregator;
+
+    @Autowired
+    ErrorAggregator errorAggregator;
+
     /**
-     * get main statistics for the runner type in the last <delayStatInHour> period
+     * Components following the executions on the fly (adaptive concurrency...)
+     */
+    private final List<ExecutionListener> executionListeners = new CopyOnWriteArrayList<>();
+
+    public void addExecutionListener(ExecutionListener executionListener) {
+        executionListeners.add(executionListener);
+    }
+
+    /**
+     * get main statistics for the runner type in the last <delayStatInHour> period. Values come from the rollups.
      *
      * @param runnerType      type of runner
      * @param dateNow         dateNow to get a correct synchronization
@@ -48,31 +71,14 @@ public class HistoryFactory {
         Statistic statistic = new Statistic();
 
         HistoryPerformance.IntervalRule intervalRule = historyPerformance.getIntervalRuleByPeriod(periodStatistic);
-        LocalDateTime dateThreshold = LocalDateTime.now();
+        LocalDateTime dateThreshold = dateNow == null ? DateOperation.getLocalDateTimeNow() : dateNow;
         dateThreshold = dateThreshold.minusMinutes((long) intervalRule.intervalInMinutes * intervalRule.numberOfIntervals);
 
-        List<Map<String, Object>> listStats = runnerExecutionRepository.selectStatusStats(runnerType, dateThreshold);
-        for (Map<String, Object> recordStats : listStats) {
-            Long recordNumber = Long.valueOf(recordStats.get("number").toString());
-            try {
-                ExecutionStatusEnum status = ExecutionStatusEnum.valueOf(recordStats.get("status").toString());
-                switch (status) {
-                    case SUCCESS:
-                        statistic.executionsSucceeded += recordNumber;
-                        break;
-                    case FAIL:
-                        statistic.executionsFailed += recordNumber;
-                        break;
-                    case BPMNERROR:
-                        statistic.executionsBpmnErrors += recordNumber;
-                        break;
-                    default:
-                        throw new IllegalStateException("Unexpected value: " + status);
-                }
-            } catch (Exception e) {
-                // should not arrived here
-                statistic.executionsFailed += recordNumber;
-            }
+        for (HistoryStatisticAggregator.RollupValue rollup : historyStatisticAggregator.getRollups(runnerType,
+                intervalRule.getGranularity(), dateThreshold)) {
+            statistic.executionsSucceeded += rollup.executionsSucceeded;
+            statistic.executionsFailed += rollup.executionsFailed;
+            statistic.executionsBpmnErrors += rollup.executionsBpmnErrors;
         }
         statistic.executions = statistic.executionsSucceeded + statistic.executionsFailed + statistic.executionsBpmnErrors;
         return statistic;
@@ -84,6 +90,76 @@ public class HistoryFactory {
         return historyPerformance.getPerformance(runnerType, dateNow, periodStatistic);
     }
 
+    /**
+     * Performance of all runners, for the dashboard: one query, whatever the number of runners
+     *
+     * @param dateNow         dateNow to get a correct synchronization
+     * @param periodStatistic Period of statistic
+     * @return key is the runnerType. A runner without execution on the period is not in the map
+     */
+    public Map<String, HistoryPerformance.Performance> getPerformanceAllRunners(LocalDateTime dateNow,
+                                                                               HistoryPerformance.PeriodStatistic periodStatistic) {
+        return historyPerformance.getPerformanceAllRunners(dateNow, periodStatistic);
+    }
+
+    public HistoryPerformance.Performance getEmptyPerformance(LocalDateTime dateNow,
+                                                              HistoryPerformance.PeriodStatistic periodStatistic) {
+        return historyPerformance.getEmptyPerformance(dateNow, periodStatistic);
+    }
+
+    /**
+     * The statistic is the sum of the intervals of the performance: same rollups, same period
+     *
+     * @param performance performance of the runner
+     * @return statistic object
+     */
+    public Statistic getStatistic(HistoryPerformance.Performance performance) {
+        Statistic statistic = new Statistic();
+        for (HistoryPerformance.Interval interval : performance.listIntervals) {
+            statistic.executionsSucceeded += interval.executionsSucceeded;
+            statistic.executionsFailed += interval.executionsFailed;
+            statistic.executionsBpmnErrors += interval.executionsBpmnErrors;
+        }
+        statistic.executions = statistic.executionsSucceeded + statistic.executionsFailed + statistic.executionsBpmnErrors;
+        return statistic;
+    }
+
+    /**
+     * Average time per phase of the runner on the period, from the execution records
+     *
+     * @param runnerType      type of runner
+     * @param dateNow         dateNow to get a correct synchronization
+     * @param periodStatistic Period of statistic
+     * @return the time per phase
+     */
+    public PhaseTiming getPhaseTiming(String runnerType,
+                                      LocalDateTime dateNow,
+                                      HistoryPerformance.PeriodStatistic periodStatistic) {
+        HistoryPerformance.IntervalRule intervalRule = historyPerformance.getIntervalRuleByPeriod(periodStatistic);
+        LocalDateTime dateThreshold = dateNow == null ? DateOperation.getLocalDateTimeNow() : dateNow;
+        dateThreshold = dateThreshold.minusMinutes((long) intervalRule.intervalInMinutes * intervalRule.numberOfIntervals);
+
+        PhaseTiming phaseTiming = new PhaseTiming();
+        try {
+            Map<String, Object> record = runnerExecutionRepository.selectPhaseTiming(runnerType, dateThreshold);
+            if (record == null)
+                return phaseTiming;
+            phaseTiming.executions = record.get("executions") instanceof Number n ? n.longValue() : 0;
+            phaseTiming.queueWaitNs = getAverage(record, "queueWaitNs");
+            phaseTiming.inputNs = getAverage(record, "inputNs");
+            phaseTiming.executeNs = getAverage(record, "executeNs");
+            phaseTiming.completeNs = getAverage(record, "completeNs");
+            phaseTiming.historyNs = getAverage(record, "historyNs");
+        } catch (Exception e) {
+            logger.error("HistoryFactory.getPhaseTiming: error {}", e.getMessage());
+        }
+        return phaseTiming;
+    }
+
+    private static Long getAverage(Map<String, Object> record, String name) {
+        return record.get(name) instanceof Number n ? Math.round(n.doubleValue()) : null;
+    }
+
     /* -------------------------------------------------------- */
     /*                                                          */
     /*  get information                                          */
@@ -99,6 +175,26 @@ public class HistoryFactory {
                 PageRequest.of(pageNumberInt, rowsPerPageInt));
     }
 
+    /**
+     * Keyset pagination: the cost of a page does not depend on its depth
+     *
+     * @param runnerType     runner type
+     * @param dateThreshold  date from
+     * @param cursor         position, null for the first page
+     * @param rowsPerPageInt number of rows per page
+     * @return list of executions
+     */
+    public List<RunnerExecutionEntity> getExecutions(String runnerType,
+                                                     LocalDateTime dateThreshold,
+                                                     KeysetCursor cursor,
+                                                     int rowsPerPageInt) {
+        if (cursor == null)
+            return runnerExecutionRepository.selectRunnerRecords(runnerType, dateThreshold,
+                    PageRequest.of(0, rowsPerPageInt));
+        return runnerExecutionRepository.selectRunnerRecordsAfter(runnerType, dateThreshold, cursor.executionTime(),
+                cursor.id(), PageRequest.of(0, rowsPerPageInt));
+    }
+
     /**
      * Get only error (BPMNERROR or FAIL)
      *
@@ -121,6 +217,51 @@ public class HistoryFactory {
                 PageRequest.of(pageNumberInt, rowsPerPageInt));
     }
 
+    /**
+     * Errors (BPMNERROR or FAIL), keyset pagination
+     *
+     * @param runnerType     runner type
+     * @param dateThreshold  date from
+     * @param cursor         position, null for the first page
+     * @param rowsPerPageInt number of rows per page
+     * @return list of Errors
+     */
+    public List<RunnerExecutionEntity> getExecutionsErrors(String runnerType,
+                                                           LocalDateTime dateThreshold,
+                                                           KeysetCursor cursor,
+                                                           int rowsPerPageInt) {
+        List<ExecutionStatusEnum> listStates = List.of(ExecutionStatusEnum.FAIL, ExecutionStatusEnum.BPMNERROR);
+        if (cursor == null)
+            return runnerExecutionRepository.selectRunnerRecordsByStates(runnerType, dateThreshold, listStates,
+                    PageRequest.of(0, rowsPerPageInt));
+        return runnerExecutionRepository.selectRunnerRecordsByStatesAfter(runnerType, dateThreshold, listStates,
+                cursor.executionTime(), cursor.id(), PageRequest.of(0, rowsPerPageInt));
+    }
+
+    /**
+     * Errors grouped by fingerprint: one line per kind of error, with its number of occurrences
+     *
+     * @param runnerType    runner type
+     * @param dateThreshold groups seen from this date
+     * @param maxGroups     maximum number of groups
+     * @return groups, the last seen first
+     */
+    public List<ErrorAggregator.ErrorGroup> getErrorGroups(String runnerType, LocalDateTime dateThreshold, int maxGroups) {
+        return errorAggregator.getErrorGroups(runnerType, dateThreshold, maxGroups);
+    }
+
+    /**
+     * @param executions  page of executions
+     * @param rowsPerPage number of executions asked
+     * @return the cursor of the next page, null if this page is the last one
+     */
+    public static String getNextCursor(List<RunnerExecutionEntity> executions, int rowsPerPage) {
+        if (executions.isEmpty())
+            return null;
+        RunnerExecutionEntity last = executions.get(executions.size() - 1);
+        return KeysetCursor.next(last.executionTime, last.getId(), executions.size(), rowsPerPage);
+    }
+
     /* -------------------------------------------------------- */
     /*                                                          */
     /*  Save                                          */
@@ -128,7 +269,8 @@ public class HistoryFactory {
     /* -------------------------------------------------------- */
 
     /**
-     * save the execution statistics
+     * save the execution statistics. The record is written asynchronously by the HistoryWriteBehind, so the
+     * job thread does not wait for the database.
      *
      * @param executionTime instant of the execution
      * @param typeExecutor  type of executor
@@ -144,6 +286,34 @@ public class HistoryFactory {
                               String errorCode,
                               String errorMessage,
                               long durationInMs) {
+        saveExecution(executionTime, typeExecutor, runnerType, null, null, status, errorCode, errorMessage,
+                durationInMs, null);
+    }
+
+    /**
+     * save the execution statistics, with the tenant of the job and the time per phase
+     *
+     * @param executionTime   instant of the execution
+     * @param typeExecutor    type of executor
+     * @param runnerType      name of runner
+     * @param tenantId        tenant of the job, may be null
+     * @param jobKey          key of the job, may be null
+     * @param status          status of execution
+     * @param errorMessage    if the execution get an error, provide it
+     * @param durationInMs    duration of this execution
+     * @param executionTiming time per phase, may be null. The history phase is the time spent in this method
+     */
+    public void saveExecution(Instant executionTime,
+                              RunnerExecutionEntity.TypeExecutor typeExecutor,
+                              String runnerType,
+                              String tenantId,
+                              Long jobKey,
+                              ExecutionStatusEnum status,
+                              String errorCode,
+                              String errorMessage,
+                              long durationInMs,
+                              ExecutionTiming executionTiming) {
+        long beginHistoryNs = System.nanoTime();
         try {
             RunnerExecutionEntity runnerExecutionEntity = new RunnerExecutionEntity();
             runnerExecutionEntity.typeExecutor = typeExecutor;
@@ -158,17 +328,68 @@ public class HistoryFactory {
                 runnerExecutionEntity.errorCode = errorCode;
                 runnerExecutionEntity.errorExplanation = errorMessage;
             }
+            if (errorAggregator.isEnabled() && (status == ExecutionStatusEnum.FAIL
+                    || status == ExecutionStatusEnum.BPMNERROR)) {
+                ErrorAggregator.Occurrence occurrence = errorAggregator.record(runnerType, jobKey, status, errorCode,
+                        errorMessage, runnerExecutionEntity.executionTime);
+                runnerExecutionEntity.errorFingerprint = occurrence.fingerprint();
+                // the same error again: the group keeps the message
+                if (!occurrence.storeExplanation())
+                    runnerExecutionEntity.errorExplanation = null;
+            }
 
-            runnerExecutionRepository.save(runnerExecutionEntity);
+            historyStatisticAggregator.record(runnerType, runnerExecutionEntity.executionTime, status, durationInMs);
+            if (executionTiming != null) {
+                runnerExecutionEntity.queueWaitNs = executionTiming.getQueueWaitNs();
+                runnerExecutionEntity.inputNs = executionTiming.getPhaseNs(JobPhase.INPUT);
+                runnerExecutionEntity.executeNs = executionTiming.getPhaseNs(JobPhase.EXECUTE);
+                runnerExecutionEntity.completeNs = executionTiming.getPhaseNs(JobPhase.COMPLETE);
+                // the record is queued: the time to write it in the database is not on the job thread
+                runnerExecutionEntity.historyNs = System.nanoTime() - beginHistoryNs;
+            }
+            historyWriteBehind.save(runnerExecutionEntity);
+            for (ExecutionListener executionListener : executionListeners) {
+                executionListener.onExecution(runnerType, tenantId, status, errorCode, durationInMs);
+            }
         } catch (Exception e) {
             logger.error("CherryHistoricFactory.saveExcution: failed " + e.getMessage() + " " + e.getCause());
         }
     }
 
+    /**
+     * Called on the job thread after each execution: must be fast, and never throw
+     */
+    public interface ExecutionListener {
+        void onExecution(String runnerType, ExecutionStatusEnum status, long durationInMs);
+
+        /**
+         * Execution with the tenant and the error code (null on success)
+         */
+        default void onExecution(String runnerType,
+                                 String tenantId,
+                                 ExecutionStatusEnum status,
+                                 String errorCode,
+                                 long durationInMs) {
+            onExecution(runnerType, status, durationInMs);
+        }
+    }
+
     public static class Statistic {
         public long executions;
         public long executionsFailed;
         public long executionsSucceeded;
         public long executionsBpmnErrors;
     }
+
+    /**
+     * Average time per phase, in nanoseconds. Null when the phase was not measured on the period
+     */
+    public static class PhaseTiming {
+        public long executions;
+        public Long queueWaitNs;
+        public Long inputNs;
+        public Long executeNs;
+        public Long completeNs;
+        public Long historyNs;
+    }
 }
@@ -6,17 +6,16 @@
 /* ******************************************************************** */
 package io.camunda.cherry.runtime;
 
-import io.camunda.cherry.db.entity.RunnerExecutionEntity;
-import io.camunda.cherry.db.repository.RunnerExecutionRepository;
+import io.camunda.cherry.db.entity.RunnerStatisticEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,7 +26,7 @@ public class HistoryPerformance {
     public static final String SLOT_FORMATTER = "%03dD%02d:%02d";
     public static final String HUMAN_DATE_FORMATER = "yyyy-MM-dd HH:mm";
     @Autowired
-    RunnerExecutionRepository runnerExecutionRepository;
+    HistoryStatisticAggregator historyStatisticAggregator;
 
     Logger logger = LoggerFactory.getLogger(HistoryPerformance.class.getName());
 
@@ -39,7 +38,8 @@ public class HistoryPerformance {
     }
 
     /**
-     * Get performance for a runnerType. Return a record per 15 minutes. Do not ask 1 year !
+     * Get performance for a runnerType. Return a record per interval. Values come from the rollups, so the cost
+     * depends on the number of intervals.
      *
      * @param runnerType      type of runner
      * @param dateNow         Reference time
@@ -47,11 +47,47 @@ public class HistoryPerformance {
      * @return performance object
      */
     public Performance getPerformance(String runnerType, LocalDateTime dateNow, PeriodStatistic periodStatistic) {
-        Performance performance = new Performance();
-        Map<String, Interval> mapInterval = new LinkedHashMap<>();
+        LocalDateTime dateThreshold = getInstantByPeriod(dateNow, periodStatistic);
+        IntervalRule intervalRule = getIntervalRuleByPeriod(periodStatistic);
+        List<HistoryStatisticAggregator.RollupValue> listRollups = historyStatisticAggregator.getRollups(runnerType,
+                intervalRule.getGranularity(), dateThreshold);
+        return getPerformanceFromRollups(listRollups, dateThreshold, intervalRule);
+    }
 
+    /**
+     * Get performance for all runners, with one query on the rollups
+     *
+     * @param dateNow         Reference time
+     * @param periodStatistic period of statistics
+     * @return key is the runnerType. A runner without execution on the period is not in the map
+     */
+    public Map<String, Performance> getPerformanceAllRunners(LocalDateTime dateNow, PeriodStatistic periodStatistic) {
         LocalDateTime dateThreshold = getInstantByPeriod(dateNow, periodStatistic);
         IntervalRule intervalRule = getIntervalRuleByPeriod(periodStatistic);
+        Map<String, Performance> mapPerformances = new HashMap<>();
+        historyStatisticAggregator.getRollupsAllRunners(intervalRule.getGranularity(), dateThreshold)
+                .forEach((runnerType, listRollups) -> mapPerformances.put(runnerType,
+                        getPerformanceFromRollups(listRollups, dateThreshold, intervalRule)));
+        return mapPerformances;
+    }
+
+    /**
+     * Performance without execution: all the intervals, empty
+     *
+     * @param dateNow         Reference time
+     * @param periodStatistic period of statistics
+     * @return performance object
+     */
+    public Performance getEmptyPerformance(LocalDateTime dateNow, PeriodStatistic periodStatistic) {
+        return getPerformanceFromRollups(List.of(), getInstantByPeriod(dateNow, periodStatistic),
+                getIntervalRuleByPeriod(periodStatistic));
+    }
+
+    private Performance getPerformanceFromRollups(List<HistoryStatisticAggregator.RollupValue> listRollups,
+                                                  LocalDateTime dateThreshold,
+                                                  IntervalRule intervalRule) {
+        Performance performance = new Performance();
+        Map<String, Interval> mapInterval = new LinkedHashMap<>();
 
         // --- populate all the map
         LocalDateTime indexTime = dateThreshold;
@@ -70,35 +106,34 @@ public class HistoryPerformance {
             indexTime = indexTime.plusMinutes(intervalRule.intervalInMinutes);
         }
 
-        // ---  now we can fetch and explode data
-        List<RunnerExecutionEntity> listExecutions = runnerExecutionRepository.selectRunnerRecords(runnerType,
-                dateThreshold, PageRequest.of(0, 10000));
-        for (RunnerExecutionEntity runnerExecutionEntity : listExecutions) {
-            LocalDateTime slotTime = runnerExecutionEntity.executionTime;
-            String slotString = intervalRule.getSlotFromDate(slotTime);
+        // ---  now we can place the rollups: one record per slot of the granularity, whatever the number of executions
+        for (HistoryStatisticAggregator.RollupValue rollup : listRollups) {
+            String slotString = intervalRule.getSlotFromDate(rollup.slotTime);
             Interval interval = mapInterval.get(slotString);
             if (interval == null) {
-                // this must not arrive
-                logger.error("Interval is not populated [" + slotString + "]");
+                // the first rollup may start before the threshold
+                logger.debug("Interval is not populated [" + slotString + "]");
                 continue;
             }
-            interval.executions++;
-            interval.sumOfExecutionTime += runnerExecutionEntity.executionMs;
-            switch (runnerExecutionEntity.status) {
-                case SUCCESS -> interval.executionsSucceeded++;
-                case FAIL -> interval.executionsFailed++;
-                case BPMNERROR -> interval.executionsBpmnErrors++;
-            }
-            if (runnerExecutionEntity.executionMs > interval.peakTimeInMs)
-                interval.peakTimeInMs = runnerExecutionEntity.executionMs;
+            interval.executions += rollup.executions;
+            interval.sumOfExecutionTime += rollup.sumExecutionMs;
+            interval.executionsSucceeded += rollup.executionsSucceeded;
+            interval.executionsFailed += rollup.executionsFailed;
+            interval.executionsBpmnErrors += rollup.executionsBpmnErrors;
+            if (rollup.peakExecutionMs > interval.peakTimeInMs)
+                interval.peakTimeInMs = rollup.peakExecutionMs;
+            interval.latencyHistogram.merge(rollup.latencyHistogram);
         }
 
         // build the list and calculate average
         long sumTotalExecutionTimeInMs = 0;
         long sumTotalExecutions = 0;
+        LatencyHistogram performanceHistogram = new LatencyHistogram();
         for (Interval interval : mapInterval.values()) {
             if (interval.executions > 0)
                 interval.averageTimeInMs = interval.sumOfExecutionTime / interval.executions;
+            interval.setPercentiles(interval.latencyHistogram, interval.peakTimeInMs);
+            performanceHistogram.merge(interval.latencyHistogram);
             performance.listIntervals.add(interval);
 
             sumTotalExecutionTimeInMs += interval.sumOfExecutionTime;
@@ -110,6 +145,8 @@ public class HistoryPerformance {
         // global values
         if (sumTotalExecutions > 0)
             performance.averageTimeInMs = sumTotalExecutionTimeInMs / sumTotalExecutions;
+        performance.executions = sumTotalExecutions;
+        performance.setPercentiles(performanceHistogram, performance.peakTimeInMs);
 
         return performance;
     }
@@ -173,14 +210,40 @@ public class HistoryPerformance {
         FOURHOUR, ONEDAY, ONEWEEK, ONEMONTH, ONEYEAR
     }
 
-    public static class Performance {
+    /**
+     * Percentiles of the execution time, from the merged histograms
+     */
+    public static class Percentiles {
+        public long p50TimeInMs = 0;
+        public long p90TimeInMs = 0;
+        public long p99TimeInMs = 0;
+        public long p999TimeInMs = 0;
+
+        /**
+         * @param histogram    histogram of the execution times
+         * @param peakTimeInMs the exact peak: a percentile is the highest value of a bucket, it can't be over the peak
+         */
+        void setPercentiles(LatencyHistogram histogram, long peakTimeInMs) {
+            p50TimeInMs = getPercentile(histogram, 50.0, peakTimeInMs);
+            p90TimeInMs = getPercentile(histogram, 90.0, peakTimeInMs);
+            p99TimeInMs = getPercentile(histogram, 99.0, peakTimeInMs);
+            p999TimeInMs = getPercentile(histogram, 99.9, peakTimeInMs);
+        }
+
+        private static long getPercentile(LatencyHistogram histogram, double percentile, long peakTimeInMs) {
+            long value = histogram.getValueAtPercentile(percentile);
+            return peakTimeInMs > 0 ? Math.min(value, peakTimeInMs) : value;
+        }
+    }
+
+    public static class Performance extends Percentiles {
         public long peakTimeInMs;
         public long executions;
         public long averageTimeInMs;
         public List<Interval> listIntervals = new ArrayList<>();
     }
 
-    public static class Interval {
+    public static class Interval extends Percentiles {
         /**
          * Name is something like 16:00 / 16:15
          */
@@ -194,6 +257,10 @@ public class HistoryPerformance {
         public long executionsBpmnErrors = 0;
         public long peakTimeInMs = 0;
         public long averageTimeInMs = 0;
+        /**
+         * Merge of the rollup histograms, not sent to the client: percentiles are
+         */
+        private final LatencyHistogram latencyHistogram = new LatencyHistogram();
 
         public Interval(String slot, LocalDateTime slotTime) {
             this.slot = slot;
@@ -207,6 +274,19 @@ public class HistoryPerformance {
         public int intervalInMinutes;
         PeriodStatistic periodStatistic;
 
+        /**
+         * The rollup granularity to read: the largest one which fit in an interval
+         *
+         * @return granularity
+         */
+        public RunnerStatisticEntity.Granularity getGranularity() {
+            if (intervalInMinutes % RunnerStatisticEntity.Granularity.DAY.minutes == 0)
+                return RunnerStatisticEntity.Granularity.DAY;
+            if (intervalInMinutes % RunnerStatisticEntity.Granularity.HOUR.minutes == 0)
+                return RunnerStatisticEntity.Granularity.HOUR;
+            return RunnerStatisticEntity.Granularity.TENMINUTES;
+        }
+
         public String getSlotFromDate(LocalDateTime dateTime) {
             LocalDateTime result = dateTime;
             result = result.minusNanos(result.getNano());
@@ -0,0 +1,386 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  HistoryRetention                                                    */
+/*                                                                      */
+/*  Remove old execution history and operations.                        */
+/*  - Retention per table, and per status for the executions           */
+/*  - Postgres, when ChRunnerexecution is partitioned by day (see      */
+/*    db/postgres/runnerexecution-partitioning.sql): partitions older  */
+/*    than the longest retention are dropped, next ones are created    */
+/*  - Otherwise (and for the shortest retentions): deletes by chunk,   */
+/*    each chunk in its own short transaction, with a pause between    */
+/*    chunks, so the insert path is never blocked long                 */
+/*  Disabled by default: enabling it deletes the history older than    */
+/*  the retention at the first run.                                    */
+/* ******************************************************************** */
+package io.camunda.cherry.runtime;
+
+import io.camunda.cherry.db.repository.OperationRepository;
+import io.camunda.cherry.db.repository.RunnerExecutionRepository;
+import io.camunda.cherry.definition.AbstractRunner;
+import io.camunda.cherry.util.DateOperation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+@Service
+public class HistoryRetention {
+
+    public static final String EXECUTION_TABLE = "chrunnerexecution";
+    public static final String PARTITION_PREFIX = EXECUTION_TABLE + "_p";
+    private static final DateTimeFormatter PARTITION_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    Logger logger = LoggerFactory.getLogger(HistoryRetention.class.getName());
+
+    @Autowired
+    RunnerExecutionRepository runnerExecutionRepository;
+
+    @Autowired
+    OperationRepository operationRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    /**
+     * Opt-in: on an existing installation, the first run deletes all the history older than the retention
+     */
+    @Value("${cherry.history.retention.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${cherry.history.retention.successindays:7}")
+    private int successInDays;
+
+    @Value("${cherry.history.retention.failindays:30}")
+    private int failInDays;
+
+    @Value("${cherry.history.retention.bpmnerrorindays:30}")
+    private int bpmnErrorInDays;
+
+    @Value("${cherry.history.retention.operationindays:90}")
+    private int operationInDays;
+
+    @Value("${cherry.history.retention.chunksize:2000}")
+    private int chunkSize;
+
+    @Value("${cherry.history.retention.pausebetweenchunksms:200}")
+    private long pauseBetweenChunksMs;
+
+    /**
+     * Limit the work of one run: the rest is deleted at the next run
+     */
+    @Value("${cherry.history.retention.maxrowsperrun:500000}")
+    private long maxRowsPerRun;
+
+    /**
+     * Postgres partitioned table: number of daily partitions created in advance
+     */
+    @Value("${cherry.history.retention.partitionsahead:3}")
+    private int partitionsAhead;
+
+    @Value("${cherry.history.retention.locktimeoutms:2000}")
+    private long lockTimeoutMs;
+
+    /**
+     * The retention runs on its own thread: the scheduler thread is shared with the rollup flush
+     */
+    private final ExecutorService retentionExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "cherry-retention");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile boolean stopRequested = false;
+
+    private final Map<String, AtomicLong> purgedRows = new HashMap<>();
+    private final AtomicLong droppedPartitions = new AtomicLong();
+    private volatile LocalDateTime lastRun = null;
+    private volatile long lastRunDurationMs = 0;
+    private volatile Boolean partitioned = null;
+
+    @PostConstruct
+    public void init() {
+        for (String key : List.of("execution.SUCCESS", "execution.FAIL", "execution.BPMNERROR", "operation")) {
+            purgedRows.put(key, new AtomicLong());
+        }
+    }
+
+    @PreDestroy
+    public void end() {
+        stopRequested = true;
+        retentionExecutor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${cherry.history.retention.intervalms:3600000}", initialDelay = 120000)
+    public void schedule() {
+        if (!enabled || !running.compareAndSet(false, true))
+            return;
+        retentionExecutor.submit(() -> {
+            try {
+                applyRetention();
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    /**
+     * Apply the retention now, on the current thread
+     */
+    public void applyRetention() {
+        long begin = System.currentTimeMillis();
+        LocalDateTime dateNow = DateOperation.getLocalDateTimeNow();
+        long budget = maxRowsPerRun;
+        try {
+            if (isPartitioned()) {
+                createPartitions(dateNow.toLocalDate());
+                int longestRetention = Math.max(successInDays, Math.max(failInDays, bpmnErrorInDays));
+                dropPartitionsBefore(dateNow.minusDays(longestRetention).toLocalDate());
+            }
+            for (AbstractRunner.ExecutionStatusEnum status : AbstractRunner.ExecutionStatusEnum.values()) {
+                LocalDateTime dateThreshold = dateNow.minusDays(getRetentionInDays(status));
+                budget -= deleteByChunk("execution." + status, budget,
+                        pageable -> runnerExecutionRepository.selectIdsBefore(status, dateThreshold, pageable),
+                        runnerExecutionRepository::deleteByIds);
+            }
+            LocalDateTime operationThreshold = dateNow.minusDays(operationInDays);
+            deleteByChunk("operation", budget,
+                    pageable -> operationRepository.selectIdsBefore(operationThreshold, pageable),
+                    operationRepository::deleteByIds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("HistoryRetention: interrupted");
+        } catch (Exception e) {
+            logger.error("HistoryRetention: failed {}", e.getMessage());
+        }
+        lastRun = dateNow;
+        lastRunDurationMs = System.currentTimeMillis() - begin;
+        logger.info("HistoryRetention: done in {} ms, purged {}", lastRunDurationMs, purgedRows);
+    }
+
+    public int getRetentionInDays(AbstractRunner.ExecutionStatusEnum status) {
+        return switch (status) {
+            case SUCCESS -> successInDays;
+            case FAIL -> failInDays;
+            case BPMNERROR -> bpmnErrorInDays;
+        };
+    }
+
+    /**
+     * Delete chunk by chunk: each select/delete is a short transaction
+     *
+     * @param key       key of the statistics
+     * @param budget    maximum number of rows to delete
+     * @param selectIds select the ids of the next chunk
+     * @param deleteIds delete a chunk, return the number of rows deleted
+     * @return number of rows deleted
+     */
+    long deleteByChunk(String key,
+                               long budget,
+                               Function<PageRequest, List<Long>> selectIds,
+                               ToIntFunction<List<Long>> deleteIds) throws InterruptedException {
+        long nbDeleted = 0;
+        while (nbDeleted < budget && !stopRequested) {
+            List<Long> listIds = selectIds.apply(PageRequest.of(0, (int) Math.min(chunkSize, budget - nbDeleted)));
+            if (listIds.isEmpty())
+                break;
+            int chunkDeleted = deleteIds.applyAsInt(listIds);
+            nbDeleted += chunkDeleted;
+            purgedRows.get(key).addAndGet(chunkDeleted);
+            if (meterRegistry != null)
+                Counter.builder("cherry.history.retention.purged")
+                        .description("Rows removed by the retention")
+                        .tag("table", key.startsWith("execution") ? "execution" : "operation")
+                        .tag("status", key.startsWith("execution") ? key.substring("execution.".length()) : "ALL")
+                        .register(meterRegistry)
+                        .increment(chunkDeleted);
+            if (listIds.size() < chunkSize)
+                break;
+            // let the insert path breathe
+            Thread.sleep(pauseBetweenChunksMs);
+        }
+        return nbDeleted;
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Postgres partitions                                     */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    /**
+     * @return true if the database is Postgres and the execution table is partitioned
+     */
+    public boolean isPartitioned() {
+        if (partitioned != null)
+            return partitioned;
+        try (Connection connection = dataSource.getConnection()) {
+            if (!"PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())) {
+                partitioned = Boolean.FALSE;
+                return partitioned;
+            }
+            Integer count = new JdbcTemplate(dataSource).queryForObject(
+                    "select count(*) from pg_partitioned_table pt join pg_class c on c.oid = pt.partrelid"
+                            + " where c.relname = ?", Integer.class, EXECUTION_TABLE);
+            partitioned = count != null && count > 0;
+        } catch (Exception e) {
+            logger.error("HistoryRetention: can't detect the partitioning {}", e.getMessage());
+            return false;
+        }
+        if (partitioned)
+            logger.info("HistoryRetention: table {} is partitioned, old partitions are dropped", EXECUTION_TABLE);
+        return partitioned;
+    }
+
+    private void createPartitions(LocalDate today) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (int day = 0; day <= partitionsAhead; day++) {
+            LocalDate partitionDay = today.plusDays(day);
+            jdbcTemplate.execute(
+                    "create table if not exists " + PARTITION_PREFIX + PARTITION_FORMATTER.format(partitionDay)
+                            + " partition of " + EXECUTION_TABLE + " for values from ('" + partitionDay + "') to ('"
+                            + partitionDay.plusDays(1) + "')");
+        }
+    }
+
+    /**
+     * Drop the daily partitions ending before the date. The partition is detached concurrently first (no ACCESS
+     * EXCLUSIVE lock on the execution table), with a lock timeout: if the table is held, the partition is dropped at
+     * the next run. A partition left detached, or with a detach pending, by a previous run is dropped too.
+     *
+     * @param dateThreshold partitions with all records before this date are dropped
+     */
+    private void dropPartitionsBefore(LocalDate dateThreshold) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        String selectPartitions = "select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid"
+                + " join pg_class p on p.oid = i.inhparent where p.relname = ? and i.inhdetachpending = ?";
+        List<String> listAttached = jdbcTemplate.queryForList(selectPartitions, String.class, EXECUTION_TABLE, false);
+        List<String> listDetachPending = jdbcTemplate.queryForList(selectPartitions, String.class, EXECUTION_TABLE,
+                true);
+        List<String> listDetached = jdbcTemplate.queryForList(
+                "select c.relname from pg_class c where c.relkind = 'r' and c.relname like ?"
+                        + " and pg_table_is_visible(c.oid)"
+                        + " and not exists (select 1 from pg_inherits i where i.inhrelid = c.oid)", String.class,
+                PARTITION_PREFIX + "%");
+
+        for (String partition : getPartitionsToDrop(listDetached, dateThreshold)) {
+            dropPartition(partition, null);
+        }
+        for (String partition : getPartitionsToDrop(listDetachPending, dateThreshold)) {
+            dropPartition(partition, "alter table " + EXECUTION_TABLE + " detach partition " + partition + " finalize");
+        }
+        for (String partition : getPartitionsToDrop(listAttached, dateThreshold)) {
+            dropPartition(partition,
+                    "alter table " + EXECUTION_TABLE + " detach partition " + partition + " concurrently");
+        }
+    }
+
+    /**
+     * Select the daily partitions ending before the date. Other partitions (default partition, partitions created
+     * by hand) are never dropped
+     *
+     * @param listPartitions partitions of the execution table
+     * @param dateThreshold  partitions with all records before this date are selected
+     * @return partitions to drop
+     */
+    static List<String> getPartitionsToDrop(List<String> listPartitions, LocalDate dateThreshold) {
+        List<String> partitionsToDrop = new ArrayList<>();
+        for (String partition : listPartitions) {
+            if (!partition.startsWith(PARTITION_PREFIX))
+                continue;
+            LocalDate partitionDay;
+            try {
+                partitionDay = LocalDate.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_FORMATTER);
+            } catch (Exception e) {
+                continue;
+            }
+            if (!partitionDay.plusDays(1).isAfter(dateThreshold))
+                partitionsToDrop.add(partition);
+        }
+        return partitionsToDrop;
+    }
+
+    /**
+     * Detach and drop a partition. A detach concurrently can't run in a transaction: if the drop fails after the
+     * detach, the table stays detached and is dropped at the next run
+     *
+     * @param partition       partition to drop
+     * @param detachStatement statement detaching the partition, null if it is already detached
+     */
+    private void dropPartition(String partition, String detachStatement) {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(true);
+            try (var statement = connection.createStatement()) {
+                statement.execute("set lock_timeout = " + lockTimeoutMs);
+                if (detachStatement != null)
+                    statement.execute(detachStatement);
+                statement.execute("drop table " + partition);
+            } finally {
+                // the connection goes back to the pool: the next borrower must not inherit the lock timeout
+                try (var statement = connection.createStatement()) {
+                    statement.execute("reset lock_timeout");
+                }
+                connection.setAutoCommit(autoCommit);
+            }
+            droppedPartitions.incrementAndGet();
+            if (meterRegistry != null)
+                Counter.builder("cherry.history.retention.partitions.dropped")
+                        .description("Partitions of the execution history dropped by the retention")
+                        .register(meterRegistry)
+                        .increment();
+            logger.info("HistoryRetention: partition {} dropped", partition);
+        } catch (Exception e) {
+            logger.error("HistoryRetention: can't drop partition {}, retry at next run: {}", partition,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Return statistics on the retention, for the administration page
+     *
+     * @return statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("running", running.get());
+        statistics.put("partitioned", partitioned);
+        statistics.put("lastRun", lastRun == null ? null : lastRun.toString());
+        statistics.put("lastRunDurationMs", lastRunDurationMs);
+        Map<String, Long> purged = new TreeMap<>();
+        purgedRows.forEach((key, value) -> purged.put(key, value.get()));
+        statistics.put("purgedRows", purged);
+        statistics.put("droppedPartitions", droppedPartitions.get());
+        Map<String, Integer> retention = new TreeMap<>();
+        for (AbstractRunner.ExecutionStatusEnum status : AbstractRunner.ExecutionStatusEnum.values())
+            retention.put("execution." + status, getRetentionInDays(status));
+        retention.put("operation", operationInDays);
+        statistics.put("retentionInDays", retention);
+        return statistics;
+    }
+}
@@ -0,0 +1,481 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  HistoryStatisticAggregator                                          */
+/*                                                                      */
+/*  Maintain the rollup statistics (ChRunnerstatistic) incrementally.  */
+/*  Each execution updates in memory the slot of each granularity      */
+/*  (10 minutes, hour, day). A scheduler merges the pending slots in   */
+/*  the database. Statistics are then read from the rollups: the cost  */
+/*  depends on the number of intervals, not on the number of execution */
+/* ******************************************************************** */
+package io.camunda.cherry.runtime;
+
+import io.camunda.cherry.db.entity.RunnerExecutionEntity;
+import io.camunda.cherry.db.entity.RunnerStatisticEntity;
+import io.camunda.cherry.db.repository.RunnerExecutionRepository;
+import io.camunda.cherry.db.repository.RunnerStatisticRepository;
+import io.camunda.cherry.definition.AbstractRunner;
+import io.camunda.cherry.util.DateOperation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class HistoryStatisticAggregator {
+
+    Logger logger = LoggerFactory.getLogger(HistoryStatisticAggregator.class.getName());
+
+    @Autowired
+    RunnerStatisticRepository runnerStatisticRepository;
+
+    @Autowired
+    RunnerExecutionRepository runnerExecutionRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Value("${cherry.history.rollup.retention.tenminutesindays:2}")
+    private int retentionTenMinutesInDays;
+
+    @Value("${cherry.history.rollup.retention.hourindays:35}")
+    private int retentionHourInDays;
+
+    @Value("${cherry.history.rollup.retention.dayindays:400}")
+    private int retentionDayInDays;
+
+    /**
+     * When the rollup table is empty, rebuild it from the existing history (limited to this number of days)
+     */
+    @Value("${cherry.history.rollup.backfillindays:31}")
+    private int backfillInDays;
+
+    /**
+     * A slot which can't be saved is kept for the next flush, up to this number of failed flushes. Then it is
+     * dropped: the statistics of this slot are lost, the execution history is still complete
+     */
+    @Value("${cherry.history.rollup.flushmaxretries:10}")
+    private int flushMaxRetries;
+
+    /**
+     * Slots not yet saved in the database
+     */
+    private final Map<SlotKey, Slot> pendingSlots = new ConcurrentHashMap<>();
+
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Slot of the backfill marker: before any real slot, so it is never read as a statistic
+     */
+    private static final LocalDateTime BACKFILL_MARKER_SLOT = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    /**
+     * Executions before this date are not aggregated by record(): the backfill takes them from the history
+     */
+    private LocalDateTime startTime;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        startTime = DateOperation.getLocalDateTimeNow();
+        if (backfillInDays > 0) {
+            Thread backfillThread = new Thread(this::backfill, "cherry-rollup-backfill");
+            backfillThread.setDaemon(true);
+            backfillThread.start();
+        }
+    }
+
+    @PreDestroy
+    public void end() {
+        flush();
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Record                                                  */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    /**
+     * Register an execution in all granularities. Called on the job thread: only memory operations
+     *
+     * @param runnerType    type of runner
+     * @param executionTime execution time, in UTC
+     * @param status        status of the execution
+     * @param durationInMs  duration
+     */
+    public void record(String runnerType,
+                       LocalDateTime executionTime,
+                       AbstractRunner.ExecutionStatusEnum status,
+                       long durationInMs) {
+        for (RunnerStatisticEntity.Granularity granularity : RunnerStatisticEntity.Granularity.values()) {
+            SlotKey slotKey = new SlotKey(runnerType, granularity, granularity.getSlotTime(executionTime));
+            // the slot may be closed by the flush between the get and the add: then take the new one
+            while (!pendingSlots.computeIfAbsent(slotKey, k -> new Slot()).add(status, durationInMs)) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Read                                                    */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    /**
+     * Return the rollups of a runner from a date, including the values not yet saved in the database
+     *
+     * @param runnerType   type of runner
+     * @param granularity  granularity
+     * @param dateFrom     date (UTC) from: the slot containing this date is included
+     * @return list of rollups, ordered by slot time
+     */
+    public List<RollupValue> getRollups(String runnerType,
+                                        RunnerStatisticEntity.Granularity granularity,
+                                        LocalDateTime dateFrom) {
+        LocalDateTime slotFrom = granularity.getSlotTime(dateFrom);
+        Map<LocalDateTime, RollupValue> mapRollups = new TreeMap<>();
+        for (RunnerStatisticEntity entity : runnerStatisticRepository.selectRunnerStatistics(runnerType, granularity,
+                slotFrom)) {
+            mapRollups.put(entity.slotTime, RollupValue.fromEntity(entity));
+        }
+        for (Map.Entry<SlotKey, Slot> entry : pendingSlots.entrySet()) {
+            SlotKey slotKey = entry.getKey();
+            if (!slotKey.runnerType.equals(runnerType) || slotKey.granularity != granularity
+                    || slotKey.slotTime.isBefore(slotFrom))
+                continue;
+            RollupValue pending = entry.getValue().snapshot(slotKey.slotTime);
+            mapRollups.merge(slotKey.slotTime, pending, RollupValue::merge);
+        }
+        return new ArrayList<>(mapRollups.values());
+    }
+
+    /**
+     * Return the rollups of all runners from a date, in one query. Used by the dashboard: the cost does not depend
+     * on the number of runners
+     *
+     * @param granularity granularity
+     * @param dateFrom    date (UTC) from: the slot containing this date is included
+     * @return key is the runnerType, value the list of rollups ordered by slot time
+     */
+    public Map<String, List<RollupValue>> getRollupsAllRunners(RunnerStatisticEntity.Granularity granularity,
+                                                               LocalDateTime dateFrom) {
+        LocalDateTime slotFrom = granularity.getSlotTime(dateFrom);
+        Map<String, Map<LocalDateTime, RollupValue>> mapRunners = new HashMap<>();
+        for (RunnerStatisticRepository.RollupView view : runnerStatisticRepository.selectAllRunnersStatistics(
+                granularity, slotFrom)) {
+            mapRunners.computeIfAbsent(view.getRunnerType(), k -> new TreeMap<>())
+                    .put(view.getSlotTime(), RollupValue.fromView(view));
+        }
+        for (Map.Entry<SlotKey, Slot> entry : pendingSlots.entrySet()) {
+            SlotKey slotKey = entry.getKey();
+            if (slotKey.granularity != granularity || slotKey.slotTime.isBefore(slotFrom))
+                continue;
+            RollupValue pending = entry.getValue().snapshot(slotKey.slotTime);
+            mapRunners.computeIfAbsent(slotKey.runnerType, k -> new TreeMap<>())
+                    .merge(slotKey.slotTime, pending, RollupValue::merge);
+        }
+        Map<String, List<RollupValue>> result = new HashMap<>();
+        mapRunners.forEach((runnerType, mapRollups) -> result.put(runnerType, new ArrayList<>(mapRollups.values())));
+        return result;
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Flush                                                   */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    /**
+     * Merge pending slots in the database.
+     */
+    @Scheduled(fixedDelayString = "${cherry.history.rollup.flushintervalms:30000}")
+    public void flush() {
+        List<SlotKey> listKeys = new ArrayList<>(pendingSlots.keySet());
+        listKeys.sort(Comparator.comparing(SlotKey::slotTime));
+        for (SlotKey slotKey : listKeys) {
+            Slot slot = pendingSlots.remove(slotKey);
+            if (slot == null)
+                continue;
+            RollupValue delta = slot.close(slotKey.slotTime);
+            try {
+                saveSlot(slotKey, delta);
+            } catch (Exception e) {
+                int failedFlushes = slot.getFailedFlushes() + 1;
+                logger.error("HistoryStatisticAggregator: can't save slot runner[{}] granularity[{}] slot[{}]"
+                                + " (failure {}/{}): {}", slotKey.runnerType, slotKey.granularity, slotKey.slotTime,
+                        failedFlushes, flushMaxRetries, e.getMessage());
+                if (failedFlushes > flushMaxRetries) {
+                    logger.error("HistoryStatisticAggregator: slot runner[{}] granularity[{}] slot[{}] dropped, {}"
+                                    + " executions not in the statistics", slotKey.runnerType, slotKey.granularity,
+                            slotKey.slotTime, delta.executions);
+                    continue;
+                }
+                // keep it for the next flush
+                pendingSlots.computeIfAbsent(slotKey, k -> new Slot()).requeue(delta, failedFlushes);
+            }
+        }
+    }
+
+    /**
+     * Save a slot in its own transaction. Two runtimes may insert the same new slot at the same time: the second
+     * one fails on the unique key, and the slot is updated in a new transaction
+     */
+    private void saveSlot(SlotKey slotKey, RollupValue delta) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> saveDelta(slotKey, delta));
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("HistoryStatisticAggregator: slot runner[{}] granularity[{}] slot[{}] inserted by another"
+                    + " runtime, update it", slotKey.runnerType, slotKey.granularity, slotKey.slotTime);
+            transactionTemplate.executeWithoutResult(status -> saveDelta(slotKey, delta));
+        }
+    }
+
+    private void saveDelta(SlotKey slotKey, RollupValue delta) {
+        RunnerStatisticEntity entity = runnerStatisticRepository.selectSlotForUpdate(slotKey.runnerType,
+                slotKey.granularity, slotKey.slotTime);
+        if (entity == null) {
+            entity = new RunnerStatisticEntity();
+            entity.runnerType = slotKey.runnerType;
+            entity.granularity = slotKey.granularity;
+            entity.slotTime = slotKey.slotTime;
+        }
+        entity.executions += delta.executions;
+        entity.executionsSucceeded += delta.executionsSucceeded;
+        entity.executionsFailed += delta.executionsFailed;
+        entity.executionsBpmnErrors += delta.executionsBpmnErrors;
+        entity.sumExecutionMs += delta.sumExecutionMs;
+        entity.peakExecutionMs = Math.max(entity.peakExecutionMs, delta.peakExecutionMs);
+        LatencyHistogram histogram = LatencyHistogram.fromCompactString(entity.latencyHistogram);
+        histogram.merge(delta.latencyHistogram);
+        entity.latencyHistogram = histogram.toCompactString();
+        // flushed now: a duplicate slot is detected here, not at the commit
+        runnerStatisticRepository.saveAndFlush(entity);
+    }
+
+    /**
+     * Remove old rollups. The fine granularity is kept a short time, the day granularity a long time
+     */
+    @Scheduled(fixedDelayString = "${cherry.history.rollup.purgeintervalms:3600000}", initialDelay = 60000)
+    public void purge() {
+        LocalDateTime dateNow = DateOperation.getLocalDateTimeNow();
+        try {
+            int nbDeleted = runnerStatisticRepository.deleteBefore(RunnerStatisticEntity.Granularity.TENMINUTES,
+                    dateNow.minusDays(retentionTenMinutesInDays));
+            nbDeleted += runnerStatisticRepository.deleteBefore(RunnerStatisticEntity.Granularity.HOUR,
+                    dateNow.minusDays(retentionHourInDays));
+            nbDeleted += runnerStatisticRepository.deleteBefore(RunnerStatisticEntity.Granularity.DAY,
+                    dateNow.minusDays(retentionDayInDays));
+            logger.debug("HistoryStatisticAggregator: purge {} rollups", nbDeleted);
+        } catch (Exception e) {
+            logger.error("HistoryStatisticAggregator: purge failed {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Remove the rollups of a runner (the runner is removed)
+     *
+     * @param runnerType type of runner
+     */
+    public void deleteFromEntityType(String runnerType) {
+        pendingSlots.keySet().removeIf(slotKey -> slotKey.runnerType.equals(runnerType));
+        runnerStatisticRepository.deleteFromEntityType(runnerType);
+    }
+
+    /**
+     * Only one runtime rebuilds the rollups: the one which inserts the backfill marker in the empty table. Other
+     * runtimes starting at the same time fail on the unique slot, or see a table which is not empty.
+     *
+     * @return true if this runtime must do the backfill
+     */
+    boolean claimBackfill() {
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (runnerStatisticRepository.count() > 0)
+                    return false;
+                RunnerStatisticEntity marker = new RunnerStatisticEntity();
+                marker.runnerType = RunnerStatisticEntity.BACKFILL_MARKER;
+                marker.granularity = RunnerStatisticEntity.Granularity.DAY;
+                marker.slotTime = BACKFILL_MARKER_SLOT;
+                runnerStatisticRepository.saveAndFlush(marker);
+                return true;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            logger.info("HistoryStatisticAggregator: rollup rebuilt by another runtime");
+            return false;
+        }
+    }
+
+    /**
+     * The first time the rollup is used, the history already contains executions. Aggregate them, up to the start
+     * of this runtime: executions after are recorded by the runtimes. Runners start after the application
+     * context, so a runtime starting at the same time has no execution before this limit.
+     */
+    private void backfill() {
+        try {
+            if (!claimBackfill())
+                return;
+            LocalDateTime dateFrom = startTime.minusDays(backfillInDays);
+            logger.info("HistoryStatisticAggregator: rollup is empty, rebuild it from history since [{}]", dateFrom);
+            long lastId = -1;
+            long nbRecords = 0;
+            List<RunnerExecutionEntity> page;
+            do {
+                page = runnerExecutionRepository.selectRecordsAfterId(lastId, dateFrom, startTime,
+                        PageRequest.of(0, 1000));
+                for (RunnerExecutionEntity execution : page) {
+                    for (RunnerStatisticEntity.Granularity granularity : RunnerStatisticEntity.Granularity.values()) {
+                        SlotKey slotKey = new SlotKey(execution.runnerType, granularity,
+                                granularity.getSlotTime(execution.executionTime));
+                        while (!pendingSlots.computeIfAbsent(slotKey, k -> new Slot())
+                                .add(execution.status, execution.executionMs == null ? 0 : execution.executionMs)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    lastId = execution.getId();
+                }
+                nbRecords += page.size();
+            } while (page.size() == 1000);
+            flush();
+            logger.info("HistoryStatisticAggregator: rollup rebuilt from {} executions", nbRecords);
+        } catch (Exception e) {
+            logger.error("HistoryStatisticAggregator: can't rebuild rollup from history: {}", e.getMessage());
+        }
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Class definitions                                       */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    private record SlotKey(String runnerType, RunnerStatisticEntity.Granularity granularity,
+                           LocalDateTime slotTime) {
+    }
+
+    /**
+     * In memory slot. Synchronized: contention is low (one runner, one slot), and the flush must see a consistent value
+     */
+    private static class Slot {
+        private final RollupValue value = new RollupValue();
+        private boolean closed = false;
+        /**
+         * Number of flushes which failed to save this slot
+         */
+        private int failedFlushes = 0;
+
+        synchronized boolean add(AbstractRunner.ExecutionStatusEnum status, long durationInMs) {
+            if (closed)
+                return false;
+            value.add(status, durationInMs);
+            return true;
+        }
+
+        /**
+         * The flush failed: the value is added back, with the number of failures
+         */
+        synchronized void requeue(RollupValue delta, int failedFlushes) {
+            value.merge(delta);
+            this.failedFlushes = Math.max(this.failedFlushes, failedFlushes);
+        }
+
+        synchronized int getFailedFlushes() {
+            return failedFlushes;
+        }
+
+        synchronized RollupValue snapshot(LocalDateTime slotTime) {
+            RollupValue snapshot = new RollupValue();
+            snapshot.slotTime = slotTime;
+            snapshot.merge(value);
+            return snapshot;
+        }
+
+        synchronized RollupValue close(LocalDateTime slotTime) {
+            closed = true;
+            value.slotTime = slotTime;
+            return value;
+        }
+    }
+
+    public static class RollupValue {
+        public LocalDateTime slotTime;
+        public long executions;
+        public long executionsSucceeded;
+        public long executionsFailed;
+        public long executionsBpmnErrors;
+        public long sumExecutionMs;
+        public long peakExecutionMs;
+        public LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+        public static RollupValue fromEntity(RunnerStatisticEntity entity) {
+            RollupValue rollupValue = new RollupValue();
+            rollupValue.slotTime = entity.slotTime;
+            rollupValue.executions = entity.executions;
+            rollupValue.executionsSucceeded = entity.executionsSucceeded;
+            rollupValue.executionsFailed = entity.executionsFailed;
+            rollupValue.executionsBpmnErrors = entity.executionsBpmnErrors;
+            rollupValue.sumExecutionMs = entity.sumExecutionMs;
+            rollupValue.peakExecutionMs = entity.peakExecutionMs;
+            rollupValue.latencyHistogram = LatencyHistogram.fromCompactString(entity.latencyHistogram);
+            return rollupValue;
+        }
+
+        public static RollupValue fromView(RunnerStatisticRepository.RollupView view) {
+            RollupValue rollupValue = new RollupValue();
+            rollupValue.slotTime = view.getSlotTime();
+            rollupValue.executions = view.getExecutions();
+            rollupValue.executionsSucceeded = view.getExecutionsSucceeded();
+            rollupValue.executionsFailed = view.getExecutionsFailed();
+            rollupValue.executionsBpmnErrors = view.getExecutionsBpmnErrors();
+            rollupValue.sumExecutionMs = view.getSumExecutionMs();
+            rollupValue.peakExecutionMs = view.getPeakExecutionMs();
+            rollupValue.latencyHistogram = LatencyHistogram.fromCompactString(view.getLatencyHistogram());
+            return rollupValue;
+        }
+
+        void add(AbstractRunner.ExecutionStatusEnum status, long durationInMs) {
+            executions++;
+            sumExecutionMs += durationInMs;
+            peakExecutionMs = Math.max(peakExecutionMs, durationInMs);
+            latencyHistogram.record(durationInMs);
+            if (status == null) {
+                executionsFailed++;
+                return;
+            }
+            switch (status) {
+            case SUCCESS -> executionsSucceeded++;
+            case FAIL -> executionsFailed++;
+            case BPMNERROR -> executionsBpmnErrors++;
+            }
+        }
+
+        public RollupValue merge(RollupValue other) {
+            executions += other.executions;
+            executionsSucceeded += other.executionsSucceeded;
+            executionsFailed += other.executionsFailed;
+            executionsBpmnErrors += other.executionsBpmnErrors;
+            sumExecutionMs += other.sumExecutionMs;
+            peakExecutionMs = Math.max(peakExecutionMs, other.peakExecutionMs);
+            latencyHistogram.merge(other.latencyHistogram);
+            return this;
+        }
+    }
+}
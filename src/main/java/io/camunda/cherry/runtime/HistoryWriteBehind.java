@@ -0,0 +1,150 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  HistoryWriteBehind                                                  */
+/*                                                                      */
+/*  Save the execution history out of the job critical path. Job       */
+/*  threads push records in a bounded buffer, a flusher thread writes  */
+/*  them by batch.                                                      */
+/* ******************************************************************** */
+package io.camunda.cherry.runtime;
+
+import io.camunda.cherry.db.entity.RunnerExecutionEntity;
+import io.camunda.cherry.db.repository.RunnerExecutionRepository;
+import io.camunda.cherry.util.WriteBehindQueue;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class HistoryWriteBehind {
+
+    Logger logger = LoggerFactory.getLogger(HistoryWriteBehind.class.getName());
+
+    @Autowired
+    RunnerExecutionRepository runnerExecutionRepository;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    @Value("${cherry.history.writebehind.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cherry.history.writebehind.capacity:20000}")
+    private int capacity;
+
+    @Value("${cherry.history.writebehind.batchsize:200}")
+    private int batchSize;
+
+    @Value("${cherry.history.writebehind.flushintervalms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${cherry.history.writebehind.overflowpolicy:DROP}")
+    private WriteBehindQueue.OverflowPolicy overflowPolicy;
+
+    @Value("${cherry.history.writebehind.blocktimeoutms:500}")
+    private long blockTimeoutMs;
+
+    @Value("${cherry.history.writebehind.samplerate:10}")
+    private int sampleRate;
+
+    @Value("${cherry.history.writebehind.shutdowntimeoutms:10000}")
+    private long shutdownTimeoutMs;
+
+    private WriteBehindQueue<RunnerExecutionEntity> queue;
+
+    @PostConstruct
+    public void init() {
+        queue = new WriteBehindQueue<>("history", capacity, batchSize, flushIntervalMs, overflowPolicy, blockTimeoutMs,
+                sampleRate, this::flush);
+        if (meterRegistry != null) {
+            Gauge.builder("cherry.history.queue.depth", queue, WriteBehindQueue::getQueueDepth)
+                    .description("Execution records waiting to be saved")
+                    .register(meterRegistry);
+            FunctionCounter.builder("cherry.history.dropped", queue, WriteBehindQueue::getDropped)
+                    .description("Execution records dropped by the overflow policy")
+                    .register(meterRegistry);
+            FunctionCounter.builder("cherry.history.flush.errors", queue, WriteBehindQueue::getFlushErrors)
+                    .description("Execution records lost because the database write failed")
+                    .register(meterRegistry);
+            // built on the counters of the queue: the flush time is measured once
+            FunctionTimer.builder("cherry.history.flush", queue, WriteBehindQueue::getNumberOfFlushes,
+                            WriteBehindQueue::getTotalFlushTimeMs, TimeUnit.MILLISECONDS)
+                    .description("Time to write one batch of execution records")
+                    .register(meterRegistry);
+        }
+        if (enabled) {
+            queue.start();
+            logger.info("HistoryWriteBehind: started capacity[{}] batchSize[{}] flushInterval[{} ms] overflowPolicy[{}]",
+                    capacity, batchSize, flushIntervalMs, overflowPolicy);
+        }
+    }
+
+    @PreDestroy
+    public void end() {
+        if (queue != null && queue.isRunning()) {
+            logger.info("HistoryWriteBehind: flush {} pending records", queue.getQueueDepth());
+            queue.stop(shutdownTimeoutMs);
+        }
+    }
+
+    /**
+     * Register an execution. When the write behind is disabled, the record is saved immediately.
+     *
+     * @param runnerExecutionEntity record to save
+     */
+    public void save(RunnerExecutionEntity runnerExecutionEntity) {
+        if (queue == null || !queue.isRunning()) {
+            runnerExecutionRepository.save(runnerExecutionEntity);
+            return;
+        }
+        if (!queue.offer(runnerExecutionEntity) && logger.isDebugEnabled())
+            logger.debug("HistoryWriteBehind: record for runner[{}] dropped, queue is full (policy {})",
+                    runnerExecutionEntity.runnerType, overflowPolicy);
+    }
+
+    /**
+     * Executed by the flusher thread: one transaction per batch. Hibernate groups the INSERT statements
+     * (see spring.jpa.properties.hibernate.jdbc.batch_size)
+     *
+     * @param batch list of records
+     */
+    private void flush(List<RunnerExecutionEntity> batch) {
+        runnerExecutionRepository.saveAll(batch);
+    }
+
+    /**
+     * Return statistics on the write behind, for the administration page
+     *
+     * @return statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("enabled", queue != null && queue.isRunning());
+        if (queue == null)
+            return statistics;
+        statistics.put("queueDepth", queue.getQueueDepth());
+        statistics.put("capacity", queue.getCapacity());
+        statistics.put("overflowPolicy", queue.getOverflowPolicy().toString());
+        statistics.put("enqueued", queue.getEnqueued());
+        statistics.put("flushed", queue.getFlushed());
+        statistics.put("dropped", queue.getDropped());
+        statistics.put("flushErrors", queue.getFlushErrors());
+        statistics.put("numberOfFlushes", queue.getNumberOfFlushes());
+        statistics.put("averageFlushTimeMs", queue.getAverageFlushTimeMs());
+        statistics.put("peakFlushTimeMs", queue.getPeakFlushTimeMs());
+        return statistics;
+    }
+}
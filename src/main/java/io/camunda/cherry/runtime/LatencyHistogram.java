@@ -0,0 +1,195 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  LatencyHistogram                                                    */
+/*                                                                      */
+/*  Distribution of execution times, HDR-style log-linear buckets.     */
+/*  Values under 32 ms have their own bucket. Above, each power of two */
+/*  is split in 16 linear sub-buckets: a bucket covers 1/16 of its     */
+/*  power of two, so a percentile is at most 6.25% above the real      */
+/*  value.                                                              */
+/*  The memory is fixed, and histograms are merged by adding the       */
+/*  buckets (intervals, slots, nodes). Saved as a compact string in    */
+/*  the rollups, bounded to the size of the column: when it is too      */
+/*  long, neighbour buckets are merged.                                 */
+/* ******************************************************************** */
+package io.camunda.cherry.runtime;
+
+public class LatencyHistogram {
+
+    /**
+     * Linear sub-buckets per power of two
+     */
+    public static final int SUB_BUCKET_BITS = 4;
+    public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * Highest power of two tracked: 2^32 ms is more than 49 days. Bigger values go in the last bucket
+     */
+    public static final int MAX_EXPONENT = 32;
+    public static final int NUMBER_OF_BUCKETS = SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    /**
+     * Maximum length of the compact string: RunnerStatisticEntity.latencyHistogram column
+     */
+    public static final int MAX_COMPACT_LENGTH = 4000;
+
+    private final long[] buckets = new long[NUMBER_OF_BUCKETS];
+    private long totalCount = 0;
+
+    /**
+     * Rebuild a histogram from its compact representation
+     *
+     * @param compact compact string, may be null
+     * @return the histogram
+     */
+    public static LatencyHistogram fromCompactString(String compact) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        if (compact == null || compact.isEmpty())
+            return histogram;
+        histogram.readCompact(compact);
+        return histogram;
+    }
+
+    public static int getBucketIndex(long valueInMs) {
+        if (valueInMs <= 0)
+            return 0;
+        if (valueInMs < 2 * SUB_BUCKET_COUNT)
+            return (int) valueInMs;
+        int exponent = 63 - Long.numberOfLeadingZeros(valueInMs);
+        if (exponent > MAX_EXPONENT)
+            return NUMBER_OF_BUCKETS - 1;
+        int subBucket = (int) (valueInMs >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * @param bucketIndex index of the bucket
+     * @return the lowest value counted in this bucket
+     */
+    public static long getLowestValue(int bucketIndex) {
+        if (bucketIndex < 2 * SUB_BUCKET_COUNT)
+            return bucketIndex;
+        int exponent = (bucketIndex - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT + SUB_BUCKET_BITS;
+        int subBucket = (bucketIndex - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return ((long) SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * @param bucketIndex index of the bucket
+     * @return the highest value counted in this bucket
+     */
+    public static long getHighestValue(int bucketIndex) {
+        if (bucketIndex < 2 * SUB_BUCKET_COUNT)
+            return bucketIndex;
+        int exponent = (bucketIndex - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT + SUB_BUCKET_BITS;
+        return getLowestValue(bucketIndex) + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    public void record(long valueInMs) {
+        buckets[getBucketIndex(valueInMs)]++;
+        totalCount++;
+    }
+
+    public void merge(LatencyHistogram other) {
+        if (other == null)
+            return;
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++)
+            buckets[i] += other.buckets[i];
+        totalCount += other.totalCount;
+    }
+
+    public long getCount(int bucketIndex) {
+        return buckets[bucketIndex];
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Value at a percentile: the highest value of the bucket containing the percentile, like HdrHistogram
+     *
+     * @param percentile percentile, between 0 and 100 (99.9 for the p99.9)
+     * @return the value in ms, 0 if the histogram is empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0)
+            return 0;
+        double boundedPercentile = Math.min(100.0, Math.max(0.0, percentile));
+        // rounded like HdrHistogram: 99.9 / 100 * 1000 must not become 1000
+        long countAtPercentile = Math.max(1, (long) (boundedPercentile / 100.0 * totalCount + 0.5));
+        long cumulative = 0;
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            cumulative += buckets[i];
+            if (cumulative >= countAtPercentile)
+                return getHighestValue(i);
+        }
+        return getHighestValue(NUMBER_OF_BUCKETS - 1);
+    }
+
+    /**
+     * Only non-empty buckets are saved. Consecutive buckets are saved in one sequence
+     * "<firstBucket>:<count>,<count>;<firstBucket>:<count>"; a short gap inside a sequence is saved as 0 counts.
+     * The string is at most MAX_COMPACT_LENGTH: when it is longer, the counts of 2, 4... up to SUB_BUCKET_COUNT
+     * neighbour buckets are moved to the highest one. A percentile is then never under the real value.
+     *
+     * @return compact representation
+     */
+    public String toCompactString() {
+        String compact = toCompactString(1);
+        for (int groupSize = 2; compact.length() > MAX_COMPACT_LENGTH && groupSize <= SUB_BUCKET_COUNT;
+             groupSize *= 2)
+            compact = toCompactString(groupSize);
+        return compact;
+    }
+
+    /**
+     * @param groupSize number of neighbour buckets saved in the highest one (a power of two)
+     */
+    private String toCompactString(int groupSize) {
+        long[] groupBuckets = new long[NUMBER_OF_BUCKETS];
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++)
+            groupBuckets[Math.min(NUMBER_OF_BUCKETS - 1, i | (groupSize - 1))] += buckets[i];
+
+        StringBuilder compact = new StringBuilder();
+        int previous = -1;
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            if (groupBuckets[i] == 0)
+                continue;
+            int gap = i - previous - 1;
+            String startSequence = (compact.isEmpty() ? "" : ";") + i + ":";
+            if (previous >= 0 && gap * 2 < startSequence.length()) {
+                // ",0" per empty bucket is shorter than a new sequence
+                compact.append(",0".repeat(gap)).append(',');
+            } else
+                compact.append(startSequence);
+            compact.append(groupBuckets[i]);
+            previous = i;
+        }
+        return compact.toString();
+    }
+
+    private void readCompact(String compact) {
+        for (String sequence : compact.split(";")) {
+            int separator = sequence.indexOf(':');
+            if (separator <= 0)
+                continue;
+            try {
+                int index = Integer.parseInt(sequence.substring(0, separator));
+                for (String count : sequence.substring(separator + 1).split(",")) {
+                    if (index >= 0 && index < NUMBER_OF_BUCKETS)
+                        add(index, Long.parseLong(count));
+                    index++;
+                }
+            } catch (NumberFormatException e) {
+                // ignore a corrupted sequence, the other are still valid
+            }
+        }
+    }
+
+    private void add(int bucketIndex, long count) {
+        if (count <= 0)
+            return;
+        buckets[bucketIndex] += count;
+        totalCount += count;
+    }
+}
@@ -8,7 +8,9 @@ package io.camunda.cherry.runtime;
 
 import io.camunda.cherry.db.entity.OperationEntity;
 import io.camunda.cherry.db.repository.OperationRepository;
+import io.camunda.cherry.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -25,10 +27,19 @@ public class OperationFactory {
      * @param runnerType    runner type
      * @param dateNow       instant now for reference
      * @param dateThreshold date from which operations are searched
+     * @param cursor        position of the page, null for the first page
+     * @param rowsPerPage   number of operations in the page
      * @return list of operations
      */
-    public List<OperationEntity> getOperations(String runnerType, LocalDateTime dateNow, LocalDateTime dateThreshold) {
-        return operationRepository.selectByRunnerType(runnerType, dateThreshold);
+    public List<OperationEntity> getOperations(String runnerType,
+                                               LocalDateTime dateNow,
+                                               LocalDateTime dateThreshold,
+                                               KeysetCursor cursor,
+                                               int rowsPerPage) {
+        if (cursor == null)
+            return operationRepository.selectByRunnerType(runnerType, dateThreshold, PageRequest.of(0, rowsPerPage));
+        return operationRepository.selectByRunnerTypeAfter(runnerType, dateThreshold, cursor.executionTime(),
+                cursor.id(), PageRequest.of(0, rowsPerPage));
     }
 
     /**
@@ -36,9 +47,29 @@ public class OperationFactory {
      *
      * @param dateNow       instant now for reference
      * @param dateThreshold date from which operations are searched
+     * @param cursor        position of the page, null for the first page
+     * @param rowsPerPage   number of operations in the page
      * @return list of operations
      */
-    public List<OperationEntity> getAllOperations(LocalDateTime dateNow, LocalDateTime dateThreshold) {
-        return operationRepository.selectAll(dateThreshold);
+    public List<OperationEntity> getAllOperations(LocalDateTime dateNow,
+                                                  LocalDateTime dateThreshold,
+                                                  KeysetCursor cursor,
+                                                  int rowsPerPage) {
+        if (cursor == null)
+            return operationRepository.selectAll(dateThreshold, PageRequest.of(0, rowsPerPage));
+        return operationRepository.selectAllAfter(dateThreshold, cursor.executionTime(), cursor.id(),
+                PageRequest.of(0, rowsPerPage));
+    }
+
+    /**
+     * @param operations page of operations
+     * @param rowsPerPage number of operations asked
+     * @return the cursor of the next page, null if this page is the last one
+     */
+    public static String getNextCursor(List<OperationEntity> operations, int rowsPerPage) {
+        if (operations.isEmpty())
+            return null;
+        OperationEntity last = operations.get(operations.size() - 1);
+        return KeysetCursor.next(last.executionTime, last.getId(), operations.size(), rowsPerPage);
     }
 }
@@ -0,0 +1,146 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  StartupProfile                                                      */
+/*                                                                      */
+/*  Time spent by the runtime to start: one line per phase (load the   */
+/*  runners, synchronize, start the runners), and one line per runner  */
+/*  (validate, open the JobWorker). Returned in the runtime parameters */
+/*  to see which runner slows down the startup.                        */
+/* ******************************************************************** */
+package io.camunda.cherry.runtime;
+
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Service
+public class StartupProfile {
+
+    public static final String STATUS_STARTED = "STARTED";
+    public static final String STATUS_ERROR = "ERROR";
+
+    private final List<PhaseTiming> phases = new CopyOnWriteArrayList<>();
+    /**
+     * Key is runnerType
+     */
+    private final Map<String, RunnerTiming> runners = new ConcurrentHashMap<>();
+
+    private volatile boolean inProgress = false;
+    private volatile Instant startedAt = null;
+    private volatile long beginNs;
+    private volatile long totalMs = -1;
+    private volatile int parallelism;
+
+    /**
+     * A new startup begins: the previous profile is cleared
+     *
+     * @param parallelism number of runners started in parallel
+     */
+    public void begin(int parallelism) {
+        phases.clear();
+        runners.clear();
+        this.parallelism = parallelism;
+        startedAt = Instant.now();
+        beginNs = System.nanoTime();
+        totalMs = -1;
+        inProgress = true;
+    }
+
+    public void end() {
+        totalMs = (System.nanoTime() - beginNs) / 1_000_000;
+        inProgress = false;
+    }
+
+    /**
+     * Runners are recorded only during the startup: a restart later does not change the profile
+     *
+     * @return true if the startup is in progress
+     */
+    public boolean isInProgress() {
+        return inProgress;
+    }
+
+    /**
+     * Execute and time a phase
+     *
+     * @param name  name of the phase
+     * @param phase code to execute
+     */
+    public void phase(String name, Runnable phase) {
+        long begin = System.nanoTime();
+        try {
+            phase.run();
+        } finally {
+            phases.add(new PhaseTiming(name, (begin - beginNs) / 1_000_000, (System.nanoTime() - begin) / 1_000_000,
+                    Thread.currentThread().getName()));
+        }
+    }
+
+    /**
+     * Record the start of a runner
+     *
+     * @param runnerType type of runner
+     * @param validateMs time to validate the definition
+     * @param openMs     time to open the JobWorker (contract compiled, handler built)
+     * @param status     STARTED, ERROR
+     * @param error      error, or errors in the definition of a started runner. null if none
+     */
+    public void recordRunner(String runnerType, long validateMs, long openMs, String status, String error) {
+        if (!inProgress)
+            return;
+        runners.put(runnerType, new RunnerTiming(runnerType, validateMs, openMs, status, error,
+                Thread.currentThread().getName()));
+    }
+
+    /**
+     * @return the profile, for the administration page. The slowest runners first
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> profile = new HashMap<>();
+        profile.put("inProgress", inProgress);
+        profile.put("startedAt", startedAt == null ? null : startedAt.toString());
+        profile.put("totalMs", totalMs);
+        profile.put("parallelism", parallelism);
+
+        List<Map<String, Object>> listPhases = new ArrayList<>();
+        for (PhaseTiming phase : phases.stream().sorted(Comparator.comparingLong(PhaseTiming::startOffsetMs)).toList()) {
+            Map<String, Object> infoPhase = new HashMap<>();
+            infoPhase.put("name", phase.name());
+            infoPhase.put("startOffsetMs", phase.startOffsetMs());
+            infoPhase.put("durationMs", phase.durationMs());
+            infoPhase.put("thread", phase.thread());
+            listPhases.add(infoPhase);
+        }
+        profile.put("phases", listPhases);
+
+        List<Map<String, Object>> listRunners = new ArrayList<>();
+        for (RunnerTiming runner : runners.values()
+                .stream()
+                .sorted(Comparator.comparingLong((RunnerTiming r) -> r.validateMs() + r.openMs()).reversed())
+                .toList()) {
+            Map<String, Object> infoRunner = new HashMap<>();
+            infoRunner.put("type", runner.runnerType());
+            infoRunner.put("validateMs", runner.validateMs());
+            infoRunner.put("openMs", runner.openMs());
+            infoRunner.put("status", runner.status());
+            infoRunner.put("error", runner.error());
+            infoRunner.put("thread", runner.thread());
+            listRunners.add(infoRunner);
+        }
+        profile.put("runners", listRunners);
+        return profile;
+    }
+
+    record PhaseTiming(String name, long startOffsetMs, long durationMs, String thread) {
+    }
+
+    record RunnerTiming(String runnerType, long validateMs, long openMs, String status, String error, String thread) {
+    }
+}
@@ -0,0 +1,79 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  ExecutionTiming                                                     */
+/*                                                                      */
+/*  Time spent in each phase of one job, in nanoseconds. Filled by the  */
+/*  phases of the JobTrace (every job, sampled or not) and saved with   */
+/*  the execution record.                                               */
+/*  The queue wait is the time between the activation of the job and   */
+/*  the start of the handler: activation = deadline - job timeout.     */
+/*  Its resolution is the millisecond of the deadline.                 */
+/* ******************************************************************** */
+package io.camunda.cherry.tracing;
+
+import io.camunda.client.api.response.ActivatedJob;
+
+public class ExecutionTiming {
+
+    private final long[] phaseNs = new long[JobPhase.values().length];
+    private final boolean[] phaseRecorded = new boolean[JobPhase.values().length];
+    private Long queueWaitNs = null;
+
+    /**
+     * Queue wait of the job, when the handler starts
+     *
+     * @param job          job
+     * @param jobTimeoutMs timeout used to activate the job, null if unknown
+     */
+    public void recordQueueWait(ActivatedJob job, Long jobTimeoutMs) {
+        queueWaitNs = getQueueWaitNs(job.getDeadline(), jobTimeoutMs, System.currentTimeMillis());
+    }
+
+    /**
+     * @param deadlineMs   deadline of the job (epoch, ms)
+     * @param jobTimeoutMs timeout used to activate the job
+     * @param nowMs        start of the handler (epoch, ms)
+     * @return the wait, null if it can't be calculated
+     */
+    static Long getQueueWaitNs(long deadlineMs, Long jobTimeoutMs, long nowMs) {
+        if (jobTimeoutMs == null || jobTimeoutMs <= 0 || deadlineMs <= 0)
+            return null;
+        long activationMs = deadlineMs - jobTimeoutMs;
+        // clocks of the broker and the runtime are not synchronized: a negative wait means no wait
+        return Math.max(0, nowMs - activationMs) * 1_000_000L;
+    }
+
+    /**
+     * Add a duration to a phase: a phase may run several times (secrets)
+     *
+     * @param jobPhase   phase
+     * @param durationNs duration
+     */
+    public synchronized void add(JobPhase jobPhase, long durationNs) {
+        phaseNs[jobPhase.ordinal()] += durationNs;
+        phaseRecorded[jobPhase.ordinal()] = true;
+    }
+
+    /**
+     * A phase ran inside another one (the connector runtime sends the complete command during the execution):
+     * remove it from the outer phase
+     *
+     * @param outerPhase phase which contains the inner phase
+     * @param innerPhase phase to remove
+     */
+    public synchronized void exclude(JobPhase outerPhase, JobPhase innerPhase) {
+        phaseNs[outerPhase.ordinal()] = Math.max(0, phaseNs[outerPhase.ordinal()] - phaseNs[innerPhase.ordinal()]);
+    }
+
+    /**
+     * @param jobPhase phase
+     * @return the duration, null if the phase did not run
+     */
+    public synchronized Long getPhaseNs(JobPhase jobPhase) {
+        return phaseRecorded[jobPhase.ordinal()] ? phaseNs[jobPhase.ordinal()] : null;
+    }
+
+    public Long getQueueWaitNs() {
+        return queueWaitNs;
+    }
+}
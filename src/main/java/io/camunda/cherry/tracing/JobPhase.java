@@ -0,0 +1,40 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  JobPhase                                                            */
+/*                                                                      */
+/*  Phases of the execution of a job                                    */
+/* ******************************************************************** */
+package io.camunda.cherry.tracing;
+
+public enum JobPhase {
+    /**
+     * Read and check the input variables
+     */
+    INPUT("input"),
+    /**
+     * Resolve a secret (connectors)
+     */
+    SECRETS("secrets"),
+    /**
+     * Body of the runner
+     */
+    EXECUTE("execute"),
+    /**
+     * Complete / fail / throw error command, until the answer of the gateway
+     */
+    COMPLETE("complete"),
+    /**
+     * Save the execution in the history
+     */
+    HISTORY("history");
+
+    private final String name;
+
+    JobPhase(String name) {
+        this.name = name;
+    }
+
+    public String getSpanName() {
+        return "cherry.job." + name;
+    }
+}
@@ -0,0 +1,64 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  JobSampler                                                          */
+/*                                                                      */
+/*  Sampler of the OpenTelemetry tracer. The job spans are sampled by  */
+/*  JobTracing (cherry.tracing.samplerate): a job span reaching the    */
+/*  tracer is always kept, with its phase spans. The other spans (HTTP */
+/*  requests) are sampled by management.tracing.sampling.probability,  */
+/*  as with the sampler of Spring Boot this one replaces.              */
+/* ******************************************************************** */
+package io.camunda.cherry.tracing;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class JobSampler {
+
+    /**
+     * Replace the sampler of Spring Boot (parent based, ratio on the trace id)
+     *
+     * @param probability management.tracing.sampling.probability, for the spans which are not jobs
+     * @return the sampler
+     */
+    @Bean
+    public Sampler cherryJobSampler(@Value("${management.tracing.sampling.probability:0.1}") double probability) {
+        return new JobSpanSampler(Sampler.parentBased(Sampler.traceIdRatioBased(probability)));
+    }
+
+    public static class JobSpanSampler implements Sampler {
+        private final Sampler otherSpansSampler;
+
+        public JobSpanSampler(Sampler otherSpansSampler) {
+            this.otherSpansSampler = otherSpansSampler;
+        }
+
+        @Override
+        public SamplingResult shouldSample(Context parentContext,
+                                           String traceId,
+                                           String name,
+                                           SpanKind spanKind,
+                                           Attributes attributes,
+                                           List<LinkData> parentLinks) {
+            // already sampled by JobTracing, per runner
+            if (JobTracing.SPAN_JOB.equals(name))
+                return SamplingResult.recordAndSample();
+            return otherSpansSampler.shouldSample(parentContext, traceId, name, spanKind, attributes, parentLinks);
+        }
+
+        @Override
+        public String getDescription() {
+            return "JobSpanSampler{" + otherSpansSampler.getDescription() + "}";
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  JobTrace                                                            */
+/*                                                                      */
+/*  Trace of one job: a span for the job, a child span per phase.      */
+/*  The duration of each phase is added to the ExecutionTiming of the  */
+/*  job, even when the job is not sampled: only the spans are skipped. */
+/*  The job span is ended once, on the thread which completes the job  */
+/*  (it may not be the thread which started it: async completion).     */
+/* ******************************************************************** */
+package io.camunda.cherry.tracing;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class JobTrace {
+
+    /**
+     * No span, no timing
+     */
+    public static final JobTrace NOOP = new JobTrace(null, null, null);
+
+    /**
+     * Trace of the job executed by this thread, for the code which does not receive it (secret provider,
+     * connector runtime callbacks)
+     */
+    private static final ThreadLocal<JobTrace> currentJobTrace = new ThreadLocal<>();
+
+    private final Tracer tracer;
+    private final Span jobSpan;
+    private final ExecutionTiming executionTiming;
+    private final AtomicBoolean ended = new AtomicBoolean(false);
+
+    JobTrace(Tracer tracer, Span jobSpan, ExecutionTiming executionTiming) {
+        this.tracer = tracer;
+        this.jobSpan = jobSpan;
+        this.executionTiming = executionTiming;
+    }
+
+    /**
+     * A job not sampled: only the timing is collected
+     *
+     * @return the trace
+     */
+    public static JobTrace timingOnly() {
+        return new JobTrace(null, null, new ExecutionTiming());
+    }
+
+    public static JobTrace current() {
+        JobTrace jobTrace = currentJobTrace.get();
+        return jobTrace == null ? NOOP : jobTrace;
+    }
+
+    /**
+     * Bind the trace on the current thread. Must be followed by an unbind()
+     */
+    public void bind() {
+        if (this != NOOP)
+            currentJobTrace.set(this);
+    }
+
+    public static void unbind() {
+        currentJobTrace.remove();
+    }
+
+    /**
+     * @return true if the job is sampled: spans are created
+     */
+    public boolean isRecording() {
+        return jobSpan != null;
+    }
+
+    /**
+     * @return the timing of the job, null for the NOOP trace
+     */
+    public ExecutionTiming getExecutionTiming() {
+        return executionTiming;
+    }
+
+    /**
+     * Start a phase. The phase is a child of the job span
+     *
+     * @param jobPhase phase
+     * @return the phase, to close at the end
+     */
+    public Phase phase(JobPhase jobPhase) {
+        return phase(jobPhase, false);
+    }
+
+    /**
+     * Start a phase, and put its span in the scope of the thread: the code called during the phase (HTTP
+     * client...) continues the trace. The phase must be closed on the same thread.
+     *
+     * @param jobPhase phase
+     * @return the phase, to close at the end
+     */
+    public Phase phaseInScope(JobPhase jobPhase) {
+        return phase(jobPhase, true);
+    }
+
+    private Phase phase(JobPhase jobPhase, boolean inScope) {
+        if (!isRecording())
+            return executionTiming == null ? Phase.NOOP : new Phase(jobPhase, executionTiming, null, null);
+        Span span = tracer.nextSpan(jobSpan).name(jobPhase.getSpanName()).start();
+        return new Phase(jobPhase, executionTiming, span, inScope ? tracer.withSpan(span) : null);
+    }
+
+    /**
+     * End the job span. Only the first call is considered
+     *
+     * @param status    status of the execution (SUCCESS, FAIL, BPMNERROR)
+     * @param errorCode error code, may be null
+     */
+    public void end(String status, String errorCode) {
+        if (!isRecording() || !ended.compareAndSet(false, true))
+            return;
+        jobSpan.tag(JobTracing.ATTRIBUTE_STATUS, status == null ? "FAIL" : status);
+        if (errorCode != null)
+            jobSpan.tag(JobTracing.ATTRIBUTE_ERROR_CODE, errorCode);
+        jobSpan.end();
+    }
+
+    /**
+     * The job ended with an exception, before its status was known
+     *
+     * @param throwable exception
+     */
+    public void end(Throwable throwable) {
+        if (!isRecording() || ended.get())
+            return;
+        jobSpan.error(throwable);
+        end("FAIL", throwable.getClass().getSimpleName());
+    }
+
+    /**
+     * A phase in progress
+     */
+    public static class Phase implements AutoCloseable {
+        public static final Phase NOOP = new Phase(null, null, null, null);
+
+        private final JobPhase jobPhase;
+        private final ExecutionTiming executionTiming;
+        private final long beginNs;
+        private final Span span;
+        private final Tracer.SpanInScope spanInScope;
+
+        Phase(JobPhase jobPhase, ExecutionTiming executionTiming, Span span, Tracer.SpanInScope spanInScope) {
+            this.jobPhase = jobPhase;
+            this.executionTiming = executionTiming;
+            this.beginNs = executionTiming == null ? 0 : System.nanoTime();
+            this.span = span;
+            this.spanInScope = spanInScope;
+        }
+
+        public void error(Throwable throwable) {
+            if (span != null)
+                span.error(throwable);
+        }
+
+        @Override
+        public void close() {
+            if (executionTiming != null)
+                executionTiming.add(jobPhase, System.nanoTime() - beginNs);
+            if (spanInScope != null)
+                spanInScope.close();
+            if (span != null)
+                span.end();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  JobTracing                                                          */
+/*                                                                      */
+/*  Start the trace of a job. The spans are created with the Micrometer */
+/*  Tracer of the application (OpenTelemetry bridge, exported by OTLP  */
+/*  when management.otlp.tracing.endpoint is set).                      */
+/*  The sampling is decided here, per runner: a job not sampled has no  */
+/*  span, only its timing. The rate is cherry.tracing.samplerate, or    */
+/*  cherry.tracing.runner.<type>.samplerate for a runner. The Tracer    */
+/*  keeps all the spans of a sampled job (JobSampler): the job rate    */
+/*  does not depend on management.tracing.sampling.probability, which  */
+/*  applies to the HTTP spans.                                          */
+/*  The decision depends on the job key: a job retried keeps it.       */
+/* ******************************************************************** */
+package io.camunda.cherry.tracing;
+
+import io.camunda.client.api.response.ActivatedJob;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class JobTracing {
+
+    public static final String SPAN_JOB = "cherry.job";
+    public static final String ATTRIBUTE_JOB_KEY = "job.key";
+    public static final String ATTRIBUTE_PROCESS_INSTANCE_KEY = "process.instance.key";
+    public static final String ATTRIBUTE_ELEMENT_ID = "element.id";
+    public static final String ATTRIBUTE_TENANT = "tenant.id";
+    public static final String ATTRIBUTE_RUNNER_TYPE = "runner.type";
+    public static final String ATTRIBUTE_STATUS = "status";
+    public static final String ATTRIBUTE_ERROR_CODE = "error.code";
+
+    /**
+     * Sample rate is expressed in 1/SAMPLE_SCALE
+     */
+    private static final int SAMPLE_SCALE = 10000;
+
+    Logger logger = LoggerFactory.getLogger(JobTracing.class.getName());
+
+    @Autowired(required = false)
+    Tracer tracer;
+
+    @Autowired
+    Environment environment;
+
+    @Value("${cherry.tracing.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Part of the jobs traced, between 0 and 1
+     */
+    @Value("${cherry.tracing.samplerate:0.01}")
+    private double defaultSampleRate;
+
+    /**
+     * Key is runnerType, value is the rate in 1/SAMPLE_SCALE
+     */
+    private final Map<String, Integer> runnerSampleRates = new ConcurrentHashMap<>();
+
+    public JobTracing() {
+    }
+
+    /**
+     * Used to build a tracing without Spring
+     *
+     * @param tracer            tracer
+     * @param environment       to read the rate per runner
+     * @param defaultSampleRate rate, between 0 and 1
+     */
+    public JobTracing(Tracer tracer, Environment environment, double defaultSampleRate) {
+        this.tracer = tracer;
+        this.environment = environment;
+        this.enabled = true;
+        this.defaultSampleRate = defaultSampleRate;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled && (tracer == null || tracer == Tracer.NOOP))
+            logger.info("JobTracing: cherry.tracing.enabled but no tracer in the application, jobs are not traced");
+        else if (enabled)
+            logger.info("JobTracing: jobs are traced, sampleRate[{}]", defaultSampleRate);
+    }
+
+    public boolean isActive() {
+        return enabled && tracer != null && tracer != Tracer.NOOP;
+    }
+
+    /**
+     * Start the trace of a job
+     *
+     * @param runnerType type of the runner
+     * @param job        job to execute
+     * @return the trace, without span if the job is not sampled
+     */
+    public JobTrace start(String runnerType, ActivatedJob job) {
+        if (!isActive() || !isSampled(runnerType, job.getKey()))
+            return JobTrace.timingOnly();
+        // named before the start: the sampler of the tracer recognizes the job span
+        Span jobSpan = tracer.spanBuilder()
+                .name(SPAN_JOB)
+                .tag(ATTRIBUTE_RUNNER_TYPE, runnerType)
+                .tag(ATTRIBUTE_JOB_KEY, String.valueOf(job.getKey()))
+                .tag(ATTRIBUTE_PROCESS_INSTANCE_KEY, String.valueOf(job.getProcessInstanceKey()))
+                .tag(ATTRIBUTE_ELEMENT_ID, String.valueOf(job.getElementId()))
+                .tag(ATTRIBUTE_TENANT, String.valueOf(job.getTenantId()))
+                .start();
+        return new JobTrace(tracer, jobSpan, new ExecutionTiming());
+    }
+
+    /**
+     * Null safe start, for the runners built outside Spring
+     *
+     * @param jobTracing tracing, may be null
+     * @param runnerType type of runner
+     * @param job        job to execute
+     * @return the trace
+     */
+    public static JobTrace start(JobTracing jobTracing, String runnerType, ActivatedJob job) {
+        return jobTracing == null ? JobTrace.timingOnly() : jobTracing.start(runnerType, job);
+    }
+
+    /**
+     * @param runnerType type of runner
+     * @param jobKey     key of the job
+     * @return true if the job is traced
+     */
+    public boolean isSampled(String runnerType, long jobKey) {
+        int rate = runnerSampleRates.computeIfAbsent(runnerType, this::getSampleRate);
+        if (rate <= 0)
+            return false;
+        if (rate >= SAMPLE_SCALE)
+            return true;
+        // job keys are sequential: mix the bits before the modulo
+        long mixed = jobKey * 0x9E3779B97F4A7C15L;
+        return Math.floorMod(mixed ^ (mixed >>> 32), SAMPLE_SCALE) < rate;
+    }
+
+    private int getSampleRate(String runnerType) {
+        double rate = defaultSampleRate;
+        if (environment != null)
+            rate = environment.getProperty("cherry.tracing.runner." + runnerType + ".samplerate", Double.class,
+                    defaultSampleRate);
+        return (int) Math.round(Math.min(1.0, Math.max(0.0, rate)) * SAMPLE_SCALE);
+    }
+}
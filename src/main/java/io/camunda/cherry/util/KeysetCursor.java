@@ -0,0 +1,54 @@
+package io.camunda.cherry.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a list ordered by (executionTime desc, id desc). The next page starts after this position: the cost of
+ * a page does not depend on its depth, and a record inserted meanwhile does not shift the pages.
+ * The cursor is sent to the client as an opaque string.
+ */
+public record KeysetCursor(LocalDateTime executionTime, long id) {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * @return the cursor, to send to the client
+     */
+    public String encode() {
+        String value = executionTime.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor cursor sent by the client
+     * @return the position, null if the cursor is empty
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty())
+            return null;
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(SEPARATOR);
+            return new KeysetCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid cursor [" + cursor + "]");
+        }
+    }
+
+    /**
+     * @param executionTime time of the last record of the page
+     * @param id            id of the last record of the page
+     * @param pageSize      number of records in the page
+     * @param rowsPerPage   number of records asked
+     * @return the cursor of the next page, null when the page is the last one
+     */
+    public static String next(LocalDateTime executionTime, Long id, int pageSize, int rowsPerPage) {
+        if (pageSize < rowsPerPage || executionTime == null || id == null)
+            return null;
+        return new KeysetCursor(executionTime, id).encode();
+    }
+}
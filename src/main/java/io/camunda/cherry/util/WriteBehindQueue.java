@@ -0,0 +1,292 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  WriteBehindQueue                                                    */
+/*                                                                      */
+/*  Bounded multi-producer / single-consumer buffer. Producers (the     */
+/*  job executor threads) only enqueue, a dedicated flusher thread      */
+/*  drains the buffer and hands batches to the flush function every     */
+/*  <batchSize> records or <flushInterval> milliseconds.                */
+/* ******************************************************************** */
+package io.camunda.cherry.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public class WriteBehindQueue<T> {
+
+    private final Logger logger = LoggerFactory.getLogger(WriteBehindQueue.class.getName());
+
+    private final String name;
+    /**
+     * ArrayBlockingQueue is an array-backed ring buffer: producers never allocate a node per record
+     */
+    private final ArrayBlockingQueue<T> buffer;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMs;
+    private final int sampleRate;
+    private final Consumer<List<T>> flushFunction;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong flushErrors = new AtomicLong();
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final AtomicLong numberOfFlushes = new AtomicLong();
+    private final AtomicLong sumFlushTimeMs = new AtomicLong();
+    private final AtomicLong peakFlushTimeMs = new AtomicLong();
+
+    private volatile boolean running = false;
+    private Thread flusherThread;
+
+    /**
+     * @param name            name of the queue, used for the flusher thread
+     * @param capacity        maximum number of records waiting in the buffer
+     * @param batchSize       flush as soon as this number of records is available
+     * @param flushIntervalMs flush at least every <flushIntervalMs> if records are waiting
+     * @param overflowPolicy  what to do when the buffer is full
+     * @param blockTimeoutMs  BLOCK policy: maximum time a producer waits for a free slot
+     * @param sampleRate      SAMPLE policy: one record out of <sampleRate> is kept once the buffer is half full
+     * @param flushFunction   function called by the flusher thread with a batch of records
+     */
+    public WriteBehindQueue(String name,
+                            int capacity,
+                            int batchSize,
+                            long flushIntervalMs,
+                            OverflowPolicy overflowPolicy,
+                            long blockTimeoutMs,
+                            int sampleRate,
+                            Consumer<List<T>> flushFunction) {
+        this.name = name;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = Math.max(1, flushIntervalMs);
+        this.overflowPolicy = overflowPolicy == null ? OverflowPolicy.DROP : overflowPolicy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.flushFunction = flushFunction;
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Lifecycle                                               */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    public synchronized void start() {
+        if (running)
+            return;
+        running = true;
+        flusherThread = new Thread(this::flushLoop, "cherry-" + name + "-flusher");
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+    }
+
+    /**
+     * Stop the flusher and write all pending records. Called at shutdown: nothing must be lost.
+     * The flusher is not interrupted: a batch in progress (a JDBC saveAll) finishes, then the flusher leaves its
+     * loop at the next poll.
+     *
+     * @param timeoutMs maximum time to wait for the flusher to finish
+     */
+    public void stop(long timeoutMs) {
+        Thread flusher;
+        synchronized (this) {
+            if (!running)
+                return;
+            running = false;
+            flusher = flusherThread;
+        }
+        try {
+            flusher.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // records added while the flusher was leaving are written in the caller thread
+        drainAndFlushAll();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Producer side                                           */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    /**
+     * Add a record. Never throw: the caller is a job execution thread
+     *
+     * @param record record to write
+     * @return true if the record is accepted, false if it is dropped by the overflow policy
+     */
+    public boolean offer(T record) {
+        boolean accepted;
+        switch (overflowPolicy) {
+        case BLOCK -> {
+            try {
+                accepted = buffer.offer(record, blockTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                accepted = false;
+            }
+        }
+        case SAMPLE -> {
+            // under pressure, keep only one record out of <sampleRate>
+            if (buffer.size() >= buffer.remainingCapacity() && sampleCounter.incrementAndGet() % sampleRate != 0)
+                accepted = false;
+            else
+                accepted = buffer.offer(record);
+        }
+        default -> accepted = buffer.offer(record);
+        }
+        if (accepted)
+            enqueued.incrementAndGet();
+        else
+            dropped.incrementAndGet();
+        // the queue was stopped while the record was added: stop() may have done its last drain already, so the
+        // producer writes it
+        if (accepted && !running)
+            drainAndFlushAll();
+        return accepted;
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Flusher side                                            */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    private void flushLoop() {
+        List<T> batch = new ArrayList<>(batchSize);
+        long lastFlush = System.currentTimeMillis();
+        while (running) {
+            try {
+                long waitMs = Math.max(1, flushIntervalMs - (System.currentTimeMillis() - lastFlush));
+                T first = buffer.poll(waitMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    buffer.drainTo(batch, batchSize - batch.size());
+                }
+                if (batch.size() >= batchSize || (!batch.isEmpty()
+                        && System.currentTimeMillis() - lastFlush >= flushIntervalMs)) {
+                    flushBatch(batch);
+                    batch = new ArrayList<>(batchSize);
+                    lastFlush = System.currentTimeMillis();
+                } else if (batch.isEmpty()) {
+                    lastFlush = System.currentTimeMillis();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("WriteBehindQueue[{}]: flusher error {}", name, e.getMessage());
+            }
+        }
+        if (!batch.isEmpty())
+            flushBatch(batch);
+    }
+
+    private synchronized void drainAndFlushAll() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            flushBatch(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    private void flushBatch(List<T> batch) {
+        long begin = System.currentTimeMillis();
+        try {
+            flushFunction.accept(batch);
+            flushed.addAndGet(batch.size());
+        } catch (Exception e) {
+            flushErrors.addAndGet(batch.size());
+            logger.error("WriteBehindQueue[{}]: can't flush {} records: {}", name, batch.size(), e.getMessage());
+        }
+        long flushTime = System.currentTimeMillis() - begin;
+        numberOfFlushes.incrementAndGet();
+        sumFlushTimeMs.addAndGet(flushTime);
+        peakFlushTimeMs.accumulateAndGet(flushTime, Math::max);
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  Statistics                                              */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    public int getCapacity() {
+        return buffer.size() + buffer.remainingCapacity();
+    }
+
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getFlushed() {
+        return flushed.get();
+    }
+
+    public long getFlushErrors() {
+        return flushErrors.get();
+    }
+
+    public long getNumberOfFlushes() {
+        return numberOfFlushes.get();
+    }
+
+    /**
+     * @return time spent in the flush function since the start. The only measure of the flush time: the metrics
+     * are built on it
+     */
+    public long getTotalFlushTimeMs() {
+        return sumFlushTimeMs.get();
+    }
+
+    public long getAverageFlushTimeMs() {
+        long nbFlushes = numberOfFlushes.get();
+        return nbFlushes == 0 ? 0 : sumFlushTimeMs.get() / nbFlushes;
+    }
+
+    public long getPeakFlushTimeMs() {
+        return peakFlushTimeMs.get();
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public enum OverflowPolicy {
+        /**
+         * the record is dropped when the buffer is full
+         */
+        DROP,
+        /**
+         * the producer waits a free slot, up to the block timeout
+         */
+        BLOCK,
+        /**
+         * when the buffer is half full, keep only one record out of the sample rate
+         */
+        SAMPLE
+    }
+}
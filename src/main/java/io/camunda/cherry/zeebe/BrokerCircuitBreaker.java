@@ -0,0 +1,265 @@
+/* ******************************************************************** */
+/*                                                                      */
+/*  BrokerCircuitBreaker                                                */
+/*                                                                      */
+/*  Health of the connection to the broker.                            */
+/*  CLOSED: the broker answers, runners activate jobs.                 */
+/*  OPEN: topology pings failed several times in a row. Runners are    */
+/*  paused (no activation), the broker is pinged again with an         */
+/*  exponential backoff + jitter.                                      */
+/*  HALF_OPEN: the broker answers again. Runners are resumed by small  */
+/*  batches; when all are resumed, the circuit is CLOSED.              */
+/*  Command failures seen by the handlers (gateway unavailable) ask    */
+/*  for a ping immediately. The JobRunnerFactory drives the runners.   */
+/* ******************************************************************** */
+package io.camunda.cherry.zeebe;
+
+import io.camunda.client.jobhandling.CommandExceptionHandlingStrategy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeoutException;
+
+@Service
+public class BrokerCircuitBreaker {
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final boolean enabled;
+    private final long pingIntervalMs;
+    private final int probeFailureThreshold;
+    private final int commandFailureThreshold;
+    private final long commandFailureWindowMs;
+    private final long backoffInitialMs;
+    private final long backoffMaxMs;
+    private final int resumeBatchSize;
+    private final long resumeIntervalMs;
+
+    private final Random random = new Random();
+    /**
+     * Time of the connection failures reported by the handlers, in the window
+     */
+    private final Deque<Long> commandFailures = new ArrayDeque<>();
+
+    private State state = State.CLOSED;
+    private long stateSince = System.currentTimeMillis();
+    private long nextProbeAt = 0;
+    /**
+     * Number of failed pings since the circuit is OPEN
+     */
+    private int failedProbes = 0;
+    /**
+     * Number of failed pings in a row while the circuit is CLOSED
+     */
+    private int consecutiveFailedProbes = 0;
+    private long totalCommandFailures = 0;
+    private int nbTransitions = 0;
+    private String lastError;
+
+    public BrokerCircuitBreaker(@Value("${cherry.zeebe.circuitbreaker.enabled:true}") boolean enabled,
+                                @Value("${cherry.zeebe.circuitbreaker.pingintervalms:30000}") long pingIntervalMs,
+                                @Value("${cherry.zeebe.circuitbreaker.probefailurethreshold:3}") int probeFailureThreshold,
+                                @Value("${cherry.zeebe.circuitbreaker.commandfailurethreshold:5}") int commandFailureThreshold,
+                                @Value("${cherry.zeebe.circuitbreaker.commandfailurewindowms:10000}") long commandFailureWindowMs,
+                                @Value("${cherry.zeebe.circuitbreaker.backoffinitialms:1000}") long backoffInitialMs,
+                                @Value("${cherry.zeebe.circuitbreaker.backoffmaxms:60000}") long backoffMaxMs,
+                                @Value("${cherry.zeebe.circuitbreaker.resumebatchsize:5}") int resumeBatchSize,
+                                @Value("${cherry.zeebe.circuitbreaker.resumeintervalms:2000}") long resumeIntervalMs) {
+        this.enabled = enabled;
+        this.pingIntervalMs = pingIntervalMs;
+        this.probeFailureThreshold = Math.max(1, probeFailureThreshold);
+        this.commandFailureThreshold = Math.max(1, commandFailureThreshold);
+        this.commandFailureWindowMs = commandFailureWindowMs;
+        this.backoffInitialMs = Math.max(1, backoffInitialMs);
+        this.backoffMaxMs = Math.max(this.backoffInitialMs, backoffMaxMs);
+        this.resumeBatchSize = Math.max(1, resumeBatchSize);
+        this.resumeIntervalMs = resumeIntervalMs;
+    }
+
+    /**
+     * A failure of a complete/fail/throw error command is a connection failure when the gateway can't be reached
+     *
+     * @param throwable error returned by the command
+     * @return true if the broker is not reachable
+     */
+    static boolean isConnectionFailure(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof UnknownHostException
+                    || cause instanceof TimeoutException)
+                return true;
+            String message = cause.getMessage();
+            if (message != null && (message.contains("UNAVAILABLE") || message.contains("DEADLINE_EXCEEDED")
+                    || message.contains("Connection refused")))
+                return true;
+        }
+        return false;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public int getResumeBatchSize() {
+        return resumeBatchSize;
+    }
+
+    /**
+     * @param now current time
+     * @return true if the broker must be pinged now
+     */
+    public synchronized boolean isProbeDue(long now) {
+        return now >= nextProbeAt;
+    }
+
+    /**
+     * A handler saw a command failure. Too many connection failures in the window ask for a ping now, without
+     * waiting for the next scheduled one
+     *
+     * @param throwable error returned by the command
+     * @param now       current time
+     */
+    public synchronized void recordCommandFailure(Throwable throwable, long now) {
+        if (!enabled || !isConnectionFailure(throwable))
+            return;
+        totalCommandFailures++;
+        lastError = throwable.getMessage();
+        commandFailures.addLast(now);
+        while (!commandFailures.isEmpty() && commandFailures.peekFirst() < now - commandFailureWindowMs)
+            commandFailures.removeFirst();
+        if (state == State.CLOSED && commandFailures.size() >= commandFailureThreshold) {
+            commandFailures.clear();
+            nextProbeAt = now;
+        }
+    }
+
+    /**
+     * Decorate the strategy used by the connectors: each command failure is reported to the circuit breaker
+     *
+     * @param strategy strategy to decorate
+     * @return the decorated strategy
+     */
+    public CommandExceptionHandlingStrategy observe(CommandExceptionHandlingStrategy strategy) {
+        return (command, throwable) -> {
+            recordCommandFailure(throwable, System.currentTimeMillis());
+            strategy.handleCommandError(command, throwable);
+        };
+    }
+
+    /**
+     * Result of a topology ping. While the circuit is CLOSED, a failed ping is retried after the initial backoff:
+     * the circuit opens after probeFailureThreshold failed pings in a row, not on a single network hiccup
+     *
+     * @param success true if the broker answered
+     * @param error   error when the ping failed
+     * @param now     current time
+     * @return the new state
+     */
+    public synchronized State onProbe(boolean success, String error, long now) {
+        switch (state) {
+            case CLOSED -> {
+                if (success) {
+                    consecutiveFailedProbes = 0;
+                    nextProbeAt = now + pingIntervalMs;
+                } else if (++consecutiveFailedProbes < probeFailureThreshold) {
+                    nextProbeAt = now + getBackoffMs(0);
+                } else {
+                    consecutiveFailedProbes = 0;
+                    failedProbes = 0;
+                    moveTo(State.OPEN, now);
+                    nextProbeAt = now + getBackoffMs(failedProbes);
+                }
+            }
+            case OPEN -> {
+                if (success) {
+                    // first batch resumed now
+                    moveTo(State.HALF_OPEN, now);
+                    nextProbeAt = now;
+                } else {
+                    failedProbes++;
+                    nextProbeAt = now + getBackoffMs(failedProbes);
+                }
+            }
+            case HALF_OPEN -> {
+                if (success) {
+                    nextProbeAt = now + jitter(resumeIntervalMs);
+                } else {
+                    failedProbes++;
+                    moveTo(State.OPEN, now);
+                    nextProbeAt = now + getBackoffMs(failedProbes);
+                }
+            }
+        }
+        if (!success)
+            lastError = error;
+        return state;
+    }
+
+    /**
+     * All paused runners are resumed: the circuit is closed
+     *
+     * @param now current time
+     */
+    public synchronized void onResumeComplete(long now) {
+        if (state != State.HALF_OPEN)
+            return;
+        failedProbes = 0;
+        commandFailures.clear();
+        moveTo(State.CLOSED, now);
+        nextProbeAt = now + pingIntervalMs;
+    }
+
+    /**
+     * Exponential backoff with jitter: between the half and the full delay, so all runtimes restarting after an
+     * outage do not ping the gateway at the same time
+     *
+     * @param attempt number of failed pings
+     * @return delay before the next ping
+     */
+    long getBackoffMs(int attempt) {
+        long delay = backoffInitialMs << Math.min(attempt, 30);
+        return jitter(Math.min(backoffMaxMs, delay));
+    }
+
+    private long jitter(long delay) {
+        long half = delay / 2;
+        return half + (half > 0 ? (long) (random.nextDouble() * (delay - half + 1)) : 0);
+    }
+
+    private void moveTo(State newState, long now) {
+        state = newState;
+        stateSince = now;
+        nbTransitions++;
+    }
+
+    /**
+     * @param pausedRunners number of runners paused by the circuit breaker
+     * @return the status, for the monitoring
+     */
+    public synchronized Map<String, Object> getStatus(int pausedRunners) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("state", state.toString());
+        status.put("since", Instant.ofEpochMilli(stateSince).toString());
+        status.put("nextProbe", Instant.ofEpochMilli(nextProbeAt).toString());
+        status.put("failedProbes", failedProbes);
+        status.put("consecutiveFailedProbes", consecutiveFailedProbes);
+        status.put("commandFailuresInWindow", commandFailures.size());
+        status.put("totalCommandFailures", totalCommandFailures);
+        status.put("transitions", nbTransitions);
+        status.put("lastError", lastError);
+        status.put("pausedRunners", pausedRunners);
+        return status;
+    }
+}
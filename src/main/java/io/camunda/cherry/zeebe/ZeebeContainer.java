@@ -11,7 +11,6 @@ import io.camunda.client.CamundaClient;
 import io.camunda.client.CamundaClientConfiguration;
 import io.camunda.client.api.CamundaFuture;
 import io.camunda.client.api.response.Topology;
-import io.camunda.client.jobhandling.CamundaClientExecutorService;
 import io.camunda.client.spring.properties.CamundaClientProperties;
 import io.camunda.connector.api.document.DocumentFactory;
 import io.camunda.connector.runtime.core.document.DocumentFactoryImpl;
@@ -24,6 +23,9 @@ import org.springframework.context.annotation.PropertySource;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
 @Component
 @Configuration
 @PropertySource("classpath:application.yaml")
@@ -133,13 +135,27 @@ public class ZeebeContainer {
      * @return the number of threads used when the ZeebeClient is started
      */
     public int getNumberOfThreads() {
-
+        if (camundaClient.getConfiguration().jobWorkerExecutor() instanceof ScheduledThreadPoolExecutor threadPool)
+            return threadPool.getCorePoolSize();
         return camundaClient.getConfiguration().getNumJobWorkerExecutionThreads();
     }
 
-    public void setNumberOfThreads(int numberOfThreads) {
-        CamundaClientExecutorService.createDefault(numberOfThreads);
-        // throw new TechnicalException("Can't upgrade the number of threads");
+    /**
+     * Resize the executor of the JobWorkers. The pool of the client is resized in place: the JobWorkers and the
+     * jobs in progress are not impacted. A thread over the new size ends when it is idle.
+     *
+     * @param numberOfThreads new number of threads
+     * @throws TechnicalException the executor of the client is not a thread pool
+     */
+    public void setNumberOfThreads(int numberOfThreads) throws TechnicalException {
+        if (numberOfThreads < 1)
+            throw new TechnicalException("Number of threads must be greater than 0");
+        ScheduledExecutorService executor = camundaClient.getConfiguration().jobWorkerExecutor();
+        if (!(executor instanceof ScheduledThreadPoolExecutor threadPool))
+            throw new TechnicalException(
+                    "Can't change the number of threads: executor " + executor.getClass().getName() + " can't be resized");
+        threadPool.setCorePoolSize(numberOfThreads);
+        logger.info("ZeebeContainer: job worker executor resized to {} threads", numberOfThreads);
     }
 
     /**
@@ -149,6 +165,13 @@ public class ZeebeContainer {
         return camundaClient.getConfiguration().getDefaultJobWorkerMaxJobsActive();
     }
 
+    /**
+     * @return the default timeout of the jobs activated by a JobWorker
+     */
+    public long getJobTimeoutMs() {
+        return camundaClient.getConfiguration().getDefaultJobTimeout().toMillis();
+    }
+
     /**
      * Check the connection, and restart it if it is possible
      *
@@ -0,0 +1,83 @@
+-- ---------------------------------------------------------------------------------------
+-- Partition the execution history (ChRunnerexecution) by day, on Postgres 14 and above
+-- (the retention detaches the old partitions concurrently).
+--
+-- Cherry creates the table as a regular table (Hibernate). On a large history, run this
+-- script once, runtime stopped. Then the HistoryRetention detects the partitioned table:
+-- it creates the next daily partitions, and drops the partitions older than the longest
+-- retention (cherry.history.retention.*indays) instead of deleting rows.
+--
+-- The columns and the indexes are copied from the existing table, whatever the version
+-- of Cherry which created it.
+--
+-- The primary key of a partitioned table must contain the partition key: the key is
+-- (id, execution_time). Ids still come from the sequence seqexecution.
+-- ---------------------------------------------------------------------------------------
+
+begin;
+
+alter table chrunnerexecution rename to chrunnerexecution_old;
+
+create table chrunnerexecution
+(
+    like chrunnerexecution_old including defaults
+) partition by range (execution_time);
+
+-- the indexes of the existing table are renamed, and created again on the partitioned table
+do
+$$
+    declare
+        index_record record;
+    begin
+        for index_record in
+            select c.relname as index_name, i.indisprimary as is_primary, pg_get_indexdef(i.indexrelid) as index_def
+            from pg_index i
+                     join pg_class c on c.oid = i.indexrelid
+            where i.indrelid = 'chrunnerexecution_old'::regclass
+            loop
+                execute format('alter index %I rename to %I', index_record.index_name,
+                               index_record.index_name || '_old');
+                if not index_record.is_primary then
+                    execute regexp_replace(index_record.index_def, ' ON (\S+\.)?chrunnerexecution_old ',
+                                           ' ON chrunnerexecution ');
+                end if;
+            end loop;
+    end
+$$;
+
+alter table chrunnerexecution
+    alter column execution_time set not null;
+alter table chrunnerexecution
+    add primary key (id, execution_time);
+
+-- records outside the daily partitions (far past, far future...)
+create table chrunnerexecution_default partition of chrunnerexecution default;
+
+-- one partition per day for the existing history, plus the next days
+do
+$$
+    declare
+        partition_day date := coalesce((select min(execution_time)::date from chrunnerexecution_old), current_date);
+    begin
+        while partition_day <= current_date + 3
+            loop
+                execute format(
+                        'create table if not exists chrunnerexecution_p%s partition of chrunnerexecution for values from (%L) to (%L)',
+                        to_char(partition_day, 'YYYYMMDD'), partition_day, partition_day + 1);
+                partition_day := partition_day + 1;
+            end loop;
+    end
+$$;
+
+-- same columns, in the same order
+update chrunnerexecution_old
+set execution_time = timestamp '1970-01-01'
+where execution_time is null;
+
+insert into chrunnerexecution
+select *
+from chrunnerexecution_old;
+
+drop table chrunnerexecution_old;
+
+commit;
@@ -0,0 +1,132 @@
+package io.camunda.cherry;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Stubs for the tests: interfaces of the Camunda client and of the repositories, and the settings injected by Spring
+ */
+public class Stubs {
+
+    private Stubs() {
+    }
+
+    /**
+     * Answer of a method of a stub
+     */
+    public interface Answer {
+        Object answer(Object[] args) throws Throwable;
+    }
+
+    /**
+     * @param value value returned by the method, whatever the arguments
+     * @return the answer
+     */
+    public static Answer returns(Object value) {
+        return args -> value;
+    }
+
+    /**
+     * Stub of an interface. A method in the answers is answered by it. Other methods return the stub when they return
+     * its type (a builder step), else the default value of their type (null, 0, false). equals and hashCode are the
+     * identity of the stub: it can be a key of a map.
+     *
+     * @param type    interface
+     * @param answers answer per method name
+     * @return the stub
+     */
+    public static <T> T stub(Class<T> type, Map<String, Answer> answers) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Answer answer = answers.get(method.getName());
+            if (answer != null)
+                return answer.answer(args == null ? new Object[0] : args);
+            return switch (method.getName()) {
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "Stub " + type.getSimpleName();
+                default -> returnsStub(method, proxy) ? proxy : defaultValue(method);
+            };
+        }));
+    }
+
+    /**
+     * Stub of a fluent API (JobClient, builders): each method returns the stub itself, or a stub of the next step.
+     *
+     * @param type   interface
+     * @param onCall called for each method, with its name and its arguments (empty if none)
+     * @return the stub
+     */
+    public static <T> T fluent(Class<T> type, BiConsumer<String, Object[]> onCall) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "Fluent " + type.getSimpleName();
+                default:
+                    onCall.accept(method.getName(), args == null ? new Object[0] : args);
+            }
+            if (returnsStub(method, proxy))
+                return proxy;
+            Class<?> returnType = method.getReturnType();
+            return returnType.isInterface() ? fluent(returnType, onCall) : defaultValue(method);
+        }));
+    }
+
+    /**
+     * Set a field, private or not, of the object or of one of its super classes: the settings injected by Spring
+     * in the application
+     *
+     * @param target    object
+     * @param fieldName name of the field
+     * @param value     value
+     */
+    public static void setField(Object target, String fieldName, Object value) {
+        for (Class<?> clazz = target.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+            try {
+                Field field = clazz.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // search in the super class
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Can't set field " + fieldName, e);
+            }
+        }
+        throw new IllegalArgumentException("No field " + fieldName + " in " + target.getClass().getName());
+    }
+
+    /**
+     * The method returns the type of the stub (a generic method, returning Object, does not)
+     */
+    private static boolean returnsStub(Method method, Object proxy) {
+        return method.getReturnType() != Object.class && method.getReturnType().isInstance(proxy);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> returnType = method.getReturnType();
+        if (!returnType.isPrimitive() || returnType == void.class)
+            return null;
+        if (returnType == boolean.class)
+            return false;
+        if (returnType == char.class)
+            return '\0';
+        if (returnType == long.class)
+            return 0L;
+        if (returnType == double.class)
+            return 0.0d;
+        if (returnType == float.class)
+            return 0.0f;
+        if (returnType == int.class)
+            return 0;
+        if (returnType == short.class)
+            return (short) 0;
+        return (byte) 0;
+    }
+}
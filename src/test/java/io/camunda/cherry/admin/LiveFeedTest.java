@@ -0,0 +1,244 @@
+package io.camunda.cherry.admin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.camunda.cherry.Stubs;
+import io.camunda.cherry.db.entity.OperationEntity;
+import io.camunda.cherry.definition.AbstractRunner;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LiveFeedTest {
+
+    /**
+     * Emitter keeping the events sent, as written on the stream
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        /**
+         * A browser which does not read: send waits until this latch is released
+         */
+        volatile CountDownLatch browserReads;
+
+        RecordingEmitter(long timeoutMs) {
+            super(timeoutMs);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            if (browserReads != null) {
+                try {
+                    browserReads.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add(builder.build()
+                    .stream()
+                    .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .map(Object::toString)
+                    .collect(Collectors.joining()));
+        }
+
+        List<String> eventsNamed(String eventName) {
+            return events.stream().filter(event -> event.startsWith("event:" + eventName + "\n")).toList();
+        }
+    }
+
+    /**
+     * Run the sends on the calling thread: a tick is sent when it returns
+     */
+    private static class DirectExecutorService extends AbstractExecutorService {
+        private boolean shutdown = false;
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return shutdown;
+        }
+    }
+
+    private static class RecordingLiveFeed extends LiveFeed {
+        final List<RecordingEmitter> emitters = new ArrayList<>();
+
+        /**
+         * Live feed with the default settings of the application
+         */
+        RecordingLiveFeed() {
+            objectMapper = new ObjectMapper();
+            Stubs.setField(this, "enabled", true);
+            Stubs.setField(this, "tickMs", 2000L);
+            Stubs.setField(this, "maxSubscribers", 50);
+            Stubs.setField(this, "subscriberTimeoutMs", 1800000L);
+            Stubs.setField(this, "keepAliveTicks", 10);
+            Stubs.setField(this, "sendExecutor", new DirectExecutorService());
+        }
+
+        @Override
+        SseEmitter createEmitter(long timeoutMs) {
+            RecordingEmitter emitter = new RecordingEmitter(timeoutMs);
+            emitters.add(emitter);
+            return emitter;
+        }
+    }
+
+    @Test
+    public void subscriberReceivesHello() {
+        RecordingLiveFeed liveFeed = new RecordingLiveFeed();
+        assertNotNull(liveFeed.subscribe());
+        assertEquals(1, liveFeed.getNumberOfSubscribers());
+        List<String> hello = liveFeed.emitters.get(0).eventsNamed(LiveFeed.EVENT_HELLO);
+        assertEquals(1, hello.size());
+        assertTrue(hello.get(0).contains("\"tickMs\":2000"));
+    }
+
+    @Test
+    public void nothingIsCollectedWithoutSubscriber() {
+        RecordingLiveFeed liveFeed = new RecordingLiveFeed();
+        liveFeed.onExecution("ping", AbstractRunner.ExecutionStatusEnum.SUCCESS, 10);
+        liveFeed.subscribe();
+        liveFeed.tick();
+        assertTrue(liveFeed.emitters.get(0).eventsNamed(LiveFeed.EVENT_RUNNERS).isEmpty());
+    }
+
+    @Test
+    public void deltasAreSentOncePerTickToAllSubscribers() {
+        RecordingLiveFeed liveFeed = new RecordingLiveFeed();
+        liveFeed.subscribe();
+        liveFeed.subscribe();
+        liveFeed.onExecution("ping", AbstractRunner.ExecutionStatusEnum.SUCCESS, 10);
+        liveFeed.onExecution("ping", AbstractRunner.ExecutionStatusEnum.FAIL, 30);
+        liveFeed.onExecution("ping", AbstractRunner.ExecutionStatusEnum.BPMNERROR, 20);
+        liveFeed.tick();
+
+        for (RecordingEmitter emitter : liveFeed.emitters) {
+            List<String> runners = emitter.eventsNamed(LiveFeed.EVENT_RUNNERS);
+            assertEquals(1, runners.size());
+            String payload = runners.get(0);
+            assertTrue(payload.contains("\"type\":\"ping\""));
+            assertTrue(payload.contains("\"executions\":3"));
+            assertTrue(payload.contains("\"executionsFailed\":1"));
+            assertTrue(payload.contains("\"peakExecutionMs\":30"));
+        }
+        // the deltas are reset at each tick
+        liveFeed.tick();
+        assertEquals(1, liveFeed.emitters.get(0).eventsNamed(LiveFeed.EVENT_RUNNERS).size());
+    }
+
+    @Test
+    public void operationsAreSent() {
+        RecordingLiveFeed liveFeed = new RecordingLiveFeed();
+        liveFeed.subscribe();
+        OperationEntity operationEntity = new OperationEntity();
+        operationEntity.operation = OperationEntity.Operation.STOPRUNNER;
+        operationEntity.runnerType = "ping";
+        liveFeed.onOperation(operationEntity);
+        liveFeed.tick();
+
+        List<String> operations = liveFeed.emitters.get(0).eventsNamed(LiveFeed.EVENT_OPERATIONS);
+        assertEquals(1, operations.size());
+        assertTrue(operations.get(0).contains("\"operation\":\"STOPRUNNER\""));
+        assertTrue(operations.get(0).contains("\"runnerType\":\"ping\""));
+    }
+
+    @Test
+    public void keepAliveWhenNothingHappens() {
+        RecordingLiveFeed liveFeed = new RecordingLiveFeed();
+        liveFeed.subscribe();
+        for (int tick = 0; tick < 9; tick++)
+            liveFeed.tick();
+        assertEquals(1, liveFeed.emitters.get(0).events.size());
+        liveFeed.tick();
+        assertEquals(2, liveFeed.emitters.get(0).events.size());
+        assertTrue(liveFeed.emitters.get(0).events.get(1).startsWith(":keep-alive"));
+    }
+
+    @Test
+    public void slowSubscriberDoesNotBlockTheTick() throws Exception {
+        RecordingLiveFeed liveFeed = new RecordingLiveFeed();
+        Stubs.setField(liveFeed, "sendExecutor", Executors.newVirtualThreadPerTaskExecutor());
+        liveFeed.subscribe();
+        liveFeed.subscribe();
+        RecordingEmitter slowEmitter = liveFeed.emitters.get(0);
+        slowEmitter.browserReads = new CountDownLatch(1);
+        liveFeed.onExecution("ping", AbstractRunner.ExecutionStatusEnum.SUCCESS, 10);
+
+        long begin = System.nanoTime();
+        liveFeed.tick();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) < 1000);
+        waitForEvent(liveFeed.emitters.get(1));
+        assertTrue(slowEmitter.eventsNamed(LiveFeed.EVENT_RUNNERS).isEmpty());
+
+        slowEmitter.browserReads.countDown();
+        waitForEvent(slowEmitter);
+        assertEquals(1, slowEmitter.eventsNamed(LiveFeed.EVENT_RUNNERS).size());
+        liveFeed.end();
+    }
+
+    @Test
+    public void subscriberNotReadingIsClosed() {
+        RecordingLiveFeed liveFeed = new RecordingLiveFeed();
+        Stubs.setField(liveFeed, "sendExecutor", Executors.newVirtualThreadPerTaskExecutor());
+        liveFeed.subscribe();
+        liveFeed.emitters.get(0).browserReads = new CountDownLatch(1);
+        for (int tick = 0; tick < 30 && liveFeed.getNumberOfSubscribers() > 0; tick++) {
+            OperationEntity operationEntity = new OperationEntity();
+            operationEntity.operation = OperationEntity.Operation.STOPRUNNER;
+            liveFeed.onOperation(operationEntity);
+            liveFeed.tick();
+        }
+        assertEquals(0, liveFeed.getNumberOfSubscribers());
+        liveFeed.emitters.get(0).browserReads.countDown();
+        liveFeed.end();
+    }
+
+    @Test
+    public void subscribersAreCapped() {
+        RecordingLiveFeed liveFeed = new RecordingLiveFeed();
+        for (int i = 0; i < 50; i++)
+            assertNotNull(liveFeed.subscribe());
+        assertNull(liveFeed.subscribe());
+        assertEquals(50, liveFeed.getNumberOfSubscribers());
+    }
+
+    private static void waitForEvent(RecordingEmitter emitter) throws InterruptedException {
+        for (int i = 0; i < 500 && emitter.eventsNamed(LiveFeed.EVENT_RUNNERS).isEmpty(); i++)
+            Thread.sleep(10);
+    }
+}
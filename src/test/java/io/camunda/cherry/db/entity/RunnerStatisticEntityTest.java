@@ -0,0 +1,31 @@
+package io.camunda.cherry.db.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunnerStatisticEntityTest {
+
+    @Test
+    public void slotTimeIsTheBeginningOfTheSlot() {
+        LocalDateTime dateTime = LocalDateTime.of(2025, 3, 12, 14, 37, 21, 500_000_000);
+        assertEquals(LocalDateTime.of(2025, 3, 12, 14, 30),
+                RunnerStatisticEntity.Granularity.TENMINUTES.getSlotTime(dateTime));
+        assertEquals(LocalDateTime.of(2025, 3, 12, 14, 0), RunnerStatisticEntity.Granularity.HOUR.getSlotTime(dateTime));
+        assertEquals(LocalDateTime.of(2025, 3, 12, 0, 0), RunnerStatisticEntity.Granularity.DAY.getSlotTime(dateTime));
+    }
+
+    @Test
+    public void slotBoundaries() {
+        LocalDateTime beginning = LocalDateTime.of(2025, 3, 12, 14, 40);
+        for (RunnerStatisticEntity.Granularity granularity : RunnerStatisticEntity.Granularity.values()) {
+            LocalDateTime slotTime = granularity.getSlotTime(beginning);
+            // the slot contains its first and its last minute, not the first minute of the next slot
+            assertEquals(slotTime, granularity.getSlotTime(slotTime));
+            assertEquals(slotTime, granularity.getSlotTime(slotTime.plusMinutes(granularity.minutes).minusNanos(1)));
+            assertNotEquals(slotTime, granularity.getSlotTime(slotTime.plusMinutes(granularity.minutes)));
+        }
+    }
+}
@@ -1,12 +1,129 @@
 package io.camunda.cherry.definition;
 
+import io.camunda.cherry.Stubs;
+import io.camunda.cherry.db.entity.RunnerExecutionEntity;
+import io.camunda.cherry.runtime.HistoryFactory;
+import io.camunda.cherry.tracing.ExecutionTiming;
+import io.camunda.client.api.CamundaFuture;
+import io.camunda.client.api.command.CompleteJobCommandStep1;
+import io.camunda.client.api.response.ActivatedJob;
+import io.camunda.client.api.worker.JobClient;
+import io.camunda.client.jobhandling.CommandExceptionHandlingStrategy;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class AbstractWorkerTest {
 
+    private static class EmptyWorker extends AbstractWorker {
+        EmptyWorker() {
+            super("c-test-worker", Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+        }
+
+        @Override
+        public String getName() {
+            return "EmptyWorker";
+        }
+
+        @Override
+        public void execute(JobClient jobClient, ActivatedJob activatedJob, ContextExecution contextExecution) {
+            // nothing to do: the job is completed without variables
+        }
+    }
+
+    /**
+     * History keeping the executions saved, as status:errorCode
+     */
+    private static class RecordingHistory extends HistoryFactory {
+        final List<String> executions = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void saveExecution(Instant executionTime,
+                                  RunnerExecutionEntity.TypeExecutor typeExecutor,
+                                  String runnerType,
+                                  String tenantId,
+                                  Long jobKey,
+                                  AbstractRunner.ExecutionStatusEnum status,
+                                  String errorCode,
+                                  String errorMessage,
+                                  long durationInMs,
+                                  ExecutionTiming executionTiming) {
+            executions.add(status + ":" + errorCode);
+        }
+    }
+
+    /**
+     * Answer of the gateway to a command
+     */
+    private static class CommandAnswer<T> extends CompletableFuture<T> implements CamundaFuture<T> {
+        @Override
+        public T join(long timeout, TimeUnit unit) {
+            try {
+                return get(timeout, unit);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor();
+    private final RecordingHistory history = new RecordingHistory();
+    /**
+     * Answers to the complete commands, in the order of the sends
+     */
+    private final Queue<CommandAnswer<Object>> answers = new ConcurrentLinkedQueue<>();
+
+    @AfterEach
+    public void end() {
+        retryScheduler.shutdownNow();
+    }
+
+    private EmptyWorker asynchronousWorker(CommandExceptionHandlingStrategy strategy) {
+        EmptyWorker worker = new EmptyWorker();
+        worker.historyFactory = history;
+        worker.commandExceptionHandlingStrategy = strategy;
+        Stubs.setField(worker, "asynchronousCompletion", true);
+        Stubs.setField(worker, "completionMaxRetries", 3);
+        return worker;
+    }
+
+    private JobClient jobClient() {
+        CompleteJobCommandStep1 completeCommand = Stubs.stub(CompleteJobCommandStep1.class,
+                Map.of("send", args -> answers.poll()));
+        return Stubs.stub(JobClient.class, Map.of("newCompleteCommand", Stubs.returns(completeCommand)));
+    }
+
+    private static ActivatedJob activatedJob() {
+        return Stubs.stub(ActivatedJob.class,
+                Map.of("getKey", Stubs.returns(42L), "getType", Stubs.returns("c-test-worker"), "getVariables",
+                        Stubs.returns("{}"), "getVariablesAsMap", Stubs.returns(Map.of()), "getCustomHeaders",
+                        Stubs.returns(Map.of())));
+    }
+
+    private static CommandAnswer<Object> failed(String message) {
+        CommandAnswer<Object> answer = new CommandAnswer<>();
+        answer.completeExceptionally(new RuntimeException(message));
+        return answer;
+    }
+
+    private void waitForExecution() throws InterruptedException {
+        for (int i = 0; i < 500 && history.executions.isEmpty(); i++)
+            Thread.sleep(10);
+    }
+
     @Test
     public void parseNumbersFromInputs() {
 
@@ -19,4 +136,38 @@ public class AbstractWorkerTest {
         assertTrue(AbstractWorker.canParse(Long.class, "1000000"));
         assertTrue(AbstractWorker.canParse(Long.class, 1000000));
     }
+
+    @Test
+    public void failedCompletionIsSavedAsFail() {
+        answers.add(failed("Gateway unavailable"));
+        asynchronousWorker(null).handle(jobClient(), activatedJob());
+
+        assertEquals(List.of("FAIL:CommandFailed"), history.executions);
+    }
+
+    @Test
+    public void completionGivenUpByTheStrategyIsSavedAsFail() {
+        answers.add(failed("Job not found"));
+        asynchronousWorker((wrapper, throwable) -> {
+            // not retried
+        }).handle(jobClient(), activatedJob());
+
+        assertEquals(List.of("FAIL:CommandFailed"), history.executions);
+    }
+
+    @Test
+    public void retriedCompletionIsSavedWithItsOutcome() throws InterruptedException {
+        CommandAnswer<Object> retryAnswer = new CommandAnswer<>();
+        answers.add(failed("Gateway busy"));
+        answers.add(retryAnswer);
+        asynchronousWorker((wrapper, throwable) -> wrapper.scheduleExecutionUsing(retryScheduler)).handle(
+                jobClient(), activatedJob());
+
+        // the retry has no answer yet: nothing is saved
+        assertTrue(history.executions.isEmpty());
+
+        retryAnswer.complete(null);
+        waitForExecution();
+        assertEquals(List.of("SUCCESS:null"), history.executions);
+    }
 }
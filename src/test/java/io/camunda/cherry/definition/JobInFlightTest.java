@@ -0,0 +1,65 @@
+package io.camunda.cherry.definition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JobInFlightTest {
+
+    @Test
+    public void jobEndsWhenTheHandlerReturns() {
+        AtomicInteger inFlight = new AtomicInteger();
+        JobInFlight jobInFlight = JobInFlight.bind(inFlight);
+        assertEquals(1, inFlight.get());
+        jobInFlight.unbind();
+        assertEquals(0, inFlight.get());
+    }
+
+    @Test
+    public void deferredJobEndsInTheCallback() {
+        AtomicInteger inFlight = new AtomicInteger();
+        JobInFlight jobInFlight = JobInFlight.bind(inFlight);
+        Runnable endJobInFlight = JobInFlight.defer();
+        jobInFlight.unbind();
+        // the handler returned, the command is not answered yet
+        assertEquals(1, inFlight.get());
+
+        endJobInFlight.run();
+        assertEquals(0, inFlight.get());
+        // a second call does not count the job twice
+        endJobInFlight.run();
+        assertEquals(0, inFlight.get());
+    }
+
+    @Test
+    public void handedOffJobEndsOnTheOtherThread() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        JobInFlight jobInFlight = JobInFlight.bind(inFlight);
+        JobInFlight handedOff = JobInFlight.handOff();
+        jobInFlight.unbind();
+        assertEquals(1, inFlight.get());
+
+        Thread otherThread = new Thread(() -> {
+            handedOff.rebind();
+            // the handler on the other thread completes asynchronously
+            Runnable endJobInFlight = JobInFlight.defer();
+            handedOff.unbind();
+            assertEquals(1, inFlight.get());
+            endJobInFlight.run();
+        });
+        otherThread.start();
+        otherThread.join();
+        assertEquals(0, inFlight.get());
+    }
+
+    @Test
+    public void deferWithoutJobDoesNothing() {
+        AtomicInteger inFlight = new AtomicInteger();
+        JobInFlight.bind(inFlight).unbind();
+        Runnable endJobInFlight = JobInFlight.defer();
+        endJobInFlight.run();
+        assertEquals(0, inFlight.get());
+    }
+}
@@ -0,0 +1,41 @@
+package io.camunda.cherry.definition;
+
+import io.camunda.connector.cherrytemplate.RunnerParameter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunnerContractTest {
+
+    @Test
+    public void parseNumbersWithoutException() {
+        assertTrue(RunnerContract.isInteger("01"));
+        assertTrue(RunnerContract.isInteger("-2147483648"));
+        assertTrue(RunnerContract.isInteger("+12"));
+        assertFalse(RunnerContract.isInteger("2147483648"));
+        assertFalse(RunnerContract.isInteger("-"));
+        assertFalse(RunnerContract.isInteger("12a"));
+        assertFalse(RunnerContract.isInteger(""));
+
+        assertTrue(RunnerContract.isLong("9223372036854775807"));
+        assertTrue(RunnerContract.isLong("-9223372036854775808"));
+        assertFalse(RunnerContract.isLong("9223372036854775808"));
+        assertFalse(RunnerContract.isLong("1.5"));
+    }
+
+    @Test
+    public void checkOutput() {
+        RunnerContract contract = RunnerContract.compile(List.of(), List.of(
+                RunnerParameter.getInstance("count", "Count", Long.class, null, RunnerParameter.Level.REQUIRED, ""),
+                RunnerParameter.getInstance("done", "Done", Boolean.class, null, RunnerParameter.Level.OPTIONAL, "")));
+
+        assertTrue(contract.checkOutput(Map.of("count", "12", "done", "yes")).isEmpty());
+        // missing, wrong type, not declared
+        assertEquals(1, contract.checkOutput(Map.of()).size());
+        assertEquals(1, contract.checkOutput(Map.of("count", 12L, "done", "maybe")).size());
+        assertEquals(1, contract.checkOutput(Map.of("count", 12L, "extra", 1)).size());
+    }
+}
@@ -0,0 +1,103 @@
+package io.camunda.cherry.runner;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void increaseWhenLatencyIsFlatAndLimitIsUsed() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10,
+                new AdaptiveConcurrencyLimiter.Parameters());
+        // 1000 executions of 100 ms in 10 s: 10 jobs in progress
+        AdaptiveConcurrencyLimiter.Decision decision = limiter.onWindow(1000, 0, 100_000, 10_000);
+        assertNotNull(decision);
+        assertEquals(10, decision.previousLimit());
+        assertEquals(12, decision.newLimit());
+    }
+
+    @Test
+    public void noChangeWhenLimitIsNotUsed() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10,
+                new AdaptiveConcurrencyLimiter.Parameters());
+        // 100 executions of 100 ms in 10 s: 1 job in progress
+        assertNull(limiter.onWindow(100, 0, 10_000, 10_000));
+        // not enough samples
+        assertNull(limiter.onWindow(5, 5, 500, 10_000));
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void decreaseOnLatencyOrErrors() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100,
+                new AdaptiveConcurrencyLimiter.Parameters());
+        limiter.onWindow(100, 0, 10_000, 10_000);
+        // latency x3
+        AdaptiveConcurrencyLimiter.Decision decision = limiter.onWindow(100, 0, 30_000, 10_000);
+        assertNotNull(decision);
+        assertEquals(70, decision.newLimit());
+
+        // 50% errors
+        decision = limiter.onWindow(100, 50, 10_000, 10_000);
+        assertNotNull(decision);
+        assertEquals(49, decision.newLimit());
+    }
+
+    @Test
+    public void limitStaysInBounds() {
+        AdaptiveConcurrencyLimiter.Parameters parameters = new AdaptiveConcurrencyLimiter.Parameters();
+        parameters.minLimit = 2;
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, parameters);
+        assertNull(limiter.onWindow(100, 100, 10_000, 10_000));
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void initialLimitIsClamped() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1000,
+                new AdaptiveConcurrencyLimiter.Parameters());
+        assertEquals(500, limiter.getLimit());
+        assertEquals(500, limiter.getAppliedLimit());
+        assertNull(limiter.toApply(0));
+    }
+
+    @Test
+    public void smallChangesAreNotApplied() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20,
+                new AdaptiveConcurrencyLimiter.Parameters());
+        // +2: 10% of the applied limit
+        limiter.onWindow(1000, 0, 200_000, 10_000);
+        assertEquals(22, limiter.getLimit());
+        assertNull(limiter.toApply(0));
+        // +4: 20%
+        limiter.onWindow(1000, 0, 220_000, 10_000);
+        AdaptiveConcurrencyLimiter.Decision decision = limiter.toApply(0);
+        assertNotNull(decision);
+        assertEquals(20, decision.previousLimit());
+        assertEquals(24, decision.newLimit());
+        assertEquals(24, limiter.getAppliedLimit());
+        assertNull(limiter.toApply(0));
+    }
+
+    @Test
+    public void increaseWaitsTheMinimumDelayDecreaseDoesNot() {
+        AdaptiveConcurrencyLimiter.Parameters parameters = new AdaptiveConcurrencyLimiter.Parameters();
+        parameters.increaseStep = 10;
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, parameters);
+        limiter.onWindow(1000, 0, 100_000, 10_000);
+        assertEquals(20, limiter.toApply(1_000).newLimit());
+
+        limiter.onWindow(2000, 0, 200_000, 10_000);
+        assertEquals(30, limiter.getLimit());
+        assertNull(limiter.toApply(1_000 + parameters.minApplyIntervalMs - 1));
+        assertEquals(30, limiter.toApply(1_000 + parameters.minApplyIntervalMs).newLimit());
+
+        // errors: the decrease is applied now
+        limiter.onWindow(2000, 1000, 200_000, 10_000);
+        AdaptiveConcurrencyLimiter.Decision decision = limiter.toApply(1_000 + parameters.minApplyIntervalMs + 1);
+        assertNotNull(decision);
+        assertEquals(21, decision.newLimit());
+        assertTrue(decision.reason().startsWith("error rate"));
+    }
+}
@@ -0,0 +1,134 @@
+package io.camunda.cherry.runner;
+
+import io.camunda.cherry.Stubs;
+import io.camunda.cherry.db.entity.OperationEntity;
+import io.camunda.cherry.db.repository.OperationRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogOperationTest {
+
+    /**
+     * Repository keeping the operations saved, and the size of each batch
+     */
+    private static class RecordingRepository {
+        final List<OperationEntity> saved = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+
+        @SuppressWarnings("unchecked")
+        OperationRepository asRepository() {
+            return Stubs.stub(OperationRepository.class, Map.of("saveAll", args -> {
+                List<OperationEntity> batch = new ArrayList<>();
+                ((Iterable<OperationEntity>) args[0]).forEach(batch::add);
+                batches.add(batch.size());
+                saved.addAll(batch);
+                return batch;
+            }, "save", args -> {
+                saved.add((OperationEntity) args[0]);
+                return args[0];
+            }));
+        }
+    }
+
+    /**
+     * Operation log with the default settings of the application
+     */
+    private LogOperation newLogOperation(RecordingRepository repository) {
+        LogOperation logOperation = new LogOperation();
+        logOperation.operationRepository = repository.asRepository();
+        Stubs.setField(logOperation, "writeBehindEnabled", true);
+        Stubs.setField(logOperation, "capacity", 5000);
+        Stubs.setField(logOperation, "batchSize", 100);
+        Stubs.setField(logOperation, "flushIntervalMs", 500L);
+        Stubs.setField(logOperation, "blockTimeoutMs", 200L);
+        Stubs.setField(logOperation, "shutdownTimeoutMs", 10000L);
+        Stubs.setField(logOperation, "dedupWindowMs", 10000L);
+        Stubs.setField(logOperation, "configuredHostName", "");
+        logOperation.init();
+        return logOperation;
+    }
+
+    @Test
+    public void operationsAreWrittenByBatch() {
+        RecordingRepository repository = new RecordingRepository();
+        LogOperation logOperation = newLogOperation(repository);
+        for (int i = 0; i < 20; i++)
+            logOperation.log(OperationEntity.Operation.SERVERINFO, "operation " + i);
+        logOperation.end();
+
+        assertEquals(20, repository.saved.size());
+        assertTrue(repository.batches.size() < 20);
+        assertNotNull(repository.saved.get(0).hostName);
+        assertEquals(20L, logOperation.getStatistics().get("flushed"));
+    }
+
+    @Test
+    public void repeatedOperationIsWrittenOnce() {
+        RecordingRepository repository = new RecordingRepository();
+        LogOperation logOperation = newLogOperation(repository);
+        for (int i = 0; i < 5; i++)
+            logOperation.logError("Broker unavailable");
+        logOperation.log(OperationEntity.Operation.SERVERINFO, "other");
+        logOperation.end();
+
+        List<String> messages = repository.saved.stream().map(operation -> operation.message).toList();
+        assertEquals(3, messages.size());
+        assertTrue(messages.contains("Broker unavailable"));
+        assertTrue(messages.contains("Broker unavailable (repeated 4 times)"));
+        assertTrue(messages.contains("other"));
+    }
+
+    @Test
+    public void stateTransitionsAreAlwaysWritten() {
+        RecordingRepository repository = new RecordingRepository();
+        LogOperation logOperation = newLogOperation(repository);
+        List<OperationEntity> notified = Collections.synchronizedList(new ArrayList<>());
+        logOperation.addOperationListener(notified::add);
+        for (int i = 0; i < 2; i++) {
+            logOperation.log(OperationEntity.Operation.BROKERCONNECTION, "CLOSED");
+            logOperation.log(OperationEntity.Operation.BROKERCONNECTION, "OPEN");
+        }
+        logOperation.end();
+
+        assertEquals(List.of("CLOSED", "OPEN", "CLOSED", "OPEN"),
+                repository.saved.stream().map(operation -> operation.message).toList());
+        assertEquals(4, notified.size());
+    }
+
+    @Test
+    public void longMessageIsTruncated() {
+        RecordingRepository repository = new RecordingRepository();
+        LogOperation logOperation = newLogOperation(repository);
+        logOperation.logError("x".repeat(5000));
+        logOperation.logError("x".repeat(5000));
+        logOperation.end();
+
+        assertEquals(2, repository.saved.size());
+        for (OperationEntity operationEntity : repository.saved) {
+            assertEquals(3000, operationEntity.message.length());
+        }
+        assertTrue(repository.saved.get(1).message.endsWith(" (repeated 1 times)"));
+    }
+
+    @Test
+    public void listenerIsCalledAndOperationAfterStopIsSaved() {
+        RecordingRepository repository = new RecordingRepository();
+        LogOperation logOperation = newLogOperation(repository);
+        List<OperationEntity> notified = Collections.synchronizedList(new ArrayList<>());
+        logOperation.addOperationListener(notified::add);
+        logOperation.log(OperationEntity.Operation.STARTRUNTIME, "start");
+        logOperation.end();
+        assertEquals(1, notified.size());
+
+        // the runtime is stopping: written on the caller thread
+        logOperation.log(OperationEntity.Operation.STOPRUNTIME, "stop");
+        assertEquals(2, repository.saved.size());
+        assertEquals(2, notified.size());
+    }
+}
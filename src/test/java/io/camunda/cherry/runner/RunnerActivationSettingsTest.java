@@ -0,0 +1,79 @@
+package io.camunda.cherry.runner;
+
+import io.camunda.cherry.Stubs;
+import io.camunda.cherry.db.entity.RunnerDefinitionEntity;
+import io.camunda.client.api.worker.JobWorkerBuilderStep1;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunnerActivationSettingsTest {
+
+    /**
+     * Builder recording the settings applied: key is the method, value the argument
+     */
+    private static JobWorkerBuilderStep1.JobWorkerBuilderStep3 recordingBuilder(Map<String, Object> applied) {
+        return Stubs.fluent(JobWorkerBuilderStep1.JobWorkerBuilderStep3.class,
+                (name, args) -> applied.put(name, args.length == 0 ? null : args[0]));
+    }
+
+    @Test
+    public void validate() {
+        RunnerActivationSettings settings = new RunnerActivationSettings();
+        assertNull(settings.validate());
+
+        settings.maxJobsActive = 0;
+        assertNotNull(settings.validate());
+        settings.maxJobsActive = 32;
+        assertNull(settings.validate());
+
+        settings.pollIntervalMs = -1L;
+        assertNotNull(settings.validate());
+        settings.pollIntervalMs = 100L;
+
+        settings.backoffMinDelayMs = 5000L;
+        settings.backoffMaxDelayMs = 1000L;
+        assertNotNull(settings.validate());
+        settings.backoffMaxDelayMs = 5000L;
+        assertNull(settings.validate());
+    }
+
+    @Test
+    public void savedInTheRunnerDefinition() {
+        RunnerActivationSettings settings = new RunnerActivationSettings();
+        settings.maxJobsActive = 16;
+        settings.jobTimeoutMs = 60000L;
+        settings.streamEnabled = true;
+        RunnerDefinitionEntity runnerDefinition = new RunnerDefinitionEntity();
+        settings.toEntity(runnerDefinition);
+
+        RunnerActivationSettings read = RunnerActivationSettings.fromEntity(runnerDefinition);
+        assertEquals(settings.toMap(), read.toMap());
+        // no definition: all client defaults
+        assertTrue(RunnerActivationSettings.fromEntity(null).toMap().values().stream().allMatch(v -> v == null));
+    }
+
+    @Test
+    public void onlySettingsWithAValueAreApplied() {
+        Map<String, Object> applied = new LinkedHashMap<>();
+        new RunnerActivationSettings().apply(recordingBuilder(applied));
+        assertTrue(applied.isEmpty());
+
+        RunnerActivationSettings settings = new RunnerActivationSettings();
+        settings.maxJobsActive = 8;
+        settings.jobTimeoutMs = 30000L;
+        settings.pollIntervalMs = 50L;
+        settings.backoffMaxDelayMs = 2000L;
+        settings.apply(recordingBuilder(applied));
+        assertEquals(8, applied.get("maxJobsActive"));
+        assertEquals(Duration.ofMillis(30000), applied.get("timeout"));
+        assertEquals(Duration.ofMillis(50), applied.get("pollInterval"));
+        assertNotNull(applied.get("backoffSupplier"));
+        assertFalse(applied.containsKey("requestTimeout"));
+        assertFalse(applied.containsKey("streamEnabled"));
+    }
+}
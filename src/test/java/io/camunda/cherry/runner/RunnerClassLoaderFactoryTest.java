@@ -0,0 +1,174 @@
+package io.camunda.cherry.runner;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunnerClassLoaderFactoryTest {
+
+    /**
+     * Class copied in the JAR: the runtime has it too
+     */
+    public static class Probe {
+    }
+
+    private Path classLoaderPath;
+    private RunnerClassLoaderFactory runnerClassLoaderFactory;
+    private final List<JarClassLoader> closedLoaders = new ArrayList<>();
+
+    @BeforeEach
+    public void init() throws Exception {
+        classLoaderPath = Files.createTempDirectory("cherry-classloader");
+        runnerClassLoaderFactory = new RunnerClassLoaderFactory(null, null) {
+            @Override
+            public File getClassLoaderPath() {
+                return classLoaderPath.toFile();
+            }
+        };
+        runnerClassLoaderFactory.addClassLoaderListener(closedLoaders::add);
+    }
+
+    @AfterEach
+    public void end() throws Exception {
+        try (Stream<Path> files = Files.walk(classLoaderPath)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void childFirstLoadsTheClassOfTheJar() throws Exception {
+        File jarFile = jarWithProbe("probe.jar", "v1");
+        try (JarClassLoader loader = new JarClassLoader("probe.jar", "hash", jarFile, getClass().getClassLoader(),
+                true, List.of("java."))) {
+            Class<?> probeClass = loader.loadClass(Probe.class.getName());
+
+            assertNotSame(Probe.class, probeClass);
+            assertSame(loader, probeClass.getClassLoader());
+            assertEquals(1, loader.getLoadedClasses());
+            assertTrue(loader.getLoadedClassBytes() > 0);
+            // java.* is always loaded by the runtime
+            assertSame(String.class, loader.loadClass(String.class.getName()));
+        }
+    }
+
+    @Test
+    public void parentFirstLoadsTheClassOfTheRuntime() throws Exception {
+        File jarFile = jarWithProbe("probe.jar", "v1");
+        try (JarClassLoader loader = new JarClassLoader("probe.jar", "hash", jarFile, getClass().getClassLoader(),
+                false, List.of())) {
+            assertSame(Probe.class, loader.loadClass(Probe.class.getName()));
+            assertEquals(0, loader.getLoadedClasses());
+        }
+    }
+
+    @Test
+    public void childFirstLoadsTheParentFirstPackagesFromTheRuntime() throws Exception {
+        File jarFile = jarWithProbe("probe.jar", "v1");
+        try (JarClassLoader loader = new JarClassLoader("probe.jar", "hash", jarFile, getClass().getClassLoader(),
+                true, List.of("java.", "io.camunda."))) {
+            assertSame(Probe.class, loader.loadClass(Probe.class.getName()));
+            assertEquals(0, loader.getLoadedClasses());
+        }
+    }
+
+    @Test
+    public void sameContentSharesTheClassLoader() throws Exception {
+        jarWithProbe("lib.jar", "v1");
+        JarClassLoader loader = runnerClassLoaderFactory.getClassLoader("lib.jar");
+
+        assertSame(loader, runnerClassLoaderFactory.getClassLoader("lib.jar"));
+        assertEquals(1, runnerClassLoaderFactory.getClassLoaders("lib.jar").size());
+    }
+
+    @Test
+    public void retiredClassLoaderIsClosedWithItsLastRunner() throws Exception {
+        jarWithProbe("lib.jar", "v1");
+        JarClassLoader loaderV1 = runnerClassLoaderFactory.getClassLoader("lib.jar");
+        // two runners instantiated from v1
+        runnerClassLoaderFactory.acquire(loaderV1);
+        runnerClassLoaderFactory.acquire(loaderV1);
+
+        // new version: v1 is retired, but still used by its runners
+        jarWithProbe("lib.jar", "version-2");
+        JarClassLoader loaderV2 = runnerClassLoaderFactory.getClassLoader("lib.jar");
+        assertNotSame(loaderV1, loaderV2);
+        assertFalse(loaderV1.isClosed());
+        assertEquals(2, runnerClassLoaderFactory.getClassLoaders("lib.jar").size());
+
+        runnerClassLoaderFactory.release(List.of(loaderV1));
+        assertFalse(loaderV1.isClosed());
+        assertTrue(closedLoaders.isEmpty());
+
+        runnerClassLoaderFactory.release(List.of(loaderV1));
+        assertTrue(loaderV1.isClosed());
+        assertEquals(List.of(loaderV1), closedLoaders);
+        assertEquals(1, runnerClassLoaderFactory.getClassLoaders("lib.jar").size());
+
+        // the current version is never closed, even without runners
+        runnerClassLoaderFactory.release(List.of(loaderV2));
+        assertFalse(loaderV2.isClosed());
+    }
+
+    @Test
+    public void rewrittenJarWithTheSameSizeAndDateGetsANewClassLoader() throws Exception {
+        File jarFile = jarWithProbe("lib.jar", "v1");
+        long lastModified = jarFile.lastModified();
+        JarClassLoader loaderV1 = runnerClassLoaderFactory.getClassLoader("lib.jar");
+
+        // same length, same date: only the content tells the versions apart
+        jarWithProbe("lib.jar", "v2");
+        assertTrue(jarFile.setLastModified(lastModified));
+        JarClassLoader loaderV2 = runnerClassLoaderFactory.getClassLoader("lib.jar");
+
+        assertNotSame(loaderV1, loaderV2);
+        assertNotEquals(loaderV1.getContentHash(), loaderV2.getContentHash());
+    }
+
+    @Test
+    public void stagedJarIsHashedDuringTheCopy() throws Exception {
+        File newVersion = jarWithProbe("upload.jar", "v2");
+        RunnerClassLoaderFactory.StagedJar stagedJar = runnerClassLoaderFactory.stageJar(newVersion, "lib.jar");
+
+        String expectedHash = HexFormat.of()
+                .formatHex(MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(newVersion.toPath())));
+        assertEquals(expectedHash, stagedJar.classLoader().getContentHash());
+        // the same content staged again shares the class loader
+        assertSame(stagedJar.classLoader(), runnerClassLoaderFactory.stageJar(newVersion, "lib.jar").classLoader());
+    }
+
+    /**
+     * JAR in the class loader path with the Probe class
+     *
+     * @param version written in the JAR: two versions have a different content
+     */
+    private File jarWithProbe(String jarFileName, String version) throws Exception {
+        File jarFile = new File(classLoaderPath.toFile(), jarFileName);
+        String entryName = Probe.class.getName().replace('.', '/') + ".class";
+        try (InputStream classBytes = Probe.class.getClassLoader().getResourceAsStream(entryName);
+             JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(jarFile))) {
+            jarOutputStream.putNextEntry(new JarEntry(entryName));
+            jarOutputStream.write(classBytes.readAllBytes());
+            jarOutputStream.closeEntry();
+            jarOutputStream.putNextEntry(new JarEntry("version.txt"));
+            jarOutputStream.write(version.getBytes());
+            jarOutputStream.closeEntry();
+        }
+        return jarFile;
+    }
+}
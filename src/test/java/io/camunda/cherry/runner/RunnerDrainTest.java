@@ -0,0 +1,117 @@
+package io.camunda.cherry.runner;
+
+import io.camunda.cherry.Stubs;
+import io.camunda.cherry.definition.JobInFlight;
+import io.camunda.client.api.worker.JobHandler;
+import io.camunda.client.api.worker.JobWorker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunnerDrainTest {
+
+    private final RunnerDrain runnerDrain = new RunnerDrain();
+
+    /**
+     * JobWorker closed by the drain
+     */
+    private static JobWorker jobWorker(AtomicBoolean closed) {
+        return Stubs.stub(JobWorker.class, Map.of("close", args -> {
+            closed.set(true);
+            return null;
+        }, "isClosed", args -> closed.get(), "isOpen", args -> !closed.get()));
+    }
+
+    /**
+     * Default timeout of the application, polled quickly
+     */
+    @BeforeEach
+    public void init() {
+        Stubs.setField(runnerDrain, "runnerTimeoutMs", 60000L);
+        Stubs.setField(runnerDrain, "pollMs", 10L);
+    }
+
+    @AfterEach
+    public void end() {
+        runnerDrain.end();
+    }
+
+    @Test
+    public void drainWaitsForTheJobsInProgress() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        AtomicInteger inFlight = new AtomicInteger(2);
+
+        CompletableFuture<RunnerDrain.DrainResult> drain = runnerDrain.drain("c-ping", jobWorker(closed), inFlight);
+        assertTrue(closed.get());
+        Thread.sleep(100);
+        assertFalse(drain.isDone());
+
+        inFlight.decrementAndGet();
+        inFlight.decrementAndGet();
+        RunnerDrain.DrainResult result = drain.get(5, TimeUnit.SECONDS);
+        assertTrue(result.isDrained());
+        assertEquals(0, result.jobsInProgress());
+    }
+
+    @Test
+    public void drainEndsAtTheRunnerTimeout() throws Exception {
+        Stubs.setField(runnerDrain, "runnerTimeoutMs", 100L);
+        AtomicBoolean closed = new AtomicBoolean(false);
+
+        RunnerDrain.DrainResult result = runnerDrain.drain("c-ping", jobWorker(closed), new AtomicInteger(3))
+                .get(5, TimeUnit.SECONDS);
+        // the worker is closed anyway: no new job is activated
+        assertTrue(closed.get());
+        assertEquals(RunnerDrain.STATUS_TIMEOUT, result.status());
+        assertEquals(3, result.jobsInProgress());
+        assertTrue(result.drainMs() >= 100);
+    }
+
+    @Test
+    public void drainAllStopsAtTheDeadline() {
+        AtomicInteger busy = new AtomicInteger(1);
+        List<RunnerDrain.DrainResult> listResults = runnerDrain.drainAll(
+                List.of(new RunnerDrain.DrainRequest("c-idle", jobWorker(new AtomicBoolean()), new AtomicInteger(0)),
+                        new RunnerDrain.DrainRequest("c-busy", jobWorker(new AtomicBoolean()), busy),
+                        new RunnerDrain.DrainRequest("c-none", null, null)), 200);
+
+        assertEquals(List.of("c-idle", "c-busy", "c-none"),
+                listResults.stream().map(RunnerDrain.DrainResult::runnerType).toList());
+        assertTrue(listResults.get(0).isDrained());
+        assertEquals(RunnerDrain.STATUS_TIMEOUT, listResults.get(1).status());
+        assertEquals(1, listResults.get(1).jobsInProgress());
+        assertTrue(listResults.get(2).isDrained());
+    }
+
+    @Test
+    public void asynchronousCompletionIsCountedUntilTheAnswer() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger(0);
+        AtomicReference<Runnable> endOfJob = new AtomicReference<>();
+        JobHandler handler = runnerDrain.track((client, job) -> endOfJob.set(JobInFlight.defer()), inFlight);
+        CountDownLatch handled = new CountDownLatch(1);
+        Thread.startVirtualThread(() -> {
+            try {
+                handler.handle(null, null);
+            } catch (Exception e) {
+                // the handler does not throw
+            }
+            handled.countDown();
+        });
+        assertTrue(handled.await(5, TimeUnit.SECONDS));
+        // the handler returned, the answer of the command is not received
+        assertEquals(1, inFlight.get());
+        endOfJob.get().run();
+        assertEquals(0, inFlight.get());
+    }
+}
@@ -0,0 +1,373 @@
+package io.camunda.cherry.runner;
+
+import io.camunda.cherry.Stubs;
+import io.camunda.cherry.db.entity.RunnerDefinitionEntity;
+import io.camunda.cherry.db.entity.RunnerExecutionEntity;
+import io.camunda.cherry.definition.AbstractRunner;
+import io.camunda.cherry.definition.AbstractWorker;
+import io.camunda.cherry.exception.OperationException;
+import io.camunda.cherry.runtime.HistoryFactory;
+import io.camunda.cherry.tracing.ExecutionTiming;
+import io.camunda.cherry.zeebe.ZeebeContainer;
+import io.camunda.client.api.response.ActivatedJob;
+import io.camunda.client.api.worker.JobClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigUtils;
+import org.springframework.web.context.support.GenericWebApplicationContext;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunnerJarSwapTest {
+
+    private static final String WORKER_TYPE = "c-swap-test";
+
+    /**
+     * Runner of the JAR: needs the HistoryFactory injected to end an execution
+     */
+    public static class SwapWorker extends AbstractWorker {
+        public SwapWorker() {
+            super(WORKER_TYPE, Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+        }
+
+        @Override
+        public String getName() {
+            return "SwapWorker";
+        }
+
+        @Override
+        public void execute(JobClient jobClient, ActivatedJob activatedJob, ContextExecution contextExecution) {
+            // nothing to do: the execution is saved in the history
+        }
+    }
+
+    /**
+     * History keeping the executions saved
+     */
+    public static class RecordingHistory extends HistoryFactory {
+        final List<String> executions = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void saveExecution(Instant executionTime,
+                                  RunnerExecutionEntity.TypeExecutor typeExecutor,
+                                  String runnerType,
+                                  String tenantId,
+                                  Long jobKey,
+                                  AbstractRunner.ExecutionStatusEnum status,
+                                  String errorCode,
+                                  String errorMessage,
+                                  long durationInMs,
+                                  ExecutionTiming executionTiming) {
+            executions.add(runnerType + ":" + jobKey + ":" + status);
+        }
+    }
+
+    /**
+     * Runner factory on a real Spring context, the storage is recorded
+     */
+    private static class RecordingRunnerFactory extends RunnerFactory {
+        final List<String> saved = Collections.synchronizedList(new ArrayList<>());
+        boolean saveFails = false;
+        /**
+         * Saves in progress at the same time, and the maximum seen
+         */
+        final AtomicInteger savesInProgress = new AtomicInteger();
+        final AtomicInteger maxSavesInProgress = new AtomicInteger();
+
+        RecordingRunnerFactory(RunnerUploadFactory runnerUploadFactory,
+                               RunnerClassLoaderFactory runnerClassLoaderFactory,
+                               LogOperation logOperation) {
+            super(null, runnerUploadFactory, runnerClassLoaderFactory, null, null, logOperation, null);
+        }
+
+        @Override
+        public List<RunnerLightDefinition> saveFromFile(File jarFile, String jarFileName) {
+            if (saveFails)
+                return Collections.emptyList();
+            maxSavesInProgress.accumulateAndGet(savesInProgress.incrementAndGet(), Math::max);
+            try {
+                // a save takes time: a concurrent swap of the same JAR would save now
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                savesInProgress.decrementAndGet();
+            }
+            saved.add(jarFileName);
+            return List.of(new RunnerLightDefinition("SwapWorker", WORKER_TYPE, SwapWorker.class.getName(),
+                    RunnerDefinitionEntity.Origin.JARFILE));
+        }
+
+        @Override
+        public boolean jarFileToClassLoader(String jarFileName) {
+            return true;
+        }
+    }
+
+    /**
+     * The runner is running: the swap opens a new JobWorker (recorded, not connected to a broker)
+     */
+    private static class RecordingJobRunnerFactory extends JobRunnerFactory {
+        final List<AbstractRunner> committed = Collections.synchronizedList(new ArrayList<>());
+        final List<AbstractRunner> aborted = Collections.synchronizedList(new ArrayList<>());
+        boolean prepareFails = false;
+        /**
+         * Status of the drain of the previous JobWorkers
+         */
+        String drainStatus = RunnerDrain.STATUS_DRAINED;
+
+        RecordingJobRunnerFactory() {
+            super(null);
+        }
+
+        @Override
+        public boolean isActiveRunner(String runnerType) {
+            return WORKER_TYPE.equals(runnerType);
+        }
+
+        @Override
+        public List<PreparedWorker> prepareSwap(List<AbstractRunner> listNewRunners) throws OperationException {
+            if (prepareFails)
+                throw new OperationException(RUNNER_SWAP_FAILED, "Can't open the new version");
+            return listNewRunners.stream().map(runner -> new PreparedWorker(runner, null, new AtomicInteger())).toList();
+        }
+
+        @Override
+        public CompletableFuture<List<RunnerDrain.DrainResult>> abortSwap(List<PreparedWorker> listPrepared) {
+            listPrepared.forEach(prepared -> aborted.add(prepared.runner()));
+            return CompletableFuture.completedFuture(drainResults(listPrepared));
+        }
+
+        @Override
+        public synchronized CompletableFuture<List<RunnerDrain.DrainResult>> commitSwap(
+                List<PreparedWorker> listPrepared) {
+            listPrepared.forEach(prepared -> committed.add(prepared.runner()));
+            return CompletableFuture.completedFuture(drainResults(listPrepared));
+        }
+
+        private List<RunnerDrain.DrainResult> drainResults(List<PreparedWorker> listPrepared) {
+            int jobsInProgress = RunnerDrain.STATUS_DRAINED.equals(drainStatus) ? 0 : 1;
+            return listPrepared.stream()
+                    .map(prepared -> new RunnerDrain.DrainResult(prepared.runner().getType(), drainStatus, 0,
+                            jobsInProgress))
+                    .toList();
+        }
+    }
+
+    private Path classLoaderPath;
+    private RecordingHistory history;
+    private GenericWebApplicationContext context;
+    private RecordingRunnerFactory runnerFactory;
+    private RecordingJobRunnerFactory jobRunnerFactory;
+    private RunnerClassLoaderFactory runnerClassLoaderFactory;
+    private RunnerJarSwap runnerJarSwap;
+
+    @BeforeEach
+    public void init() throws Exception {
+        classLoaderPath = Files.createTempDirectory("cherry-classloader");
+        history = new RecordingHistory();
+        context = new GenericWebApplicationContext();
+        AnnotationConfigUtils.registerAnnotationConfigProcessors(context);
+        context.refresh();
+        context.getBeanFactory().registerSingleton("historyFactory", history);
+        context.getBeanFactory().registerSingleton("zeebeContainer", new ZeebeContainer(null, null));
+
+        LogOperation logOperation = new LogOperation();
+        runnerClassLoaderFactory = new RunnerClassLoaderFactory(null, logOperation) {
+            @Override
+            public File getClassLoaderPath() {
+                return classLoaderPath.toFile();
+            }
+        };
+        runnerFactory = new RecordingRunnerFactory(new RunnerUploadFactory(null, logOperation, runnerClassLoaderFactory,
+                null), runnerClassLoaderFactory, logOperation);
+        runnerFactory.context = context;
+        jobRunnerFactory = new RecordingJobRunnerFactory();
+        runnerJarSwap = new RunnerJarSwap(runnerFactory, runnerClassLoaderFactory, jobRunnerFactory, logOperation);
+    }
+
+    @AfterEach
+    public void end() throws Exception {
+        context.close();
+        try (Stream<Path> files = Files.walk(classLoaderPath)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void swappedRunnerIsInjectedAndRunsAJob() throws Exception {
+        RunnerJarSwap.SwapResult swapResult = runnerJarSwap.swapJar(multipartFile(jarWithWorker()), "swap.jar");
+
+        assertEquals(RunnerJarSwap.STATUS_SWAPPED, swapResult.status(), swapResult.error());
+        assertEquals(List.of("swap.jar"), runnerFactory.saved);
+        assertEquals(1, jobRunnerFactory.committed.size());
+        assertTrue(jobRunnerFactory.aborted.isEmpty());
+
+        // the new version runs a job: the end of the execution uses the injected HistoryFactory
+        AbstractWorker worker = (AbstractWorker) jobRunnerFactory.committed.get(0);
+        worker.handle(jobClient(), activatedJob(42));
+        assertEquals(List.of(WORKER_TYPE + ":42:SUCCESS"), history.executions);
+    }
+
+    @Test
+    public void invalidJarIsRolledBackBeforeTheSave() throws Exception {
+        RunnerJarSwap.SwapResult swapResult = runnerJarSwap.swapJar(multipartFile(jarWithoutRunner()), "swap.jar");
+
+        assertEquals(RunnerJarSwap.STATUS_ROLLEDBACK, swapResult.status());
+        assertTrue(swapResult.error().contains("No runner detected"));
+        assertTrue(runnerFactory.saved.isEmpty());
+        assertTrue(jobRunnerFactory.committed.isEmpty());
+        // the staged JAR is removed with its class loader
+        try (Stream<Path> files = Files.list(classLoaderPath)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void jobWorkerNotOpenedIsRolledBackBeforeTheSave() throws Exception {
+        jobRunnerFactory.prepareFails = true;
+        RunnerJarSwap.SwapResult swapResult = runnerJarSwap.swapJar(multipartFile(jarWithWorker()), "swap.jar");
+
+        assertEquals(RunnerJarSwap.STATUS_ROLLEDBACK, swapResult.status());
+        assertTrue(runnerFactory.saved.isEmpty());
+        assertTrue(jobRunnerFactory.committed.isEmpty());
+    }
+
+    @Test
+    public void saveFailureClosesTheNewJobWorkers() throws Exception {
+        runnerFactory.saveFails = true;
+        RunnerJarSwap.SwapResult swapResult = runnerJarSwap.swapJar(multipartFile(jarWithWorker()), "swap.jar");
+
+        assertEquals(RunnerJarSwap.STATUS_ROLLEDBACK, swapResult.status());
+        assertEquals("Can't save the JAR", swapResult.error());
+        assertEquals(1, jobRunnerFactory.aborted.size());
+        assertTrue(jobRunnerFactory.committed.isEmpty());
+    }
+
+    @Test
+    public void previousClassLoaderIsClosedOnceDrained() throws Exception {
+        assertEquals(RunnerJarSwap.STATUS_SWAPPED,
+                runnerJarSwap.swapJar(multipartFile(jarWithWorker("v1")), "swap.jar").status());
+        assertEquals(RunnerJarSwap.STATUS_SWAPPED,
+                runnerJarSwap.swapJar(multipartFile(jarWithWorker("v2")), "swap.jar").status());
+
+        // the runner of v1 is drained: its class loader is closed, only v2 stays
+        List<Map<String, Object>> listLoaders = runnerClassLoaderFactory.getClassLoaders("swap.jar");
+        assertEquals(1, listLoaders.size());
+        assertEquals(Boolean.TRUE, listLoaders.get(0).get("current"));
+    }
+
+    @Test
+    public void swapsOfTheSameJarRunOneAfterTheOther() throws Exception {
+        File jarV1 = jarWithWorker("v1");
+        File jarV2 = jarWithWorker("v2");
+        CompletableFuture<RunnerJarSwap.SwapResult> firstSwap = CompletableFuture.supplyAsync(
+                () -> runnerJarSwap.swapJar(multipartFile(jarV1), "swap.jar"));
+        CompletableFuture<RunnerJarSwap.SwapResult> secondSwap = CompletableFuture.supplyAsync(
+                () -> runnerJarSwap.swapJar(multipartFile(jarV2), "swap.jar"));
+
+        assertEquals(RunnerJarSwap.STATUS_SWAPPED, firstSwap.get(10, TimeUnit.SECONDS).status());
+        assertEquals(RunnerJarSwap.STATUS_SWAPPED, secondSwap.get(10, TimeUnit.SECONDS).status());
+        assertEquals(2, runnerFactory.saved.size());
+        assertEquals(1, runnerFactory.maxSavesInProgress.get());
+        assertEquals(2, jobRunnerFactory.committed.size());
+    }
+
+    @Test
+    public void previousClassLoaderStaysOpenWhenNotDrained() throws Exception {
+        assertEquals(RunnerJarSwap.STATUS_SWAPPED,
+                runnerJarSwap.swapJar(multipartFile(jarWithWorker("v1")), "swap.jar").status());
+
+        jobRunnerFactory.drainStatus = RunnerDrain.STATUS_TIMEOUT;
+        assertEquals(RunnerJarSwap.STATUS_SWAPPED,
+                runnerJarSwap.swapJar(multipartFile(jarWithWorker("v2")), "swap.jar").status());
+
+        // a job may still run on v1: its class loader stays open, still referenced by the runner
+        List<Map<String, Object>> listLoaders = runnerClassLoaderFactory.getClassLoaders("swap.jar");
+        assertEquals(2, listLoaders.size());
+        Map<String, Object> previousLoader = listLoaders.stream()
+                .filter(infoLoader -> Boolean.FALSE.equals(infoLoader.get("current")))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1, previousLoader.get("runners"));
+    }
+
+    /* -------------------------------------------------------- */
+    /*                                                          */
+    /*  JAR, job, client                                        */
+    /*                                                          */
+    /* -------------------------------------------------------- */
+
+    private File jarWithWorker() throws Exception {
+        return jarWithWorker("v1");
+    }
+
+    /**
+     * @param version written in the JAR: two versions have a different content
+     */
+    private File jarWithWorker(String version) throws Exception {
+        String entryName = SwapWorker.class.getName().replace('.', '/') + ".class";
+        try (InputStream classBytes = SwapWorker.class.getClassLoader().getResourceAsStream(entryName)) {
+            return jar(Map.of(entryName, classBytes.readAllBytes(), "version.txt", version.getBytes()));
+        }
+    }
+
+    private File jarWithoutRunner() throws Exception {
+        return jar(Map.of("readme.txt", "no runner".getBytes()));
+    }
+
+    private File jar(Map<String, byte[]> entries) throws Exception {
+        File jarFile = File.createTempFile("swap", ".jar");
+        jarFile.deleteOnExit();
+        try (JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(jarFile))) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                jarOutputStream.putNextEntry(new JarEntry(entry.getKey()));
+                jarOutputStream.write(entry.getValue());
+                jarOutputStream.closeEntry();
+            }
+        }
+        return jarFile;
+    }
+
+    private static MultipartFile multipartFile(File jarFile) {
+        return Stubs.stub(MultipartFile.class,
+                Map.of("getInputStream", args -> new FileInputStream(jarFile), "getName",
+                        Stubs.returns(jarFile.getName()), "getOriginalFilename", Stubs.returns(jarFile.getName())));
+    }
+
+    /**
+     * Client answering every command: each call of the fluent API returns the next step
+     */
+    private static JobClient jobClient() {
+        return Stubs.fluent(JobClient.class, (name, args) -> {
+        });
+    }
+
+    private static ActivatedJob activatedJob(long jobKey) {
+        return Stubs.stub(ActivatedJob.class,
+                Map.of("getKey", Stubs.returns(jobKey), "getType", Stubs.returns(WORKER_TYPE), "getVariables",
+                        Stubs.returns("{}"), "getVariablesAsMap", Stubs.returns(Map.of()), "getCustomHeaders",
+                        Stubs.returns(Map.of())));
+    }
+}
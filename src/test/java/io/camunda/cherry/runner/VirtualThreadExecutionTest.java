@@ -0,0 +1,143 @@
+package io.camunda.cherry.runner;
+
+import io.camunda.cherry.Stubs;
+import io.camunda.cherry.definition.JobInFlight;
+import io.camunda.cherry.runner.handler.VirtualThreadJobHandler;
+import io.camunda.client.api.response.ActivatedJob;
+import io.camunda.client.api.worker.JobClient;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualThreadExecutionTest {
+
+    /**
+     * JobClient recording the commands: each call of the fluent API is saved as name(arguments)
+     */
+    private static class RecordingJobClient {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+        JobClient asJobClient() {
+            return Stubs.fluent(JobClient.class,
+                    (name, args) -> calls.add(name + (args.length == 0 ? "()" : List.of(args).toString())));
+        }
+    }
+
+    private static ActivatedJob activatedJob(long jobKey) {
+        return Stubs.stub(ActivatedJob.class,
+                Map.of("getKey", Stubs.returns(jobKey), "getType", Stubs.returns("c-ping"), "getRetries",
+                        Stubs.returns(3)));
+    }
+
+    @Test
+    public void slotIsNotWaitedFor() {
+        VirtualThreadExecution.RunnerSlot runnerSlot = new VirtualThreadExecution.RunnerSlot(2);
+        assertTrue(runnerSlot.tryAcquire());
+        assertTrue(runnerSlot.tryAcquire());
+        assertFalse(runnerSlot.tryAcquire());
+        assertEquals(2, runnerSlot.getInFlight());
+        assertEquals(1, runnerSlot.getSaturated());
+
+        runnerSlot.release();
+        assertTrue(runnerSlot.tryAcquire());
+        assertEquals(1, runnerSlot.getExecuted());
+    }
+
+    @Test
+    public void jobRunsOnAVirtualThread() throws Exception {
+        ExecutorService virtualExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        VirtualThreadExecution.RunnerSlot runnerSlot = new VirtualThreadExecution.RunnerSlot(10);
+        CountDownLatch executed = new CountDownLatch(1);
+        AtomicBoolean virtual = new AtomicBoolean(false);
+        VirtualThreadJobHandler handler = new VirtualThreadJobHandler((client, job) -> {
+            virtual.set(Thread.currentThread().isVirtual());
+            executed.countDown();
+        }, virtualExecutor, runnerSlot, 1000);
+
+        handler.handle(new RecordingJobClient().asJobClient(), activatedJob(1));
+        assertTrue(executed.await(5, TimeUnit.SECONDS));
+        assertTrue(virtual.get());
+        virtualExecutor.shutdown();
+        assertTrue(virtualExecutor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, runnerSlot.getInFlight());
+        assertEquals(1, runnerSlot.getExecuted());
+    }
+
+    @Test
+    public void jobIsInProgressUntilTheVirtualThreadEnds() throws Exception {
+        ExecutorService virtualExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        VirtualThreadExecution.RunnerSlot runnerSlot = new VirtualThreadExecution.RunnerSlot(10);
+        CountDownLatch release = new CountDownLatch(1);
+        VirtualThreadJobHandler handler = new VirtualThreadJobHandler(
+                (client, job) -> release.await(5, TimeUnit.SECONDS), virtualExecutor, runnerSlot, 1000);
+        AtomicInteger inFlight = new AtomicInteger();
+
+        // as RunnerDrain.track does on the client thread
+        JobInFlight jobInFlight = JobInFlight.bind(inFlight);
+        handler.handle(new RecordingJobClient().asJobClient(), activatedJob(1));
+        jobInFlight.unbind();
+        assertEquals(1, inFlight.get());
+
+        release.countDown();
+        virtualExecutor.shutdown();
+        assertTrue(virtualExecutor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, inFlight.get());
+    }
+
+    @Test
+    public void saturatedRunnerGivesTheJobBack() throws Exception {
+        ExecutorService virtualExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        VirtualThreadExecution.RunnerSlot runnerSlot = new VirtualThreadExecution.RunnerSlot(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> executedJobs = Collections.synchronizedList(new ArrayList<>());
+        VirtualThreadJobHandler handler = new VirtualThreadJobHandler((client, job) -> {
+            executedJobs.add(job.getKey());
+            release.await(5, TimeUnit.SECONDS);
+        }, virtualExecutor, runnerSlot, 2000);
+        RecordingJobClient jobClient = new RecordingJobClient();
+
+        handler.handle(jobClient.asJobClient(), activatedJob(1));
+        // the slot is used by the first job: the client thread is not blocked
+        long begin = System.nanoTime();
+        handler.handle(jobClient.asJobClient(), activatedJob(2));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) < 1000);
+
+        assertEquals(List.of("newFailCommand[2]", "retries[3]", "retryBackoff[" + Duration.ofMillis(2000) + "]",
+                "errorMessage[Runner saturated, job given back to the broker]", "send()"), jobClient.calls);
+        assertEquals(1, runnerSlot.getSaturated());
+
+        release.countDown();
+        virtualExecutor.shutdown();
+        assertTrue(virtualExecutor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1L), executedJobs);
+        assertEquals(0, runnerSlot.getInFlight());
+    }
+
+    @Test
+    public void failedJobConsumesARetry() throws Exception {
+        ExecutorService virtualExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        VirtualThreadExecution.RunnerSlot runnerSlot = new VirtualThreadExecution.RunnerSlot(1);
+        VirtualThreadJobHandler handler = new VirtualThreadJobHandler((client, job) -> {
+            throw new IllegalStateException("disk full");
+        }, virtualExecutor, runnerSlot, 1000);
+        RecordingJobClient jobClient = new RecordingJobClient();
+
+        handler.handle(jobClient.asJobClient(), activatedJob(7));
+        virtualExecutor.shutdown();
+        assertTrue(virtualExecutor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(List.of("newFailCommand[7]", "retries[2]", "errorMessage[disk full]", "send()"), jobClient.calls);
+        assertEquals(0, runnerSlot.getInFlight());
+    }
+}
@@ -0,0 +1,45 @@
+package io.camunda.cherry.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ErrorFingerprintTest {
+
+    @Test
+    public void sameErrorOnDifferentJobs() {
+        String first = ErrorFingerprint.normalize(
+                "Connection refused to 10.0.0.12:8080 (job 2251799813685249) at 2024-03-12T10:15:30.123Z");
+        String second = ErrorFingerprint.normalize(
+                "Connection refused to 10.0.0.14:8081   (job 2251799813699999) at 2024-03-13T08:00:01Z");
+        assertEquals(first, second);
+        assertEquals(ErrorFingerprint.fingerprint("CONNECTION", first),
+                ErrorFingerprint.fingerprint("CONNECTION", second));
+
+        assertEquals(ErrorFingerprint.normalize("File 0b6f4a58-6f63-4b8e-9d3a-2f1c0b7e4a11 not found"),
+                ErrorFingerprint.normalize("File 9e1d2c3b-aaaa-4bbb-8ccc-123456789abc not found"));
+    }
+
+    @Test
+    public void errorCodeIsPartOfTheFingerprint() {
+        String message = ErrorFingerprint.normalize("Invalid input");
+        String fingerprint = ErrorFingerprint.fingerprint("BAD_INPUT", message);
+        assertNotEquals(fingerprint, ErrorFingerprint.fingerprint("TIMEOUT", message));
+        assertEquals(32, fingerprint.length());
+    }
+
+    @Test
+    public void normalizeIsBounded() {
+        assertEquals("", ErrorFingerprint.normalize(null));
+        assertEquals(ErrorFingerprint.MAX_MESSAGE_LENGTH, ErrorFingerprint.normalize("x".repeat(2000)).length());
+    }
+
+    @Test
+    public void mergeJobKeysKeepsTheMostRecent() {
+        assertEquals("3,4,5,6,7", ErrorAggregator.mergeJobKeys("1,2,3", List.of(4L, 5L, 6L, 7L)));
+        assertEquals("1,3,2", ErrorAggregator.mergeJobKeys("1,2,3", List.of(2L)));
+        assertEquals("8", ErrorAggregator.mergeJobKeys(null, List.of(8L)));
+    }
+}
@@ -0,0 +1,92 @@
+package io.camunda.cherry.runtime;
+
+import io.camunda.cherry.Stubs;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistoryRetentionTest {
+
+    /**
+     * Rows of a table: a select returns the first ids of the page, a delete removes them
+     */
+    private static class FakeTable {
+        final List<Long> ids = new ArrayList<>();
+        final List<Integer> chunks = new ArrayList<>();
+
+        FakeTable(long nbRows) {
+            LongStream.range(0, nbRows).forEach(ids::add);
+        }
+
+        int delete(List<Long> listIds) {
+            chunks.add(listIds.size());
+            ids.removeAll(listIds);
+            return listIds.size();
+        }
+    }
+
+    private long deleteByChunk(HistoryRetention historyRetention, FakeTable table, long budget)
+            throws InterruptedException {
+        return historyRetention.deleteByChunk("execution.SUCCESS", budget,
+                pageable -> new ArrayList<>(table.ids.subList(0, Math.min(pageable.getPageSize(), table.ids.size()))),
+                table::delete);
+    }
+
+    /**
+     * Retention with the default chunks of the application, without pause between the chunks
+     */
+    private HistoryRetention newHistoryRetention() {
+        HistoryRetention historyRetention = new HistoryRetention();
+        Stubs.setField(historyRetention, "chunkSize", 2000);
+        Stubs.setField(historyRetention, "pauseBetweenChunksMs", 0L);
+        historyRetention.init();
+        return historyRetention;
+    }
+
+    @Test
+    public void deleteByChunkUntilTheTableIsClean() throws InterruptedException {
+        HistoryRetention historyRetention = newHistoryRetention();
+        FakeTable table = new FakeTable(4500);
+
+        assertEquals(4500, deleteByChunk(historyRetention, table, 500_000));
+        assertTrue(table.ids.isEmpty());
+        assertEquals(List.of(2000, 2000, 500), table.chunks);
+        assertEquals(4500L, ((Map<?, ?>) historyRetention.getStatistics().get("purgedRows")).get("execution.SUCCESS"));
+    }
+
+    @Test
+    public void deleteByChunkStopsAtTheBudget() throws InterruptedException {
+        HistoryRetention historyRetention = newHistoryRetention();
+        FakeTable table = new FakeTable(10_000);
+
+        assertEquals(3000, deleteByChunk(historyRetention, table, 3000));
+        assertEquals(List.of(2000, 1000), table.chunks);
+        assertEquals(7000, table.ids.size());
+    }
+
+    @Test
+    public void retentionIsOptIn() {
+        HistoryRetention historyRetention = newHistoryRetention();
+        assertEquals(Boolean.FALSE, historyRetention.getStatistics().get("enabled"));
+    }
+
+    @Test
+    public void onlyDailyPartitionsBeforeTheThresholdAreDropped() {
+        List<String> listPartitions = List.of(HistoryRetention.PARTITION_PREFIX + "20250308",
+                HistoryRetention.PARTITION_PREFIX + "20250309", HistoryRetention.PARTITION_PREFIX + "20250310",
+                HistoryRetention.PARTITION_PREFIX + "20250311", HistoryRetention.EXECUTION_TABLE + "_default",
+                HistoryRetention.PARTITION_PREFIX + "archive", "chrunnerexecution_old");
+
+        // the partition of March 9 ends on March 10: all its records are before the threshold
+        assertEquals(List.of(HistoryRetention.PARTITION_PREFIX + "20250308",
+                        HistoryRetention.PARTITION_PREFIX + "20250309"),
+                HistoryRetention.getPartitionsToDrop(listPartitions, LocalDate.of(2025, 3, 10)));
+        assertTrue(HistoryRetention.getPartitionsToDrop(listPartitions, LocalDate.of(2025, 3, 1)).isEmpty());
+    }
+}
@@ -0,0 +1,205 @@
+package io.camunda.cherry.runtime;
+
+import io.camunda.cherry.Stubs;
+import io.camunda.cherry.db.entity.RunnerStatisticEntity;
+import io.camunda.cherry.db.repository.RunnerStatisticRepository;
+import io.camunda.cherry.definition.AbstractRunner;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistoryStatisticAggregatorTest {
+
+    private static final LocalDateTime EXECUTION_TIME = LocalDateTime.of(2025, 3, 12, 14, 37, 21);
+
+    /**
+     * In memory table with the unique slot of the database. A row inserted by another runtime can be injected just
+     * before the insert of the same slot
+     */
+    private static class FakeStatisticTable {
+        final Map<String, RunnerStatisticEntity> rows = new HashMap<>();
+        RunnerStatisticEntity concurrentInsert;
+        boolean staleCount = false;
+        boolean unavailable = false;
+
+        static String key(String runnerType, RunnerStatisticEntity.Granularity granularity, LocalDateTime slotTime) {
+            return runnerType + "/" + granularity + "/" + slotTime;
+        }
+
+        static String key(RunnerStatisticEntity entity) {
+            return key(entity.runnerType, entity.granularity, entity.slotTime);
+        }
+
+        RunnerStatisticEntity saveAndFlush(RunnerStatisticEntity entity) {
+            if (unavailable)
+                throw new IllegalStateException("Connection refused");
+            if (concurrentInsert != null && key(concurrentInsert).equals(key(entity))) {
+                rows.put(key(concurrentInsert), concurrentInsert);
+                concurrentInsert = null;
+            }
+            RunnerStatisticEntity existing = rows.get(key(entity));
+            if (existing != null && existing != entity)
+                throw new DataIntegrityViolationException("duplicate key uk_runnerstatistic_slot");
+            rows.put(key(entity), entity);
+            return entity;
+        }
+
+        RunnerStatisticRepository asRepository() {
+            return Stubs.stub(RunnerStatisticRepository.class,
+                    Map.of("count", args -> staleCount ? 0L : (long) rows.size(), "selectSlotForUpdate",
+                            args -> rows.get(key((String) args[0], (RunnerStatisticEntity.Granularity) args[1],
+                                    (LocalDateTime) args[2])), "saveAndFlush",
+                            args -> saveAndFlush((RunnerStatisticEntity) args[0])));
+        }
+    }
+
+    /**
+     * Transaction manager without database: a failed transaction is not rolled back
+     */
+    private static class NoTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+
+    private HistoryStatisticAggregator newAggregator(FakeStatisticTable table) {
+        HistoryStatisticAggregator aggregator = new HistoryStatisticAggregator();
+        aggregator.runnerStatisticRepository = table.asRepository();
+        aggregator.transactionManager = new NoTransactionManager();
+        Stubs.setField(aggregator, "flushMaxRetries", 2);
+        aggregator.init();
+        return aggregator;
+    }
+
+    @Test
+    public void flushAggregatesAllGranularities() {
+        FakeStatisticTable table = new FakeStatisticTable();
+        HistoryStatisticAggregator aggregator = newAggregator(table);
+        aggregator.record("ping", EXECUTION_TIME, AbstractRunner.ExecutionStatusEnum.SUCCESS, 100);
+        aggregator.record("ping", EXECUTION_TIME.plusMinutes(1), AbstractRunner.ExecutionStatusEnum.FAIL, 300);
+        aggregator.record("ping", EXECUTION_TIME, AbstractRunner.ExecutionStatusEnum.BPMNERROR, 200);
+        aggregator.flush();
+
+        assertEquals(3, table.rows.size());
+        for (RunnerStatisticEntity.Granularity granularity : RunnerStatisticEntity.Granularity.values()) {
+            RunnerStatisticEntity row = table.rows.get(
+                    FakeStatisticTable.key("ping", granularity, granularity.getSlotTime(EXECUTION_TIME)));
+            assertNotNull(row, granularity.toString());
+            assertEquals(3, row.executions);
+            assertEquals(1, row.executionsSucceeded);
+            assertEquals(1, row.executionsFailed);
+            assertEquals(1, row.executionsBpmnErrors);
+            assertEquals(600, row.sumExecutionMs);
+            assertEquals(300, row.peakExecutionMs);
+            assertEquals(3, LatencyHistogram.fromCompactString(row.latencyHistogram).getTotalCount());
+        }
+
+        // a second flush merges into the existing rows
+        aggregator.record("ping", EXECUTION_TIME, AbstractRunner.ExecutionStatusEnum.SUCCESS, 50);
+        aggregator.flush();
+        RunnerStatisticEntity day = table.rows.get(FakeStatisticTable.key("ping", RunnerStatisticEntity.Granularity.DAY,
+                RunnerStatisticEntity.Granularity.DAY.getSlotTime(EXECUTION_TIME)));
+        assertEquals(4, day.executions);
+        assertEquals(2, day.executionsSucceeded);
+        assertEquals(300, day.peakExecutionMs);
+    }
+
+    @Test
+    public void slotInsertedByAnotherRuntimeIsUpdated() {
+        FakeStatisticTable table = new FakeStatisticTable();
+        HistoryStatisticAggregator aggregator = newAggregator(table);
+        RunnerStatisticEntity otherRuntime = new RunnerStatisticEntity();
+        otherRuntime.runnerType = "ping";
+        otherRuntime.granularity = RunnerStatisticEntity.Granularity.HOUR;
+        otherRuntime.slotTime = RunnerStatisticEntity.Granularity.HOUR.getSlotTime(EXECUTION_TIME);
+        otherRuntime.executions = 5;
+        otherRuntime.executionsSucceeded = 5;
+        otherRuntime.peakExecutionMs = 1000;
+        table.concurrentInsert = otherRuntime;
+
+        aggregator.record("ping", EXECUTION_TIME, AbstractRunner.ExecutionStatusEnum.SUCCESS, 100);
+        aggregator.flush();
+
+        assertNull(table.concurrentInsert);
+        assertEquals(3, table.rows.size());
+        RunnerStatisticEntity hour = table.rows.get(FakeStatisticTable.key(otherRuntime));
+        assertSame(otherRuntime, hour);
+        assertEquals(6, hour.executions);
+        assertEquals(6, hour.executionsSucceeded);
+        assertEquals(1000, hour.peakExecutionMs);
+
+        // nothing was kept for the next flush
+        aggregator.flush();
+        assertEquals(6, hour.executions);
+    }
+
+    @Test
+    public void failedSlotIsKeptForTheNextFlush() {
+        FakeStatisticTable table = new FakeStatisticTable();
+        HistoryStatisticAggregator aggregator = newAggregator(table);
+        aggregator.record("ping", EXECUTION_TIME, AbstractRunner.ExecutionStatusEnum.SUCCESS, 100);
+        table.unavailable = true;
+        aggregator.flush();
+        aggregator.flush();
+
+        table.unavailable = false;
+        aggregator.flush();
+        assertEquals(3, table.rows.size());
+        table.rows.values().forEach(row -> assertEquals(1, row.executions));
+    }
+
+    @Test
+    public void slotIsDroppedAfterTheMaximumRetries() {
+        FakeStatisticTable table = new FakeStatisticTable();
+        HistoryStatisticAggregator aggregator = newAggregator(table);
+        aggregator.record("ping", EXECUTION_TIME, AbstractRunner.ExecutionStatusEnum.SUCCESS, 100);
+        table.unavailable = true;
+        for (int i = 0; i < 3; i++)
+            aggregator.flush();
+
+        table.unavailable = false;
+        aggregator.flush();
+        assertTrue(table.rows.isEmpty());
+        // a new execution in the same slot is saved
+        aggregator.record("ping", EXECUTION_TIME, AbstractRunner.ExecutionStatusEnum.SUCCESS, 100);
+        aggregator.flush();
+        assertEquals(3, table.rows.size());
+    }
+
+    @Test
+    public void onlyOneRuntimeClaimsTheBackfill() {
+        FakeStatisticTable table = new FakeStatisticTable();
+        HistoryStatisticAggregator first = newAggregator(table);
+        HistoryStatisticAggregator second = newAggregator(table);
+        assertTrue(first.claimBackfill());
+        assertFalse(second.claimBackfill());
+
+        // both runtimes saw an empty table: the unique slot of the marker decides
+        FakeStatisticTable raceTable = new FakeStatisticTable();
+        raceTable.staleCount = true;
+        first = newAggregator(raceTable);
+        second = newAggregator(raceTable);
+        assertTrue(first.claimBackfill());
+        assertFalse(second.claimBackfill());
+        assertEquals(1, raceTable.rows.size());
+        assertEquals(RunnerStatisticEntity.BACKFILL_MARKER, raceTable.rows.values().iterator().next().runnerType);
+    }
+}
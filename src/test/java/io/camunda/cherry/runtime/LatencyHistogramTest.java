@@ -0,0 +1,129 @@
+package io.camunda.cherry.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValuesAreExact() {
+        for (long value = 0; value < 32; value++) {
+            int index = LatencyHistogram.getBucketIndex(value);
+            assertEquals(value, LatencyHistogram.getLowestValue(index));
+            assertEquals(value, LatencyHistogram.getHighestValue(index));
+        }
+    }
+
+    @Test
+    public void bucketsAreContiguousAndPrecise() {
+        for (int index = 1; index < LatencyHistogram.NUMBER_OF_BUCKETS; index++) {
+            assertEquals(LatencyHistogram.getHighestValue(index - 1) + 1, LatencyHistogram.getLowestValue(index));
+            long lowest = LatencyHistogram.getLowestValue(index);
+            long highest = LatencyHistogram.getHighestValue(index);
+            assertEquals(index, LatencyHistogram.getBucketIndex(lowest));
+            assertEquals(index, LatencyHistogram.getBucketIndex(highest));
+            // a bucket covers at most 1/16 of its values
+            assertTrue(highest - lowest + 1 <= Math.max(1, lowest / 16));
+        }
+        assertEquals(LatencyHistogram.NUMBER_OF_BUCKETS - 1, LatencyHistogram.getBucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99.0));
+        for (long value = 1; value <= 1000; value++)
+            histogram.record(value);
+        assertEquals(1000, histogram.getTotalCount());
+        assertPrecise(500, histogram.getValueAtPercentile(50.0));
+        assertPrecise(900, histogram.getValueAtPercentile(90.0));
+        assertPrecise(990, histogram.getValueAtPercentile(99.0));
+        assertPrecise(999, histogram.getValueAtPercentile(99.9));
+        assertEquals(1, histogram.getValueAtPercentile(0.0));
+    }
+
+    @Test
+    public void oneOutlierDoesNotMoveThePercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 999; i++)
+            histogram.record(20);
+        histogram.record(3_600_000);
+        assertEquals(20, histogram.getValueAtPercentile(50.0));
+        assertEquals(20, histogram.getValueAtPercentile(99.9));
+        assertPrecise(3_600_000, histogram.getValueAtPercentile(100.0));
+    }
+
+    @Test
+    public void mergeAddsTheBuckets() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int i = 0; i < 90; i++)
+            first.record(10);
+        for (int i = 0; i < 10; i++)
+            second.record(5000);
+        first.merge(second);
+        assertEquals(100, first.getTotalCount());
+        assertEquals(10, first.getValueAtPercentile(90.0));
+        assertPrecise(5000, first.getValueAtPercentile(91.0));
+    }
+
+    @Test
+    public void compactStringRoundTrip() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 0; value < 100; value++)
+            histogram.record(value * 37);
+        histogram.record(123_456_789);
+        String compact = histogram.toCompactString();
+        LatencyHistogram copy = LatencyHistogram.fromCompactString(compact);
+        assertEquals(histogram.getTotalCount(), copy.getTotalCount());
+        for (int index = 0; index < LatencyHistogram.NUMBER_OF_BUCKETS; index++)
+            assertEquals(histogram.getCount(index), copy.getCount(index));
+        assertEquals(compact, copy.toCompactString());
+
+        assertEquals(0, LatencyHistogram.fromCompactString(null).getTotalCount());
+        assertEquals(0, LatencyHistogram.fromCompactString(new LatencyHistogram().toCompactString()).getTotalCount());
+    }
+
+    @Test
+    public void shortGapsStayInTheSequence() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10);
+        histogram.record(12);
+        histogram.record(25);
+        assertEquals("10:1,0,1;25:1", histogram.toCompactString());
+        assertEquals(3, LatencyHistogram.fromCompactString("10:1,0,1;25:1").getTotalCount());
+    }
+
+    @Test
+    public void compactStringIsBoundedByTheColumn() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int index = 0; index < LatencyHistogram.NUMBER_OF_BUCKETS; index++) {
+            long value = LatencyHistogram.getLowestValue(index);
+            for (int i = 0; i < 1000 + index; i++)
+                histogram.record(value);
+        }
+        // big counts, in every bucket: the full string is more than 6000 characters
+        LatencyHistogram bigCounts = new LatencyHistogram();
+        bigCounts.merge(histogram);
+        for (int i = 0; i < 30; i++) {
+            LatencyHistogram twice = new LatencyHistogram();
+            twice.merge(bigCounts);
+            bigCounts.merge(twice);
+        }
+        assertTrue(bigCounts.getTotalCount() > 1L << 40);
+
+        String compact = bigCounts.toCompactString();
+        assertTrue(compact.length() <= LatencyHistogram.MAX_COMPACT_LENGTH, "length " + compact.length());
+        LatencyHistogram copy = LatencyHistogram.fromCompactString(compact);
+        assertEquals(bigCounts.getTotalCount(), copy.getTotalCount());
+        // counts are moved to a higher bucket: a percentile is never under the real value
+        for (double percentile : new double[]{50.0, 90.0, 99.0, 99.9})
+            assertTrue(copy.getValueAtPercentile(percentile) >= bigCounts.getValueAtPercentile(percentile));
+    }
+
+    private static void assertPrecise(long expected, long value) {
+        assertTrue(value >= expected && value <= expected + expected / 16,
+                "expected[" + expected + "] value[" + value + "]");
+    }
+}
@@ -0,0 +1,36 @@
+package io.camunda.cherry.tracing;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JobSamplerTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+    private static SamplingDecision decide(Sampler sampler, String spanName) {
+        return sampler.shouldSample(Context.root(), TRACE_ID, spanName, SpanKind.INTERNAL, Attributes.empty(),
+                List.of()).getDecision();
+    }
+
+    @Test
+    public void jobSpanIsKeptWhateverTheProbability() {
+        Sampler sampler = new JobSampler().cherryJobSampler(0.0);
+        assertEquals(SamplingDecision.RECORD_AND_SAMPLE, decide(sampler, JobTracing.SPAN_JOB));
+        // an HTTP request follows the probability
+        assertEquals(SamplingDecision.DROP, decide(sampler, "http get /cherry/api/runner/list"));
+    }
+
+    @Test
+    public void otherSpansFollowTheProbability() {
+        Sampler sampler = new JobSampler().cherryJobSampler(1.0);
+        assertEquals(SamplingDecision.RECORD_AND_SAMPLE, decide(sampler, "http get /cherry/api/runner/list"));
+    }
+}
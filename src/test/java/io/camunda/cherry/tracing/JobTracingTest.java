@@ -0,0 +1,112 @@
+package io.camunda.cherry.tracing;
+
+import io.camunda.cherry.Stubs;
+import io.camunda.client.api.response.ActivatedJob;
+import io.micrometer.tracing.test.simple.SimpleSpan;
+import io.micrometer.tracing.test.simple.SimpleTracer;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JobTracingTest {
+
+    @Test
+    public void sampleRatePerRunner() {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources()
+                .addFirst(new MapPropertySource("test",
+                        Map.of("cherry.tracing.runner.c-always.samplerate", "1.0",
+                                "cherry.tracing.runner.c-never.samplerate", "0")));
+        JobTracing jobTracing = new JobTracing(new SimpleTracer(), environment, 0.25);
+
+        int sampled = 0;
+        for (long jobKey = 2251799813685249L; jobKey < 2251799813685249L + 10000; jobKey++) {
+            assertTrue(jobTracing.isSampled("c-always", jobKey));
+            assertFalse(jobTracing.isSampled("c-never", jobKey));
+            if (jobTracing.isSampled("c-default", jobKey))
+                sampled++;
+        }
+        // sequential keys, the rate is respected
+        assertTrue(sampled > 2300 && sampled < 2700, "sampled[" + sampled + "]");
+        // the decision is stable for a job
+        assertEquals(jobTracing.isSampled("c-default", 2251799813685300L),
+                jobTracing.isSampled("c-default", 2251799813685300L));
+    }
+
+    @Test
+    public void spanPerJobAndPhase() {
+        SimpleTracer tracer = new SimpleTracer();
+        JobTracing jobTracing = new JobTracing(tracer, new StandardEnvironment(), 1.0);
+
+        JobTrace jobTrace = jobTracing.start("c-trace", activatedJob(12L, 45L, "tenant1"));
+        assertTrue(jobTrace.isRecording());
+        jobTrace.bind();
+        try (JobTrace.Phase phase = jobTrace.phaseInScope(JobPhase.EXECUTE)) {
+            // code called in the phase finds the trace on the thread
+            try (JobTrace.Phase secretPhase = JobTrace.current().phase(JobPhase.SECRETS)) {
+                assertNotNull(secretPhase);
+            }
+        } finally {
+            JobTrace.unbind();
+        }
+        jobTrace.end("BPMNERROR", "NOT_FOUND");
+        // only the first end is considered
+        jobTrace.end("SUCCESS", null);
+
+        List<SimpleSpan> spans = List.copyOf(tracer.getSpans());
+        assertEquals(3, spans.size());
+        SimpleSpan jobSpan = spans.stream().filter(s -> JobTracing.SPAN_JOB.equals(s.getName())).findFirst().get();
+        assertEquals("12", jobSpan.getTags().get(JobTracing.ATTRIBUTE_JOB_KEY));
+        assertEquals("45", jobSpan.getTags().get(JobTracing.ATTRIBUTE_PROCESS_INSTANCE_KEY));
+        assertEquals("tenant1", jobSpan.getTags().get(JobTracing.ATTRIBUTE_TENANT));
+        assertEquals("c-trace", jobSpan.getTags().get(JobTracing.ATTRIBUTE_RUNNER_TYPE));
+        assertEquals("BPMNERROR", jobSpan.getTags().get(JobTracing.ATTRIBUTE_STATUS));
+        assertEquals("NOT_FOUND", jobSpan.getTags().get(JobTracing.ATTRIBUTE_ERROR_CODE));
+        assertTrue(spans.stream().anyMatch(s -> JobPhase.EXECUTE.getSpanName().equals(s.getName())));
+        assertTrue(spans.stream().anyMatch(s -> JobPhase.SECRETS.getSpanName().equals(s.getName())));
+    }
+
+    @Test
+    public void noSpanWhenNotSampled() {
+        SimpleTracer tracer = new SimpleTracer();
+        JobTracing jobTracing = new JobTracing(tracer, new StandardEnvironment(), 0.0);
+
+        JobTrace jobTrace = jobTracing.start("c-trace", activatedJob(12L, 45L, "tenant1"));
+        assertFalse(jobTrace.isRecording());
+        try (JobTrace.Phase phase = jobTrace.phase(JobPhase.EXECUTE)) {
+            assertNotNull(phase);
+        }
+        jobTrace.end("SUCCESS", null);
+        assertTrue(tracer.getSpans().isEmpty());
+        // the timing is collected, sampled or not
+        assertNotNull(jobTrace.getExecutionTiming().getPhaseNs(JobPhase.EXECUTE));
+        assertNull(jobTrace.getExecutionTiming().getPhaseNs(JobPhase.COMPLETE));
+        assertFalse(JobTracing.start(null, "c-trace", activatedJob(12L, 45L, "tenant1")).isRecording());
+    }
+
+    @Test
+    public void queueWait() {
+        // activated at 10_000, timeout 5 mn: deadline is 310_000
+        assertEquals(250_000_000L, ExecutionTiming.getQueueWaitNs(310_000L, 300_000L, 10_250L));
+        // clocks are not synchronized
+        assertEquals(0L, ExecutionTiming.getQueueWaitNs(310_000L, 300_000L, 9_000L));
+        assertNull(ExecutionTiming.getQueueWaitNs(310_000L, null, 10_250L));
+
+        ExecutionTiming executionTiming = new ExecutionTiming();
+        executionTiming.add(JobPhase.EXECUTE, 1000L);
+        executionTiming.add(JobPhase.COMPLETE, 300L);
+        executionTiming.exclude(JobPhase.EXECUTE, JobPhase.COMPLETE);
+        assertEquals(700L, executionTiming.getPhaseNs(JobPhase.EXECUTE));
+    }
+
+    private static ActivatedJob activatedJob(long jobKey, long processInstanceKey, String tenantId) {
+        return Stubs.stub(ActivatedJob.class,
+                Map.of("getKey", Stubs.returns(jobKey), "getProcessInstanceKey", Stubs.returns(processInstanceKey),
+                        "getTenantId", Stubs.returns(tenantId), "getElementId", Stubs.returns("task")));
+    }
+}
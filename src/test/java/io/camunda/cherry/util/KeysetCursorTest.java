@@ -0,0 +1,25 @@
+package io.camunda.cherry.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeysetCursorTest {
+
+    @Test
+    public void encodeDecode() {
+        KeysetCursor cursor = new KeysetCursor(LocalDateTime.of(2024, 3, 12, 10, 15, 30, 123000000), 4512L);
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode()));
+        assertNull(KeysetCursor.decode(""));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not-a-cursor"));
+    }
+
+    @Test
+    public void lastPageHasNoCursor() {
+        LocalDateTime time = LocalDateTime.of(2024, 3, 12, 10, 15);
+        assertNull(KeysetCursor.next(time, 12L, 15, 20));
+        assertNotNull(KeysetCursor.next(time, 12L, 20, 20));
+    }
+}
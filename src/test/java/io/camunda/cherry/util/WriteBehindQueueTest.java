@@ -0,0 +1,183 @@
+package io.camunda.cherry.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteBehindQueueTest {
+
+    /**
+     * Flush function blocked until the test releases it: the flusher holds one record, the buffer fills
+     */
+    private static class BlockedFlush implements Consumer<List<Integer>> {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Integer> flushed = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void accept(List<Integer> batch) {
+            entered.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flushed.addAll(batch);
+        }
+    }
+
+    private WriteBehindQueue<Integer> startBlocked(int capacity,
+                                                   WriteBehindQueue.OverflowPolicy overflowPolicy,
+                                                   long blockTimeoutMs,
+                                                   int sampleRate,
+                                                   BlockedFlush flush) throws InterruptedException {
+        WriteBehindQueue<Integer> queue = new WriteBehindQueue<>("test", capacity, 1, 10, overflowPolicy,
+                blockTimeoutMs, sampleRate, flush);
+        queue.start();
+        assertTrue(queue.offer(0));
+        assertTrue(flush.entered.await(5, TimeUnit.SECONDS));
+        return queue;
+    }
+
+    @Test
+    public void dropWhenFull() throws InterruptedException {
+        BlockedFlush flush = new BlockedFlush();
+        WriteBehindQueue<Integer> queue = startBlocked(2, WriteBehindQueue.OverflowPolicy.DROP, 0, 1, flush);
+        assertTrue(queue.offer(1));
+        assertTrue(queue.offer(2));
+        assertFalse(queue.offer(3));
+        assertEquals(1, queue.getDropped());
+
+        flush.release.countDown();
+        queue.stop(5000);
+        assertEquals(List.of(0, 1, 2), flush.flushed);
+        assertEquals(3, queue.getFlushed());
+    }
+
+    @Test
+    public void blockWaitsForAFreeSlot() throws InterruptedException {
+        BlockedFlush flush = new BlockedFlush();
+        WriteBehindQueue<Integer> queue = startBlocked(1, WriteBehindQueue.OverflowPolicy.BLOCK, 100, 1, flush);
+        assertTrue(queue.offer(1));
+
+        long begin = System.nanoTime();
+        assertFalse(queue.offer(2));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) >= 90);
+        assertEquals(1, queue.getDropped());
+
+        // the flusher frees a slot while the producer waits
+        WriteBehindQueue<Integer> slowQueue = new WriteBehindQueue<>("test", 1, 1, 10,
+                WriteBehindQueue.OverflowPolicy.BLOCK, 5000, 1, batch -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        slowQueue.start();
+        for (int i = 0; i < 5; i++)
+            assertTrue(slowQueue.offer(i));
+        slowQueue.stop(5000);
+        assertEquals(0, slowQueue.getDropped());
+        assertEquals(5, slowQueue.getFlushed());
+
+        flush.release.countDown();
+        queue.stop(5000);
+    }
+
+    @Test
+    public void sampleKeepsOneRecordOutOfRateWhenHalfFull() throws InterruptedException {
+        BlockedFlush flush = new BlockedFlush();
+        WriteBehindQueue<Integer> queue = startBlocked(10, WriteBehindQueue.OverflowPolicy.SAMPLE, 0, 3, flush);
+        for (int i = 1; i <= 5; i++)
+            assertTrue(queue.offer(i));
+        int accepted = 0;
+        for (int i = 6; i <= 14; i++) {
+            if (queue.offer(i))
+                accepted++;
+        }
+        assertEquals(3, accepted);
+        assertEquals(6, queue.getDropped());
+
+        flush.release.countDown();
+        queue.stop(5000);
+        assertEquals(9, flush.flushed.size());
+    }
+
+    @Test
+    public void stopWritesEveryAcceptedRecord() throws InterruptedException {
+        AtomicInteger flushed = new AtomicInteger();
+        WriteBehindQueue<Integer> queue = new WriteBehindQueue<>("test", 100_000, 50, 5,
+                WriteBehindQueue.OverflowPolicy.DROP, 0, 1, batch -> flushed.addAndGet(batch.size()));
+        queue.start();
+
+        AtomicInteger accepted = new AtomicInteger();
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    if (queue.offer(i))
+                        accepted.incrementAndGet();
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        // stop while the producers are running: records added after the last drain are written by the producer
+        Thread.sleep(2);
+        queue.stop(5000);
+        for (Thread producer : producers)
+            producer.join();
+
+        assertEquals(accepted.get(), flushed.get());
+        assertEquals(0, queue.getQueueDepth());
+        assertTrue(queue.offer(1));
+        assertEquals(accepted.get() + 1, flushed.get());
+    }
+
+    @Test
+    public void stopDoesNotInterruptABatchInProgress() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        AtomicInteger interrupted = new AtomicInteger();
+        AtomicInteger flushed = new AtomicInteger();
+        WriteBehindQueue<Integer> queue = new WriteBehindQueue<>("test", 10, 1, 10,
+                WriteBehindQueue.OverflowPolicy.DROP, 0, 1, batch -> {
+            entered.countDown();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+            }
+            flushed.addAndGet(batch.size());
+        });
+        queue.start();
+        queue.offer(1);
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        queue.stop(5000);
+        assertEquals(0, interrupted.get());
+        assertEquals(1, flushed.get());
+        assertEquals(0, queue.getFlushErrors());
+    }
+
+    @Test
+    public void flushErrorIsCounted() {
+        WriteBehindQueue<Integer> queue = new WriteBehindQueue<>("test", 10, 10, 10,
+                WriteBehindQueue.OverflowPolicy.DROP, 0, 1, batch -> {
+            throw new IllegalStateException("database down");
+        });
+        queue.start();
+        queue.offer(1);
+        queue.offer(2);
+        queue.stop(5000);
+        assertEquals(2, queue.getFlushErrors());
+        assertEquals(0, queue.getFlushed());
+    }
+}
@@ -0,0 +1,80 @@
+package io.camunda.cherry.zeebe;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BrokerCircuitBreakerTest {
+
+    private BrokerCircuitBreaker newCircuitBreaker() {
+        return new BrokerCircuitBreaker(true, 30000, 2, 3, 10000, 1000, 60000, 5, 2000);
+    }
+
+    @Test
+    public void outageAndRecovery() {
+        BrokerCircuitBreaker circuitBreaker = newCircuitBreaker();
+        assertTrue(circuitBreaker.isProbeDue(0));
+        assertEquals(BrokerCircuitBreaker.State.CLOSED, circuitBreaker.onProbe(true, null, 0));
+        assertFalse(circuitBreaker.isProbeDue(29999));
+
+        // one failed ping is checked again soon, the second one in a row opens the circuit
+        assertEquals(BrokerCircuitBreaker.State.CLOSED, circuitBreaker.onProbe(false, "UNAVAILABLE", 30000));
+        assertFalse(circuitBreaker.isProbeDue(30000 + 499));
+        assertTrue(circuitBreaker.isProbeDue(30000 + 1000));
+        assertEquals(BrokerCircuitBreaker.State.OPEN, circuitBreaker.onProbe(false, "UNAVAILABLE", 31000));
+        assertTrue(circuitBreaker.isProbeDue(31000 + 1000));
+        assertEquals(BrokerCircuitBreaker.State.OPEN, circuitBreaker.onProbe(false, "UNAVAILABLE", 32000));
+
+        // broker is back: runners are resumed now, then the circuit is closed
+        assertEquals(BrokerCircuitBreaker.State.HALF_OPEN, circuitBreaker.onProbe(true, null, 40000));
+        assertTrue(circuitBreaker.isProbeDue(40000));
+        circuitBreaker.onResumeComplete(40000);
+        assertEquals(BrokerCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void failureWhileResumingOpensAgain() {
+        BrokerCircuitBreaker circuitBreaker = newCircuitBreaker();
+        circuitBreaker.onProbe(false, "UNAVAILABLE", 0);
+        circuitBreaker.onProbe(false, "UNAVAILABLE", 1000);
+        assertEquals(BrokerCircuitBreaker.State.HALF_OPEN, circuitBreaker.onProbe(true, null, 2000));
+        // while resuming, a single failed ping opens the circuit again
+        assertEquals(BrokerCircuitBreaker.State.OPEN, circuitBreaker.onProbe(false, "UNAVAILABLE", 3000));
+        // onResumeComplete is ignored when the circuit is not HALF_OPEN
+        circuitBreaker.onResumeComplete(2000);
+        assertEquals(BrokerCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void successfulPingResetsTheFailedPings() {
+        BrokerCircuitBreaker circuitBreaker = newCircuitBreaker();
+        assertEquals(BrokerCircuitBreaker.State.CLOSED, circuitBreaker.onProbe(false, "UNAVAILABLE", 0));
+        assertEquals(BrokerCircuitBreaker.State.CLOSED, circuitBreaker.onProbe(true, null, 1000));
+        assertEquals(BrokerCircuitBreaker.State.CLOSED, circuitBreaker.onProbe(false, "UNAVAILABLE", 31000));
+        assertEquals(BrokerCircuitBreaker.State.OPEN, circuitBreaker.onProbe(false, "UNAVAILABLE", 32000));
+    }
+
+    @Test
+    public void commandFailuresAskForAProbe() {
+        BrokerCircuitBreaker circuitBreaker = newCircuitBreaker();
+        circuitBreaker.onProbe(true, null, 0);
+        circuitBreaker.recordCommandFailure(new RuntimeException("Job not found"), 100);
+        circuitBreaker.recordCommandFailure(new RuntimeException(new ConnectException("Connection refused")), 100);
+        circuitBreaker.recordCommandFailure(new RuntimeException("io.grpc.StatusRuntimeException: UNAVAILABLE"), 200);
+        assertFalse(circuitBreaker.isProbeDue(300));
+        circuitBreaker.recordCommandFailure(new RuntimeException("DEADLINE_EXCEEDED"), 300);
+        assertTrue(circuitBreaker.isProbeDue(300));
+    }
+
+    @Test
+    public void backoffIsJitteredAndBounded() {
+        BrokerCircuitBreaker circuitBreaker = newCircuitBreaker();
+        for (int attempt = 0; attempt < 40; attempt++) {
+            long expected = Math.min(60000, 1000L << Math.min(attempt, 30));
+            long backoff = circuitBreaker.getBackoffMs(attempt);
+            assertTrue(backoff >= expected / 2 && backoff <= expected, "attempt " + attempt + ": " + backoff);
+        }
+    }
+}